@@ -0,0 +1,184 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.bulkedit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.dspace.core.Context;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming reader for CSV files in the bulk metadata editing format. The
+ * heading line is read and validated when the reader is opened, and each
+ * subsequent CSV line is parsed only when it is asked for, so that very large
+ * files can be processed without holding them in memory.
+ */
+public class DSpaceCSVReader implements Closeable
+{
+    /** The CSV holder providing the headings and separators (holds no lines) */
+    private DSpaceCSV csv;
+
+    /** The underlying file reader */
+    private BufferedReader input;
+
+    /** The number of CSV lines read so far */
+    private int counter;
+
+    /**
+     * Open a CSV file for streaming, reading and validating its heading line
+     *
+     * @param f The file to read from
+     * @param c The DSpace Context
+     *
+     * @throws Exception thrown if there is an error reading the file or its headings
+     */
+    public DSpaceCSVReader(File f, Context c) throws Exception
+    {
+        this(f, c, new DSpaceCSV(false));
+    }
+
+    /**
+     * Open a CSV file for streaming, storing its headings in the given CSV holder
+     *
+     * @param f The file to read from
+     * @param c The DSpace Context
+     * @param csv The CSV holder to store the headings in
+     *
+     * @throws Exception thrown if there is an error reading the file or its headings
+     */
+    DSpaceCSVReader(File f, Context c, DSpaceCSV csv) throws Exception
+    {
+        this.csv = csv;
+        input = new BufferedReader(new InputStreamReader(new FileInputStream(f), "UTF-8"));
+        try
+        {
+            // Read the heading line
+            csv.parseHeadings(input.readLine(), c);
+        }
+        catch (Exception e)
+        {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the CSV holder for this file. It holds the headings of the file,
+     * but none of its lines.
+     *
+     * @return The CSV holder
+     */
+    public DSpaceCSV getCSV()
+    {
+        return csv;
+    }
+
+    /**
+     * Get the number of CSV lines read so far
+     *
+     * @return The number of lines read
+     */
+    public int getLinesRead()
+    {
+        return counter;
+    }
+
+    /**
+     * Read the next CSV line. A CSV line may span several lines of the file
+     * if a quoted value contains line breaks.
+     *
+     * @return The next CSV line, or null if the end of the file (or a blank line) is reached
+     *
+     * @throws Exception thrown if there is an error reading or parsing the line
+     */
+    public DSpaceCSVLine next() throws Exception
+    {
+        StringBuilder lineBuilder = new StringBuilder();
+        String lineRead;
+
+        while (StringUtils.isNotBlank(lineRead = input.readLine()))
+        {
+            if (lineBuilder.length() > 0) {
+                // Already have a previously read value - add this line
+                lineBuilder.append("\n").append(lineRead);
+
+                if (countQuotes(lineBuilder) % 2 == 0) {
+                    // Number of quotes is a multiple of 2, this is the whole line
+                    return parse(lineBuilder.toString());
+                }
+            } else if (lineRead.indexOf('"') > -1) {
+                if (countQuotes(lineRead) % 2 == 0) {
+                    // Number of quotes is a multiple of 2, this is the whole line
+                    return parse(lineRead);
+                } else {
+                    // Uneven quotes - add to the buffer and leave for later
+                    lineBuilder.append(lineRead);
+                }
+            } else {
+                // No previously read line, and no quotes in the line
+                return parse(lineRead);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read up to the given number of CSV lines
+     *
+     * @param max The maximum number of lines to read
+     * @return The lines read, which is empty once the end of the file is reached
+     *
+     * @throws Exception thrown if there is an error reading or parsing a line
+     */
+    public List<DSpaceCSVLine> next(int max) throws Exception
+    {
+        List<DSpaceCSVLine> chunk = new ArrayList<DSpaceCSVLine>(max);
+        DSpaceCSVLine line;
+        while ((chunk.size() < max) && ((line = next()) != null))
+        {
+            chunk.add(line);
+        }
+        return chunk;
+    }
+
+    /**
+     * Close the underlying file
+     *
+     * @throws IOException thrown if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        input.close();
+    }
+
+    /**
+     * Parse a complete CSV line against the headings of the file
+     */
+    private DSpaceCSVLine parse(String line) throws Exception
+    {
+        counter++;
+        return csv.parseLine(line);
+    }
+
+    /**
+     * Count the number of quote characters in a buffer
+     */
+    private static int countQuotes(CharSequence buffer)
+    {
+        int quoteCount = 0;
+        for (int pos = 0; pos < buffer.length(); pos++) {
+            if (buffer.charAt(pos) == '"') {
+                quoteCount++;
+            }
+        }
+        return quoteCount;
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.bulkedit;
+
+import java.io.*;
+import java.util.List;
+
+/**
+ * Streaming writer for CSV files in the bulk metadata editing format. The
+ * heading line is written when the writer is opened, so the headings of the
+ * given CSV holder must already be complete; each CSV line is then written
+ * out as soon as it is given, rather than being held in memory.
+ */
+public class DSpaceCSVWriter implements Closeable
+{
+    /** The sorted headings, defining the order of the columns */
+    private List<String> headings;
+
+    /** The underlying file writer */
+    private BufferedWriter out;
+
+    /**
+     * Open a CSV file for writing, and write out the heading line
+     *
+     * @param filename The filename to save the CSV file to
+     * @param csv The CSV holder providing the headings
+     *
+     * @throws IOException Thrown if an error occurs when writing the file
+     */
+    public DSpaceCSVWriter(String filename, DSpaceCSV csv) throws IOException
+    {
+        headings = csv.getSortedHeadings();
+        out = new BufferedWriter(
+              new OutputStreamWriter(
+              new FileOutputStream(filename), "UTF-8"));
+        out.write(csv.getHeadingLine(headings) + "\n");
+    }
+
+    /**
+     * Write a CSV line to the file
+     *
+     * @param line The CSV line
+     *
+     * @throws IOException Thrown if an error occurs when writing the file
+     */
+    public void write(DSpaceCSVLine line) throws IOException
+    {
+        out.write(line.toCSV(headings) + "\n");
+    }
+
+    /**
+     * Flush and close the file
+     *
+     * @throws IOException Thrown if an error occurs when writing the file
+     */
+    @Override
+    public void close() throws IOException
+    {
+        out.flush();
+        out.close();
+    }
+}
@@ -13,6 +13,7 @@ import org.dspace.content.*;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.handle.HandleManager;
+import org.dspace.storage.rdbms.DatabaseManager;
 
 import java.util.ArrayList;
 import java.sql.SQLException;
@@ -25,6 +26,9 @@ import java.util.List;
  */
 public class MetadataExport
 {
+    /** The Context */
+    private Context context;
+
     /** The items to export */
     private ItemIterator toExport;
 
@@ -41,7 +45,8 @@ public class MetadataExport
     public MetadataExport(Context c, ItemIterator toExport, boolean exportAll)
     {
         // Store the export settings
-        this.toExport = toExport;
+        this.context = c;
+        this.toExport = toExport.setPrefetchSize(ItemIterator.BATCH_PREFETCH_SIZE);
         this.exportAll = exportAll;
     }
 
@@ -57,7 +62,9 @@ public class MetadataExport
         try
         {
             // Try to export the community
-            this.toExport = new ItemIterator(c, buildFromCommunity(toExport, new ArrayList<Integer>(), 0));
+            this.context = c;
+            this.toExport = new ItemIterator(c, buildFromCommunity(toExport, new ArrayList<Integer>(), 0))
+                    .setPrefetchSize(ItemIterator.BATCH_PREFETCH_SIZE);
             this.exportAll = exportAll;
         }
         catch (SQLException sqle)
@@ -144,6 +151,65 @@ public class MetadataExport
         }
     }
 
+    /**
+     * Run the export, streaming it straight to a file. The items are read
+     * twice: once to find the headings, and once to write each CSV line as
+     * it is built, so only the item IDs are held in memory.
+     *
+     * @param filename The filename to save the CSV file to
+     *
+     * @throws Exception if something goes wrong reading the items or writing the file
+     */
+    public void exportToFile(String filename) throws Exception
+    {
+        // First pass: gather the headings and the IDs of the items to export
+        DSpaceCSV csv = new DSpaceCSV(exportAll);
+        List<Integer> itemIDs = new ArrayList<Integer>();
+        try
+        {
+            while (toExport.hasNext())
+            {
+                Item item = toExport.next();
+                if (csv.toCSVLine(item) != null)
+                {
+                    itemIDs.add(item.getID());
+                }
+                context.removeCached(item, item.getID());
+            }
+        }
+        finally
+        {
+            toExport.close();
+        }
+
+        // Second pass: write out each item as it is read, reading them in
+        // blocks as in the first pass
+        ItemIterator items = new ItemIterator(context, itemIDs)
+                .setPrefetchSize(ItemIterator.BATCH_PREFETCH_SIZE);
+        DSpaceCSVWriter writer = new DSpaceCSVWriter(filename, csv);
+        try
+        {
+            while (items.hasNext())
+            {
+                Item item = items.next();
+                if (item != null)
+                {
+                    DSpaceCSVLine line = csv.toCSVLine(item);
+                    if (line != null)
+                    {
+                        writer.write(line);
+                    }
+                    context.removeCached(item, item.getID());
+                }
+            }
+        }
+        finally
+        {
+            items.close();
+            writer.close();
+        }
+    }
+
     /**
      * Print the help message
      *
@@ -175,6 +241,7 @@ public class MetadataExport
         options.addOption("i", "id", true, "ID or handle of thing to export (item, collection, or community)");
         options.addOption("f", "file", true, "destination where you want file written");
         options.addOption("a", "all", false, "include all metadata fields that are not normally changed (e.g. provenance)");
+        options.addOption("s", "stream", false, "stream the export to the file rather than building it in memory (for very large exports)");
         options.addOption("h", "help", false, "help");
 
         CommandLine line = null;
@@ -218,7 +285,7 @@ public class MetadataExport
         if (!line.hasOption('i'))
         {
             System.out.println("Exporting whole repository WARNING: May take some time!");
-            exporter = new MetadataExport(c, Item.findAll(c), exportAll);
+            exporter = new MetadataExport(c, Item.findAll(c, DatabaseManager.getBulkFetchSize()), exportAll);
         }
         else
         {
@@ -257,10 +324,18 @@ public class MetadataExport
         }
 
         // Perform the export
-        DSpaceCSV csv = exporter.export();
+        if (line.hasOption('s'))
+        {
+            // Write each item to the file as it is exported
+            exporter.exportToFile(filename);
+        }
+        else
+        {
+            DSpaceCSV csv = exporter.export();
 
-        // Save the files to the file
-        csv.save(filename);        
+            // Save the files to the file
+            csv.save(filename);
+        }
 
         // Finish off and tidy up
         c.restoreAuthSystemState();
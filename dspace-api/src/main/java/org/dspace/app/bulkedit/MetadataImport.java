@@ -27,6 +27,7 @@ import org.dspace.workflow.WorkflowManager;
 import org.dspace.xmlworkflow.XmlWorkflowManager;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.io.File;
 import java.io.InputStreamReader;
 import java.io.BufferedReader;
@@ -34,8 +35,14 @@ import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Metadata importer to allow the batch import of metadata from a file
@@ -109,298 +116,546 @@ public class MetadataImport
             // Process each change
             for (DSpaceCSVLine line : toImport)
             {
-                // Get the DSpace item to compare with
+                BulkEditChange whatHasChanged = importLine(line, change, useWorkflow, workflowNotify, useTemplate);
+                if (whatHasChanged != null)
+                {
+                    changes.add(whatHasChanged);
+                }
+            }
+        }
+        catch (MetadataImportException mie)
+        {
+            throw mie;
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+
+        // Return the changes
+        return changes;
+    }
+
+    /**
+     * Run an import streamed from a CSV file. The CSV lines are read in chunks,
+     * and each chunk is processed by one of a pool of worker threads, each
+     * using its own Context. When writing changes, each chunk is committed
+     * separately, so a failure part way through leaves the chunks already
+     * processed in place. The changes of each chunk are displayed, in the
+     * order of the file, as soon as it is done, and are not kept afterwards.
+     * <P>
+     * As chunks are processed concurrently, each item may only be on one line
+     * of the file. This is checked before anything is imported.
+     *
+     * @param file The CSV file to import
+     * @param change Whether or not to write the changes to the database
+     * @param useWorkflow Whether the workflows should be used when creating new items
+     * @param workflowNotify If the workflows should be used, whether to send notifications or not
+     * @param useTemplate Use collection template if create new item
+     * @param threads The number of worker threads
+     * @param chunkSize The number of CSV lines in each chunk
+     * @return The number of items that have changed
+     *
+     * @throws MetadataImportException if something goes wrong
+     */
+    public int runImport(File file,
+                         boolean change,
+                         boolean useWorkflow,
+                         boolean workflowNotify,
+                         boolean useTemplate,
+                         int threads,
+                         int chunkSize) throws MetadataImportException
+    {
+        checkDuplicateIDs(file);
+
+        DSpaceCSVReader reader = openReader(file);
+        int changeCounter = 0;
+
+        // Limit the number of chunks read ahead of the workers
+        LinkedList<Future<List<BulkEditChange>>> pending = new LinkedList<Future<List<BulkEditChange>>>();
+        int maxPending = threads * 2;
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try
+        {
+            List<DSpaceCSVLine> chunk;
+            while (!(chunk = reader.next(chunkSize)).isEmpty())
+            {
+                pending.add(workers.submit(new ImportChunk(reader.getCSV(), chunk, change,
+                                                           useWorkflow, workflowNotify, useTemplate)));
+                if (pending.size() >= maxPending)
+                {
+                    changeCounter += displayChanges(pending.removeFirst().get(), change);
+                }
+            }
+            while (!pending.isEmpty())
+            {
+                changeCounter += displayChanges(pending.removeFirst().get(), change);
+            }
+            log.info(LogManager.getHeader(c, "metadata_import",
+                                          "lines=" + reader.getLinesRead() + ",changes=" + changeCounter));
+        }
+        catch (ExecutionException ee)
+        {
+            if (ee.getCause() instanceof MetadataImportException)
+            {
+                throw (MetadataImportException)ee.getCause();
+            }
+            throw new MetadataImportException("Error importing CSV line", ee);
+        }
+        catch (MetadataImportException mie)
+        {
+            throw mie;
+        }
+        catch (Exception e)
+        {
+            throw new MetadataImportException("Error reading CSV file", e);
+        }
+        finally
+        {
+            workers.shutdownNow();
+            closeReader(reader, file);
+        }
+
+        return changeCounter;
+    }
+
+    /**
+     * Check that no item is on more than one line of a CSV file, reading
+     * only the item ids of its lines
+     *
+     * @throws MetadataImportException if an item is on more than one line
+     */
+    private void checkDuplicateIDs(File file) throws MetadataImportException
+    {
+        DSpaceCSVReader reader = openReader(file);
+        try
+        {
+            BitSet seen = new BitSet();
+            DSpaceCSVLine line;
+            while ((line = reader.next()) != null)
+            {
                 int id = line.getID();
+                if (id < 0)
+                {
+                    // A new item
+                    continue;
+                }
+                if (seen.get(id))
+                {
+                    throw new MetadataImportException("Item " + id + " is on more than one line of the CSV file " +
+                                                      "(line " + reader.getLinesRead() + ")");
+                }
+                seen.set(id);
+            }
+        }
+        catch (MetadataImportException mie)
+        {
+            throw mie;
+        }
+        catch (Exception e)
+        {
+            throw new MetadataImportException("Error reading CSV file", e);
+        }
+        finally
+        {
+            closeReader(reader, file);
+        }
+    }
+
+    private DSpaceCSVReader openReader(File file) throws MetadataImportException
+    {
+        try
+        {
+            return new DSpaceCSVReader(file, c);
+        }
+        catch (Exception e)
+        {
+            throw new MetadataImportException("Error reading file: " + e.getMessage(), e);
+        }
+    }
 
-                // Is there an action column?
-                if (csv.hasActions() && (!"".equals(line.getAction())) && (id == -1))
+    private static void closeReader(DSpaceCSVReader reader, File file)
+    {
+        try
+        {
+            reader.close();
+        }
+        catch (IOException ioe)
+        {
+            log.warn("Unable to close " + file, ioe);
+        }
+    }
+
+    /**
+     * A chunk of CSV lines processed by a worker thread, in its own Context
+     */
+    private class ImportChunk implements Callable<List<BulkEditChange>>
+    {
+        private final DSpaceCSV headings;
+        private final List<DSpaceCSVLine> lines;
+        private final boolean change;
+        private final boolean useWorkflow;
+        private final boolean workflowNotify;
+        private final boolean useTemplate;
+
+        ImportChunk(DSpaceCSV headings, List<DSpaceCSVLine> lines, boolean change,
+                    boolean useWorkflow, boolean workflowNotify, boolean useTemplate)
+        {
+            this.headings = headings;
+            this.lines = lines;
+            this.change = change;
+            this.useWorkflow = useWorkflow;
+            this.workflowNotify = workflowNotify;
+            this.useTemplate = useTemplate;
+        }
+
+        @Override
+        public List<BulkEditChange> call() throws Exception
+        {
+            Context context = new Context();
+            try
+            {
+                // Act as the same user as the calling context
+                if (c.getCurrentUser() != null)
+                {
+                    context.setCurrentUser(EPerson.find(context, c.getCurrentUser().getID()));
+                }
+                if (c.ignoreAuthorization())
                 {
-                    throw new MetadataImportException("'action' not allowed for new items!");
+                    context.turnOffAuthorisationSystem();
                 }
 
-                // Is this a new item?
-                if (id != -1)
+                MetadataImport importer = new MetadataImport(context, headings);
+                List<BulkEditChange> chunkChanges = new ArrayList<BulkEditChange>();
+                for (DSpaceCSVLine line : lines)
                 {
-                    // Get the item
-                    Item item = Item.find(c, id);
-                    if (item == null)
+                    BulkEditChange whatHasChanged = importer.importLine(line, change, useWorkflow,
+                                                                       workflowNotify, useTemplate);
+                    if (whatHasChanged != null)
                     {
-                        throw new MetadataImportException("Unknown item ID " + id);
+                        chunkChanges.add(whatHasChanged);
                     }
+                }
 
-                    // Record changes
-                    BulkEditChange whatHasChanged = new BulkEditChange(item);
+                // Commit the chunk
+                if (change)
+                {
+                    context.complete();
+                }
+                return chunkChanges;
+            }
+            finally
+            {
+                if (context.isValid())
+                {
+                    context.abort();
+                }
+            }
+        }
+    }
 
-                    // Has it moved collection?
-                    List<String> collections = line.get("collection");
-                    if (collections != null)
-                    {
-                        // Sanity check we're not orphaning it
-                        if (collections.size() == 0)
+    /**
+     * Compare a single CSV line with the item it represents (or, for a new
+     * item, the metadata it will be created with), and optionally write the
+     * changes to the database.
+     *
+     * @param line The CSV line to import
+     * @param change Whether or not to write the changes to the database
+     * @param useWorkflow Whether the workflows should be used when creating new items
+     * @param workflowNotify If the workflows should be used, whether to send notifications or not
+     * @param useTemplate Use collection template if create new item
+     * @return The changes for this line, or null if nothing has changed
+     *
+     * @throws MetadataImportException if something goes wrong to be reported back to the user
+     * @throws Exception if something else goes wrong
+     */
+    private BulkEditChange importLine(DSpaceCSVLine line,
+                                      boolean change,
+                                      boolean useWorkflow,
+                                      boolean workflowNotify,
+                                      boolean useTemplate) throws Exception
+    {
+        // Get the DSpace item to compare with
+        int id = line.getID();
+
+        // Is there an action column?
+        if (csv.hasActions() && (!"".equals(line.getAction())) && (id == -1))
+        {
+            throw new MetadataImportException("'action' not allowed for new items!");
+        }
+
+        // Is this a new item?
+        if (id != -1)
+        {
+            // Get the item
+            Item item = Item.find(c, id);
+            if (item == null)
+            {
+                throw new MetadataImportException("Unknown item ID " + id);
+            }
+
+            // Record changes
+            BulkEditChange whatHasChanged = new BulkEditChange(item);
+
+            // Has it moved collection?
+            List<String> collections = line.get("collection");
+            if (collections != null)
+            {
+                // Sanity check we're not orphaning it
+                if (collections.size() == 0)
+                {
+                    throw new MetadataImportException("Missing collection from item " + item.getHandle());
+                }
+                Collection[] actualCollections = item.getCollections();
+                compare(item, collections, actualCollections, whatHasChanged, change);
+            }
+
+            // Iterate through each metadata element in the csv line
+            for (String md : line.keys())
+            {
+                // Get the values we already have
+                if (!"id".equals(md))
+                {
+                    // Get the values from the CSV
+                    String[] fromCSV = line.get(md).toArray(new String[line.get(md).size()]);
+                    // Remove authority unless the md is not authority controlled
+                    if (!isAuthorityControlledField(md))
+                    { 
+                        for (int i=0; i<fromCSV.length; i++)
                         {
-                            throw new MetadataImportException("Missing collection from item " + item.getHandle());
+                            int pos = fromCSV[i].indexOf(DSpaceCSV.authoritySeparator);
+                            if (pos > -1)
+                            {
+                                fromCSV[i] = fromCSV[i].substring(0, pos);
+                            }
                         }
-                        Collection[] actualCollections = item.getCollections();
-                        compare(item, collections, actualCollections, whatHasChanged, change);
                     }
 
-                    // Iterate through each metadata element in the csv line
-                    for (String md : line.keys())
-                    {
-                        // Get the values we already have
-                        if (!"id".equals(md))
-                        {
-                            // Get the values from the CSV
-                            String[] fromCSV = line.get(md).toArray(new String[line.get(md).size()]);
-                            // Remove authority unless the md is not authority controlled
-                            if (!isAuthorityControlledField(md))
-                            { 
-                                for (int i=0; i<fromCSV.length; i++)
-                                {
-                                    int pos = fromCSV[i].indexOf(DSpaceCSV.authoritySeparator);
-                                    if (pos > -1)
-                                    {
-                                        fromCSV[i] = fromCSV[i].substring(0, pos);
-                                    }
-                                }
-                            }
+                    // Compare
+                    compare(item, fromCSV, change, md, whatHasChanged, line);
+                }
+            }
 
-                            // Compare
-                            compare(item, fromCSV, change, md, whatHasChanged, line);
-                        }
+            if (csv.hasActions())
+            {
+                // Perform the action
+                String action = line.getAction();
+                if ("".equals(action))
+                {
+                    // Do nothing
+                }
+                else if ("expunge".equals(action))
+                {
+                    // Does the configuration allow deletes?
+                    if (!ConfigurationManager.getBooleanProperty("bulkedit", "allowexpunge", false))
+                    {
+                        throw new MetadataImportException("'expunge' action denied by configuration");
                     }
 
-                    if (csv.hasActions())
+                    // Remove the item
+                    Collection[] owners = item.getCollections();
+                    for (Collection owner : owners)
                     {
-                        // Perform the action
-                        String action = line.getAction();
-                        if ("".equals(action))
+                        if (change)
                         {
-                            // Do nothing
+                            owner.removeItem(item);
                         }
-                        else if ("expunge".equals(action))
+                    }
+                    whatHasChanged.setDeleted();
+                }
+                else if ("withdraw".equals(action))
+                {
+                    // Withdraw the item
+                    if (!item.isWithdrawn())
+                    {
+                        if (change)
                         {
-                            // Does the configuration allow deletes?
-                            if (!ConfigurationManager.getBooleanProperty("bulkedit", "allowexpunge", false))
-                            {
-                                throw new MetadataImportException("'expunge' action denied by configuration");
-                            }
-
-                            // Remove the item
-                            Collection[] owners = item.getCollections();
-                            for (Collection owner : owners)
-                            {
-                                if (change)
-                                {
-                                    owner.removeItem(item);
-                                }
-                            }
-                            whatHasChanged.setDeleted();
+                            item.withdraw();
                         }
-                        else if ("withdraw".equals(action))
+                        whatHasChanged.setWithdrawn();
+                    }
+                }
+                else if ("reinstate".equals(action))
+                {
+                    // Reinstate the item
+                    if (item.isWithdrawn())
+                    {
+                        if (change)
                         {
-                            // Withdraw the item
-                            if (!item.isWithdrawn())
-                            {
-                                if (change)
-                                {
-                                    item.withdraw();
-                                }
-                                whatHasChanged.setWithdrawn();
-                            }
+                            item.reinstate();
                         }
-                        else if ("reinstate".equals(action))
+                        whatHasChanged.setReinstated();
+                    }
+                }
+                else {
+                    // Unknown action!
+                    throw new MetadataImportException("Unknown action: " + action);
+                }
+            }
+
+            // Only record if changes have been made
+            if (whatHasChanged.hasChanges())
+            {
+                return whatHasChanged;
+            }
+            return null;
+        }
+        else
+        {
+            // This is marked as a new item, so no need to compare
+
+            // First check a user is set, otherwise this can't happen
+            if (c.getCurrentUser() == null)
+            {
+                throw new MetadataImportException("When adding new items, a user must be specified with the -e option");
+            }
+
+            // Iterate through each metadata element in the csv line
+            BulkEditChange whatHasChanged = new BulkEditChange();
+            for (String md : line.keys())
+            {
+                // Get the values we already have
+                if (!"id".equals(md))
+                {
+                    // Get the values from the CSV
+                    String[] fromCSV = line.get(md).toArray(new String[line.get(md).size()]);
+
+                    // Remove authority unless the md is not authority controlled
+                    if (!isAuthorityControlledField(md))
+                    { 
+                        for (int i=0; i<fromCSV.length; i++)
                         {
-                            // Reinstate the item
-                            if (item.isWithdrawn())
+                            int pos = fromCSV[i].indexOf(DSpaceCSV.authoritySeparator);
+                            if (pos > -1)
                             {
-                                if (change)
-                                {
-                                    item.reinstate();
-                                }
-                                whatHasChanged.setReinstated();
+                                fromCSV[i] = fromCSV[i].substring(0, pos);
                             }
                         }
-                        else {
-                            // Unknown action!
-                            throw new MetadataImportException("Unknown action: " + action);
-                        }
                     }
 
-                    // Only record if changes have been made
-                    if (whatHasChanged.hasChanges())
-                    {
-                        changes.add(whatHasChanged);
-                    }
+                    // Add all the values from the CSV line
+                    add(fromCSV, md, whatHasChanged);
                 }
-                else
+            }
+
+            // Check it has an owning collection
+            List<String> collections = line.get("collection");
+            if (collections == null)
+            {
+                throw new MetadataImportException("New items must have a 'collection' assigned in the form of a handle");
+            }
+
+            // Check collections are really collections
+            ArrayList<Collection> check = new ArrayList<Collection>();
+            Collection collection;
+            for (String handle : collections)
+            {
+                try
                 {
-                    // This is marked as a new item, so no need to compare
+                    // Resolve the handle to the collection
+                    collection = (Collection)HandleManager.resolveToObject(c, handle);
 
-                    // First check a user is set, otherwise this can't happen
-                    if (c.getCurrentUser() == null)
+                    // Check it resolved OK
+                    if (collection == null)
                     {
-                        throw new MetadataImportException("When adding new items, a user must be specified with the -e option");
+                        throw new MetadataImportException("'" + handle + "' is not a Collection! You must specify a valid collection for new items");
                     }
 
-                    // Iterate through each metadata element in the csv line
-                    BulkEditChange whatHasChanged = new BulkEditChange();
-                    for (String md : line.keys())
+                    // Check for duplicate
+                    if (check.contains(collection))
                     {
-                        // Get the values we already have
-                        if (!"id".equals(md))
-                        {
-                            // Get the values from the CSV
-                            String[] fromCSV = line.get(md).toArray(new String[line.get(md).size()]);
-
-                            // Remove authority unless the md is not authority controlled
-                            if (!isAuthorityControlledField(md))
-                            { 
-                                for (int i=0; i<fromCSV.length; i++)
-                                {
-                                    int pos = fromCSV[i].indexOf(DSpaceCSV.authoritySeparator);
-                                    if (pos > -1)
-                                    {
-                                        fromCSV[i] = fromCSV[i].substring(0, pos);
-                                    }
-                                }
-                            }
-
-                            // Add all the values from the CSV line
-                            add(fromCSV, md, whatHasChanged);
-                        }
+                        throw new MetadataImportException("Duplicate collection assignment detected in new item! " + handle);
                     }
-
-                    // Check it has an owning collection
-                    List<String> collections = line.get("collection");
-                    if (collections == null)
+                    else
                     {
-                        throw new MetadataImportException("New items must have a 'collection' assigned in the form of a handle");
+                        check.add(collection);
                     }
+                }
+                catch (Exception ex)
+                {
+                    throw new MetadataImportException("'" + handle + "' is not a Collection! You must specify a valid collection for new items", ex);
+                }
+            }
 
-                    // Check collections are really collections
-                    ArrayList<Collection> check = new ArrayList<Collection>();
-                    Collection collection;
-                    for (String handle : collections)
-                    {
-                        try
-                        {
-                            // Resolve the handle to the collection
-                            collection = (Collection)HandleManager.resolveToObject(c, handle);
+            // Record the addition to collections
+            boolean first = true;
+            for (String handle : collections)
+            {
+                Collection extra = (Collection)HandleManager.resolveToObject(c, handle);
+                if (first)
+                {
+                    whatHasChanged.setOwningCollection(extra);
+                }
+                else
+                {
+                    whatHasChanged.registerNewMappedCollection(extra);
+                }
+                first = false;
+            }
 
-                            // Check it resolved OK
-                            if (collection == null)
-                            {
-                                throw new MetadataImportException("'" + handle + "' is not a Collection! You must specify a valid collection for new items");
-                            }
+            // Create the new item?
+            if (change)
+            {
+                // Create the item
+                String collectionHandle = line.get("collection").get(0);
+                collection = (Collection)HandleManager.resolveToObject(c, collectionHandle);
+                WorkspaceItem wsItem = WorkspaceItem.create(c, collection, useTemplate);
+                Item item = wsItem.getItem();
+
+                // Add the metadata to the item
+                for (Metadatum dcv : whatHasChanged.getAdds())
+                {
+                    item.addMetadata(dcv.schema,
+                                     dcv.element,
+                                     dcv.qualifier,
+                                     dcv.language,
+                                     dcv.value,
+                                     dcv.authority,
+                                     dcv.confidence);
+                }
 
-                            // Check for duplicate
-                            if (check.contains(collection))
-                            {
-                                throw new MetadataImportException("Duplicate collection assignment detected in new item! " + handle);
-                            }
-                            else
-                            {
-                                check.add(collection);
-                            }
+                // Should the workflow be used?
+                if(useWorkflow){
+                    if (ConfigurationManager.getProperty("workflow", "workflow.framework").equals("xmlworkflow")) {
+                        if (workflowNotify) {
+                            XmlWorkflowManager.start(c, wsItem);
+                        } else {
+                            XmlWorkflowManager.startWithoutNotify(c, wsItem);
                         }
-                        catch (Exception ex)
-                        {
-                            throw new MetadataImportException("'" + handle + "' is not a Collection! You must specify a valid collection for new items", ex);
+                    } else {
+                        if (workflowNotify) {
+                            WorkflowManager.start(c, wsItem);
+                        } else {
+                            WorkflowManager.startWithoutNotify(c, wsItem);
                         }
                     }
+                }
+                else
+                {
+                    // Install the item
+                    InstallItem.installItem(c, wsItem);
+                }
 
-                    // Record the addition to collections
-                    boolean first = true;
-                    for (String handle : collections)
+                // Add to extra collections
+                if (line.get("collection").size() > 0)
+                {
+                    for (int i = 1; i < collections.size(); i++)
                     {
+                        String handle = collections.get(i);
                         Collection extra = (Collection)HandleManager.resolveToObject(c, handle);
-                        if (first)
-                        {
-                            whatHasChanged.setOwningCollection(extra);
-                        }
-                        else
-                        {
-                            whatHasChanged.registerNewMappedCollection(extra);
-                        }
-                        first = false;
+                        extra.addItem(item);
                     }
-
-                    // Create the new item?
-                    if (change)
-                    {
-                        // Create the item
-                        String collectionHandle = line.get("collection").get(0);
-                        collection = (Collection)HandleManager.resolveToObject(c, collectionHandle);
-                        WorkspaceItem wsItem = WorkspaceItem.create(c, collection, useTemplate);
-                        Item item = wsItem.getItem();
-
-                        // Add the metadata to the item
-                        for (Metadatum dcv : whatHasChanged.getAdds())
-                        {
-                            item.addMetadata(dcv.schema,
-                                             dcv.element,
-                                             dcv.qualifier,
-                                             dcv.language,
-                                             dcv.value,
-                                             dcv.authority,
-                                             dcv.confidence);
-                        }
-
-                        // Should the workflow be used?
-                        if(useWorkflow){
-                            if (ConfigurationManager.getProperty("workflow", "workflow.framework").equals("xmlworkflow")) {
-                                if (workflowNotify) {
-                                    XmlWorkflowManager.start(c, wsItem);
-                                } else {
-                                    XmlWorkflowManager.startWithoutNotify(c, wsItem);
-                                }
-                            } else {
-                                if (workflowNotify) {
-                                    WorkflowManager.start(c, wsItem);
-                                } else {
-                                    WorkflowManager.startWithoutNotify(c, wsItem);
-                                }
-                            }
-                        }
-                        else
-                        {
-                            // Install the item
-                            InstallItem.installItem(c, wsItem);
-                        }
-
-                        // Add to extra collections
-                        if (line.get("collection").size() > 0)
-                        {
-                            for (int i = 1; i < collections.size(); i++)
-                            {
-                                String handle = collections.get(i);
-                                Collection extra = (Collection)HandleManager.resolveToObject(c, handle);
-                                extra.addItem(item);
-                            }
-                        }
-
-                        // Commit changes to the object
-                        c.commit();
-                        whatHasChanged.setItem(item);
-                    }
-
-                    // Record the changes
-                    changes.add(whatHasChanged);
                 }
+
+                // Commit changes to the object
+                c.commit();
+                whatHasChanged.setItem(item);
             }
-        }
-        catch (MetadataImportException mie)
-        {
-            throw mie;
-        }
-        catch (Exception e)
-        {
-            e.printStackTrace();
-        }
 
-        // Return the changes
-        return changes;
+            // Record the changes
+            return whatHasChanged;
+        }
     }
 
     /**
@@ -1193,6 +1448,27 @@ public class MetadataImport
         }
     }
 
+    /**
+     * Run an import from the command line, either from the CSV lines already
+     * read into memory, or streamed from the file when running in parallel,
+     * and display the changes
+     *
+     * @return The number of items that have changed
+     * @throws MetadataImportException if something goes wrong
+     */
+    private static int runImport(MetadataImport importer, String filename,
+                                 boolean change, boolean useWorkflow, boolean workflowNotify,
+                                 boolean useTemplate, int threads, int chunkSize)
+            throws MetadataImportException
+    {
+        if (threads == 0)
+        {
+            return displayChanges(importer.runImport(change, useWorkflow, workflowNotify, useTemplate), change);
+        }
+        return importer.runImport(new File(filename), change, useWorkflow, workflowNotify, useTemplate,
+                                  threads, chunkSize);
+    }
+
     /**
 	 * main method to run the metadata exporter
 	 *
@@ -1211,6 +1487,8 @@ public class MetadataImport
         options.addOption("w", "workflow", false, "workflow - when adding new items, use collection workflow");
         options.addOption("n", "notify", false, "notify - when adding new items using a workflow, send notification emails");
         options.addOption("t", "template", false, "template - when adding new items, use the collection template (if it exists)");        
+        options.addOption("p", "parallel", true, "parallel - stream the file and process it in chunks with this many worker threads, committing each chunk separately");
+        options.addOption("b", "batch", true, "batch - the number of lines in each chunk when using the parallel option (default 500)");
         options.addOption("h", "help", false, "help");
 
         // Parse the command line arguments
@@ -1263,6 +1541,31 @@ public class MetadataImport
             System.exit(1);
         }
 
+        // Options for parallel, chunked processing of large files
+        int threads = 0;
+        int chunkSize = ConfigurationManager.getIntProperty("bulkedit", "import-chunk-size", 500);
+        try
+        {
+            if (line.hasOption('p'))
+            {
+                threads = Integer.parseInt(line.getOptionValue('p'));
+            }
+            if (line.hasOption('b'))
+            {
+                chunkSize = Integer.parseInt(line.getOptionValue('b'));
+            }
+        }
+        catch (NumberFormatException nfe)
+        {
+            System.err.println("Invalid number given for option 'p' (parallel) or 'b' (batch): " + nfe.getMessage());
+            System.exit(1);
+        }
+        if ((threads < 0) || (chunkSize < 1) || (line.hasOption('b') && (threads == 0)))
+        {
+            System.err.println("Invalid option 'b': (batch) must be a positive number, and can only be specified with the 'p' (parallel) option.");
+            System.exit(1);
+        }
+
         // Create a context
         Context c;
         try
@@ -1310,11 +1613,20 @@ public class MetadataImport
         // Is this a silent run?
         boolean change = false;
 
-        // Read lines from the CSV file
+        // Read lines from the CSV file, or just its headings if it is to be streamed
         DSpaceCSV csv;
         try
         {
-            csv = new DSpaceCSV(new File(filename), c);
+            if (threads > 0)
+            {
+                DSpaceCSVReader reader = new DSpaceCSVReader(new File(filename), c);
+                csv = reader.getCSV();
+                reader.close();
+            }
+            else
+            {
+                csv = new DSpaceCSV(new File(filename), c);
+            }
         }
         catch (MetadataImportInvalidHeadingException miihe)
         {
@@ -1331,14 +1643,15 @@ public class MetadataImport
 
         // Perform the first import - just highlight differences
         MetadataImport importer = new MetadataImport(c, csv);
-        List<BulkEditChange> changes;
 
         if (!line.hasOption('s'))
         {
-            // See what has changed
+            // See what has changed, and display the changes
+            int changeCounter;
             try
             {
-                changes = importer.runImport(false, useWorkflow, workflowNotify, useTemplate);
+                changeCounter = runImport(importer, filename, false, useWorkflow, workflowNotify, useTemplate,
+                                          threads, chunkSize);
             }
             catch (MetadataImportException mie)
             {
@@ -1347,9 +1660,6 @@ public class MetadataImport
                 return;
             }
 
-            // Display the changes
-            int changeCounter = displayChanges(changes, false);
-
             // If there were changes, ask if we should execute them
             if (changeCounter > 0)
             {
@@ -1392,8 +1702,9 @@ public class MetadataImport
             {
                 try
                 {
-                    // Make the changes
-                    changes = importer.runImport(true, useWorkflow, workflowNotify, useTemplate);
+                    // Make the changes, and display them
+                    runImport(importer, filename, true, useWorkflow, workflowNotify, useTemplate,
+                              threads, chunkSize);
                 }
                 catch (MetadataImportException mie)
                 {
@@ -1402,9 +1713,6 @@ public class MetadataImport
                     return;
                 }
 
-                // Display the changes
-                displayChanges(changes, true);
-
                 // Commit the change to the DB
                 c.commit();
             }
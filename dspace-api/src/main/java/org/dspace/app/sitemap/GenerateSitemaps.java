@@ -34,6 +34,7 @@ import org.dspace.content.ItemIterator;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Context;
 import org.dspace.core.LogManager;
+import org.dspace.storage.rdbms.DatabaseManager;
 
 /**
  * Command-line utility for generating HTML and Sitemaps.org protocol Sitemaps.
@@ -210,7 +211,8 @@ public class GenerateSitemaps
             }
         }
 
-        ItemIterator allItems = Item.findAll(c);
+        // Nothing is committed, so the items can be streamed
+        ItemIterator allItems = Item.findAll(c, DatabaseManager.getBulkFetchSize());
         try
         {
             int itemCount = 0;
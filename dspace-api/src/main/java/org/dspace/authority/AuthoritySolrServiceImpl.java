@@ -16,6 +16,7 @@ import org.apache.solr.client.solrj.response.FacetField;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrInputDocument;
 import org.dspace.core.ConfigurationManager;
+import org.dspace.util.SolrClientRegistry;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
@@ -46,8 +47,7 @@ public class AuthoritySolrServiceImpl implements AuthorityIndexingService, Autho
 
             log.debug("Solr authority URL: " + solrService);
 
-            solr = new HttpSolrServer(solrService);
-            solr.setBaseURL(solrService);
+            solr = SolrClientRegistry.getServer(solrService);
 
             SolrQuery solrQuery = new SolrQuery().setQuery("*:*");
 
@@ -9,7 +9,12 @@ package org.dspace.content;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.dspace.authorize.AuthorizeException;
@@ -25,6 +30,9 @@ import org.dspace.storage.rdbms.TableRowIterator;
  * <P>
  * Changes to the bitstream format metadata are only written to the database
  * when <code>update</code> is called.
+ * <P>
+ * Lookups are served from a snapshot of the whole registry shared by all
+ * threads, which is read again once changes to the registry are committed.
  * 
  * @author Robert Tansley
  * @version $Revision$
@@ -68,6 +76,12 @@ public class BitstreamFormat
     /** File extensions for this format */
     private List<String> extensions;
 
+    /** Snapshot of the whole registry, or null until next needed */
+    private static volatile Registry registry = null;
+
+    /** Counts the times the snapshot has been dropped */
+    private static final AtomicInteger generation = new AtomicInteger();
+
     /**
      * Class constructor for creating a BitstreamFormat object based on the
      * contents of a DB table row.
@@ -108,6 +122,20 @@ public class BitstreamFormat
         context.cache(this, row.getIntColumn("bitstream_format_id"));
     }
 
+    /**
+     * Class constructor for a BitstreamFormat whose extensions have already
+     * been read.
+     */
+    private BitstreamFormat(Context context, TableRow row, List<String> extensions)
+    {
+        bfContext = context;
+        bfRow = row;
+        this.extensions = new ArrayList<String>(extensions);
+
+        // Cache ourselves
+        context.cache(this, row.getIntColumn("bitstream_format_id"));
+    }
+
     /**
      * Get a bitstream format from the database.
      * 
@@ -131,10 +159,9 @@ public class BitstreamFormat
             return fromCache;
         }
 
-        TableRow row = DatabaseManager.find(context, "bitstreamformatregistry",
-                id);
+        Entry entry = getRegistry(context).byID.get(Integer.valueOf(id));
 
-        if (row == null)
+        if (entry == null)
         {
             if (log.isDebugEnabled())
             {
@@ -153,7 +180,7 @@ public class BitstreamFormat
                     "bitstream_format_id=" + id));
         }
 
-        return new BitstreamFormat(context, row);
+        return entry.toFormat(context);
     }
 
     /**
@@ -175,16 +202,7 @@ public class BitstreamFormat
     {
         // NOTE: Avoid internal formats since e.g. "License" also has
         // a MIMEtype of text/plain.
-        TableRow formatRow = DatabaseManager.querySingle(context,
-            "SELECT * FROM bitstreamformatregistry "+
-            "WHERE mimetype LIKE ? AND internal = '0' ",
-            mimeType);
-
-        if (formatRow == null)
-        {
-            return null;
-        }
-        return findByFinish(context, formatRow);
+        return findByFinish(context, getRegistry(context).byMIMEType.get(mimeType));
     }
 
     /**
@@ -202,42 +220,56 @@ public class BitstreamFormat
     public static BitstreamFormat findByShortDescription(Context context,
             String desc) throws SQLException
     {
-        TableRow formatRow = DatabaseManager.findByUnique(context,
-                "bitstreamformatregistry", "short_description", desc);
-
-        if (formatRow == null)
-        {
-            return null;
-        }
+        return findByFinish(context, getRegistry(context).byShortDescription.get(desc));
+    }
 
-        return findByFinish(context, formatRow);
+    /**
+     * Find a bitstream format by one of its file extensions. If more than one
+     * bitstream format has the same extension, the one registered first is
+     * returned.
+     *
+     * @param context
+     *            DSpace context object
+     * @param extension
+     *            the file extension, without the dot
+     *
+     * @return the corresponding bitstream format, or <code>null</code> if
+     *         there's no bitstream format with the given extension
+     * @throws SQLException
+     */
+    public static BitstreamFormat findByExtension(Context context,
+            String extension) throws SQLException
+    {
+        return findByFinish(context, getRegistry(context).byExtension.get(extension));
     }
 
     // shared final logic in findBy... methods;
-    // use context's cache for object mapped from table row.
+    // use context's cache for object mapped from registry entry.
     private static BitstreamFormat findByFinish(Context context,
-                                                TableRow formatRow)
+                                                Entry entry)
         throws SQLException
     {
-        // not null
+        if (entry == null)
+        {
+            return null;
+        }
+
         if (log.isDebugEnabled())
         {
             log.debug(LogManager.getHeader(context, "find_bitstream",
-                    "bitstream_format_id="
-                            + formatRow.getIntColumn("bitstream_format_id")));
+                    "bitstream_format_id=" + entry.id));
         }
 
         // From cache?
         BitstreamFormat fromCache = (BitstreamFormat) context.fromCache(
-                BitstreamFormat.class, formatRow
-                        .getIntColumn("bitstream_format_id"));
+                BitstreamFormat.class, entry.id);
 
         if (fromCache != null)
         {
             return fromCache;
         }
 
-        return new BitstreamFormat(context, formatRow);
+        return entry.toFormat(context);
     }
 
     /**
@@ -280,37 +312,9 @@ public class BitstreamFormat
     {
         List<BitstreamFormat> formats = new ArrayList<BitstreamFormat>();
 
-        TableRowIterator tri = DatabaseManager.queryTable(context, "bitstreamformatregistry",
-                        "SELECT * FROM bitstreamformatregistry ORDER BY bitstream_format_id");
-
-        try
+        for (Entry entry : getRegistry(context).all)
         {
-            while (tri.hasNext())
-            {
-                TableRow row = tri.next();
-
-                // From cache?
-                BitstreamFormat fromCache = (BitstreamFormat) context.fromCache(
-                        BitstreamFormat.class, row
-                                .getIntColumn("bitstream_format_id"));
-
-                if (fromCache != null)
-                {
-                    formats.add(fromCache);
-                }
-                else
-                {
-                    formats.add(new BitstreamFormat(context, row));
-                }
-            }
-        }
-        finally
-        {
-            // close the TableRowIterator to free up resources
-            if (tri != null)
-            {
-                tri.close();
-            }
+            formats.add(findByFinish(context, entry));
         }
 
         // Return the formats as an array
@@ -336,41 +340,9 @@ public class BitstreamFormat
     {
         List<BitstreamFormat> formats = new ArrayList<BitstreamFormat>();
 
-        String myQuery = "SELECT * FROM bitstreamformatregistry WHERE internal='0' "
-                + "AND short_description NOT LIKE 'Unknown' "
-                + "ORDER BY support_level DESC, short_description";
-
-        TableRowIterator tri = DatabaseManager.queryTable(context,
-                "bitstreamformatregistry", myQuery);
-
-        try
-        {
-            while (tri.hasNext())
-            {
-                TableRow row = tri.next();
-
-                // From cache?
-                BitstreamFormat fromCache = (BitstreamFormat) context.fromCache(
-                        BitstreamFormat.class, row
-                                .getIntColumn("bitstream_format_id"));
-
-                if (fromCache != null)
-                {
-                    formats.add(fromCache);
-                }
-                else
-                {
-                    formats.add(new BitstreamFormat(context, row));
-                }
-            }
-        }
-        finally
+        for (Entry entry : getRegistry(context).nonInternal)
         {
-            // close the TableRowIterator to free up resources
-            if (tri != null)
-            {
-                tri.close();
-            }
+            formats.add(findByFinish(context, entry));
         }
 
         // Return the formats as an array
@@ -407,6 +379,8 @@ public class BitstreamFormat
                 "bitstream_format_id="
                         + row.getIntColumn("bitstream_format_id")));
 
+        modified(context);
+
         return new BitstreamFormat(context, row);
     }
 
@@ -599,6 +573,7 @@ public class BitstreamFormat
         }
 
         DatabaseManager.update(bfContext, bfRow);
+        modified(bfContext);
     }
 
     /**
@@ -642,6 +617,8 @@ public class BitstreamFormat
         // Delete this format from database
         DatabaseManager.delete(bfContext, bfRow);
 
+        modified(bfContext);
+
         log.info(LogManager.getHeader(bfContext, "delete_bitstream_format",
                 "bitstream_format_id=" + getID() + ",bitstreams_changed="
                         + numberChanged));
@@ -698,4 +675,234 @@ public class BitstreamFormat
 
         return -1;
     }
+
+    // invalidate the cache e.g. after something modifies DB state.
+    private static void decache()
+    {
+        generation.incrementAndGet();
+        registry = null;
+    }
+
+    // note that the context has changed the registry: until it commits, it
+    // reads the registry itself to see its changes, and everyone else keeps
+    // the snapshot of what has been committed.
+    private static void modified(Context context)
+    {
+        PendingChanges pending = (PendingChanges) context.getCommitAction(BitstreamFormat.class.getName());
+        if (pending == null)
+        {
+            pending = new PendingChanges();
+            context.addCommitAction(BitstreamFormat.class.getName(), pending);
+        }
+        pending.registry = null;
+    }
+
+    // get the registry snapshot, loading it if necessary
+    private static Registry getRegistry(Context context) throws SQLException
+    {
+        PendingChanges pending = (PendingChanges) context.getCommitAction(BitstreamFormat.class.getName());
+        if (pending != null)
+        {
+            if (pending.registry == null)
+            {
+                pending.registry = new Registry(context);
+            }
+            return pending.registry;
+        }
+
+        Registry current = registry;
+        if (current == null)
+        {
+            synchronized (BitstreamFormat.class)
+            {
+                current = registry;
+                if (current == null)
+                {
+                    log.info("Loading bitstream format registry into cache");
+                    int loading = generation.get();
+                    current = new Registry(context);
+
+                    // Don't keep it if changes were committed while loading
+                    if (loading == generation.get())
+                    {
+                        registry = current;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Registry changes made by a context which have not been committed yet.
+     * Once they are, the shared snapshot is out of date.
+     */
+    private static final class PendingChanges implements Runnable
+    {
+        /** the registry as the context sees it, or null until next needed */
+        private Registry registry;
+
+        @Override
+        public void run()
+        {
+            decache();
+        }
+    }
+
+    /**
+     * A bitstream format as read into the registry snapshot. Each Context
+     * gets its own BitstreamFormat object made from it, which can be changed
+     * without affecting the snapshot.
+     */
+    private static final class Entry
+    {
+        private final int id;
+        private final TableRow row;
+        private final List<String> extensions = new ArrayList<String>();
+
+        private Entry(TableRow row)
+        {
+            this.id = row.getIntColumn("bitstream_format_id");
+            this.row = row;
+        }
+
+        private BitstreamFormat toFormat(Context context) throws SQLException
+        {
+            TableRow copy = DatabaseManager.row("bitstreamformatregistry");
+            copy.setColumn("bitstream_format_id", id);
+            copy.setColumn("mimetype", row.getStringColumn("mimetype"));
+            copy.setColumn("short_description", row.getStringColumn("short_description"));
+            copy.setColumn("description", row.getStringColumn("description"));
+            if (row.isColumnNull("support_level"))
+            {
+                copy.setColumnNull("support_level");
+            }
+            else
+            {
+                copy.setColumn("support_level", row.getIntColumn("support_level"));
+            }
+            copy.setColumn("internal", row.getBooleanColumn("internal"));
+            return new BitstreamFormat(context, copy, extensions);
+        }
+    }
+
+    /**
+     * Snapshot of the bitstream format registry, shared by all threads. It is
+     * never changed once loaded, but replaced as a whole when changes to the
+     * registry are committed, so lookups need no locking.
+     */
+    private static final class Registry
+    {
+        private final Map<Integer, Entry> byID;
+        private final Map<String, Entry> byShortDescription;
+
+        /** non-internal formats by MIME type, the first registered one */
+        private final Map<String, Entry> byMIMEType;
+
+        /** formats by file extension, the first registered one */
+        private final Map<String, Entry> byExtension;
+
+        /** all formats, ordered by ID */
+        private final List<Entry> all;
+
+        /**
+         * non-internal formats except "Unknown", ordered by support level
+         * (highest first) then short description
+         */
+        private final List<Entry> nonInternal;
+
+        private Registry(Context context) throws SQLException
+        {
+            Map<Integer, Entry> new_byID = new HashMap<Integer, Entry>();
+            Map<String, Entry> new_byShortDescription = new HashMap<String, Entry>();
+            Map<String, Entry> new_byMIMEType = new HashMap<String, Entry>();
+            Map<String, Entry> new_byExtension = new HashMap<String, Entry>();
+            List<Entry> new_all = new ArrayList<Entry>();
+            List<Entry> new_nonInternal = new ArrayList<Entry>();
+
+            TableRowIterator tri = DatabaseManager.queryTable(context, "bitstreamformatregistry",
+                    "SELECT * FROM bitstreamformatregistry ORDER BY bitstream_format_id");
+            try
+            {
+                while (tri.hasNext())
+                {
+                    Entry entry = new Entry(tri.next());
+                    new_byID.put(entry.id, entry);
+                    new_all.add(entry);
+
+                    String shortDescription = entry.row.getStringColumn("short_description");
+                    new_byShortDescription.put(shortDescription, entry);
+                    if (!entry.row.getBooleanColumn("internal"))
+                    {
+                        String mimeType = entry.row.getStringColumn("mimetype");
+                        if (!new_byMIMEType.containsKey(mimeType))
+                        {
+                            new_byMIMEType.put(mimeType, entry);
+                        }
+                        if (!"Unknown".equals(shortDescription))
+                        {
+                            new_nonInternal.add(entry);
+                        }
+                    }
+                }
+            }
+            finally
+            {
+                // close the TableRowIterator to free up resources
+                tri.close();
+            }
+
+            tri = DatabaseManager.query(context,
+                    "SELECT * FROM fileextension ORDER BY bitstream_format_id");
+            try
+            {
+                while (tri.hasNext())
+                {
+                    TableRow row = tri.next();
+                    Entry entry = new_byID.get(row.getIntColumn("bitstream_format_id"));
+                    String extension = row.getStringColumn("extension");
+                    if (entry != null)
+                    {
+                        entry.extensions.add(extension);
+                        if (!new_byExtension.containsKey(extension))
+                        {
+                            new_byExtension.put(extension, entry);
+                        }
+                    }
+                }
+            }
+            finally
+            {
+                // close the TableRowIterator to free up resources
+                tri.close();
+            }
+
+            Collections.sort(new_nonInternal, new Comparator<Entry>()
+            {
+                @Override
+                public int compare(Entry a, Entry b)
+                {
+                    int result = b.row.getIntColumn("support_level") - a.row.getIntColumn("support_level");
+                    if (result != 0)
+                    {
+                        return result;
+                    }
+                    String descA = a.row.getStringColumn("short_description");
+                    String descB = b.row.getStringColumn("short_description");
+                    if (descA == null || descB == null)
+                    {
+                        return descA == null ? (descB == null ? 0 : 1) : -1;
+                    }
+                    return descA.compareTo(descB);
+                }
+            });
+
+            byID = Collections.unmodifiableMap(new_byID);
+            byShortDescription = Collections.unmodifiableMap(new_byShortDescription);
+            byMIMEType = Collections.unmodifiableMap(new_byMIMEType);
+            byExtension = Collections.unmodifiableMap(new_byExtension);
+            all = Collections.unmodifiableList(new_all);
+            nonInternal = Collections.unmodifiableList(new_nonInternal);
+        }
+    }
 }
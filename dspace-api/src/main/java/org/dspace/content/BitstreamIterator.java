@@ -0,0 +1,112 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+
+import org.dspace.core.Context;
+import org.dspace.storage.rdbms.TableRowIterator;
+
+/**
+ * Specialized iterator for the bitstreams of a bundle. Bitstreams are read
+ * from the database one by one as the iterator advances, so that bundles
+ * holding many thousands of bitstreams need not be loaded into memory all at
+ * once.
+ *
+ * Note that this class is not a real Iterator, as it does not implement
+ * the Iterator interface
+ *
+ * @see Bundle#iterateBitstreams()
+ */
+public class BitstreamIterator
+{
+    /** Our context */
+    private Context ourContext;
+
+    /** The table row iterator of Bitstream rows */
+    private TableRowIterator bitstreamRows;
+
+    /** an iterator over bitstreams already in memory */
+    private Iterator<Bitstream> loaded;
+
+    /**
+     * Construct a bitstream iterator over rows of the bitstream table
+     *
+     * @param context
+     *            our context
+     * @param rows
+     *            the rows of the Bitstreams to be iterated over
+     */
+    BitstreamIterator(Context context, TableRowIterator rows)
+    {
+        ourContext = context;
+        bitstreamRows = rows;
+    }
+
+    /**
+     * Construct a bitstream iterator over bitstreams already loaded
+     *
+     * @param context
+     *            our context
+     * @param bitstreams
+     *            the bitstreams to be iterated over
+     */
+    BitstreamIterator(Context context, List<Bitstream> bitstreams)
+    {
+        ourContext = context;
+        loaded = bitstreams.iterator();
+    }
+
+    /**
+     * Find out if there are any more bitstreams to iterate over
+     *
+     * @return <code>true</code> if there are more bitstreams
+     * @throws SQLException
+     */
+    public boolean hasNext() throws SQLException
+    {
+        if (loaded != null)
+        {
+            return loaded.hasNext();
+        }
+        return bitstreamRows.hasNext();
+    }
+
+    /**
+     * Get the next bitstream in the iterator. Returns <code>null</code> if
+     * there are no more bitstreams.
+     *
+     * @return the next bitstream, or <code>null</code>
+     * @throws SQLException
+     */
+    public Bitstream next() throws SQLException
+    {
+        if (loaded != null)
+        {
+            return loaded.hasNext() ? loaded.next() : null;
+        }
+        if (bitstreamRows.hasNext())
+        {
+            return Bundle.toBitstream(ourContext, bitstreamRows.next());
+        }
+        return null;
+    }
+
+    /**
+     * Dispose of this Iterator, and it's underlying resources
+     */
+    public void close()
+    {
+        if (bitstreamRows != null)
+        {
+            bitstreamRows.close();
+        }
+    }
+}
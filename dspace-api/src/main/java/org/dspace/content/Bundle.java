@@ -45,7 +45,11 @@ public class Bundle extends DSpaceObject
     /** The table row corresponding to this bundle */
     private final TableRow bundleRow;
 
-    /** The bitstreams in this bundle */
+    /**
+     * The bitstreams in this bundle, or null until they are needed. Use
+     * {@link #countBitstreams()}, {@link #getBitstreams(int, int)} or
+     * {@link #iterateBitstreams()} to avoid loading them all.
+     */
     private List<Bitstream> bitstreams;
 
     /** Flag set when data is modified, for events */
@@ -60,6 +64,25 @@ public class Bundle extends DSpaceObject
      *            the corresponding row in the table
      */
     Bundle(Context context, TableRow row) throws SQLException
+    {
+        this(context, row, null);
+    }
+
+    /**
+     * Construct a bundle object with the given table row, and the rows of its
+     * bitstreams if they have already been loaded (for example when
+     * prefetching the bundles of several items at once).
+     *
+     * @param context
+     *            the context this object exists in
+     * @param row
+     *            the corresponding row in the table
+     * @param bitstreamRows
+     *            the rows of the bitstreams in this bundle, in bitstream
+     *            order, or <code>null</code> to load them from the database
+     *            when first needed
+     */
+    Bundle(Context context, TableRow row, List<TableRow> bitstreamRows) throws SQLException
     {
         super(context);
 
@@ -68,76 +91,156 @@ public class Bundle extends DSpaceObject
             row.setTable("bundle");
 
         bundleRow = row;
-        bitstreams = new ArrayList<Bitstream>();
-        String bitstreamOrderingField  = ConfigurationManager.getProperty("webui.bitstream.order.field");
-        String bitstreamOrderingDirection   = ConfigurationManager.getProperty("webui.bitstream.order.direction");
 
-        if (bitstreamOrderingField == null)
+        if (bitstreamRows != null)
         {
-            bitstreamOrderingField = "sequence_id";
+            bitstreams = new ArrayList<Bitstream>(bitstreamRows.size());
+            for (TableRow r : bitstreamRows)
+            {
+                bitstreams.add(toBitstream(context, r));
+            }
         }
 
-        if (bitstreamOrderingDirection == null)
+        // Cache ourselves
+        context.cache(this, row.getIntColumn("bundle_id"));
+
+        modified = false;
+    }
+
+    /**
+     * Get the bitstreams in this bundle, loading them all from the database
+     * the first time
+     *
+     * @return the list of bitstreams held by this bundle
+     */
+    private List<Bitstream> getBitstreamList() throws SQLException
+    {
+        if (bitstreams == null)
         {
-            bitstreamOrderingDirection = "ASC";
+            List<Bitstream> loaded = new ArrayList<Bitstream>();
+            TableRowIterator tri = queryBitstreams(0, 0);
+            try
+            {
+                while (tri.hasNext())
+                {
+                    loaded.add(toBitstream(ourContext, tri.next()));
+                }
+            }
+            finally
+            {
+                // close the TableRowIterator to free up resources
+                tri.close();
+            }
+            bitstreams = loaded;
         }
+        return bitstreams;
+    }
 
+    /**
+     * Query the rows of the bitstreams in this bundle, in bitstream order
+     *
+     * @param offset
+     *            the number of bitstreams to skip
+     * @param limit
+     *            the maximum number of bitstreams, or 0 for all of them
+     */
+    private TableRowIterator queryBitstreams(int offset, int limit) throws SQLException
+    {
         StringBuilder query = new StringBuilder();
         query.append("SELECT bitstream.*,bundle2bitstream.bitstream_order FROM bitstream, bundle2bitstream WHERE");
         query.append(" bundle2bitstream.bitstream_id=bitstream.bitstream_id AND");
         query.append(" bundle2bitstream.bundle_id= ?");
         query.append(" ORDER BY ");
-        query.append(bitstreamOrderingField);
-        query.append(" ");
-        query.append(bitstreamOrderingDirection);
-
-        // Get bitstreams
-        TableRowIterator tri = DatabaseManager.query(
-                ourContext,
-                query.toString(),
-                bundleRow.getIntColumn("bundle_id"));
+        query.append(getBitstreamOrdering());
 
-        try
+        List<Object> params = new ArrayList<Object>();
+        params.add(getID());
+
+        // Add offset and limit restrictions - Oracle requires special code
+        if (DatabaseManager.isOracle())
         {
-            while (tri.hasNext())
+            if (limit > 0 || offset > 0)
             {
-                TableRow r = tri.next();
-
-                // First check the cache
-                Bitstream fromCache = (Bitstream) context.fromCache(
-                        Bitstream.class, r.getIntColumn("bitstream_id"));
-
-                if (fromCache != null)
-                {
-                    bitstreams.add(fromCache);
-                }
-                else
-                {
-                    //Since bitstreams can be ordered by a column in bundle2bitstream
-                    //We cannot use queryTable & so we need to add our table later on
-                    r.setTable("bitstream");
-                    bitstreams.add(new Bitstream(ourContext, r));
-                }
+                query.insert(0, "SELECT /*+ FIRST_ROWS(n) */ rec.*, ROWNUM rnum  FROM (");
+                query.append(") rec");
+            }
+            if (limit > 0)
+            {
+                query.append(" WHERE rownum<=?");
+                params.add(offset + limit);
+            }
+            if (offset > 0)
+            {
+                query.insert(0, "SELECT * FROM (");
+                query.append(") WHERE rnum>?");
+                params.add(offset);
             }
         }
-        finally
+        else
         {
-            // close the TableRowIterator to free up resources
-            if (tri != null)
+            if (limit > 0)
             {
-                tri.close();
+                query.append(" LIMIT ?");
+                params.add(limit);
+            }
+            if (offset > 0)
+            {
+                query.append(" OFFSET ?");
+                params.add(offset);
             }
         }
 
-        // Cache ourselves
-        context.cache(this, row.getIntColumn("bundle_id"));
+        return DatabaseManager.query(ourContext, query.toString(), params.toArray());
+    }
 
-        modified = false;
+    /**
+     * Get the configured ordering of bitstreams within a bundle, as an SQL
+     * ORDER BY clause (without the ORDER BY keywords)
+     *
+     * @return the bitstream ordering field and direction
+     */
+    static String getBitstreamOrdering()
+    {
+        String bitstreamOrderingField  = ConfigurationManager.getProperty("webui.bitstream.order.field");
+        String bitstreamOrderingDirection   = ConfigurationManager.getProperty("webui.bitstream.order.direction");
+
+        if (bitstreamOrderingField == null)
+        {
+            bitstreamOrderingField = "sequence_id";
+        }
+
+        if (bitstreamOrderingDirection == null)
+        {
+            bitstreamOrderingDirection = "ASC";
+        }
+
+        return bitstreamOrderingField + " " + bitstreamOrderingDirection;
+    }
+
+    /**
+     * Get the bitstream of a table row, using the cached bitstream object if
+     * there is one
+     */
+    static Bitstream toBitstream(Context context, TableRow r) throws SQLException
+    {
+        // First check the cache
+        Bitstream fromCache = (Bitstream) context.fromCache(
+                Bitstream.class, r.getIntColumn("bitstream_id"));
+
+        if (fromCache != null)
+        {
+            return fromCache;
+        }
+
+        //Since bitstreams can be ordered by a column in bundle2bitstream
+        //We cannot use queryTable & so we need to add our table later on
+        r.setTable("bitstream");
+        return new Bitstream(context, r);
     }
 
     /**
-     * Get a bundle from the database. The bundle and bitstream metadata are all
-     * loaded into memory.
+     * Get a bundle from the database. The bundle metadata is loaded into
+     * memory, the bitstreams are loaded when first needed.
      * 
      * @param context
      *            DSpace context object
@@ -285,7 +388,7 @@ public class Bundle extends DSpaceObject
     {
         Bitstream target = null;
 
-        Iterator i = bitstreams.iterator();
+        Iterator i = Arrays.asList(getBitstreams()).iterator();
 
         while (i.hasNext())
         {
@@ -303,18 +406,106 @@ public class Bundle extends DSpaceObject
     }
 
     /**
-     * Get the bitstreams in this bundle
+     * Get the bitstreams in this bundle. They are read from the database the
+     * first time they are asked for.
      * 
      * @return the bitstreams
+     * @throws IllegalStateException
+     *             wrapping the SQLException if they cannot be read from the
+     *             database; the list is left unloaded, so a later call tries
+     *             again
      */
     public Bitstream[] getBitstreams()
     {
-        Bitstream[] bitstreamArray = new Bitstream[bitstreams.size()];
-        bitstreamArray = bitstreams.toArray(bitstreamArray);
+        List<Bitstream> list;
+        try
+        {
+            list = getBitstreamList();
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Unable to load the bitstreams of bundle " + getID(), e);
+        }
+
+        Bitstream[] bitstreamArray = new Bitstream[list.size()];
+        bitstreamArray = list.toArray(bitstreamArray);
 
         return bitstreamArray;
     }
 
+    /**
+     * Get some of the bitstreams in this bundle, in bitstream order, without
+     * loading the others
+     *
+     * @param offset
+     *            the number of bitstreams to skip
+     * @param limit
+     *            the maximum number of bitstreams to return
+     * @return the bitstreams
+     */
+    public Bitstream[] getBitstreams(int offset, int limit) throws SQLException
+    {
+        if (bitstreams != null)
+        {
+            int from = Math.min(Math.max(offset, 0), bitstreams.size());
+            int to = Math.min(from + Math.max(limit, 0), bitstreams.size());
+            List<Bitstream> page = bitstreams.subList(from, to);
+            return page.toArray(new Bitstream[page.size()]);
+        }
+
+        List<Bitstream> page = new ArrayList<Bitstream>();
+        if (limit > 0)
+        {
+            TableRowIterator tri = queryBitstreams(Math.max(offset, 0), limit);
+            try
+            {
+                while (tri.hasNext())
+                {
+                    page.add(toBitstream(ourContext, tri.next()));
+                }
+            }
+            finally
+            {
+                // close the TableRowIterator to free up resources
+                tri.close();
+            }
+        }
+        return page.toArray(new Bitstream[page.size()]);
+    }
+
+    /**
+     * Get the number of bitstreams in this bundle, without loading them
+     *
+     * @return the number of bitstreams
+     */
+    public int countBitstreams() throws SQLException
+    {
+        if (bitstreams != null)
+        {
+            return bitstreams.size();
+        }
+
+        TableRow row = DatabaseManager.querySingle(ourContext,
+                "SELECT COUNT(*) AS num FROM bundle2bitstream WHERE bundle_id= ? ", getID());
+        return row == null ? 0 : (int) row.getLongColumn("num");
+    }
+
+    /**
+     * Iterate over the bitstreams in this bundle, in bitstream order, reading
+     * them from the database as they are needed rather than loading them all.
+     * The iterator must be closed when no longer needed.
+     *
+     * @return an iterator over the bitstreams
+     */
+    public BitstreamIterator iterateBitstreams() throws SQLException
+    {
+        if (bitstreams != null)
+        {
+            return new BitstreamIterator(ourContext, new ArrayList<Bitstream>(bitstreams));
+        }
+        return new BitstreamIterator(ourContext, queryBitstreams(0, 0));
+    }
+
     /**
      * Get the items this bundle appears in
      * 
@@ -429,19 +620,29 @@ public class Bundle extends DSpaceObject
                 + getID() + ",bitstream_id=" + b.getID()));
 
         // First check that the bitstream isn't already in the list
-        for (int i = 0; i < bitstreams.size(); i++)
+        if (bitstreams != null)
         {
-            Bitstream existing = bitstreams.get(i);
-
-            if (b.getID() == existing.getID())
+            for (int i = 0; i < bitstreams.size(); i++)
             {
-                // Bitstream is already there; no change
-                return;
+                Bitstream existing = bitstreams.get(i);
+
+                if (b.getID() == existing.getID())
+                {
+                    // Bitstream is already there; no change
+                    return;
+                }
             }
-        }
 
-        // Add the bitstream object
-        bitstreams.add(b);
+            // Add the bitstream object
+            bitstreams.add(b);
+        }
+        else if (DatabaseManager.querySingle(ourContext,
+                "SELECT bitstream_id FROM bundle2bitstream WHERE bundle_id= ? AND bitstream_id= ? ",
+                getID(), b.getID()) != null)
+        {
+            // Bitstream is already there; no change
+            return;
+        }
 
         ourContext.addEvent(new Event(Event.ADD, Constants.BUNDLE, getID(), 
                 Constants.BITSTREAM, b.getID(), String.valueOf(b.getSequenceID()),
@@ -476,14 +677,17 @@ public class Bundle extends DSpaceObject
     public void setOrder(int bitstreamIds[]) throws AuthorizeException, SQLException {
         AuthorizeManager.authorizeAction(ourContext, this, Constants.WRITE);
 
-        //Map the bitstreams of the bundle by identifier
-        Map<Integer, Bitstream> bitstreamMap = new HashMap<Integer, Bitstream>();
-        for (Bitstream bitstream : bitstreams) {
-            bitstreamMap.put(bitstream.getID(), bitstream);
-        }
+        //Map the bitstreams of the bundle by identifier, if they are loaded
+        Map<Integer, Bitstream> bitstreamMap = null;
+        if (bitstreams != null) {
+            bitstreamMap = new HashMap<Integer, Bitstream>();
+            for (Bitstream bitstream : bitstreams) {
+                bitstreamMap.put(bitstream.getID(), bitstream);
+            }
 
-        //We need to also reoder our cached bitstreams list
-        bitstreams = new ArrayList<Bitstream>();
+            //We need to also reoder our cached bitstreams list
+            bitstreams = new ArrayList<Bitstream>();
+        }
         for (int i = 0; i < bitstreamIds.length; i++) {
             int bitstreamId = bitstreamIds[i];
 
@@ -500,7 +704,9 @@ public class Bundle extends DSpaceObject
             }
 
             // Place the bitstream in the list of bitstreams in this bundle
-            bitstreams.add(bitstreamMap.get(bitstreamId));
+            if (bitstreamMap != null) {
+                bitstreams.add(bitstreamMap.get(bitstreamId));
+            }
         }
 
         //The order of the bitstreams has changed, ensure that we update the last modified of our item
@@ -534,17 +740,20 @@ public class Bundle extends DSpaceObject
         log.info(LogManager.getHeader(ourContext, "remove_bitstream",
                 "bundle_id=" + getID() + ",bitstream_id=" + b.getID()));
 
-        // Remove from internal list of bitstreams
-        ListIterator li = bitstreams.listIterator();
-
-        while (li.hasNext())
+        // Remove from internal list of bitstreams, if loaded
+        if (bitstreams != null)
         {
-            Bitstream existing = (Bitstream) li.next();
+            ListIterator li = bitstreams.listIterator();
 
-            if (b.getID() == existing.getID())
+            while (li.hasNext())
             {
-                // We've found the bitstream to remove
-                li.remove();
+                Bitstream existing = (Bitstream) li.next();
+
+                if (b.getID() == existing.getID())
+                {
+                    // We've found the bitstream to remove
+                    li.remove();
+                }
             }
         }
 
@@ -640,7 +849,8 @@ public class Bundle extends DSpaceObject
         ourContext.removeCached(this, getID());
 
         // Remove bitstreams
-        Bitstream[] bs = getBitstreams();
+        List<Bitstream> list = getBitstreamList();
+        Bitstream[] bs = list.toArray(new Bitstream[list.size()]);
 
         for (int i = 0; i < bs.length; i++)
         {
@@ -713,14 +923,11 @@ public class Bundle extends DSpaceObject
     public void replaceAllBitstreamPolicies(List<ResourcePolicy> newpolicies)
             throws SQLException, AuthorizeException
     {
-        if (bitstreams != null && bitstreams.size() > 0)
+        for (Bitstream bs : getBitstreamList())
         {
-            for (Bitstream bs : bitstreams)
-            {
-                // change bitstream policies
-                AuthorizeManager.removeAllPolicies(ourContext, bs);
-                AuthorizeManager.addPolicies(ourContext, newpolicies, bs);
-            }
+            // change bitstream policies
+            AuthorizeManager.removeAllPolicies(ourContext, bs);
+            AuthorizeManager.addPolicies(ourContext, newpolicies, bs);
         }
         // change bundle policies
         AuthorizeManager.removeAllPolicies(ourContext, this);
@@ -735,12 +942,9 @@ public class Bundle extends DSpaceObject
     public List<ResourcePolicy> getBitstreamPolicies() throws SQLException
     {
         List<ResourcePolicy> list = new ArrayList<ResourcePolicy>();
-        if (bitstreams != null && bitstreams.size() > 0)
+        for (Bitstream bs : getBitstreamList())
         {
-            for (Bitstream bs : bitstreams)
-            {
-                list.addAll(AuthorizeManager.getPolicies(ourContext, bs));
-            }
+            list.addAll(AuthorizeManager.getPolicies(ourContext, bs));
         }
         return list;
     }
@@ -1084,6 +1084,7 @@ public class Collection extends DSpaceObject
         row.setColumn("item_id", item.getID());
 
         DatabaseManager.insert(ourContext, row);
+        item.clearPrefetchedCollections();
 
         ourContext.addEvent(new Event(Event.ADD, Constants.COLLECTION, getID(), 
                 Constants.ITEM, item.getID(), item.getHandle(), 
@@ -1119,6 +1120,7 @@ public class Collection extends DSpaceObject
                 "DELETE FROM collection2item WHERE collection_id= ? "+
                 "AND item_id= ? ",
                 getID(), item.getID());
+        item.clearPrefetchedCollections();
 
         // Then, if it is an orphaned Item, delete it
         if (orphan)
@@ -1252,6 +1252,60 @@ public abstract class DSpaceObject
         modifiedMetadata = true;
     }
 
+    /**
+     * Set the metadata of this object from values that have already been
+     * loaded from the database (e.g. by prefetching the metadata of several
+     * objects at once). Has no effect if the metadata is already loaded, so
+     * that any changes to it are not lost.
+     *
+     * @param metadata the metadata values of this object, in field and place order
+     */
+    void setPrefetchedMetadata(List<Metadatum> metadata)
+    {
+        if (!metadataCache.isLoaded())
+        {
+            metadataCache.set(metadata);
+        }
+    }
+
+    /**
+     * Make a Metadatum from a row of the MetadataValue table
+     *
+     * @return the Metadatum, or null if its metadata field or schema cannot be found
+     */
+    static Metadatum toMetadatum(Context c, TableRow resultRow, int resourceTypeId, int resourceId, Logger log)
+            throws SQLException
+    {
+        // Get the associated metadata field and schema information
+        int fieldID = resultRow.getIntColumn("metadata_field_id");
+        MetadataField field = MetadataField.find(c, fieldID);
+
+        if (field == null)
+        {
+            log.error("Loading item - cannot find metadata field " + fieldID + " for resourceType=" + resourceTypeId + " and resourceId=" + resourceId);
+            return null;
+        }
+
+        MetadataSchema schema = MetadataSchema.find(c, field.getSchemaID());
+        if (schema == null)
+        {
+            log.error("Loading item - cannot find metadata schema " + field.getSchemaID() + ", field " + fieldID);
+            return null;
+        }
+
+        // Make a Metadatum object
+        Metadatum dcv = new Metadatum();
+        dcv.element = field.getElement();
+        dcv.qualifier = field.getQualifier();
+        dcv.value = resultRow.getStringColumn("text_value");
+        dcv.language = resultRow.getStringColumn("text_lang");
+        //dcv.namespace = schema.getNamespace();
+        dcv.schema = schema.getName();
+        dcv.authority = resultRow.getStringColumn("authority");
+        dcv.confidence = resultRow.getIntColumn("confidence");
+        return dcv;
+    }
+
     class MetadataCache
     {
         List<Metadatum> metadata = null;
@@ -1271,39 +1325,11 @@ public abstract class DSpaceObject
                     {
                         while (tri.hasNext())
                         {
-                            TableRow resultRow = tri.next();
-
-                            // Get the associated metadata field and schema information
-                            int fieldID = resultRow.getIntColumn("metadata_field_id");
-                            MetadataField field = MetadataField.find(c, fieldID);
-
-                            if (field == null)
-                            {
-                                log.error("Loading item - cannot find metadata field " + fieldID + " for resourceType=" + resourceTypeId + " and resourceId=" + resourceId);
-                            }
-                            else
+                            Metadatum dcv = toMetadatum(c, tri.next(), resourceTypeId, resourceId, log);
+                            if (dcv != null)
                             {
-                                MetadataSchema schema = MetadataSchema.find(c, field.getSchemaID());
-                                if (schema == null)
-                                {
-                                    log.error("Loading item - cannot find metadata schema " + field.getSchemaID() + ", field " + fieldID);
-                                }
-                                else
-                                {
-                                    // Make a Metadatum object
-                                    Metadatum dcv = new Metadatum();
-                                    dcv.element = field.getElement();
-                                    dcv.qualifier = field.getQualifier();
-                                    dcv.value = resultRow.getStringColumn("text_value");
-                                    dcv.language = resultRow.getStringColumn("text_lang");
-                                    //dcv.namespace = schema.getNamespace();
-                                    dcv.schema = schema.getName();
-                                    dcv.authority = resultRow.getStringColumn("authority");
-                                    dcv.confidence = resultRow.getIntColumn("confidence");
-
-                                    // Add it to the list
-                                    metadata.add(dcv);
-                                }
+                                // Add it to the list
+                                metadata.add(dcv);
                             }
                         }
                     }
@@ -1326,6 +1352,11 @@ public abstract class DSpaceObject
             metadata = m;
         }
 
+        boolean isLoaded()
+        {
+            return metadata != null;
+        }
+
         TableRowIterator retrieveMetadata(int resourceId, int resourceTypeId) throws SQLException
         {
             return DatabaseManager.queryTable(ourContext, "MetadataValue",
@@ -10,8 +10,6 @@ package org.dspace.content;
 import java.sql.SQLException;
 
 import org.dspace.core.Context;
-import org.dspace.storage.rdbms.DatabaseManager;
-import org.dspace.storage.rdbms.TableRowIterator;
 
 /**
  * This class handles the recognition of bitstream formats, using the format
@@ -67,34 +65,6 @@ public class FormatIdentifier
         }
 
         // See if the extension is in the fileextension table
-        TableRowIterator tri = DatabaseManager.query(context,
-                "SELECT bitstreamformatregistry.* FROM bitstreamformatregistry, " + 
-                "fileextension WHERE fileextension.extension LIKE ? " + 
-                "AND bitstreamformatregistry.bitstream_format_id=" + 
-                "fileextension.bitstream_format_id",
-                extension);
-
-        BitstreamFormat retFormat = null;
-        try
-        {
-            if (tri.hasNext())
-            {
-                // Return first match
-                retFormat = new BitstreamFormat(context, tri.next());
-            }
-            else
-            {
-                retFormat = null;
-            }
-        }
-        finally
-        {
-            // close the TableRowIterator to free up resources
-            if (tri != null)
-            {
-                tri.close();
-            }
-        }
-        return retFormat;
+        return BitstreamFormat.findByExtension(context, extension);
     }
 }
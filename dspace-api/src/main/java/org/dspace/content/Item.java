@@ -74,6 +74,11 @@ public class Item extends DSpaceObject
     /** The bundles in this item - kept in sync with DB */
     private List<Bundle> bundles;
 
+    /**
+     * The collections this item is in, if they have been prefetched; otherwise
+     * null, and they are read from the database on each request
+     */
+    private List<Collection> collections;
 
     /** Handle, if any */
     private String handle;
@@ -193,7 +198,9 @@ public class Item extends DSpaceObject
 
     /**
      * Get all the items in the archive. Only items with the "in archive" flag
-     * set are included. The order of the list is indeterminate.
+     * set are included. The order of the list is indeterminate. With a
+     * read-only context, the items are streamed (see
+     * {@link #findAll(Context, int)}).
      *
      * @param context
      *            DSpace context object
@@ -201,10 +208,31 @@ public class Item extends DSpaceObject
      * @throws SQLException
      */
     public static ItemIterator findAll(Context context) throws SQLException
+    {
+        return findAll(context, context.isReadOnly() ? DatabaseManager.getBulkFetchSize() : 0);
+    }
+
+    /**
+     * Get all the items in the archive, reading the rows from the database a
+     * few at a time rather than all at once. The context must not be
+     * committed while iterating.
+     *
+     * @param context
+     *            DSpace context object
+     * @param fetchSize
+     *            the number of rows to read at a time, e.g.
+     *            DatabaseManager.getBulkFetchSize(), or 0 to read them all
+     *            at once
+     * @return an iterator over the items in the archive.
+     * @throws SQLException
+     */
+    public static ItemIterator findAll(Context context, int fetchSize) throws SQLException
     {
         String myQuery = "SELECT * FROM item WHERE in_archive='1'";
 
-        TableRowIterator rows = DatabaseManager.queryTable(context, "item", myQuery);
+        TableRowIterator rows = fetchSize > 0
+                ? DatabaseManager.queryTableStreaming(context, fetchSize, "item", myQuery)
+                : DatabaseManager.queryTable(context, "item", myQuery);
 
         return new ItemIterator(context, rows);
     }
@@ -212,6 +240,8 @@ public class Item extends DSpaceObject
     /**
      * Get all "final" items in the archive, both archived ("in archive" flag) or
      * withdrawn items are included. The order of the list is indeterminate.
+     * With a read-only context, the items are streamed (see
+     * {@link #findAllUnfiltered(Context, int)}).
      *
      * @param context
      *            DSpace context object
@@ -219,13 +249,34 @@ public class Item extends DSpaceObject
      * @throws SQLException
      */
 	public static ItemIterator findAllUnfiltered(Context context) throws SQLException
+    {
+        return findAllUnfiltered(context, context.isReadOnly() ? DatabaseManager.getBulkFetchSize() : 0);
+	}
+
+    /**
+     * Get all "final" items in the archive, reading the rows from the
+     * database a few at a time rather than all at once. The context must not
+     * be committed while iterating.
+     *
+     * @param context
+     *            DSpace context object
+     * @param fetchSize
+     *            the number of rows to read at a time, e.g.
+     *            DatabaseManager.getBulkFetchSize(), or 0 to read them all
+     *            at once
+     * @return an iterator over the items in the archive.
+     * @throws SQLException
+     */
+    public static ItemIterator findAllUnfiltered(Context context, int fetchSize) throws SQLException
     {
         String myQuery = "SELECT * FROM item WHERE in_archive='1' or withdrawn='1'";
 
-        TableRowIterator rows = DatabaseManager.queryTable(context, "item", myQuery);
+        TableRowIterator rows = fetchSize > 0
+                ? DatabaseManager.queryTableStreaming(context, fetchSize, "item", myQuery)
+                : DatabaseManager.queryTable(context, "item", myQuery);
 
         return new ItemIterator(context, rows);
-	}
+    }
 
     /**
      * Find all the items in the archive by a given submitter. The order is
@@ -542,6 +593,11 @@ public class Item extends DSpaceObject
      */
     public Collection[] getCollections() throws SQLException
     {
+        if (this.collections != null)
+        {
+            return this.collections.toArray(new Collection[this.collections.size()]);
+        }
+
         List<Collection> collections = new ArrayList<Collection>();
 
         // Get collection table rows
@@ -586,6 +642,41 @@ public class Item extends DSpaceObject
         return collectionArray;
     }
 
+    /**
+     * Set the collections this item is in, when they have been prefetched
+     * together with those of other items.
+     *
+     * @param collections the collections this item is in
+     */
+    void setPrefetchedCollections(List<Collection> collections)
+    {
+        this.collections = collections;
+    }
+
+    /**
+     * Forget any prefetched collections, after this item has been added to or
+     * removed from a collection.
+     */
+    void clearPrefetchedCollections()
+    {
+        this.collections = null;
+    }
+
+    /**
+     * Set the bundles in this item, when they have been prefetched together
+     * with those of other items. Has no effect if the bundles are already
+     * loaded.
+     *
+     * @param bundles the bundles in this item
+     */
+    void setPrefetchedBundles(List<Bundle> bundles)
+    {
+        if (this.bundles == null)
+        {
+            this.bundles = bundles;
+        }
+    }
+
     /**
      * Get the communities this item is in. Returns an unordered array of the
      * communities that house the collections this item is in, including parent
@@ -704,14 +795,30 @@ public class Item extends DSpaceObject
      * @return the bundles in an unordered array
      */
     public Bundle[] getBundles(String name) throws SQLException
+    {
+        return getBundles(new String[] { name });
+    }
+
+    /**
+     * Get the bundles matching any of several bundle names. The bundles of
+     * the item are read once and kept, but not their bitstreams, which each
+     * bundle reads when first needed.
+     *
+     * @param names
+     *            names of the bundles (e.g. ORIGINAL and THUMBNAIL)
+     *
+     * @return the bundles in an unordered array
+     */
+    public Bundle[] getBundles(String[] names) throws SQLException
     {
         List<Bundle> matchingBundles = new ArrayList<Bundle>();
+        List<String> nameList = Arrays.asList(names);
 
         // now only keep bundles with matching names
         Bundle[] bunds = getBundles();
         for (int i = 0; i < bunds.length; i++ )
         {
-            if (name.equals(bunds[i].getName()))
+            if (nameList.contains(bunds[i].getName()))
             {
                 matchingBundles.add(bunds[i]);
             }
@@ -9,10 +9,14 @@ package org.dspace.content;
 
 import java.sql.SQLException;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 
+import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Context;
+import org.dspace.storage.rdbms.QueryUtils;
 import org.dspace.storage.rdbms.TableRow;
 import org.dspace.storage.rdbms.TableRowIterator;
 
@@ -24,6 +28,12 @@ import org.dspace.storage.rdbms.TableRowIterator;
  *
  * Note that this class is not a real Iterator, as it does not implement
  * the Iterator interface
+ *
+ * If a prefetch size is set (see {@link #setPrefetchSize(int)}, defaulting
+ * to <code>db.item.prefetch</code> in dspace.cfg), items are read in blocks
+ * of that size, and the metadata, bundles, bitstreams and collections of
+ * each block are loaded with one query per table before the items are
+ * returned.
  * 
  * @author Robert Tansley
  * @author Richard Jones
@@ -35,6 +45,9 @@ public class ItemIterator
      * This class basically wraps a TableRowIterator.
      */
 
+    /** The prefetch size used by batch jobs which iterate over many items */
+    public static final int BATCH_PREFETCH_SIZE = 100;
+
     /** Our context */
     private Context ourContext;
 
@@ -43,6 +56,13 @@ public class ItemIterator
 
     /** a real iterator which works over the item ids when present */
     private Iterator<Integer> iditr;
+
+    /** the number of items to read and populate at a time, or 0 for one by one */
+    private int prefetchSize = ConfigurationManager.getIntProperty("db.item.prefetch", 0);
+
+    /** the items already read in the current block */
+    private LinkedList<Item> prefetched = new LinkedList<Item>();
+
     
     /**
      * Construct an item iterator using a set of TableRow objects from
@@ -81,6 +101,10 @@ public class ItemIterator
      */
     public boolean hasNext() throws SQLException
     {
+        if (!prefetched.isEmpty())
+        {
+            return true;
+        }
     	if (iditr != null)
     	{
     		return iditr.hasNext();
@@ -101,6 +125,14 @@ public class ItemIterator
      */
     public Item next() throws SQLException
     {
+        if (prefetchSize > 0)
+        {
+            while (prefetched.isEmpty() && hasNext())
+            {
+                prefetchBlock();
+            }
+            return prefetched.pollFirst();
+        }
     	if (iditr != null)
     	{
     		return nextByID();
@@ -112,6 +144,58 @@ public class ItemIterator
     	return null;
     }
     
+    /**
+     * Set the number of items to read at a time. Each block of items is read
+     * with its metadata, bundles, bitstreams and collections using one query
+     * per table, instead of one query per item for each of them.
+     *
+     * @param prefetchSize
+     *            the number of items in each block, or 0 to read items one by one
+     * @return this iterator
+     */
+    public ItemIterator setPrefetchSize(int prefetchSize)
+    {
+        this.prefetchSize = Math.min(Math.max(prefetchSize, 0), QueryUtils.MAX_IN_SIZE);
+        return this;
+    }
+
+    /**
+     * Read the next block of items, and populate them
+     *
+     * @throws SQLException
+     */
+    private void prefetchBlock()
+        throws SQLException
+    {
+        List<Item> items;
+        if (iditr != null)
+        {
+            List<Integer> ids = new ArrayList<Integer>(prefetchSize);
+            while (ids.size() < prefetchSize && iditr.hasNext())
+            {
+                ids.add(iditr.next());
+            }
+            items = ItemPrefetcher.findItems(ourContext, ids);
+        }
+        else
+        {
+            items = new ArrayList<Item>(prefetchSize);
+            while (items.size() < prefetchSize && itemRows.hasNext())
+            {
+                TableRow row = itemRows.next();
+
+                // Check cache
+                Item fromCache = (Item) ourContext.fromCache(Item.class, row
+                        .getIntColumn("item_id"));
+
+                items.add(fromCache != null ? fromCache : new Item(ourContext, row));
+            }
+        }
+
+        ItemPrefetcher.prefetch(ourContext, items);
+        prefetched.addAll(items);
+    }
+
     /**
      * This private method knows how to get the next result out of the 
      * item id iterator
@@ -153,6 +237,10 @@ public class ItemIterator
     public int nextID()
     	throws SQLException
     {
+        if (!prefetched.isEmpty())
+        {
+            return prefetched.removeFirst().getID();
+        }
     	if (iditr != null)
     	{
     		return nextByIDID();
@@ -0,0 +1,292 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.QueryUtils;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
+
+/**
+ * Loads blocks of items, together with their metadata, bundles, bitstreams
+ * and collections, using one query per table for the whole block rather
+ * than one query per item.
+ *
+ * @see ItemIterator#setPrefetchSize(int)
+ */
+final class ItemPrefetcher
+{
+    /** log4j category */
+    private static final Logger log = Logger.getLogger(ItemPrefetcher.class);
+
+    private ItemPrefetcher()
+    {
+    }
+
+    /**
+     * Find a block of items by ID with a single query. Items already in the
+     * context cache are not read again.
+     *
+     * @param context
+     *            DSpace context object
+     * @param ids
+     *            the item IDs
+     * @return the items found, in the order of the given IDs (IDs which do
+     *         not exist are skipped)
+     * @throws SQLException
+     */
+    static List<Item> findItems(Context context, List<Integer> ids) throws SQLException
+    {
+        Map<Integer, Item> found = new HashMap<Integer, Item>();
+        List<Integer> toLoad = new ArrayList<Integer>();
+        for (Integer id : ids)
+        {
+            Item fromCache = (Item) context.fromCache(Item.class, id);
+            if (fromCache != null)
+            {
+                found.put(id, fromCache);
+            }
+            else
+            {
+                toLoad.add(id);
+            }
+        }
+
+        if (!toLoad.isEmpty())
+        {
+            TableRowIterator tri = DatabaseManager.queryTable(context, "item",
+                    "SELECT * FROM item WHERE item_id IN (" + QueryUtils.placeholders(toLoad.size()) + ")",
+                    toLoad.toArray());
+            try
+            {
+                while (tri.hasNext())
+                {
+                    TableRow row = tri.next();
+                    found.put(row.getIntColumn("item_id"), new Item(context, row));
+                }
+            }
+            finally
+            {
+                tri.close();
+            }
+        }
+
+        List<Item> items = new ArrayList<Item>(ids.size());
+        for (Integer id : ids)
+        {
+            Item item = found.get(id);
+            if (item != null)
+            {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Load the metadata, bundles (with their bitstreams) and collections of
+     * a block of items, and populate the items with them.
+     *
+     * @param context
+     *            DSpace context object
+     * @param items
+     *            the items
+     * @throws SQLException
+     */
+    static void prefetch(Context context, List<Item> items) throws SQLException
+    {
+        if (items.isEmpty())
+        {
+            return;
+        }
+
+        Map<Integer, Item> byID = new LinkedHashMap<Integer, Item>();
+        for (Item item : items)
+        {
+            byID.put(item.getID(), item);
+        }
+        Object[] ids = byID.keySet().toArray();
+        String in = QueryUtils.placeholders(ids.length);
+
+        prefetchMetadata(context, byID, ids, in);
+        prefetchBundles(context, byID, ids, in);
+        prefetchCollections(context, byID, ids, in);
+    }
+
+    private static void prefetchMetadata(Context context, Map<Integer, Item> byID, Object[] ids, String in)
+            throws SQLException
+    {
+        Map<Integer, List<Metadatum>> metadata = newListMap(byID);
+
+        Object[] params = new Object[ids.length + 1];
+        params[0] = Constants.ITEM;
+        System.arraycopy(ids, 0, params, 1, ids.length);
+
+        TableRowIterator tri = DatabaseManager.queryTable(context, "MetadataValue",
+                "SELECT * FROM MetadataValue WHERE resource_type_id = ? AND resource_id IN (" + in + ") " +
+                "ORDER BY resource_id, metadata_field_id, place",
+                params);
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+                int itemID = row.getIntColumn("resource_id");
+                Metadatum dcv = DSpaceObject.toMetadatum(context, row, Constants.ITEM, itemID, log);
+                if (dcv != null)
+                {
+                    metadata.get(itemID).add(dcv);
+                }
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+
+        for (Map.Entry<Integer, List<Metadatum>> entry : metadata.entrySet())
+        {
+            byID.get(entry.getKey()).setPrefetchedMetadata(entry.getValue());
+        }
+    }
+
+    private static void prefetchBundles(Context context, Map<Integer, Item> byID, Object[] ids, String in)
+            throws SQLException
+    {
+        // Read the bundle rows, remembering which item each belongs to
+        Map<Integer, List<Integer>> itemBundleIDs = new LinkedHashMap<Integer, List<Integer>>();
+        for (Integer itemID : byID.keySet())
+        {
+            itemBundleIDs.put(itemID, new ArrayList<Integer>());
+        }
+        Map<Integer, TableRow> bundleRows = new LinkedHashMap<Integer, TableRow>();
+
+        TableRowIterator tri = DatabaseManager.query(context,
+                "SELECT bundle.*, item2bundle.item_id FROM bundle, item2bundle WHERE " +
+                "item2bundle.bundle_id = bundle.bundle_id AND item2bundle.item_id IN (" + in + ")",
+                ids);
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+                int bundleID = row.getIntColumn("bundle_id");
+                itemBundleIDs.get(row.getIntColumn("item_id")).add(bundleID);
+                if (context.fromCache(Bundle.class, bundleID) == null)
+                {
+                    // Since the item ID comes from item2bundle, we cannot use
+                    // queryTable & so we need to add our table later on
+                    row.setTable("bundle");
+                    bundleRows.put(bundleID, row);
+                }
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+
+        // Read the bitstream rows of the bundles not already cached
+        Map<Integer, List<TableRow>> bitstreamRows = new HashMap<Integer, List<TableRow>>();
+        for (Integer bundleID : bundleRows.keySet())
+        {
+            bitstreamRows.put(bundleID, new ArrayList<TableRow>());
+        }
+        for (Object[] block : QueryUtils.blocks(bundleRows.keySet()))
+        {
+            tri = DatabaseManager.query(context,
+                    "SELECT bitstream.*, bundle2bitstream.bitstream_order, bundle2bitstream.bundle_id " +
+                    "FROM bitstream, bundle2bitstream WHERE " +
+                    "bundle2bitstream.bitstream_id = bitstream.bitstream_id AND " +
+                    "bundle2bitstream.bundle_id IN (" + QueryUtils.placeholders(block.length) + ") " +
+                    "ORDER BY bundle2bitstream.bundle_id, " + Bundle.getBitstreamOrdering(),
+                    block);
+            try
+            {
+                while (tri.hasNext())
+                {
+                    TableRow row = tri.next();
+                    bitstreamRows.get(row.getIntColumn("bundle_id")).add(row);
+                }
+            }
+            finally
+            {
+                tri.close();
+            }
+        }
+
+        // Build the bundles and give them to their items
+        for (Map.Entry<Integer, List<Integer>> entry : itemBundleIDs.entrySet())
+        {
+            List<Bundle> bundles = new ArrayList<Bundle>();
+            for (Integer bundleID : entry.getValue())
+            {
+                Bundle bundle = (Bundle) context.fromCache(Bundle.class, bundleID);
+                if (bundle == null)
+                {
+                    bundle = new Bundle(context, bundleRows.get(bundleID), bitstreamRows.get(bundleID));
+                }
+                bundles.add(bundle);
+            }
+            byID.get(entry.getKey()).setPrefetchedBundles(bundles);
+        }
+    }
+
+    private static void prefetchCollections(Context context, Map<Integer, Item> byID, Object[] ids, String in)
+            throws SQLException
+    {
+        Map<Integer, List<Collection>> collections = newListMap(byID);
+
+        TableRowIterator tri = DatabaseManager.queryTable(context, "collection2item",
+                "SELECT * FROM collection2item WHERE item_id IN (" + in + ")",
+                ids);
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+
+                // Collections are cached in the context, so each one is only read once
+                Collection collection = Collection.find(context, row.getIntColumn("collection_id"));
+                if (collection != null)
+                {
+                    collections.get(row.getIntColumn("item_id")).add(collection);
+                }
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+
+        for (Map.Entry<Integer, List<Collection>> entry : collections.entrySet())
+        {
+            byID.get(entry.getKey()).setPrefetchedCollections(entry.getValue());
+        }
+    }
+
+    private static <T> Map<Integer, List<T>> newListMap(Map<Integer, Item> byID)
+    {
+        Map<Integer, List<T>> map = new HashMap<Integer, List<T>>();
+        for (Integer itemID : byID.keySet())
+        {
+            map.put(itemID, new ArrayList<T>());
+        }
+        return map;
+    }
+}
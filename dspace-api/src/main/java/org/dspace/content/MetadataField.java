@@ -13,9 +13,12 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.dspace.authorize.AuthorizeException;
@@ -50,11 +53,11 @@ public class MetadataField
     /** The row in the table representing this type */
     private TableRow row;
 
-    // cache of field by ID (Integer)
-    private static Map<Integer, MetadataField> id2field = null;
+    /** Snapshot of the whole registry, or null until next needed */
+    private static volatile Registry registry = null;
 
-    /** metadatafield cache */
-    private static Map<String, MetadataField> metadatafieldcache = null;
+    /** Counts the times the snapshot has been dropped */
+    private static final AtomicInteger generation = new AtomicInteger();
 
 
     /**
@@ -252,7 +255,7 @@ public class MetadataField
         row.setColumn("qualifier", qualifier);
         row.setColumn("scope_note", scopeNote);
         DatabaseManager.insert(context, row);
-        decache();
+        modified(context);
 
         // Remember the new row number
         this.fieldID = row.getIntColumn("metadata_field_id");
@@ -275,18 +278,7 @@ public class MetadataField
     public static MetadataField findByElement(Context context, int schemaID,
             String element, String qualifier) throws SQLException
     {
-
-        if (!isCacheInitialized()){
-            initCache(context);
-        }
-
-        // 'sanity check' first.
-        String metadataFieldKey = schemaID+"."+element+"."+qualifier;
-        if(!metadatafieldcache.containsKey(metadataFieldKey)) {
-            return null;
-        }
-
-        return metadatafieldcache.get(metadataFieldKey);
+        return getRegistry(context).byElement.get(schemaID+"."+element+"."+qualifier);
     }
 
     /**
@@ -299,27 +291,28 @@ public class MetadataField
     public static MetadataField[] findAll(Context context) throws SQLException
     {
         List<MetadataField> fields = new ArrayList<MetadataField>();
-
-        // Get all the metadatafieldregistry rows
-        TableRowIterator tri = DatabaseManager.queryTable(context, "MetadataFieldRegistry",
-                               "SELECT mfr.* FROM MetadataFieldRegistry mfr, MetadataSchemaRegistry msr where mfr.metadata_schema_id= msr.metadata_schema_id ORDER BY msr.short_id,  mfr.element, mfr.qualifier");
-
-        try
+        final Map<Integer, String> schemaNames = new HashMap<Integer, String>();
+        for (MetadataField field : getRegistry(context).byID.values())
         {
-            // Make into DC Type objects
-            while (tri.hasNext())
+            MetadataSchema schema = MetadataSchema.find(context, field.getSchemaID());
+            if (schema != null)
             {
-                fields.add(new MetadataField(tri.next()));
+                schemaNames.put(field.getSchemaID(), schema.getName());
+                fields.add(copy(field));
             }
         }
-        finally
+
+        // Order by schema name, element and qualifier
+        Collections.sort(fields, new Comparator<MetadataField>()
         {
-            // close the TableRowIterator to free up resources
-            if (tri != null)
+            @Override
+            public int compare(MetadataField a, MetadataField b)
             {
-                tri.close();
+                int result = compareNullsLast(schemaNames.get(a.getSchemaID()),
+                        schemaNames.get(b.getSchemaID()));
+                return result != 0 ? result : ELEMENT_ORDER.compare(a, b);
             }
-        }
+        });
 
         // Convert list into an array
         MetadataField[] typeArray = new MetadataField[fields.size()];
@@ -338,28 +331,14 @@ public class MetadataField
             throws SQLException
     {
         List<MetadataField> fields = new ArrayList<MetadataField>();
-
-        // Get all the metadatafieldregistry rows
-        TableRowIterator tri = DatabaseManager.queryTable(context,"MetadataFieldRegistry",
-                "SELECT * FROM MetadataFieldRegistry WHERE metadata_schema_id= ? " +
-                " ORDER BY element, qualifier", schemaID);
-
-        try
-        {
-            // Make into DC Type objects
-            while (tri.hasNext())
-            {
-                fields.add(new MetadataField(tri.next()));
-            }
-        }
-        finally
+        for (MetadataField field : getRegistry(context).byID.values())
         {
-            // close the TableRowIterator to free up resources
-            if (tri != null)
+            if (field.getSchemaID() == schemaID)
             {
-                tri.close();
+                fields.add(copy(field));
             }
         }
+        Collections.sort(fields, ELEMENT_ORDER);
 
         // Convert list into an array
         MetadataField[] typeArray = new MetadataField[fields.size()];
@@ -385,6 +364,11 @@ public class MetadataField
                     "Only administrators may modiffy the Dublin Core registry");
         }
 
+        // This object may be one in a registry snapshot, changed already:
+        // read the registry again, whether or not the update works.
+        decache();
+        modified(context);
+
         // Check to see if the schema ID was altered. If is was then we will
         // query to ensure that there is not already a duplicate name field.
         if (row.getIntColumn("metadata_schema_id") != schemaID)
@@ -408,7 +392,7 @@ public class MetadataField
         row.setColumn("qualifier", qualifier);
         row.setColumn("scope_note", scopeNote);
         DatabaseManager.update(context, row);
-        decache();
+        modified(context);
 
         log.info(LogManager.getHeader(context, "update_metadatafieldregistry",
                 "metadata_field_id=" + getFieldID() + "element=" + getElement()
@@ -455,7 +439,7 @@ public class MetadataField
                 "metadata_field_id=" + getFieldID()));
 
         DatabaseManager.delete(context, row);
-        decache();
+        modified(context);
     }
 
     /**
@@ -569,40 +553,130 @@ public class MetadataField
     public static MetadataField find(Context context, int id)
             throws SQLException
     {
-        if (!isCacheInitialized())
+        return getRegistry(context).byID.get(Integer.valueOf(id));
+    }
+
+    // invalidate the cache e.g. after something modifies DB state.
+    private static void decache()
+    {
+        generation.incrementAndGet();
+        registry = null;
+    }
+
+    // note that the context has changed the registry: until it commits, it
+    // reads the registry itself to see its changes, and everyone else keeps
+    // the snapshot of what has been committed.
+    private static void modified(Context context)
+    {
+        PendingChanges pending = (PendingChanges) context.getCommitAction(MetadataField.class.getName());
+        if (pending == null)
         {
-            initCache(context);
+            pending = new PendingChanges();
+            context.addCommitAction(MetadataField.class.getName(), pending);
         }
+        pending.registry = null;
+    }
 
-        // 'sanity check' first.
-        Integer iid = Integer.valueOf(id);
-        if (!id2field.containsKey(iid))
+    // get the registry snapshot, loading it if necessary
+    private static Registry getRegistry(Context context) throws SQLException
+    {
+        PendingChanges pending = (PendingChanges) context.getCommitAction(MetadataField.class.getName());
+        if (pending != null)
         {
-            return null;
+            if (pending.registry == null)
+            {
+                pending.registry = new Registry(context);
+            }
+            return pending.registry;
         }
 
-        return id2field.get(iid);
+        Registry current = registry;
+        if (current == null)
+        {
+            synchronized (MetadataField.class)
+            {
+                current = registry;
+                if (current == null)
+                {
+                    log.info("Loading MetadataField elements into cache.");
+                    int loading = generation.get();
+                    current = new Registry(context);
+
+                    // Don't keep it if changes were committed while loading
+                    if (loading == generation.get())
+                    {
+                        registry = current;
+                    }
+                }
+            }
+        }
+        return current;
     }
 
-    // invalidate the cache e.g. after something modifies DB state.
-    private static void decache()
+    // a copy of a field from a registry snapshot, which the caller may change
+    private static MetadataField copy(MetadataField field) throws SQLException
     {
-        id2field = null;
+        TableRow copy = DatabaseManager.row("MetadataFieldRegistry");
+        copy.setColumn("metadata_field_id", field.row.getIntColumn("metadata_field_id"));
+        copy.setColumn("metadata_schema_id", field.row.getIntColumn("metadata_schema_id"));
+        copy.setColumn("element", field.row.getStringColumn("element"));
+        copy.setColumn("qualifier", field.row.getStringColumn("qualifier"));
+        copy.setColumn("scope_note", field.row.getStringColumn("scope_note"));
+        return new MetadataField(copy);
     }
 
-    private static boolean isCacheInitialized()
+    /** Orders fields by element, then qualifier, like the database does */
+    private static final Comparator<MetadataField> ELEMENT_ORDER = new Comparator<MetadataField>()
+    {
+        @Override
+        public int compare(MetadataField a, MetadataField b)
+        {
+            int result = compareNullsLast(a.getElement(), b.getElement());
+            return result != 0 ? result : compareNullsLast(a.getQualifier(), b.getQualifier());
+        }
+    };
+
+    private static int compareNullsLast(String a, String b)
     {
-        return id2field != null;
+        if (a == null || b == null)
+        {
+            return a == null ? (b == null ? 0 : 1) : -1;
+        }
+        return a.compareTo(b);
     }
-    
-    // load caches if necessary
-    private static synchronized void initCache(Context context) throws SQLException
+
+    /**
+     * Registry changes made by a context which have not been committed yet.
+     * Once they are, the shared snapshot is out of date.
+     */
+    private static final class PendingChanges implements Runnable
     {
-        if (!isCacheInitialized())
+        /** the registry as the context sees it, or null until next needed */
+        private Registry registry;
+
+        @Override
+        public void run()
+        {
+            decache();
+        }
+    }
+
+    /**
+     * Snapshot of the field registry, shared by all threads. It is never
+     * changed once loaded, but replaced as a whole when changes to the
+     * registry are committed, so lookups need no locking.
+     */
+    private static final class Registry
+    {
+        private final Map<Integer, MetadataField> byID;
+
+        /** fields by schema ID, element and qualifier */
+        private final Map<String, MetadataField> byElement;
+
+        private Registry(Context context) throws SQLException
         {
-            Map<Integer, MetadataField> new_id2field = new HashMap<Integer, MetadataField>();
-            Map<String, MetadataField> new_metadatafieldcache = new HashMap<String, MetadataField>();
-            log.info("Loading MetadataField elements into cache.");
+            Map<Integer, MetadataField> new_byID = new HashMap<Integer, MetadataField>();
+            Map<String, MetadataField> new_byElement = new HashMap<String, MetadataField>();
 
             // Grab rows from DB
             TableRowIterator tri = DatabaseManager.queryTable(context,"MetadataFieldRegistry",
@@ -615,8 +689,8 @@ public class MetadataField
                     TableRow row = tri.next();
                     int fieldID = row.getIntColumn("metadata_field_id");
                     MetadataField metadataField = new MetadataField(row);
-                    new_id2field.put(Integer.valueOf(fieldID), metadataField);
-                    new_metadatafieldcache.put(metadataField.getSchemaID()+"."+metadataField.getElement()+"."+metadataField.getQualifier(), metadataField);
+                    new_byID.put(Integer.valueOf(fieldID), metadataField);
+                    new_byElement.put(metadataField.getSchemaID()+"."+metadataField.getElement()+"."+metadataField.getQualifier(), metadataField);
                 }
             }
             finally
@@ -628,8 +702,8 @@ public class MetadataField
                 }
             }
 
-            id2field = new_id2field;
-            metadatafieldcache = new_metadatafieldcache;
+            byID = Collections.unmodifiableMap(new_byID);
+            byElement = Collections.unmodifiableMap(new_byElement);
         }
     }
 
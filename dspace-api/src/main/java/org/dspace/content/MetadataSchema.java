@@ -11,10 +11,12 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.dspace.authorize.AuthorizeException;
@@ -56,11 +58,11 @@ public class MetadataSchema
     private String namespace;
     private String name;
 
-    // cache of schema by ID (Integer)
-    private static Map<Integer, MetadataSchema> id2schema = null;
+    /** Snapshot of the whole registry, or null until next needed */
+    private static volatile Registry registry = null;
 
-    // cache of schema by short name
-    private static Map<String, MetadataSchema> name2schema = null;
+    /** Counts the times the snapshot has been dropped */
+    private static final AtomicInteger generation = new AtomicInteger();
 
 
     /**
@@ -232,8 +234,8 @@ public class MetadataSchema
         row.setColumn("short_id", name);
         DatabaseManager.insert(context, row);
 
-        // invalidate our fast-find cache.
-        decache();
+        // invalidate our fast-find cache once committed.
+        modified(context);
 
         // Remember the new row number
         this.schemaID = row.getIntColumn("metadata_schema_id");
@@ -255,36 +257,8 @@ public class MetadataSchema
     public static MetadataSchema findByNamespace(Context context,
             String namespace) throws SQLException
     {
-        // Grab rows from DB
-        TableRowIterator tri = DatabaseManager.queryTable(context,"MetadataSchemaRegistry",
-                "SELECT * FROM MetadataSchemaRegistry WHERE namespace= ? ", 
-                namespace);
-
-        TableRow row = null;
-        try
-        {
-            if (tri.hasNext())
-            {
-                row = tri.next();
-            }
-        }
-        finally
-        {
-            // close the TableRowIterator to free up resources
-            if (tri != null)
-            {
-                tri.close();
-            }
-        }
-
-        if (row == null)
-        {
-            return null;
-        }
-        else
-        {
-            return new MetadataSchema(row);
-        }
+        MetadataSchema schema = getRegistry(context).byNamespace.get(namespace);
+        return (schema == null) ? null : copy(schema);
     }
 
     /**
@@ -305,6 +279,11 @@ public class MetadataSchema
                     "Only administrators may modify the metadata registry");
         }
 
+        // This object may be one in a registry snapshot, changed already:
+        // read the registry again, whether or not the update works.
+        decache();
+        modified(context);
+
         // Ensure the schema name is unique
         if (!uniqueShortName(context, name))
         {
@@ -323,7 +302,7 @@ public class MetadataSchema
         row.setColumn("short_id", getName());
         DatabaseManager.update(context, row);
 
-        decache();
+        modified(context);
 
         log.info(LogManager.getHeader(context, "update_metadata_schema",
                 "metadata_schema_id=" + getSchemaID() + "namespace="
@@ -350,7 +329,7 @@ public class MetadataSchema
                 "metadata_schema_id=" + getSchemaID()));
 
         DatabaseManager.delete(context, row);
-        decache();
+        modified(context);
     }
 
     /**
@@ -363,26 +342,9 @@ public class MetadataSchema
     public static MetadataSchema[] findAll(Context context) throws SQLException
     {
         List<MetadataSchema> schemas = new ArrayList<MetadataSchema>();
-
-        // Get all the metadataschema rows
-        TableRowIterator tri = DatabaseManager.queryTable(context, "MetadataSchemaRegistry",
-                        "SELECT * FROM MetadataSchemaRegistry ORDER BY metadata_schema_id");
-
-        try
-        {
-            // Make into DC Type objects
-            while (tri.hasNext())
-            {
-                schemas.add(new MetadataSchema(tri.next()));
-            }
-        }
-        finally
+        for (MetadataSchema schema : getRegistry(context).all)
         {
-            // close the TableRowIterator to free up resources
-            if (tri != null)
-            {
-                tri.close();
-            }
+            schemas.add(copy(schema));
         }
 
         // Convert list into an array
@@ -507,20 +469,7 @@ public class MetadataSchema
     public static MetadataSchema find(Context context, int id)
             throws SQLException
     {
-        if (!isCacheInitialized())
-        {
-            initCache(context);
-        }
-        
-        Integer iid = Integer.valueOf(id);
-
-        // sanity check
-        if (!id2schema.containsKey(iid))
-        {
-            return null;
-        }
-
-        return id2schema.get(iid);
+        return getRegistry(context).byID.get(Integer.valueOf(id));
     }
 
     /**
@@ -542,52 +491,128 @@ public class MetadataSchema
             return null;
         }
 
-        if (!isCacheInitialized())
+        return getRegistry(context).byName.get(shortName);
+    }
+
+    // invalidate the cache e.g. after something modifies DB state.
+    private static void decache()
+    {
+        generation.incrementAndGet();
+        registry = null;
+    }
+
+    // note that the context has changed the registry: until it commits, it
+    // reads the registry itself to see its changes, and everyone else keeps
+    // the snapshot of what has been committed.
+    private static void modified(Context context)
+    {
+        PendingChanges pending = (PendingChanges) context.getCommitAction(MetadataSchema.class.getName());
+        if (pending == null)
         {
-            initCache(context);
+            pending = new PendingChanges();
+            context.addCommitAction(MetadataSchema.class.getName(), pending);
         }
+        pending.registry = null;
+    }
 
-        if (!name2schema.containsKey(shortName))
+    // get the registry snapshot, loading it if necessary
+    private static Registry getRegistry(Context context) throws SQLException
+    {
+        PendingChanges pending = (PendingChanges) context.getCommitAction(MetadataSchema.class.getName());
+        if (pending != null)
         {
-            return null;
+            if (pending.registry == null)
+            {
+                pending.registry = new Registry(context);
+            }
+            return pending.registry;
         }
 
-        return name2schema.get(shortName);
+        Registry current = registry;
+        if (current == null)
+        {
+            synchronized (MetadataSchema.class)
+            {
+                current = registry;
+                if (current == null)
+                {
+                    log.info("Loading schema cache for fast finds");
+                    int loading = generation.get();
+                    current = new Registry(context);
+
+                    // Don't keep it if changes were committed while loading
+                    if (loading == generation.get())
+                    {
+                        registry = current;
+                    }
+                }
+            }
+        }
+        return current;
     }
 
-    // invalidate the cache e.g. after something modifies DB state.
-    private static void decache()
+    // a copy of a schema from a registry snapshot, which the caller may change
+    private static MetadataSchema copy(MetadataSchema schema) throws SQLException
     {
-        id2schema = null;
-        name2schema = null;
+        TableRow copy = DatabaseManager.row("MetadataSchemaRegistry");
+        copy.setColumn("metadata_schema_id", schema.row.getIntColumn("metadata_schema_id"));
+        copy.setColumn("namespace", schema.row.getStringColumn("namespace"));
+        copy.setColumn("short_id", schema.row.getStringColumn("short_id"));
+        return new MetadataSchema(copy);
     }
 
-    private static boolean isCacheInitialized()
+    /**
+     * Registry changes made by a context which have not been committed yet.
+     * Once they are, the shared snapshot is out of date.
+     */
+    private static final class PendingChanges implements Runnable
     {
-        return (id2schema != null && name2schema != null);
+        /** the registry as the context sees it, or null until next needed */
+        private Registry registry;
+
+        @Override
+        public void run()
+        {
+            decache();
+        }
     }
 
-    // load caches if necessary
-    private static synchronized void initCache(Context context) throws SQLException
+    /**
+     * Snapshot of the schema registry, shared by all threads. It is never
+     * changed once loaded, but replaced as a whole when changes to the
+     * registry are committed, so lookups need no locking.
+     */
+    private static final class Registry
     {
-        if (!isCacheInitialized())
+        private final Map<Integer, MetadataSchema> byID;
+        private final Map<String, MetadataSchema> byName;
+        private final Map<String, MetadataSchema> byNamespace;
+
+        /** all schemas, ordered by ID */
+        private final List<MetadataSchema> all;
+
+        private Registry(Context context) throws SQLException
         {
-            log.info("Loading schema cache for fast finds");
-            Map<Integer, MetadataSchema> new_id2schema = new HashMap<Integer, MetadataSchema>();
-            Map<String, MetadataSchema> new_name2schema = new HashMap<String, MetadataSchema>();
+            Map<Integer, MetadataSchema> new_byID = new HashMap<Integer, MetadataSchema>();
+            Map<String, MetadataSchema> new_byName = new HashMap<String, MetadataSchema>();
+            Map<String, MetadataSchema> new_byNamespace = new HashMap<String, MetadataSchema>();
+            List<MetadataSchema> new_all = new ArrayList<MetadataSchema>();
 
             TableRowIterator tri = DatabaseManager.queryTable(context,"MetadataSchemaRegistry",
-                    "SELECT * from MetadataSchemaRegistry");
+                    "SELECT * FROM MetadataSchemaRegistry ORDER BY metadata_schema_id");
 
             try
             {
                 while (tri.hasNext())
                 {
-                    TableRow row = tri.next();
-
-                    MetadataSchema s = new MetadataSchema(row);
-                    new_id2schema.put(Integer.valueOf(s.schemaID), s);
-                    new_name2schema.put(s.name, s);
+                    MetadataSchema s = new MetadataSchema(tri.next());
+                    new_byID.put(Integer.valueOf(s.schemaID), s);
+                    new_byName.put(s.name, s);
+                    if (!new_byNamespace.containsKey(s.namespace))
+                    {
+                        new_byNamespace.put(s.namespace, s);
+                    }
+                    new_all.add(s);
                 }
             }
             finally
@@ -599,8 +624,10 @@ public class MetadataSchema
                 }
             }
 
-            id2schema = new_id2schema;
-            name2schema = new_name2schema;
+            byID = Collections.unmodifiableMap(new_byID);
+            byName = Collections.unmodifiableMap(new_byName);
+            byNamespace = Collections.unmodifiableMap(new_byNamespace);
+            all = Collections.unmodifiableList(new_all);
         }
     }
 }
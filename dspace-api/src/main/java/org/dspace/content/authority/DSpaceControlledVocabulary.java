@@ -11,16 +11,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.io.File;
+import java.io.IOException;
 
 import org.apache.commons.lang.ArrayUtils;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
-
-import org.xml.sax.InputSource;
 
 import org.apache.log4j.Logger;
 
@@ -47,6 +40,9 @@ import org.dspace.core.SelfNamedPlugin;
  *   vocabulary.plugin._plugin_.hierarchy.suggest = <true|false>  # Display entire hierarchy in the suggestion list.  Default: TRUE
  *   vocabulary.plugin._plugin_.delimiter = "<string>"              # Delimiter to use when building hierarchy strings. Default: "::"
  *
+ * Suggestions are the nodes with a word in their label starting with the
+ * text typed so far. The vocabularies are loaded into a {@link VocabularyIndex}
+ * once, and loaded again when the file is modified.
  *
  * @author Michael B. Klein
  *
@@ -56,12 +52,10 @@ public class DSpaceControlledVocabulary extends SelfNamedPlugin implements Choic
 {
 
     private static Logger log = Logger.getLogger(DSpaceControlledVocabulary.class);
-    private static String xpathTemplate = "//node[contains(translate(@label,'ABCDEFGHIJKLMNOPQRSTUVWXYZ','abcdefghijklmnopqrstuvwxyz'),'%s')]";
-    private static String idTemplate = "//node[@id = '%s']";
     private static String pluginNames[] = null;
 
     private String vocabularyName = null;
-    private InputSource vocabulary = null;
+    private File vocabulary = null;
     private Boolean suggestHierarchy = true;
     private Boolean storeHierarchy = true;
     private String hierarchyDelimiter = "::";
@@ -123,37 +117,13 @@ public class DSpaceControlledVocabulary extends SelfNamedPlugin implements Choic
             }
         	String filename = vocabulariesPath + vocabularyName + ".xml";
         	log.info("Loading " + filename);
-            vocabulary = new InputSource(filename);
+            vocabulary = new File(filename);
     	}
     }
 
-    private String buildString(Node node)
+    private VocabularyIndex getIndex() throws IOException
     {
-    	if (node.getNodeType() == Node.DOCUMENT_NODE)
-        {
-    		return("");
-    	}
-        else
-        {
-    		String parentValue = buildString(node.getParentNode());
-    		Node currentLabel = node.getAttributes().getNamedItem("label");
-    		if (currentLabel != null)
-            {
-    			String currentValue = currentLabel.getNodeValue();
-    			if (parentValue.equals(""))
-                {
-    				return currentValue;
-    			}
-                else
-                {
-    				return(parentValue + this.hierarchyDelimiter + currentValue);
-    			}
-    		}
-            else
-            {
-    			return(parentValue);
-    		}
-    	}
+        return VocabularyIndex.forFile(vocabulary);
     }
 
     @Override
@@ -161,52 +131,26 @@ public class DSpaceControlledVocabulary extends SelfNamedPlugin implements Choic
     {
     	init();
     	log.debug("Getting matches for '" + text + "'");
-    	String xpathExpression = String.format(xpathTemplate, text.replaceAll("'", "&apos;").toLowerCase());
-    	XPath xpath = XPathFactory.newInstance().newXPath();
     	Choice[] choices;
     	try {
-            NodeList results = (NodeList) xpath.evaluate(xpathExpression,
-                    vocabulary, XPathConstants.NODESET);
-            String[] authorities = new String[results.getLength()];
-            String[] values = new String[results.getLength()];
-            String[] labels = new String[results.getLength()];
-            for (int i = 0; i < results.getLength(); i++)
-            {
-                Node node = results.item(i);
-                String hierarchy = this.buildString(node);
-                if (this.suggestHierarchy)
-                {
-                    labels[i] = hierarchy;
-                }
-                else
-                {
-                    labels[i] = node.getAttributes().getNamedItem("label").getNodeValue();
-                }
-                if (this.storeHierarchy)
-                {
-                    values[i] = hierarchy;
-                }
-                else
-                {
-                    values[i] = node.getAttributes().getNamedItem("label").getNodeValue();
-                }
-                Node idAttr = node.getAttributes().getNamedItem("id");
-                if (null != idAttr) // 'id' is optional
-                    authorities[i] = idAttr.getNodeValue();
-            }
-            int resultCount = labels.length - start;
+            VocabularyIndex index = getIndex();
+            int[] nodes = index.find(text);
+            int resultCount = nodes.length - start;
             if ((limit > 0) && (resultCount > limit)) // limit = 0 means no limit
                 resultCount = limit;
-            choices = new Choice[resultCount];
-            if (resultCount > 0)
+            choices = new Choice[Math.max(resultCount, 0)];
+            for (int i = 0; i < resultCount; i++)
             {
-                for (int i = 0; i < resultCount; i++)
-                {
-                    choices[i] = new Choice(authorities[start + i], values[start
-                            + i], labels[start + i]);
-                }
+                int node = nodes[start + i];
+                String label = index.getLabel(node);
+                String hierarchy = (this.suggestHierarchy || this.storeHierarchy)
+                        ? index.getHierarchy(node, this.hierarchyDelimiter) : label;
+                choices[i] = new Choice(index.getId(node), // 'id' is optional
+                        this.storeHierarchy ? hierarchy : label,
+                        this.suggestHierarchy ? hierarchy : label);
             }
-    	} catch(XPathExpressionException e) {
+    	} catch(IOException e) {
+            log.error("Unable to read vocabulary " + vocabulary, e);
     		choices = new Choice[0];
     	}
     	return new Choices(choices, 0, choices.length, Choices.CF_AMBIGUOUS, false);
@@ -224,12 +168,12 @@ public class DSpaceControlledVocabulary extends SelfNamedPlugin implements Choic
     public String getLabel(String field, String key, String locale)
     {
     	init();
-    	String xpathExpression = String.format(idTemplate, key);
-    	XPath xpath = XPathFactory.newInstance().newXPath();
     	try {
-    		Node node = (Node)xpath.evaluate(xpathExpression, vocabulary, XPathConstants.NODE);
-    		return node.getAttributes().getNamedItem("label").getNodeValue();
-    	} catch(XPathExpressionException e) {
+            VocabularyIndex index = getIndex();
+            int node = index.findById(key);
+            return node < 0 ? "" : index.getLabel(node);
+    	} catch(IOException e) {
+            log.error("Unable to read vocabulary " + vocabulary, e);
     		return("");
     	}
     }
@@ -26,13 +26,9 @@ import org.apache.log4j.Logger;
 
 import org.dspace.core.ConfigurationManager;
 import org.dspace.content.DCPersonName;
+import org.dspace.util.LookupHttpClient;
 
-import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.impl.client.DefaultHttpClient;
 
 /**
  * Sample personal name authority based on Library of Congress Name Authority
@@ -155,16 +151,13 @@ public class LCNameAuthority implements ChoiceAuthority
             log.error("SRU query failed: ", e);
             return new Choices(true);
         }
-        HttpGet get = new HttpGet(sruUri);
-
         log.debug("Trying SRU query, URL=" + sruUri);
 
         // 2. web request
         try
         {
-            HttpClient hc = new DefaultHttpClient();
-            HttpResponse response = hc.execute(get);
-            if (response.getStatusLine().getStatusCode() == 200)
+            LookupHttpClient.Response response = LookupHttpClient.get(sruUri);
+            if (response.getStatusCode() == 200)
             {
                 SAXParserFactory spf = SAXParserFactory.newInstance();
                 SAXParser sp = spf.newSAXParser();
@@ -176,8 +169,7 @@ public class LCNameAuthority implements ChoiceAuthority
                 xr.setFeature("http://xml.org/sax/features/namespaces", true);
                 xr.setContentHandler(handler);
                 xr.setErrorHandler(handler);
-                HttpEntity responseBody = response.getEntity();
-                xr.parse(new InputSource(responseBody.getContent()));
+                xr.parse(new InputSource(response.getContent()));
 
                 // this probably just means more results available..
                 if (handler.hits != handler.result.size())
@@ -224,10 +216,6 @@ public class LCNameAuthority implements ChoiceAuthority
             log.warn("Failed parsing SRU result: ", e);
             return new Choices(true);
         }
-        finally
-        {
-            get.releaseConnection();
-        }
         return new Choices(true);
     }
 
@@ -8,6 +8,7 @@
 package org.dspace.content.authority;
 
 import java.io.IOException;
+import java.net.URI;
 import java.util.List;
 import javax.xml.parsers.SAXParserFactory;
 import javax.xml.parsers.SAXParser;
@@ -22,12 +23,9 @@ import org.xml.sax.SAXParseException;
 import org.apache.log4j.Logger;
 
 import org.dspace.core.ConfigurationManager;
+import org.dspace.util.LookupHttpClient;
 
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URLEncodedUtils;
-import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.message.BasicNameValuePair;
 
 /**
@@ -92,16 +90,14 @@ public abstract class SHERPARoMEOProtocol implements ChoiceAuthority
     protected Choices query(String result, String label, String authority,
                             List<BasicNameValuePair> args, int start, int limit)
     {
-        HttpClient hc = new DefaultHttpClient();
         String srUrl = url + "?" + URLEncodedUtils.format(args, "UTF8");
-        HttpGet get = new HttpGet(srUrl);
 
         log.debug("Trying SHERPA/RoMEO Query, URL=" + srUrl);
 
         try
         {
-            HttpResponse response = hc.execute(get);
-            if (response.getStatusLine().getStatusCode() == 200)
+            LookupHttpClient.Response response = LookupHttpClient.get(URI.create(srUrl));
+            if (response.getStatusCode() == 200)
             {
                 SAXParserFactory spf = SAXParserFactory.newInstance();
                 SAXParser sp = spf.newSAXParser();
@@ -113,7 +109,7 @@ public abstract class SHERPARoMEOProtocol implements ChoiceAuthority
                 xr.setFeature("http://xml.org/sax/features/namespaces", true);
                 xr.setContentHandler(handler);
                 xr.setErrorHandler(handler);
-                xr.parse(new InputSource(response.getEntity().getContent()));
+                xr.parse(new InputSource(response.getContent()));
                 int confidence;
                 if (handler.total == 0)
                 {
@@ -145,10 +141,6 @@ public abstract class SHERPARoMEOProtocol implements ChoiceAuthority
             log.warn("Failed parsing SHERPA/RoMEO result: ", e);
             return null;
         }
-        finally
-        {
-            get.releaseConnection();
-        }
         return null;
     }
 
@@ -0,0 +1,361 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content.authority;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.log4j.Logger;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * In-memory index of a controlled vocabulary file, as used by
+ * {@link DSpaceControlledVocabulary}.
+ * <P>
+ * The nodes of the vocabulary are numbered in document order and kept in
+ * arrays of labels, IDs and parent numbers, so hierarchy strings are built
+ * on demand rather than stored. Equal labels share one String. For lookups
+ * by label there is a sorted array of the positions in the lower case labels
+ * where a word starts, so finding the labels with a word starting with the
+ * text typed so far (e.g. "north 40", "40" or "nor" for "north 40") is a
+ * binary search.
+ * <P>
+ * Indexes are shared by all users of a file, and rebuilt when the file is
+ * modified.
+ */
+final class VocabularyIndex
+{
+    private static final Logger log = Logger.getLogger(VocabularyIndex.class);
+
+    /** Indexes by vocabulary file path */
+    private static final Map<String, VocabularyIndex> indexes = new ConcurrentHashMap<String, VocabularyIndex>();
+
+    /** Modification time of the file this index was built from */
+    private volatile long lastModified;
+
+    /** Label of each node, or null if it has none */
+    private final String[] labels;
+
+    /** Lower case label of each node (the same String if already lower case) */
+    private final String[] lowerLabels;
+
+    /** ID of each node, or null if it has none */
+    private final String[] ids;
+
+    /** Number of the parent node of each node, or -1 for the root */
+    private final int[] parents;
+
+    /** Node numbers by ID */
+    private final Map<String, Integer> byId;
+
+    /** Node and offset in its lower case label of each word, sorted by the text from there on */
+    private final int[] wordNodes;
+    private final int[] wordOffsets;
+
+    private VocabularyIndex(long lastModified, List<String> labels, List<String> ids, List<Integer> parents)
+    {
+        this.lastModified = lastModified;
+        int count = labels.size();
+        this.labels = labels.toArray(new String[count]);
+        this.ids = ids.toArray(new String[count]);
+        this.parents = new int[count];
+        this.lowerLabels = new String[count];
+        this.byId = new HashMap<String, Integer>();
+
+        Map<String, String> lowerPool = new HashMap<String, String>();
+        List<int[]> words = new ArrayList<int[]>();
+        for (int node = 0; node < count; node++)
+        {
+            this.parents[node] = parents.get(node);
+            if (this.ids[node] != null && !byId.containsKey(this.ids[node]))
+            {
+                byId.put(this.ids[node], Integer.valueOf(node));
+            }
+
+            String label = this.labels[node];
+            if (label == null)
+            {
+                continue;
+            }
+            String lower = lowerPool.get(label);
+            if (lower == null)
+            {
+                lower = label.toLowerCase();
+                if (lower.equals(label))
+                {
+                    lower = label;
+                }
+                lowerPool.put(label, lower);
+            }
+            lowerLabels[node] = lower;
+            for (int offset = 0; offset < lower.length(); offset++)
+            {
+                if (offset == 0 || (Character.isLetterOrDigit(lower.charAt(offset))
+                        && !Character.isLetterOrDigit(lower.charAt(offset - 1))))
+                {
+                    words.add(new int[] { node, offset });
+                }
+            }
+        }
+
+        int[][] sorted = words.toArray(new int[words.size()][]);
+        Arrays.sort(sorted, new Comparator<int[]>()
+        {
+            @Override
+            public int compare(int[] a, int[] b)
+            {
+                return compareText(lowerLabels[a[0]], a[1], lowerLabels[b[0]], b[1]);
+            }
+        });
+        wordNodes = new int[sorted.length];
+        wordOffsets = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++)
+        {
+            wordNodes[i] = sorted[i][0];
+            wordOffsets[i] = sorted[i][1];
+        }
+    }
+
+    /**
+     * Get the index of a vocabulary file, building it if the file has not
+     * been read yet or has been modified since
+     *
+     * @param file the vocabulary file
+     * @return the index
+     * @throws IOException if the file cannot be read or parsed, and has
+     * never been read successfully
+     */
+    static VocabularyIndex forFile(File file) throws IOException
+    {
+        String path = file.getPath();
+        long lastModified = file.lastModified();
+        VocabularyIndex index = indexes.get(path);
+        if (index != null && index.lastModified == lastModified)
+        {
+            return index;
+        }
+        synchronized (VocabularyIndex.class)
+        {
+            index = indexes.get(path);
+            if (index != null && index.lastModified == lastModified)
+            {
+                return index;
+            }
+            try
+            {
+                long start = System.currentTimeMillis();
+                VocabularyIndex loaded = load(file, lastModified);
+                log.info("Loaded " + loaded.labels.length + " nodes from " + path
+                        + " in " + (System.currentTimeMillis() - start) + " ms");
+                indexes.put(path, loaded);
+                return loaded;
+            }
+            catch (IOException e)
+            {
+                if (index == null)
+                {
+                    throw e;
+                }
+                // Keep using the previous version until the file changes again
+                log.error("Unable to reload " + path + ", keeping the previous version", e);
+                index.lastModified = lastModified;
+                return index;
+            }
+        }
+    }
+
+    private static VocabularyIndex load(File file, long lastModified) throws IOException
+    {
+        final List<String> labels = new ArrayList<String>();
+        final List<String> ids = new ArrayList<String>();
+        final List<Integer> parents = new ArrayList<Integer>();
+        final Map<String, String> pool = new HashMap<String, String>();
+        DefaultHandler handler = new DefaultHandler()
+        {
+            /** Numbers of the open node elements, innermost last */
+            private final List<Integer> open = new ArrayList<Integer>();
+
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes)
+            {
+                if ("node".equals(qName))
+                {
+                    parents.add(open.isEmpty() ? -1 : open.get(open.size() - 1));
+                    labels.add(share(attributes.getValue("label")));
+                    ids.add(attributes.getValue("id"));
+                    open.add(labels.size() - 1);
+                }
+            }
+
+            @Override
+            public void endElement(String uri, String localName, String qName)
+            {
+                if ("node".equals(qName))
+                {
+                    open.remove(open.size() - 1);
+                }
+            }
+
+            private String share(String value)
+            {
+                if (value == null)
+                {
+                    return null;
+                }
+                String shared = pool.get(value);
+                if (shared == null)
+                {
+                    pool.put(value, value);
+                    shared = value;
+                }
+                return shared;
+            }
+        };
+        try
+        {
+            SAXParserFactory.newInstance().newSAXParser().parse(file, handler);
+        }
+        catch (ParserConfigurationException e)
+        {
+            throw new IOException("Unable to parse " + file, e);
+        }
+        catch (SAXException e)
+        {
+            throw new IOException("Unable to parse " + file, e);
+        }
+        return new VocabularyIndex(lastModified, labels, ids, parents);
+    }
+
+    /**
+     * Find the nodes with a word in their label starting with some text
+     *
+     * @param text the text, which may span several words (case-insensitive)
+     * @return the node numbers, in document order
+     */
+    int[] find(String text)
+    {
+        String query = text.trim().toLowerCase();
+
+        // First word starting with the text or sorting after it
+        int low = 0;
+        int high = wordNodes.length;
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (compareText(lowerLabels[wordNodes[middle]], wordOffsets[middle], query, 0) < 0)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        BitSet matches = new BitSet(labels.length);
+        for (int i = low; i < wordNodes.length
+                && lowerLabels[wordNodes[i]].startsWith(query, wordOffsets[i]); i++)
+        {
+            matches.set(wordNodes[i]);
+        }
+
+        int[] nodes = new int[matches.cardinality()];
+        int node = -1;
+        for (int i = 0; i < nodes.length; i++)
+        {
+            node = matches.nextSetBit(node + 1);
+            nodes[i] = node;
+        }
+        return nodes;
+    }
+
+    /**
+     * Find a node by ID
+     *
+     * @param id the ID
+     * @return the node number, or -1 if there is no node with that ID
+     */
+    int findById(String id)
+    {
+        Integer node = byId.get(id);
+        return node == null ? -1 : node.intValue();
+    }
+
+    /**
+     * @param node a node number
+     * @return the label of the node, or null if it has none
+     */
+    String getLabel(int node)
+    {
+        return labels[node];
+    }
+
+    /**
+     * @param node a node number
+     * @return the ID of the node, or null if it has none
+     */
+    String getId(int node)
+    {
+        return ids[node];
+    }
+
+    /**
+     * Get the labels of a node and its ancestors, from the root down
+     *
+     * @param node a node number
+     * @param delimiter the string to put between the labels
+     * @return the hierarchy string
+     */
+    String getHierarchy(int node, String delimiter)
+    {
+        StringBuilder hierarchy = new StringBuilder();
+        for (int ancestor = node; ancestor >= 0; ancestor = parents[ancestor])
+        {
+            String label = labels[ancestor];
+            if (label != null)
+            {
+                if (hierarchy.length() > 0)
+                {
+                    hierarchy.insert(0, delimiter);
+                }
+                hierarchy.insert(0, label);
+            }
+        }
+        return hierarchy.toString();
+    }
+
+    private static int compareText(String a, int aOffset, String b, int bOffset)
+    {
+        int aLength = a.length() - aOffset;
+        int bLength = b.length() - bOffset;
+        int length = Math.min(aLength, bLength);
+        for (int i = 0; i < length; i++)
+        {
+            char aChar = a.charAt(aOffset + i);
+            char bChar = b.charAt(bOffset + i);
+            if (aChar != bChar)
+            {
+                return aChar - bChar;
+            }
+        }
+        return aLength - bLength;
+    }
+}
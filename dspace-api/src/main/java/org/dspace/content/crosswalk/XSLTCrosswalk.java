@@ -11,13 +11,25 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.transform.ErrorListener;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
 
 import org.apache.log4j.Logger;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.core.SelfNamedPlugin;
+import org.jdom.Document;
+import org.jdom.Element;
 import org.jdom.Namespace;
-import org.jdom.transform.XSLTransformException;
-import org.jdom.transform.XSLTransformer;
+import org.jdom.transform.JDOMResult;
+import org.jdom.transform.JDOMSource;
 
 /**
  * Configurable XSLT-driven Crosswalk
@@ -63,7 +75,13 @@ import org.jdom.transform.XSLTransformer;
  * <p>
  * NOTE: This plugin will automatically reload any XSL stylesheet that
  * was modified since it was last loaded.  This lets you edit and test
- * stylesheets without restarting DSpace.
+ * stylesheets without restarting DSpace.  Stylesheets are checked for
+ * changes at most every <code>crosswalk.stylesheet.reload-interval</code>
+ * milliseconds (default 5000, or -1 to never reload).
+ * <p>
+ * Each stylesheet is compiled once and shared by all crosswalks using it,
+ * and every thread transforms with its own Transformer, so that a crosswalk
+ * instance can be used by many threads at once.
  * <p>
  * You must use the <code>PluginManager</code> to instantiate an
  * XSLT crosswalk plugin, e.g.
@@ -121,17 +139,27 @@ public abstract class XSLTCrosswalk extends SelfNamedPlugin
         return aliasList.toArray(new String[aliasList.size()]);
     }
 
-    private XSLTransformer transformer = null;
+    /** Compiled stylesheets shared by all crosswalks, by file */
+    private static final Map<File, Stylesheet> stylesheets = new ConcurrentHashMap<File, Stylesheet>();
+
+    /** Compiles the stylesheets; not thread-safe, so only used while holding the stylesheets lock */
+    private static TransformerFactory transformerFactory = null;
+
+    /** Milliseconds between checks for a changed stylesheet, or -1 for never */
+    private static final long reloadInterval =
+        ConfigurationManager.getLongProperty("crosswalk.stylesheet.reload-interval", 5000);
+
     private File transformerFile = null;
-    private long transformerLastModified = 0;
 
     /**
      * Initialize the Transformation stylesheet from configured stylesheet file.
+     * The transformer returned belongs to the current thread, and must not be
+     * handed to other threads.
      * @param direction the direction of xwalk, either "submission" or
      *    "dissemination"
      * @return transformer or null if there was error initializing.
      */
-    protected XSLTransformer getTransformer(String direction)
+    protected Transformer getTransformer(String direction)
     {
         if (transformerFile == null)
         {
@@ -157,22 +185,189 @@ public abstract class XSLTCrosswalk extends SelfNamedPlugin
             }
         }
 
-        // load if first time, or reload if stylesheet changed:
-        if (transformer == null ||
-            transformerFile.lastModified() > transformerLastModified)
+        Stylesheet stylesheet = getStylesheet(transformerFile);
+        if (stylesheet == null)
+        {
+            return null;
+        }
+        try
+        {
+            return stylesheet.getTransformer();
+        }
+        catch (TransformerConfigurationException e)
+        {
+            log.error("Failed to initialize XSLTCrosswalk("+getPluginInstanceName()+"):"+e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Transform a JDOM document.
+     * @param transformer transformer from {@link #getTransformer(String)}
+     * @param doc the document to transform
+     * @return the resulting document
+     */
+    protected static Document transform(Transformer transformer, Document doc)
+        throws TransformerException
+    {
+        JDOMResult result = new JDOMResult();
+        transformer.transform(new JDOMSource(doc), result);
+        return result.getDocument();
+    }
+
+    /**
+     * Transform a JDOM element as the root of a document, without copying it
+     * into a new document first.
+     * @param transformer transformer from {@link #getTransformer(String)}
+     * @param root the root element to transform
+     * @return the resulting document
+     */
+    protected static Document transform(Transformer transformer, Element root)
+        throws TransformerException
+    {
+        JDOMResult result = new JDOMResult();
+        transformer.transform(new JDOMSource(root), result);
+        return result.getDocument();
+    }
+
+    /**
+     * Transform a list of JDOM nodes.
+     * @param transformer transformer from {@link #getTransformer(String)}
+     * @param nodes the nodes to transform
+     * @return the resulting nodes
+     */
+    protected static List transform(Transformer transformer, List nodes)
+        throws TransformerException
+    {
+        JDOMResult result = new JDOMResult();
+        transformer.transform(new JDOMSource(nodes), result);
+        return result.getResult();
+    }
+
+    /**
+     * Get the compiled stylesheet, loading it if first time, or reloading it
+     * if the file changed since it was last checked.
+     * @return the stylesheet, or null if it could never be loaded
+     */
+    private static Stylesheet getStylesheet(File file)
+    {
+        Stylesheet stylesheet = stylesheets.get(file);
+        if (stylesheet != null && !stylesheet.isCheckDue())
+        {
+            return stylesheet;
+        }
+
+        synchronized (stylesheets)
+        {
+            // Another thread may have loaded or checked it meanwhile
+            stylesheet = stylesheets.get(file);
+            if (stylesheet != null && !stylesheet.isCheckDue())
+            {
+                return stylesheet;
+            }
+            stylesheet = load(file, stylesheet);
+            if (stylesheet != null)
+            {
+                stylesheets.put(file, stylesheet);
+            }
+            return stylesheet;
+        }
+    }
+
+    /**
+     * Compile the stylesheet file if it changed since the current version
+     * was loaded. If it fails to compile, the current version is kept, and
+     * the file is not compiled again until it changes again. Only called
+     * while holding the stylesheets lock.
+     * @param file the stylesheet file
+     * @param current the version in use, or null if there is none
+     * @return the version to use, or null if it could never be loaded
+     */
+    static Stylesheet load(File file, Stylesheet current)
+    {
+        long lastModified = file.lastModified();
+        if (current != null && lastModified <= current.lastModified)
+        {
+            current.lastChecked = System.currentTimeMillis();
+            return current;
+        }
+
+        try
+        {
+            log.debug((current == null ? "Loading " : "Reloading ")+
+                      "XSLT stylesheet from "+file.toString());
+            if (transformerFactory == null)
+            {
+                transformerFactory = TransformerFactory.newInstance();
+                // Some processors only report a broken stylesheet to the
+                // listener and return templates anyway; make it fail instead.
+                transformerFactory.setErrorListener(new ErrorListener()
+                {
+                    public void warning(TransformerException e)
+                    {
+                        log.warn(e.getMessageAndLocation());
+                    }
+
+                    public void error(TransformerException e) throws TransformerException
+                    {
+                        throw e;
+                    }
+
+                    public void fatalError(TransformerException e) throws TransformerException
+                    {
+                        throw e;
+                    }
+                });
+            }
+            return new Stylesheet(transformerFactory.newTemplates(new StreamSource(file)), lastModified);
+        }
+        catch (TransformerConfigurationException e)
+        {
+            log.error("Failed to load XSLT stylesheet "+file.toString()+":"+e.toString());
+
+            // keep using the last good version until the file changes again
+            return current == null ? null : new Stylesheet(current.templates, lastModified);
+        }
+    }
+
+    /**
+     * A compiled stylesheet, with a transformer for each thread using it.
+     */
+    static class Stylesheet
+    {
+        final Templates templates;
+
+        /** modification time of the file when this version was loaded */
+        final long lastModified;
+
+        private volatile long lastChecked;
+        private final ThreadLocal<Transformer> transformers = new ThreadLocal<Transformer>();
+
+        Stylesheet(Templates templates, long lastModified)
+        {
+            this.templates = templates;
+            this.lastModified = lastModified;
+            this.lastChecked = System.currentTimeMillis();
+        }
+
+        boolean isCheckDue()
         {
-            try
+            return reloadInterval >= 0 && System.currentTimeMillis() - lastChecked >= reloadInterval;
+        }
+
+        Transformer getTransformer() throws TransformerConfigurationException
+        {
+            Transformer transformer = transformers.get();
+            if (transformer == null)
             {
-                log.debug((transformer == null ? "Loading " : "Reloading")+
-                          getPluginInstanceName()+" XSLT stylesheet from "+transformerFile.toString());
-                transformer = new XSLTransformer(transformerFile);
-                transformerLastModified = transformerFile.lastModified();
+                transformer = templates.newTransformer();
+                transformers.set(transformer);
             }
-            catch (XSLTransformException e)
+            else
             {
-                log.error("Failed to initialize XSLTCrosswalk("+getPluginInstanceName()+"):"+e.toString());
+                transformer.reset();
             }
+            return transformer;
         }
-        return transformer;
     }
 }
@@ -17,6 +17,11 @@ import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
 
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.stream.StreamResult;
+
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.log4j.Logger;
 import org.dspace.authorize.AuthorizeException;
@@ -38,8 +43,17 @@ import org.jdom.Namespace;
 import org.jdom.Verifier;
 import org.jdom.output.Format;
 import org.jdom.output.XMLOutputter;
-import org.jdom.transform.XSLTransformException;
-import org.jdom.transform.XSLTransformer;
+import org.jdom.transform.JDOMResult;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.DTDHandler;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
 
 /**
  * Configurable XSLT-driven dissemination Crosswalk
@@ -63,6 +77,10 @@ import org.jdom.transform.XSLTransformer;
  *      http://purl.org/dc/elements/1.1/ http://dublincore.org/schemas/xmls/qdc/2003/04/02/qualifieddc.xsd
  *   crosswalk.dissemination.qdc.preferList = true
  * </pre>
+ * <p>
+ * The stylesheet reads the DIM of the object as SAX events, so no JDOM
+ * document is built for its input; as a stream crosswalk, the result is
+ * also written straight to the output stream.
  *
  * @author Larry Stone
  * @author Scott Phillips
@@ -72,7 +90,7 @@ import org.jdom.transform.XSLTransformer;
  */
 public class XSLTDisseminationCrosswalk
     extends XSLTCrosswalk
-    implements DisseminationCrosswalk
+    implements DisseminationCrosswalk, StreamDisseminationCrosswalk
 {
     /** log4j category */
     private static Logger log = Logger.getLogger(XSLTDisseminationCrosswalk.class);
@@ -205,7 +223,7 @@ public class XSLTDisseminationCrosswalk
 
         init();
 
-        XSLTransformer xform = getTransformer(DIRECTION);
+        Transformer xform = getTransformer(DIRECTION);
         if (xform == null)
         {
             throw new CrosswalkInternalException("Failed to initialize transformer, probably error loading stylesheet.");
@@ -213,13 +231,13 @@ public class XSLTDisseminationCrosswalk
 
         try
         {
-            Document ddim = new Document(createDIM(dso));
-            Document result = xform.transform(ddim);
-            Element root = result.getRootElement();
+            JDOMResult result = new JDOMResult();
+            xform.transform(new SAXSource(new DIMReader(dso), new InputSource()), result);
+            Element root = result.getDocument().getRootElement();
             root.detach();
             return root;
         }
-        catch (XSLTransformException e)
+        catch (TransformerException e)
         {
             log.error("Got error: "+e.toString());
             throw new CrosswalkInternalException("XSL translation failed: "+e.toString(), e);
@@ -245,7 +263,7 @@ public class XSLTDisseminationCrosswalk
 
         init();
 
-        XSLTransformer xform = getTransformer(DIRECTION);
+        Transformer xform = getTransformer(DIRECTION);
         if (xform == null)
         {
             throw new CrosswalkInternalException("Failed to initialize transformer, probably error loading stylesheet.");
@@ -253,15 +271,73 @@ public class XSLTDisseminationCrosswalk
 
         try
         {
-            return xform.transform(createDIM(dso).getChildren());
+            return transform(xform, createDIM(dso).getChildren());
         }
-        catch (XSLTransformException e)
+        catch (TransformerException e)
         {
             log.error("Got error: "+e.toString());
             throw new CrosswalkInternalException("XSL translation failed: "+e.toString(), e);
         }
     }
 
+    /**
+     * Disseminate the DSpace item, collection, or community, writing the
+     * result of the stylesheet straight to the output stream.
+     *
+     * @see StreamDisseminationCrosswalk
+     */
+    public void disseminate(Context context, DSpaceObject dso, OutputStream out)
+        throws CrosswalkException,
+               IOException, SQLException, AuthorizeException
+    {
+        int type = dso.getType();
+        if (!(type == Constants.ITEM ||
+              type == Constants.COLLECTION ||
+              type == Constants.COMMUNITY))
+        {
+            throw new CrosswalkObjectNotSupported("XSLTDisseminationCrosswalk can only crosswalk items, collections, and communities.");
+        }
+
+        init();
+
+        Transformer xform = getTransformer(DIRECTION);
+        if (xform == null)
+        {
+            throw new CrosswalkInternalException("Failed to initialize transformer, probably error loading stylesheet.");
+        }
+
+        try
+        {
+            xform.transform(new SAXSource(new DIMReader(dso), new InputSource()),
+                    new StreamResult(out));
+        }
+        catch (TransformerException e)
+        {
+            log.error("Got error: "+e.toString());
+            throw new CrosswalkInternalException("XSL translation failed: "+e.toString(), e);
+        }
+    }
+
+    /**
+     * Determine is this crosswalk can dessiminate the given object.
+     *
+     * @see StreamDisseminationCrosswalk
+     */
+    public boolean canDisseminate(Context context, DSpaceObject dso)
+    {
+        return canDisseminate(dso);
+    }
+
+    /**
+     * The stylesheets produce XML.
+     *
+     * @see StreamDisseminationCrosswalk
+     */
+    public String getMIMEType()
+    {
+        return "text/xml";
+    }
+
     /**
      * Determine is this crosswalk can dessiminate the given object.
      *
@@ -319,90 +395,100 @@ public class XSLTDisseminationCrosswalk
      * @param dso The dspace object to build a representation of.
      */
     public static Element createDIM(DSpaceObject dso)
+    {
+        return createDIM(dso, getDIMFields(dso));
+    }
+
+    /**
+     * Get the fields of the intermediate representation of a DSpace object.
+     *
+     * @param dso The dspace object to build a representation of.
+     */
+    private static Metadatum[] getDIMFields(DSpaceObject dso)
     {
         if (dso.getType() == Constants.ITEM)
         {
             Item item = (Item) dso;
-            return createDIM(dso, item.getMetadata(Item.ANY, Item.ANY, Item.ANY, Item.ANY));
+            return item.getMetadata(Item.ANY, Item.ANY, Item.ANY, Item.ANY);
         }
-        else
+
+        List<Metadatum> fields = new ArrayList<Metadatum>();
+        if (dso.getType() == Constants.COLLECTION)
         {
-            Element dim = new Element("dim", DIM_NS);
-            String type = Constants.typeText[dso.getType()];
-            dim.setAttribute("dspaceType",type);
+            Collection collection = (Collection) dso;
 
-            if (dso.getType() == Constants.COLLECTION)
-            {
-                Collection collection = (Collection) dso;
-
-                String description = collection.getMetadata("introductory_text");
-                String description_abstract = collection.getMetadata("short_description");
-                String description_table = collection.getMetadata("side_bar_text");
-                String identifier_uri = "hdl:" + collection.getHandle();
-                String provenance = collection.getMetadata("provenance_description");
-                String rights = collection.getMetadata("copyright_text");
-                String rights_license = collection.getMetadata("license");
-                String title = collection.getMetadata("name");
-
-                dim.addContent(createField("dc","description",null,null,description));
-                dim.addContent(createField("dc","description","abstract",null,description_abstract));
-                dim.addContent(createField("dc","description","tableofcontents",null,description_table));
-                dim.addContent(createField("dc","identifier","uri",null,identifier_uri));
-                dim.addContent(createField("dc","provenance",null,null,provenance));
-                dim.addContent(createField("dc","rights",null,null,rights));
-                dim.addContent(createField("dc","rights","license",null,rights_license));
-                dim.addContent(createField("dc","title",null,null,title));
-            }
-            else if (dso.getType() == Constants.COMMUNITY)
-            {
-                Community community = (Community) dso;
-
-                String description = community.getMetadata("introductory_text");
-                String description_abstract = community.getMetadata("short_description");
-                String description_table = community.getMetadata("side_bar_text");
-                String identifier_uri = "hdl:" + community.getHandle();
-                String rights = community.getMetadata("copyright_text");
-                String title = community.getMetadata("name");
-
-                dim.addContent(createField("dc","description",null,null,description));
-                dim.addContent(createField("dc","description","abstract",null,description_abstract));
-                dim.addContent(createField("dc","description","tableofcontents",null,description_table));
-                dim.addContent(createField("dc","identifier","uri",null,identifier_uri));
-                dim.addContent(createField("dc","rights",null,null,rights));
-                dim.addContent(createField("dc","title",null,null,title));
-            }
-            else if (dso.getType() == Constants.SITE)
-            {
-                Site site = (Site) dso;
+            String description = collection.getMetadata("introductory_text");
+            String description_abstract = collection.getMetadata("short_description");
+            String description_table = collection.getMetadata("side_bar_text");
+            String identifier_uri = "hdl:" + collection.getHandle();
+            String provenance = collection.getMetadata("provenance_description");
+            String rights = collection.getMetadata("copyright_text");
+            String rights_license = collection.getMetadata("license");
+            String title = collection.getMetadata("name");
 
-                String identifier_uri = "hdl:" + site.getHandle();
-                String title = site.getName();
-                String url = site.getURL();
+            fields.add(createField("dc","description",null,null,description));
+            fields.add(createField("dc","description","abstract",null,description_abstract));
+            fields.add(createField("dc","description","tableofcontents",null,description_table));
+            fields.add(createField("dc","identifier","uri",null,identifier_uri));
+            fields.add(createField("dc","provenance",null,null,provenance));
+            fields.add(createField("dc","rights",null,null,rights));
+            fields.add(createField("dc","rights","license",null,rights_license));
+            fields.add(createField("dc","title",null,null,title));
+        }
+        else if (dso.getType() == Constants.COMMUNITY)
+        {
+            Community community = (Community) dso;
 
-                //FIXME: adding two URIs for now (site handle and URL), in case site isn't using handles
-                dim.addContent(createField("dc","identifier","uri",null,identifier_uri));
-                dim.addContent(createField("dc","identifier","uri",null,url));
-                dim.addContent(createField("dc","title",null,null,title));
-            }
-            // XXX FIXME: Nothing to crosswalk for bitstream?
-            return dim;
+            String description = community.getMetadata("introductory_text");
+            String description_abstract = community.getMetadata("short_description");
+            String description_table = community.getMetadata("side_bar_text");
+            String identifier_uri = "hdl:" + community.getHandle();
+            String rights = community.getMetadata("copyright_text");
+            String title = community.getMetadata("name");
+
+            fields.add(createField("dc","description",null,null,description));
+            fields.add(createField("dc","description","abstract",null,description_abstract));
+            fields.add(createField("dc","description","tableofcontents",null,description_table));
+            fields.add(createField("dc","identifier","uri",null,identifier_uri));
+            fields.add(createField("dc","rights",null,null,rights));
+            fields.add(createField("dc","title",null,null,title));
         }
-    }
+        else if (dso.getType() == Constants.SITE)
+        {
+            Site site = (Site) dso;
 
+            String identifier_uri = "hdl:" + site.getHandle();
+            String title = site.getName();
+            String url = site.getURL();
 
-     /**
-     * Create a new DIM field element with the given attributes.
+            //FIXME: adding two URIs for now (site handle and URL), in case site isn't using handles
+            fields.add(createField("dc","identifier","uri",null,identifier_uri));
+            fields.add(createField("dc","identifier","uri",null,url));
+            fields.add(createField("dc","title",null,null,title));
+        }
+        // XXX FIXME: Nothing to crosswalk for bitstream?
+        return fields.toArray(new Metadatum[fields.size()]);
+    }
+
+    /**
+     * Create a new DIM field with the given attributes.
      *
      * @param schema The schema the DIM field belongs to.
      * @param element The element the DIM field belongs to.
      * @param qualifier The qualifier the DIM field belongs to.
      * @param language The language the DIM field belongs to.
      * @param value The value of the DIM field.
-     * @return A new DIM field element
+     * @return A new DIM field
      */
-    private static Element createField(String schema, String element, String qualifier, String language, String value)
+    private static Metadatum createField(String schema, String element, String qualifier, String language, String value)
     {
-        return createField(schema, element, qualifier, language, value, null, -1);
+        Metadatum field = new Metadatum();
+        field.schema = schema;
+        field.element = element;
+        field.qualifier = qualifier;
+        field.language = language;
+        field.value = value;
+        return field;
     }
 
     /**
@@ -474,6 +560,172 @@ public class XSLTDisseminationCrosswalk
         }
     }
     
+    /**
+     * Reads the intermediate representation of a DSpace object as SAX events,
+     * the same document as {@link #createDIM(DSpaceObject)} builds, so that a
+     * stylesheet can transform it without a JDOM document in between.
+     */
+    private static class DIMReader implements XMLReader
+    {
+        private static final String NAMESPACES = "http://xml.org/sax/features/namespaces";
+        private static final String NAMESPACE_PREFIXES = "http://xml.org/sax/features/namespace-prefixes";
+
+        private final DSpaceObject dso;
+        private boolean namespacePrefixes = false;
+        private ContentHandler contentHandler;
+        private DTDHandler dtdHandler;
+        private EntityResolver entityResolver;
+        private ErrorHandler errorHandler;
+
+        DIMReader(DSpaceObject dso)
+        {
+            this.dso = dso;
+        }
+
+        public void parse(InputSource input) throws SAXException
+        {
+            if (contentHandler == null)
+            {
+                return;
+            }
+            String uri = DIM_NS.getURI();
+            String prefix = DIM_NS.getPrefix();
+
+            contentHandler.startDocument();
+            contentHandler.startPrefixMapping(prefix, uri);
+
+            AttributesImpl attributes = new AttributesImpl();
+            if (namespacePrefixes)
+            {
+                attributes.addAttribute("", "", "xmlns:" + prefix, "CDATA", uri);
+            }
+            attributes.addAttribute("", "dspaceType", "dspaceType", "CDATA", Constants.typeText[dso.getType()]);
+            contentHandler.startElement(uri, "dim", prefix + ":dim", attributes);
+
+            for (Metadatum field : getDIMFields(dso))
+            {
+                attributes.clear();
+                addAttribute(attributes, "mdschema", field.schema);
+                addAttribute(attributes, "element", field.element);
+                addAttribute(attributes, "qualifier", field.qualifier);
+                addAttribute(attributes, "lang", field.language);
+                if (field.authority != null)
+                {
+                    addAttribute(attributes, "authority", field.authority);
+                    addAttribute(attributes, "confidence", Choices.getConfidenceText(field.confidence));
+                }
+                contentHandler.startElement(uri, "field", prefix + ":field", attributes);
+
+                String value = checkedString(field.value);
+                if (value != null)
+                {
+                    contentHandler.characters(value.toCharArray(), 0, value.length());
+                }
+                contentHandler.endElement(uri, "field", prefix + ":field");
+            }
+
+            contentHandler.endElement(uri, "dim", prefix + ":dim");
+            contentHandler.endPrefixMapping(prefix);
+            contentHandler.endDocument();
+        }
+
+        private static void addAttribute(AttributesImpl attributes, String name, String value)
+        {
+            if (value != null)
+            {
+                attributes.addAttribute("", name, name, "CDATA", value);
+            }
+        }
+
+        public void parse(String systemId) throws SAXException
+        {
+            parse(new InputSource(systemId));
+        }
+
+        public boolean getFeature(String name) throws SAXNotRecognizedException
+        {
+            if (NAMESPACES.equals(name))
+            {
+                return true;
+            }
+            if (NAMESPACE_PREFIXES.equals(name))
+            {
+                return namespacePrefixes;
+            }
+            throw new SAXNotRecognizedException(name);
+        }
+
+        public void setFeature(String name, boolean value)
+            throws SAXNotRecognizedException, SAXNotSupportedException
+        {
+            if (NAMESPACES.equals(name))
+            {
+                if (!value)
+                {
+                    throw new SAXNotSupportedException(name);
+                }
+            }
+            else if (NAMESPACE_PREFIXES.equals(name))
+            {
+                namespacePrefixes = value;
+            }
+            else
+            {
+                throw new SAXNotRecognizedException(name);
+            }
+        }
+
+        public Object getProperty(String name) throws SAXNotRecognizedException
+        {
+            throw new SAXNotRecognizedException(name);
+        }
+
+        public void setProperty(String name, Object value) throws SAXNotRecognizedException
+        {
+            throw new SAXNotRecognizedException(name);
+        }
+
+        public void setEntityResolver(EntityResolver resolver)
+        {
+            entityResolver = resolver;
+        }
+
+        public EntityResolver getEntityResolver()
+        {
+            return entityResolver;
+        }
+
+        public void setDTDHandler(DTDHandler handler)
+        {
+            dtdHandler = handler;
+        }
+
+        public DTDHandler getDTDHandler()
+        {
+            return dtdHandler;
+        }
+
+        public void setContentHandler(ContentHandler handler)
+        {
+            contentHandler = handler;
+        }
+
+        public ContentHandler getContentHandler()
+        {
+            return contentHandler;
+        }
+
+        public void setErrorHandler(ErrorHandler handler)
+        {
+            errorHandler = handler;
+        }
+
+        public ErrorHandler getErrorHandler()
+        {
+            return errorHandler;
+        }
+    }
+
     /**
      * Simple command-line rig for testing the DIM output of a stylesheet.
      * Usage:  java XSLTDisseminationCrosswalk  <crosswalk-name> <handle> [output-file]
@@ -9,10 +9,15 @@ package org.dspace.content.crosswalk;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.sql.SQLException;
 import java.util.Iterator;
 import java.util.List;
 
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.stream.StreamSource;
+
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.log4j.Logger;
 import org.dspace.authorize.AuthorizeException;
@@ -32,13 +37,15 @@ import org.jdom.Element;
 import org.jdom.input.SAXBuilder;
 import org.jdom.output.Format;
 import org.jdom.output.XMLOutputter;
-import org.jdom.transform.XSLTransformException;
-import org.jdom.transform.XSLTransformer;
+import org.jdom.transform.JDOMResult;
 
 /**
  * Configurable XSLT-driven ingestion Crosswalk
  * <p>
  * See the XSLTCrosswalk superclass for details on configuration.
+ * <p>
+ * As a stream crosswalk, the stylesheet reads the metadata straight from the
+ * input stream, without it being parsed into a JDOM document first.
  *
  * @author Larry Stone
  * @version $Revision$
@@ -46,7 +53,7 @@ import org.jdom.transform.XSLTransformer;
  */
 public class XSLTIngestionCrosswalk
     extends XSLTCrosswalk
-    implements IngestionCrosswalk
+    implements IngestionCrosswalk, StreamIngestionCrosswalk
 {
     /** log4j category */
     private static final Logger log = Logger.getLogger(XSLTIngestionCrosswalk.class);
@@ -123,17 +130,17 @@ public class XSLTIngestionCrosswalk
         throws CrosswalkException,
                IOException, SQLException, AuthorizeException
     {
-        XSLTransformer xform = getTransformer(DIRECTION);
+        Transformer xform = getTransformer(DIRECTION);
         if (xform == null)
         {
             throw new CrosswalkInternalException("Failed to initialize transformer, probably error loading stylesheet.");
         }
         try
         {
-            List dimList = xform.transform(metadata);
+            List dimList = transform(xform, metadata);
             ingestDIM(context, dso, dimList);
         }
-        catch (XSLTransformException e)
+        catch (TransformerException e)
         {
             log.error("Got error: "+e.toString());
             throw new CrosswalkInternalException("XSL Transformation failed: "+e.toString(), e);
@@ -148,17 +155,17 @@ public class XSLTIngestionCrosswalk
     public void ingest(Context context, DSpaceObject dso, Element root)
         throws CrosswalkException, IOException, SQLException, AuthorizeException
     {
-        XSLTransformer xform = getTransformer(DIRECTION);
+        Transformer xform = getTransformer(DIRECTION);
         if (xform == null)
         {
             throw new CrosswalkInternalException("Failed to initialize transformer, probably error loading stylesheet.");
         }
         try
         {
-            Document dimDoc = xform.transform(new Document((Element)root.clone()));
+            Document dimDoc = transform(xform, root);
             ingestDIM(context, dso, dimDoc.getRootElement().getChildren());
         }
-        catch (XSLTransformException e)
+        catch (TransformerException e)
         {
             log.error("Got error: "+e.toString());
             throw new CrosswalkInternalException("XSL Transformation failed: "+e.toString(), e);
@@ -166,6 +173,33 @@ public class XSLTIngestionCrosswalk
 
     }
 
+    /**
+     * Ingest a whole document read from a stream, which the stylesheet
+     * parses directly, the same as the root element of a document.
+     *
+     * @see StreamIngestionCrosswalk
+     */
+    public void ingest(Context context, DSpaceObject dso, InputStream in, String MIMEType)
+        throws CrosswalkException, IOException, SQLException, AuthorizeException
+    {
+        Transformer xform = getTransformer(DIRECTION);
+        if (xform == null)
+        {
+            throw new CrosswalkInternalException("Failed to initialize transformer, probably error loading stylesheet.");
+        }
+        try
+        {
+            JDOMResult result = new JDOMResult();
+            xform.transform(new StreamSource(in), result);
+            ingestDIM(context, dso, result.getDocument().getRootElement().getChildren());
+        }
+        catch (TransformerException e)
+        {
+            log.error("Got error: "+e.toString());
+            throw new CrosswalkInternalException("XSL Transformation failed: "+e.toString(), e);
+        }
+    }
+
     // return coll/comm "metadata" label corresponding to a DIM field.
     private static String getMetadataForDIM(Element field)
     {
@@ -286,7 +320,7 @@ public class XSLTIngestionCrosswalk
             System.exit(1);
         }
 
-        XSLTransformer xform = ((XSLTIngestionCrosswalk)xwalk).getTransformer(DIRECTION);
+        Transformer xform = ((XSLTIngestionCrosswalk)xwalk).getTransformer(DIRECTION);
         if (xform == null)
         {
             throw new CrosswalkInternalException("Failed to initialize transformer, probably error loading stylesheet.");
@@ -299,12 +333,12 @@ public class XSLTIngestionCrosswalk
         List dimList = null;
         if (list)
         {
-            dimList = xform.transform(inDoc.getRootElement().getChildren());
+            dimList = transform(xform, inDoc.getRootElement().getChildren());
             outputter.output(dimList, System.out);
         }
         else
         {
-            dimDoc = xform.transform(inDoc);
+            dimDoc = transform(xform, inDoc);
             outputter.output(dimDoc, System.out);
             dimList = dimDoc.getRootElement().getChildren();
         }
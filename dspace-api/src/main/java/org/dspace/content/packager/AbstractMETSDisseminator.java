@@ -7,6 +7,7 @@
  */
 package org.dspace.content.packager;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -16,6 +17,9 @@ import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -107,6 +111,11 @@ import org.jdom.output.XMLOutputter;
  *     <li><code>skip</code> -- simply exclude unreadable content from package.</li>
  *     <li><code>zero</code> -- include unreadable bitstreams as 0-length files;
  *       unreadable Bundles will still cause authorize errors.</li></ul></li>
+ *
+ * <li><code>compressBitstreams</code> -- if false, content bitstreams are
+ * added to the Zip without compression, which is much faster for content
+ * that is already compressed (images, PDFs, etc).
+ * Default is <code>true</code>.</li>
  * </ul>
  *
  * @author Larry Stone
@@ -123,6 +132,10 @@ public abstract class AbstractMETSDisseminator
     // JDOM xml output writer - indented format for readability.
     private static XMLOutputter outputter = new XMLOutputter(Format.getPrettyFormat());
 
+    // leading XML declaration of a stream crosswalk's result, and its encoding
+    private static final Pattern XML_DECLARATION =
+        Pattern.compile("\\s*<\\?xml(?:[^>]*?encoding\\s*=\\s*[\"']([^\"']+)[\"'])?[^>]*\\?>");
+
     // for gensym()
     private int idCounter = 1;
 
@@ -230,7 +243,7 @@ public abstract class AbstractMETSDisseminator
         // also ensures that the Checksums don't change because of accidental @ID value changes.
         resetCounter();
         
-        FileOutputStream outStream = null;
+        OutputStream outStream = null;
         try
         {
             //Make sure our package file exists
@@ -240,7 +253,7 @@ public abstract class AbstractMETSDisseminator
             }
 
             //Open up an output stream to write to package file
-            outStream = new FileOutputStream(pkgFile);
+            outStream = new BufferedOutputStream(new FileOutputStream(pkgFile));
 
             // Generate a true manifest-only "package", no external files/data & no need to zip up
             if (params != null && params.getBooleanProperty("manifestOnly", false))
@@ -410,6 +423,12 @@ public abstract class AbstractMETSDisseminator
         // how to handle unauthorized bundle/bitstream:
         String unauth = (params == null) ? null : params.getProperty("unauthorized");
 
+        // content is often compressed already, so optionally just store it
+        if (params != null && !params.getBooleanProperty("compressBitstreams", true))
+        {
+            zip.setLevel(Deflater.NO_COMPRESSION);
+        }
+
         // copy all non-meta bitstreams into zip
         if (dso.getType() == Constants.ITEM)
         {
@@ -513,6 +532,7 @@ public abstract class AbstractMETSDisseminator
                 zip.closeEntry();
             }
         }
+        zip.setLevel(Deflater.DEFAULT_COMPRESSION);
     }
 
     // set metadata type - if Mdtype.parse() gets exception,
@@ -620,7 +640,7 @@ public abstract class AbstractMETSDisseminator
                     MdWrap mdWrap = new MdWrap();
                     setMdType(mdWrap, metsName);
                     XmlData xmlData = new XmlData();
-                    if (crosswalkToMetsElement(xwalk, dso, xmlData) != null)
+                    if (crosswalkToMetsElement(context, xwalk, dso, xmlData) != null)
                     {
                         mdWrap.getContent().add(xmlData);
                         mdSec.getContent().add(mdWrap);
@@ -1329,7 +1349,7 @@ public abstract class AbstractMETSDisseminator
     // Get result from crosswalk plugin and add it to the document,
     // including namespaces and schema.
     // returns the new/modified element upon success.
-    private MetsElement crosswalkToMetsElement(DisseminationCrosswalk xwalk,
+    private MetsElement crosswalkToMetsElement(Context context, DisseminationCrosswalk xwalk,
                                  DSpaceObject dso, MetsElement me)
         throws CrosswalkException,
                IOException, SQLException, AuthorizeException
@@ -1355,7 +1375,19 @@ public abstract class AbstractMETSDisseminator
 
             // add result of crosswalk
             PreformedXML pXML = null;
-            if (xwalk.preferList())
+            if (!xwalk.preferList() && xwalk instanceof StreamDisseminationCrosswalk
+                    && ((StreamDisseminationCrosswalk) xwalk).canDisseminate(context, dso))
+            {
+                // write the result as text rather than building it as JDOM
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                ((StreamDisseminationCrosswalk) xwalk).disseminate(context, dso, out);
+                String res = toInlineXML(out.toByteArray());
+                if (res.length() > 0)
+                {
+                    pXML = new PreformedXML(res);
+                }
+            }
+            else if (xwalk.preferList())
             {
                 List<Element> res = xwalk.disseminateList(dso);
                 if (!(res == null || res.isEmpty()))
@@ -1389,6 +1421,29 @@ public abstract class AbstractMETSDisseminator
         }
     }
 
+    /**
+     * Turn a serialized XML document into a fragment that can be inlined in
+     * the manifest: drop the XML declaration and decode the rest in the
+     * encoding it declared (UTF-8 by default).
+     */
+    private static String toInlineXML(byte[] xml)
+        throws UnsupportedEncodingException
+    {
+        int start = 0;
+        String encoding = "UTF-8";
+        String head = new String(xml, 0, Math.min(xml.length, 200), "US-ASCII");
+        Matcher decl = XML_DECLARATION.matcher(head);
+        if (decl.lookingAt())
+        {
+            start = decl.end();
+            if (decl.group(1) != null)
+            {
+                encoding = decl.group(1);
+            }
+        }
+        return new String(xml, start, xml.length - start, encoding).trim();
+    }
+
     /**
      * Cleanup our license file reference links, as Deposit Licenses & CC Licenses can be
      * added two ways (and we only want to add them to zip package *once*):
@@ -1497,7 +1552,16 @@ public abstract class AbstractMETSDisseminator
                 "* unauthorized=[value]      " +
                    "If 'skip', skip over any files which the user doesn't have authorization to read. " +
                    "If 'zero', create a zero-length file for any files the user doesn't have authorization to read. " +
-                   "By default, an AuthorizationException will be thrown for any files the user cannot read.";
+                   "By default, an AuthorizationException will be thrown for any files the user cannot read." +
+                "\n\n" +
+                "* compressBitstreams=[boolean]      " +
+                   "If false, add content files to the Zip package without compressing them (defaults to true)." +
+                "\n\n" +
+                "* threads=[number]      " +
+                   "With -a, export Items on this many threads (defaults to 1)." +
+                "\n\n" +
+                "* progressFile=[file]      " +
+                   "With -a and threads, list every package exported in this file, and skip the packages already listed in it, so that an interrupted export can be run again to resume it.";
     }
 
     /**
@@ -14,6 +14,7 @@ import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.zip.ZipEntry;
@@ -278,6 +279,25 @@ public abstract class AbstractMETSIngester extends AbstractPackageIngester
         }
     }
 
+    /**
+     * Read the child package references from the METS manifest of a package,
+     * without ingesting it.
+     *
+     * @see AbstractPackageIngester#readPackageReferences
+     */
+    @Override
+    protected List<String> readPackageReferences(Context context, File pkgFile,
+            PackageParameters params) throws PackageException, SQLException,
+            IOException, AuthorizeException
+    {
+        METSManifest manifest = parsePackage(context, pkgFile, params);
+        if (manifest == null)
+        {
+            return null;
+        }
+        return Arrays.asList(manifest.getChildMetsFilePaths());
+    }
+
     /**
      * Parse a given input package, ultimately returning the METS manifest out
      * of the package. METS manifest is assumed to be a file named 'mets.xml'
@@ -1532,7 +1552,13 @@ public abstract class AbstractMETSIngester extends AbstractPackageIngester
                    "Specify true if the ingest package consists of just a METS manifest (mets.xml), without any content files (defaults to false)." +
                "\n\n" +
                "* validate=[boolean]      " +
-                   "If true, enable XML validation of METS file using schemas in document (default is true).";
+                   "If true, enable XML validation of METS file using schemas in document (default is true)." +
+               "\n\n" +
+               "* threads=[number]      " +
+                   "With -a, ingest the referenced Item packages on this many threads, once all Communities and Collections are ingested. Each Item is committed on its own (default is 1, everything in one transaction)." +
+               "\n\n" +
+               "* progressFile=[file]      " +
+                   "With -a and threads, list every package ingested in this file, and skip the packages already listed in it, so that an interrupted ingest can be run again to resume it.";
     }
 
     /**
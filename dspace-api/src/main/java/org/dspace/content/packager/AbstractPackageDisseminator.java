@@ -21,7 +21,9 @@ import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * An abstract implementation of a DSpace Package Disseminator, which
@@ -45,6 +47,13 @@ import java.util.List;
  * </code>
  * For more information see the org.dspace.core.PluginManager cacheMe() method,
  * which defaults to caching all plugin class instances.
+ * <P>
+ * With the <code>threads</code> package parameter set above 1, disseminateAll()
+ * writes the Item packages on that many threads, each with its own Context
+ * and its own instance of the disseminator (created with the no-argument
+ * constructor). Communities and Collections are still written by the calling
+ * thread. See PackageWorkers for the <code>progressFile</code> parameter,
+ * which lets an interrupted dissemination be resumed.
  *
  * @author Tim Donohue
  * @see PackageDisseminator
@@ -56,6 +65,18 @@ public abstract class AbstractPackageDisseminator
     /**  List of all successfully disseminated package files */
     private List<File> packageFileList = new ArrayList<File>();
 
+    /**  Same files as packageFileList, for quick lookup */
+    private Set<File> packageFileSet = new HashSet<File>();
+
+    /**  Item packages handed to the workers, so that mapped Items are only disseminated once */
+    private Set<File> submittedFileSet = new HashSet<File>();
+
+    /**  Runs the Item packages while a parallel disseminateAll() is in progress */
+    private PackageWorkers workers = null;
+
+    /**  Instance of this disseminator used by each worker thread */
+    private final ThreadLocal<AbstractPackageDisseminator> workerDisseminators = new ThreadLocal<AbstractPackageDisseminator>();
+
     /**
      * Recursively export one or more DSpace Objects as a series of packages.
      * This method will export the given DSpace Object as well as all referenced
@@ -94,13 +115,57 @@ public abstract class AbstractPackageDisseminator
             params.setRecursiveModeEnabled(true);
         }
 
+        // Start the workers if Items should be disseminated in parallel
+        if(workers == null && PackageWorkers.getThreads(params) > 1)
+        {
+            PackageWorkers parallel = new PackageWorkers(context, params, true);
+            workers = parallel;
+            try
+            {
+                disseminateTree(context, dso, params, pkgFile);
+            }
+            finally
+            {
+                workers = null;
+                parallel.finish();
+            }
+        }
+        else
+        {
+            disseminateTree(context, dso, params, pkgFile);
+        }
+
+        //return list of all successfully disseminated packages
+        return getPackageList();
+    }
+
+    /**
+     * Disseminate an object and, recursively, all its children.
+     */
+    private void disseminateTree(Context context, DSpaceObject dso,
+                     PackageParameters params, File pkgFile)
+        throws PackageException, CrosswalkException,
+               AuthorizeException, SQLException, IOException
+    {
         // If this object package has NOT already been disseminated
         // NOTE: This ensures we don't accidentally disseminate the same object
         // TWICE, e.g. when an Item is mapped into multiple Collections.
-        if(!getPackageList().contains(pkgFile))
+        if(!isInPackageList(pkgFile))
         {
-            // Disseminate the object using provided PackageDisseminator
-            disseminate(context, dso, params, pkgFile);
+            // Skip packages written by an earlier run being resumed
+            if(workers != null && workers.getCompleted(pkgFile) != null && pkgFile.exists())
+            {
+                addToPackageList(pkgFile);
+            }
+            else
+            {
+                // Disseminate the object using provided PackageDisseminator
+                disseminate(context, dso, params, pkgFile);
+                if(workers != null && pkgFile.exists())
+                {
+                    workers.setCompleted(pkgFile, dso.getHandle());
+                }
+            }
         }
 
         //check if package was disseminated
@@ -135,7 +200,15 @@ public abstract class AbstractPackageDisseminator
 
                             //disseminate all items (recursively!)
                             String childFileName = pkgDirectory + PackageUtils.getPackageName(item, fileExtension);
-                            disseminateAll(context, item, params, new File(childFileName));
+                            if(workers != null)
+                            {
+                                submitItem(item, params, new File(childFileName));
+                            }
+                            else
+                            {
+                                disseminateTree(context, item, params, new File(childFileName));
+                            }
+                            item.decache();
                         }
 
                         break;
@@ -147,7 +220,7 @@ public abstract class AbstractPackageDisseminator
                         {
                             //disseminate all sub-communities (recursively!)
                             String childFileName = pkgDirectory + PackageUtils.getPackageName(subcommunities[i], fileExtension);
-                            disseminateAll(context, subcommunities[i], params, new File(childFileName));
+                            disseminateTree(context, subcommunities[i], params, new File(childFileName));
                         }
 
                         //Also find all Collections in this Community and disseminate
@@ -156,7 +229,7 @@ public abstract class AbstractPackageDisseminator
                         {
                             //disseminate all collections (recursively!)
                             String childFileName = pkgDirectory + PackageUtils.getPackageName(collections[i], fileExtension);
-                            disseminateAll(context, collections[i], params, new File(childFileName));
+                            disseminateTree(context, collections[i], params, new File(childFileName));
                         }
 
                         break;
@@ -167,31 +240,101 @@ public abstract class AbstractPackageDisseminator
                         {
                             //disseminate all top-level communities (recursively!)
                             String childFileName = pkgDirectory + PackageUtils.getPackageName(topCommunities[i], fileExtension);
-                            disseminateAll(context, topCommunities[i], params, new File(childFileName));
+                            disseminateTree(context, topCommunities[i], params, new File(childFileName));
                         }
 
                         break;
                 }//end switch
             }//end if not an Item
         }//end if pkgFile exists
+    }
 
-        //return list of all successfully disseminated packages
-        return getPackageList();
+    /**
+     * Hand an Item package to the workers, unless it was already handed over
+     * or written by an earlier run being resumed.
+     */
+    private void submitItem(Item item, final PackageParameters params, final File pkgFile)
+    {
+        synchronized (submittedFileSet)
+        {
+            if (!submittedFileSet.add(pkgFile))
+            {
+                return;
+            }
+        }
+        final PackageWorkers parallel = workers;
+        if (parallel.getCompleted(pkgFile) != null && pkgFile.exists())
+        {
+            addToPackageList(pkgFile);
+            return;
+        }
+
+        final int itemID = item.getID();
+        parallel.submit(new PackageWorkers.Task()
+        {
+            @Override
+            public void run(Context context) throws Exception
+            {
+                Item item = Item.find(context, itemID);
+                getWorkerDisseminator().disseminate(context, item, (PackageParameters) params.clone(), pkgFile);
+                if (pkgFile.exists())
+                {
+                    addToPackageList(pkgFile);
+                    parallel.setCompleted(pkgFile, item.getHandle());
+                }
+            }
+        });
+    }
+
+    /**
+     * Get the instance of this disseminator for the current worker thread,
+     * as disseminators keep state while writing a package.
+     */
+    private AbstractPackageDisseminator getWorkerDisseminator() throws PackageException
+    {
+        AbstractPackageDisseminator disseminator = workerDisseminators.get();
+        if (disseminator == null)
+        {
+            try
+            {
+                disseminator = getClass().newInstance();
+            }
+            catch (InstantiationException e)
+            {
+                throw new PackageException("Cannot create a " + getClass().getName() + " for a worker thread", e);
+            }
+            catch (IllegalAccessException e)
+            {
+                throw new PackageException("Cannot create a " + getClass().getName() + " for a worker thread", e);
+            }
+            workerDisseminators.set(disseminator);
+        }
+        return disseminator;
     }
 
     /**
      * Add File to list of successfully disseminated package files
      * @param f added File.
      */
-    protected void addToPackageList(File f)
+    protected synchronized void addToPackageList(File f)
     {
         //add to list of successfully disseminated packages
-        if(!packageFileList.contains(f))
+        if(packageFileSet.add(f))
         {
             packageFileList.add(f);
         }
     }
 
+    /**
+     * Check whether a package File was already successfully disseminated
+     * @param f the package File
+     * @return true if it is in the list of disseminated package files
+     */
+    protected synchronized boolean isInPackageList(File f)
+    {
+        return packageFileSet.contains(f);
+    }
+
     /**
      * Return List of all package Files which have been disseminated
      * this instance of the Disseminator.
@@ -56,6 +56,15 @@ import org.dspace.handle.HandleManager;
  * </code>
  * For more information see the org.dspace.core.PluginManager cacheMe() method,
  * which defaults to caching all plugin class instances.
+ * <P>
+ * With the <code>threads</code> package parameter set above 1, ingestAll()
+ * first ingests the Site, Communities and Collections in the calling
+ * thread, and commits them. The Item packages they reference are then
+ * ingested on that many threads, each Item in its own Context (committed
+ * once the Item is ingested and mapped into the Collections referencing it)
+ * with its own instance of the ingester (created with the no-argument
+ * constructor). See PackageWorkers for the <code>progressFile</code>
+ * parameter, which lets an interrupted ingest be resumed.
  *
  * @author Tim Donohue
  * @see PackageIngester
@@ -81,6 +90,16 @@ public abstract class AbstractPackageIngester
      **/
     private Map<File, String> pkgIngestedMap = new LinkedHashMap<File, String>();
 
+    /**
+     * Item packages to ingest once the containers are committed, while a
+     * parallel ingestAll() is in progress. The value is the IDs of the
+     * Collections referencing the package.
+     */
+    private Map<File, List<Integer>> pendingItems = null;
+
+    /**  Instance of this ingester used by each worker thread */
+    private final ThreadLocal<AbstractPackageIngester> workerIngesters = new ThreadLocal<AbstractPackageIngester>();
+
     /**
      * Recursively create one or more DSpace Objects out of the contents
      * of the ingested package (and all other referenced packages).
@@ -130,14 +149,80 @@ public abstract class AbstractPackageIngester
             params.setRecursiveModeEnabled(true);
         }
 
+        // Ingest Items in parallel if asked: containers first, then Items
+        if(pendingItems == null && PackageWorkers.getThreads(params) > 1)
+        {
+            PackageWorkers parallel = new PackageWorkers(context, params, false);
+            pendingItems = new LinkedHashMap<File, List<Integer>>();
+            try
+            {
+                ingestTree(context, parent, pkgFile, params, license, parallel);
+
+                // The workers need to see the containers
+                context.commit();
+                for (File containerPkg : getIngestedMap().keySet())
+                {
+                    parallel.setCompleted(containerPkg, getIngestedMap().get(containerPkg));
+                }
+
+                for (Map.Entry<File, List<Integer>> pending : pendingItems.entrySet())
+                {
+                    submitItem(pending.getKey(), pending.getValue(), params, license, parallel);
+                }
+            }
+            finally
+            {
+                pendingItems = null;
+                parallel.finish();
+            }
+        }
+        else
+        {
+            ingestTree(context, parent, pkgFile, params, license, null);
+        }
+
+        //Return list of all objects ingested
+        return getIngestedList();
+    }
+
+    /**
+     * Ingest a package and, recursively, the packages it references. While
+     * ingesting in parallel, Item packages are only added to pendingItems.
+     */
+    private void ingestTree(Context context, DSpaceObject parent, File pkgFile,
+                                PackageParameters params, String license, PackageWorkers parallel)
+        throws PackageException, UnsupportedOperationException,
+               CrosswalkException, AuthorizeException,
+               SQLException, IOException
+    {
         //Initial DSpace Object to ingest
         DSpaceObject dso = null;
         
+        // Containers ingested by an earlier run being resumed: find the
+        // object again, and the packages it references
+        String completedHandle = (parallel == null) ? null : parallel.getCompleted(pkgFile);
+        if(completedHandle != null && !getIngestedMap().containsKey(pkgFile))
+        {
+            dso = HandleManager.resolveToObject(context, completedHandle);
+            List<String> childPkgRefs = readPackageReferences(context, pkgFile, params);
+            if(dso != null && childPkgRefs != null)
+            {
+                for(String childPkgRef : childPkgRefs)
+                {
+                    addPackageReference(dso, childPkgRef);
+                }
+            }
+            else
+            {
+                dso = null;
+            }
+        }
+
         // If we have not previously parsed/ingested this package file
         // NOTE: This ensures we don't accidentally ingest the same package
         // TWICE, e.g. an Item's package may be referenced from multiple 
         // Collection packages (if Item is mapped to multiple Collections)
-        if(!getIngestedMap().containsKey(pkgFile))
+        if(dso == null && !getIngestedMap().containsKey(pkgFile))
         {
             try
             {
@@ -187,12 +272,26 @@ public abstract class AbstractPackageIngester
                     {
                         //Assume package reference is relative to current (parent) package location
                         File childPkg = new File(pkgFile.getAbsoluteFile().getParent(), childPkgRef);
-                        
+
+                        // When ingesting in parallel, Items wait until all containers exist
+                        if (parallel != null && Constants.COLLECTION == dso.getType() && isItemPackage(childPkg))
+                        {
+                            if (parallel.getCompleted(childPkg) == null)
+                            {
+                                if (!pendingItems.containsKey(childPkg))
+                                {
+                                    pendingItems.put(childPkg, new ArrayList<Integer>());
+                                }
+                                pendingItems.get(childPkg).add(dso.getID());
+                            }
+                            continue;
+                        }
+
                         // fun, it's recursive! -- ingested referenced package
                         // NOTE: we are passing "null" as the Parent object, since we want to restore to the
                         // Parent object specified in the child Package.
                         // (Just in case this child is only *mapped* to the current Collection)
-                        ingestAll(context, null, childPkg, params, license);
+                        ingestTree(context, null, childPkg, params, license, parallel);
 
                         // A Collection can map to Items that it does not "own".
                         // If a Collection package has an Item as a child, it
@@ -218,9 +317,124 @@ public abstract class AbstractPackageIngester
                 }//end if child pkgs
             }//end if not an Item
         }//end if DSpaceObject not null
+    }
 
-        //Return list of all objects ingested
-        return getIngestedList();
+    /**
+     * Hand an Item package to the workers. The Item is ingested in the
+     * worker's Context, mapped into every Collection that referenced it,
+     * and committed.
+     */
+    private void submitItem(final File pkgFile, final List<Integer> collectionIDs,
+                            final PackageParameters params, final String license, final PackageWorkers parallel)
+    {
+        parallel.submit(new PackageWorkers.Task()
+        {
+            @Override
+            public void run(Context context) throws Exception
+            {
+                PackageParameters itemParams = (PackageParameters) params.clone();
+                DSpaceObject dso = null;
+                try
+                {
+                    // Restore to the Parent object specified in the Item package
+                    dso = getWorkerIngester().ingest(context, null, pkgFile, itemParams, license);
+                }
+                catch(IllegalStateException ie)
+                {
+                    // handle already in use: see ingestTree()
+                    if(itemParams.keepExistingModeEnabled())
+                    {
+                        log.warn(LogManager.getHeader(context, "skip_package_ingest", "Object already exists, package-skipped=" + pkgFile.getName()));
+                        return;
+                    }
+                    throw ie;
+                }
+
+                if (dso != null && dso.getType() == Constants.ITEM)
+                {
+                    Item item = (Item) dso;
+                    for (Integer collectionID : collectionIDs)
+                    {
+                        // Ensure Item is mapped to every Collection that referenced it
+                        Collection collection = Collection.find(context, collectionID);
+                        if (collection != null && !item.isIn(collection))
+                        {
+                            collection.addItem(item);
+                        }
+                    }
+                }
+                context.commit();
+
+                if (dso != null)
+                {
+                    synchronized (AbstractPackageIngester.this)
+                    {
+                        addToIngestedMap(pkgFile, dso);
+                    }
+                    parallel.setCompleted(pkgFile, dso.getHandle());
+                }
+            }
+        });
+    }
+
+    /**
+     * Get the instance of this ingester for the current worker thread, as
+     * ingesters keep state while ingesting a package.
+     */
+    private AbstractPackageIngester getWorkerIngester() throws PackageException
+    {
+        AbstractPackageIngester ingester = workerIngesters.get();
+        if (ingester == null)
+        {
+            try
+            {
+                ingester = getClass().newInstance();
+            }
+            catch (InstantiationException e)
+            {
+                throw new PackageException("Cannot create a " + getClass().getName() + " for a worker thread", e);
+            }
+            catch (IllegalAccessException e)
+            {
+                throw new PackageException("Cannot create a " + getClass().getName() + " for a worker thread", e);
+            }
+            workerIngesters.set(ingester);
+        }
+        return ingester;
+    }
+
+    /**
+     * Determine whether a package holds an Item, without ingesting it. Used
+     * to hold back Item packages until all containers are ingested, when
+     * ingesting in parallel.
+     * <P>
+     * By default this relies on the package file naming of
+     * PackageUtils.getPackageName(), i.e. "ITEM@[handle].[ext]".
+     *
+     * @param pkgFile the package file
+     * @return true if the package holds an Item
+     */
+    protected boolean isItemPackage(File pkgFile)
+    {
+        return pkgFile.getName().startsWith(Constants.typeText[Constants.ITEM] + "@");
+    }
+
+    /**
+     * Read the references to other packages from a package, without
+     * ingesting it. Used to continue into the children of a container
+     * ingested by an earlier, interrupted parallel ingest.
+     *
+     * @param context DSpace context.
+     * @param pkgFile the package file
+     * @param params Properties-style list of options
+     * @return the package references, or null if they cannot be read without
+     *         ingesting the package (in which case it is ingested again)
+     */
+    protected List<String> readPackageReferences(Context context, File pkgFile,
+                                                 PackageParameters params)
+        throws PackageException, SQLException, IOException, AuthorizeException
+    {
+        return null;
     }
 
 
@@ -425,7 +639,7 @@ public abstract class AbstractPackageIngester
      * 
      * @return Map of DSpaceObjects which have been created/replaced.
      */
-    protected Map<File,String> getIngestedMap()
+    protected synchronized Map<File,String> getIngestedMap()
     {
         return pkgIngestedMap;
     }
@@ -1162,6 +1162,18 @@ public class METSManifest
         return amds.split("\\s+");
     }
 
+    // Does this metadata section hold its content as a stream, i.e. an
+    // <mdRef> or an <mdWrap> with <binData>, rather than inline <xmlData>?
+    private static boolean hasStreamContent(Element xmd)
+    {
+        if (xmd.getChild("mdRef", metsNS) != null)
+        {
+            return true;
+        }
+        Element mdWrap = xmd.getChild("mdWrap", metsNS);
+        return mdWrap != null && mdWrap.getChild("binData", metsNS) != null;
+    }
+
     // Crosswalk *any* kind of metadata section - techMD, rightsMD, etc.
     private void crosswalkXmd(Context context, PackageParameters params,
                               DSpaceObject dso,
@@ -1171,8 +1183,21 @@ public class METSManifest
     {
         String type = getMdType(xmd);
 
-        //First, try to find the IngestionCrosswalk to use
-        IngestionCrosswalk xwalk = (IngestionCrosswalk)getCrosswalk(type, IngestionCrosswalk.class);
+        // When the section holds a stream (an mdRef'd file or base64 binData),
+        // prefer a stream-based crosswalk so the content is not parsed into
+        // a JDOM document first.
+        StreamIngestionCrosswalk sxwalk = null;
+        if (hasStreamContent(xmd))
+        {
+            sxwalk = (StreamIngestionCrosswalk)getCrosswalk(type, StreamIngestionCrosswalk.class);
+        }
+
+        // Otherwise, try to find the IngestionCrosswalk to use
+        IngestionCrosswalk xwalk = null;
+        if (sxwalk == null)
+        {
+            xwalk = (IngestionCrosswalk)getCrosswalk(type, IngestionCrosswalk.class);
+        }
 
         // If metadata is not simply applicable to object,
         // let it go with a warning.
@@ -1195,8 +1220,10 @@ public class METSManifest
             // Otherwise, try stream-based crosswalk
             else
             {
-                StreamIngestionCrosswalk sxwalk =
-                  (StreamIngestionCrosswalk)getCrosswalk(type, StreamIngestionCrosswalk.class);
+                if (sxwalk == null)
+                {
+                    sxwalk = (StreamIngestionCrosswalk)getCrosswalk(type, StreamIngestionCrosswalk.class);
+                }
 
                 if (sxwalk != null)
                 {
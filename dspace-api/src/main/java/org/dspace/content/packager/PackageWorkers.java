@@ -0,0 +1,279 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content.packager;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.Context;
+import org.dspace.eperson.EPerson;
+
+/**
+ * Runs the item packages of a recursive dissemination or ingest on a pool
+ * of threads, each package in its own DSpace Context, and keeps track of
+ * the packages completed so that an interrupted run can be resumed.
+ * <P>
+ * Enabled by the following package parameters:
+ * <ul>
+ * <li><code>threads</code> -- number of packages to process at once
+ * (default 1, i.e. everything is done one after another in the caller's
+ * Context, as before).</li>
+ * <li><code>progressFile</code> -- file listing every package completed,
+ * one per line with the Handle of its object. Packages listed in it are
+ * skipped when the same command is run again.</li>
+ * </ul>
+ *
+ * @see AbstractPackageDisseminator
+ * @see AbstractPackageIngester
+ */
+class PackageWorkers
+{
+    /** log4j category */
+    private static Logger log = Logger.getLogger(PackageWorkers.class);
+
+    /**
+     * Work on one package, in a Context of its own.
+     */
+    interface Task
+    {
+        /**
+         * @param context a new Context for this task, with the same user and
+         * authorization state as the caller's. Completed after the task
+         * returns, aborted if it throws.
+         */
+        void run(Context context) throws Exception;
+    }
+
+    private final ThreadPoolExecutor executor;
+
+    private final int userID;
+    private final boolean ignoreAuthorization;
+    private final short contextOptions;
+
+    /** Completed packages, with the Handle of their object */
+    private final Map<File, String> completed = new HashMap<File, String>();
+    private PrintWriter progress = null;
+
+    /** The first task to fail, stops further tasks from being started */
+    private volatile Exception failure = null;
+
+    /**
+     * Get the number of packages to process at once
+     *
+     * @param params the package parameters
+     * @return the number of threads, 1 if not running in parallel
+     */
+    static int getThreads(PackageParameters params)
+    {
+        try
+        {
+            return Math.max(1, Integer.parseInt(params.getProperty("threads", "1").trim()));
+        }
+        catch (NumberFormatException e)
+        {
+            log.warn("Invalid number of threads: " + params.getProperty("threads"));
+            return 1;
+        }
+    }
+
+    /**
+     * @param context the caller's Context, whose user and authorization state
+     * are copied into the Context of each task
+     * @param params the package parameters
+     * @param readOnly whether the tasks only read from the database
+     */
+    PackageWorkers(Context context, PackageParameters params, boolean readOnly)
+        throws IOException
+    {
+        int threads = getThreads(params);
+        // Bounded queue: when full, the caller runs the task itself, which
+        // keeps it from walking far ahead of the workers
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(threads * 4), new ThreadPoolExecutor.CallerRunsPolicy());
+
+        userID = context.getCurrentUser() == null ? -1 : context.getCurrentUser().getID();
+        ignoreAuthorization = context.ignoreAuthorization();
+        contextOptions = readOnly ? Context.READ_ONLY : 0;
+
+        String progressFile = params.getProperty("progressFile");
+        if (progressFile != null)
+        {
+            File file = new File(progressFile);
+            if (file.exists())
+            {
+                BufferedReader reader = new BufferedReader(new FileReader(file));
+                try
+                {
+                    String line;
+                    while ((line = reader.readLine()) != null)
+                    {
+                        int tab = line.indexOf('\t');
+                        if (tab > 0)
+                        {
+                            completed.put(new File(line.substring(0, tab)), line.substring(tab + 1));
+                        }
+                    }
+                }
+                finally
+                {
+                    reader.close();
+                }
+                log.info("Resuming from " + file + ", " + completed.size() + " packages already completed");
+            }
+            progress = new PrintWriter(new FileWriter(file, true));
+        }
+    }
+
+    /**
+     * Get the Handle of the object of a package completed by a previous run
+     *
+     * @param pkgFile the package file
+     * @return the Handle, or null if the package was not completed
+     */
+    synchronized String getCompleted(File pkgFile)
+    {
+        return completed.get(pkgFile.getAbsoluteFile());
+    }
+
+    /**
+     * Record a package as completed. Should only be called once the changes
+     * made for it are committed.
+     *
+     * @param pkgFile the package file
+     * @param handle the Handle of its object
+     */
+    synchronized void setCompleted(File pkgFile, String handle)
+    {
+        completed.put(pkgFile.getAbsoluteFile(), handle);
+        if (progress != null)
+        {
+            progress.println(pkgFile.getAbsolutePath() + "\t" + handle);
+            progress.flush();
+        }
+    }
+
+    /**
+     * Run a task on the pool, or in the calling thread if all workers are
+     * busy and the queue is full. Does nothing once a task has failed.
+     *
+     * @param task the task
+     */
+    void submit(final Task task)
+    {
+        if (failure != null)
+        {
+            return;
+        }
+        executor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if (failure != null)
+                {
+                    return;
+                }
+                Context context = null;
+                try
+                {
+                    context = new Context(contextOptions);
+                    if (userID != -1)
+                    {
+                        context.setCurrentUser(EPerson.find(context, userID));
+                    }
+                    if (ignoreAuthorization)
+                    {
+                        context.turnOffAuthorisationSystem();
+                    }
+                    task.run(context);
+                    context.complete();
+                }
+                catch (Exception e)
+                {
+                    log.error("Package task failed", e);
+                    synchronized (PackageWorkers.this)
+                    {
+                        if (failure == null)
+                        {
+                            failure = e;
+                        }
+                    }
+                }
+                finally
+                {
+                    if (context != null && context.isValid())
+                    {
+                        context.abort();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Wait for all tasks to finish, and close the progress file.
+     *
+     * @throws PackageException if a task failed
+     */
+    void finish() throws PackageException, SQLException, IOException
+    {
+        executor.shutdown();
+        try
+        {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES))
+            {
+                log.info("Waiting for " + (executor.getActiveCount() + executor.getQueue().size())
+                        + " package tasks, " + executor.getCompletedTaskCount() + " completed");
+            }
+        }
+        catch (InterruptedException e)
+        {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new PackageException("Interrupted while waiting for package tasks");
+        }
+        finally
+        {
+            synchronized (this)
+            {
+                if (progress != null)
+                {
+                    progress.close();
+                }
+            }
+        }
+
+        if (failure instanceof PackageException)
+        {
+            throw (PackageException) failure;
+        }
+        else if (failure instanceof SQLException)
+        {
+            throw (SQLException) failure;
+        }
+        else if (failure instanceof IOException)
+        {
+            throw (IOException) failure;
+        }
+        else if (failure != null)
+        {
+            throw new PackageException(failure);
+        }
+    }
+}
@@ -33,6 +33,13 @@ import org.springframework.util.CollectionUtils;
  * changes and free up the resources.
  * <P>
  * The context object is also used as a cache for CM API objects.
+ * <P>
+ * A context created with the <code>READ_ONLY</code> option cannot commit or
+ * fire events, does not cache objects, and uses a read-only connection. One
+ * created with the <code>READ_REPLICA</code> option is read-only too, and gets
+ * its connection from the read-only database replica if one is configured
+ * (see <code>db.readonly.url</code> in dspace.cfg). The replica may not have
+ * the latest changes yet, so only use it where that does not matter.
  * 
  * 
  * @version $Revision$
@@ -41,9 +48,12 @@ public class Context
 {
     private static final Logger log = Logger.getLogger(Context.class);
 
-    /** option flags */
+    /** option flags: no changes, and a read-only connection */
     public static final short READ_ONLY = 0x01;
 
+    /** option flags: as READ_ONLY, with a connection to the replica if there is one */
+    public static final short READ_REPLICA = 0x03;
+
     /** Database connection */
     private Connection connection;
 
@@ -56,6 +66,9 @@ public class Context
     /** Extra log info */
     private String extraLogInfo;
 
+    /** Indicates whether this context serves a request of a user interface */
+    private boolean interactive;
+
     /** Indicates whether authorisation subsystem should be ignored */
     private boolean ignoreAuth;
 
@@ -77,6 +90,9 @@ public class Context
     /** Content events */
     private LinkedList<Event> events = null;
 
+    /** Actions to run once the transaction is committed, by key */
+    private Map<String, Runnable> commitActions = null;
+
     /** Event dispatcher name */
     private String dispName = null;
 
@@ -118,12 +134,24 @@ public class Context
     private void init() throws SQLException
     {
         // Obtain a non-auto-committing connection
-        connection = DatabaseManager.getConnection();
+        if ((options & READ_REPLICA) == READ_REPLICA)
+        {
+            connection = DatabaseManager.getReplicaConnection();
+        }
+        else if (isReadOnly())
+        {
+            connection = DatabaseManager.getReadOnlyConnection();
+        }
+        else
+        {
+            connection = DatabaseManager.getConnection();
+        }
         connection.setAutoCommit(false);
 
         currentUser = null;
         currentLocale = I18nUtil.DEFAULTLOCALE;
         extraLogInfo = "";
+        interactive = false;
         ignoreAuth = false;
 
         objectCache = new HashMap<String, Object>();
@@ -307,6 +335,31 @@ public class Context
         return extraLogInfo;
     }
 
+    /**
+     * Mark this context as serving a request of a user interface (e.g. a Web
+     * or SWORD request), as opposed to a command line tool or a background
+     * task. Consumers may use this to decide whether a user waits for their
+     * work, e.g. whether the search index has to be updated straight away.
+     * 
+     * @param interactive
+     *            whether this context serves an interactive request
+     */
+    public void setInteractive(boolean interactive)
+    {
+        this.interactive = interactive;
+    }
+
+    /**
+     * Whether this context serves a request of a user interface
+     * 
+     * @return <code>true</code> if {@link #setInteractive(boolean)} was called
+     *         with <code>true</code>
+     */
+    public boolean isInteractive()
+    {
+        return interactive;
+    }
+
     /**
      * Close the context object after all of the operations performed in the
      * context have completed successfully. Any transaction with the database is
@@ -335,6 +388,12 @@ public class Context
             {
                 commit();
             }
+            else if (isValid())
+            {
+                // Nothing to commit, but end the transaction anyway: the
+                // pool does not roll back read-only connections
+                connection.rollback();
+            }
         }
         finally
         {
@@ -404,6 +463,54 @@ public class Context
             }
         }
 
+        // Only now can other contexts see the changes
+        if (commitActions != null)
+        {
+            Map<String, Runnable> actions = commitActions;
+            commitActions = null;
+            for (Runnable action : actions.values())
+            {
+                action.run();
+            }
+        }
+    }
+
+    /**
+     * Run an action once the current transaction has been committed, e.g. to
+     * drop a cache shared with other contexts which it makes out of date. The
+     * action is discarded if the transaction is aborted. Only one action is
+     * kept per key: adding another under the same key replaces it.
+     * 
+     * @param key
+     *            identifies the action, e.g. the name of the class adding it
+     * @param action
+     *            the action to run
+     */
+    public void addCommitAction(String key, Runnable action)
+    {
+        if (isReadOnly())
+        {
+            throw new IllegalStateException("Attempt to mutate object in read-only context");
+        }
+        if (commitActions == null)
+        {
+            commitActions = new LinkedHashMap<String, Runnable>();
+        }
+
+        commitActions.put(key, action);
+    }
+
+    /**
+     * Get the action to be run once the current transaction has been
+     * committed under the given key.
+     * 
+     * @param key
+     *            identifies the action
+     * @return the action, or <code>null</code> if there is none
+     */
+    public Runnable getCommitAction(String key)
+    {
+        return (commitActions == null) ? null : commitActions.get(key);
     }
 
     /**
@@ -491,8 +598,9 @@ public class Context
 
         try
         {
-            // Rollback if we have a database connection, and it is NOT Read Only
-            if (isValid() && !connection.isClosed() && !isReadOnly())
+            // Rollback if we have a database connection (even a read-only
+            // one, whose transaction the pool would not end)
+            if (isValid() && !connection.isClosed())
             {
                 connection.rollback();
             }
@@ -515,6 +623,7 @@ public class Context
             }
             connection = null;
             events = null;
+            commitActions = null;
             clearCache();
         }
     }
@@ -27,6 +27,10 @@ public class DiscoverQuery {
     private int start = 0;
     private int maxResults = -1;
 
+    /** Cursor mark to use instead of start, see setCursorMark */
+    public static final String CURSOR_MARK_START = "*";
+    private String cursorMark = null;
+
 
     /** Attributes used for sorting of results **/
     public enum SORT_ORDER {
@@ -132,6 +136,27 @@ public class DiscoverQuery {
         this.maxResults = maxResults;
     }
 
+    /**
+     * Page through the results with a cursor rather than an offset: use
+     * {@link #CURSOR_MARK_START} for the first page, then the
+     * {@link DiscoverResult#getNextCursorMark()} of the previous page. The
+     * start is ignored, and ties in the sort order are broken by the unique
+     * id of the objects. Unlike an offset, a cursor costs the same however
+     * deep the page is.
+     * @param cursorMark the cursor mark, or null to use the start
+     */
+    public void setCursorMark(String cursorMark) {
+        this.cursorMark = cursorMark;
+    }
+
+    /**
+     * The cursor mark of the page to return
+     * @return the cursor mark, or null if the start is used
+     */
+    public String getCursorMark() {
+        return cursorMark;
+    }
+
     /**
      * Adds new filter queries
      * @param filterQueries the filter queries to be added
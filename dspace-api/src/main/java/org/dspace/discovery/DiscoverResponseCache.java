@@ -0,0 +1,139 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.dspace.core.ConfigurationManager;
+
+/**
+ * Keeps the Solr responses of small Discovery queries for the whole JVM, so
+ * that the facets of sidebars, "view more" pages and browse scopes are not
+ * computed again for every page view.
+ * <P>
+ * Only queries asking for at most <code>search.cache.max-rows</code> documents
+ * (default 1, i.e. facet-only queries and the first/last year lookups of date
+ * facets) are kept. The key is the whole Solr request, so the scope, filter
+ * queries (including those added by search plugins, e.g. the read permissions
+ * of the current user) and facet configuration are all part of it. At most
+ * <code>search.cache.size</code> responses (default 500, 0 disables the cache)
+ * are kept, the least recently used ones being dropped first.
+ * <P>
+ * Everything is dropped whenever this JVM commits the index. Responses are
+ * also dropped once older than <code>search.cache.ttl</code> seconds (default
+ * 60), which bounds how long changes committed by Solr itself or by other
+ * processes go unnoticed.
+ */
+final class DiscoverResponseCache
+{
+    private static int maxSize = ConfigurationManager.getIntProperty("discovery", "search.cache.size", 500);
+    private static long ttl = ConfigurationManager.getLongProperty("discovery", "search.cache.ttl", 60) * 1000;
+    private static int maxRows = ConfigurationManager.getIntProperty("discovery", "search.cache.max-rows", 1);
+
+    private static final Map<String, CachedResponse> responses = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest)
+        {
+            return size() > maxSize;
+        }
+    };
+
+    private static final class CachedResponse
+    {
+        private final QueryResponse response;
+        private final long created = System.currentTimeMillis();
+
+        private CachedResponse(QueryResponse response)
+        {
+            this.response = response;
+        }
+    }
+
+    private DiscoverResponseCache()
+    {
+    }
+
+    /**
+     * Override the configured limits and drop all cached responses, for tests
+     *
+     * @param maxSize the number of responses to keep
+     * @param ttl the time (ms) to keep a response
+     * @param maxRows the number of documents a cached query may ask for
+     */
+    static synchronized void configure(int maxSize, long ttl, int maxRows)
+    {
+        DiscoverResponseCache.maxSize = maxSize;
+        DiscoverResponseCache.ttl = ttl;
+        DiscoverResponseCache.maxRows = maxRows;
+        responses.clear();
+    }
+
+    /**
+     * Get the cache key of a query
+     *
+     * @param query the Solr query, with all parameters set
+     * @return the key, or null if the response of this query is not cached
+     */
+    static synchronized String getKey(SolrQuery query)
+    {
+        if (maxSize <= 0)
+        {
+            return null;
+        }
+        Integer rows = query.getRows();
+        if (rows == null || maxRows < rows)
+        {
+            return null;
+        }
+        return query.toString();
+    }
+
+    /**
+     * Get a cached response. It is shared, so must not be modified.
+     *
+     * @param key the key from {@link #getKey(SolrQuery)}
+     * @return the response, or null if not cached or expired
+     */
+    static synchronized QueryResponse get(String key)
+    {
+        CachedResponse cached = responses.get(key);
+        if (cached == null)
+        {
+            return null;
+        }
+        if (System.currentTimeMillis() - cached.created > ttl)
+        {
+            responses.remove(key);
+            return null;
+        }
+        return cached.response;
+    }
+
+    /**
+     * Cache a response
+     *
+     * @param key the key from {@link #getKey(SolrQuery)}
+     * @param response the response to the query
+     */
+    static synchronized void put(String key, QueryResponse response)
+    {
+        responses.put(key, new CachedResponse(response));
+    }
+
+    /**
+     * Drop all cached responses, e.g. once the index has been committed
+     */
+    static synchronized void clear()
+    {
+        responses.clear();
+    }
+}
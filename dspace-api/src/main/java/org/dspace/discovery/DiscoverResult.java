@@ -28,6 +28,7 @@ public class DiscoverResult {
     private int searchTime;
     private Map<String, DSpaceObjectHighlightResult> highlightedResults;
     private String spellCheckQuery;
+    private String nextCursorMark;
 
 
     public DiscoverResult() {
@@ -159,6 +160,19 @@ public class DiscoverResult {
         this.spellCheckQuery = spellCheckQuery;
     }
 
+    /**
+     * The cursor mark of the next page, if the query used a cursor mark.
+     * Equal to the cursor mark of the query once all results were returned.
+     * @return the cursor mark, or null
+     */
+    public String getNextCursorMark() {
+        return nextCursorMark;
+    }
+
+    public void setNextCursorMark(String nextCursorMark) {
+        this.nextCursorMark = nextCursorMark;
+    }
+
     public static final class DSpaceObjectHighlightResult
     {
         private DSpaceObject dso;
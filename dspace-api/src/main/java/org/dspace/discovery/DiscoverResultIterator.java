@@ -0,0 +1,180 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
+import org.dspace.core.Context;
+
+/**
+ * Iterates over all the results of a Discovery query, for batch jobs which
+ * export or process whole result sets. The results are fetched a page at a
+ * time using a cursor mark, so each page costs the same however many come
+ * before it, and the objects of a page are removed from the Context cache
+ * when the next page is fetched, so memory use does not grow with the size
+ * of the result set.
+ * <P>
+ * The page size is the maximum number of results of the query, or
+ * {@link #DEFAULT_PAGE_SIZE} if not set. The start of the query is ignored.
+ * Facets, highlighting etc. are computed again for every page, so should
+ * not be asked for.
+ * <P>
+ * Note that this class is not a real Iterator, as it does not implement
+ * the Iterator interface
+ */
+public class DiscoverResultIterator
+{
+    /** The page size used if the query does not set a maximum number of results */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final Context context;
+    private final DiscoverQuery query;
+    private final SearchService searchService;
+
+    /** Scope of the search, until the first page has been fetched */
+    private DSpaceObject scope;
+
+    private List<DSpaceObject> page = null;
+    private int index = 0;
+    private boolean lastPage = false;
+    private long totalResults = -1;
+
+    /**
+     * @param context the DSpace Context
+     * @param scope the Community, Collection or Item to search in, or null
+     * @param query the query, whose cursor mark and (if not set) maximum
+     * number of results are changed while iterating
+     */
+    public DiscoverResultIterator(Context context, DSpaceObject scope, DiscoverQuery query)
+    {
+        this(context, scope, query, SearchUtils.getSearchService());
+    }
+
+    /**
+     * @param context the DSpace Context
+     * @param scope the Community, Collection or Item to search in, or null
+     * @param query the query, whose cursor mark and (if not set) maximum
+     * number of results are changed while iterating
+     * @param searchService the search service to run the query with
+     */
+    DiscoverResultIterator(Context context, DSpaceObject scope, DiscoverQuery query, SearchService searchService)
+    {
+        this.context = context;
+        this.scope = scope;
+        this.query = query;
+        this.searchService = searchService;
+        if (query.getMaxResults() <= 0)
+        {
+            query.setMaxResults(DEFAULT_PAGE_SIZE);
+        }
+        query.setCursorMark(DiscoverQuery.CURSOR_MARK_START);
+    }
+
+    /**
+     * Find out if there are any more results to iterate over
+     *
+     * @return <code>true</code> if there are more results
+     * @throws SearchServiceException
+     */
+    public boolean hasNext() throws SearchServiceException
+    {
+        while (page == null || index >= page.size())
+        {
+            if (lastPage)
+            {
+                return false;
+            }
+            fetchPage();
+        }
+        return true;
+    }
+
+    /**
+     * Get the next result
+     *
+     * @return the next result, or null if there are no more
+     * @throws SearchServiceException
+     */
+    public DSpaceObject next() throws SearchServiceException
+    {
+        if (!hasNext())
+        {
+            return null;
+        }
+        return page.get(index++);
+    }
+
+    /**
+     * Get the total number of results of the query
+     *
+     * @return the number of results, or -1 before the first page is fetched
+     */
+    public long getTotalResults()
+    {
+        return totalResults;
+    }
+
+    private void fetchPage() throws SearchServiceException
+    {
+        if (page != null)
+        {
+            decache(page);
+        }
+
+        DiscoverResult result;
+        if (scope != null)
+        {
+            // Adds the scope to the filter queries of the query, so only once
+            result = searchService.search(context, scope, query);
+            scope = null;
+        }
+        else
+        {
+            result = searchService.search(context, query);
+        }
+
+        totalResults = result.getTotalSearchResults();
+        page = result.getDspaceObjects();
+        index = 0;
+
+        String nextCursorMark = result.getNextCursorMark();
+        if (nextCursorMark == null || nextCursorMark.equals(query.getCursorMark()))
+        {
+            lastPage = true;
+        }
+        else
+        {
+            query.setCursorMark(nextCursorMark);
+        }
+    }
+
+    private void decache(List<DSpaceObject> objects) throws SearchServiceException
+    {
+        try
+        {
+            for (DSpaceObject dso : objects)
+            {
+                if (dso instanceof Item)
+                {
+                    ((Item) dso).decache();
+                }
+                else
+                {
+                    context.removeCached(dso, dso.getID());
+                }
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new SearchServiceException(e.getMessage(), e);
+        }
+    }
+}
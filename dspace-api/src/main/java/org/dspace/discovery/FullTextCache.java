@@ -0,0 +1,168 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.content.Bitstream;
+import org.dspace.core.ConfigurationManager;
+
+/**
+ * Reads the full text of the TEXT bundle bitstreams for indexing, so that it
+ * can be sent to Solr as a field of the document instead of shipping the
+ * bitstreams to the extracting request handler.
+ * <P>
+ * If <code>index.fulltext.cache.dir</code> is set in discovery.cfg, the text
+ * is also kept in that directory, in a file named after the checksum of the
+ * bitstream, and read from there on later reindexes instead of from the
+ * assetstore (which may be remote). Entries are never changed, as a
+ * bitstream with other contents has another checksum. The directory may be
+ * emptied at any time, e.g. to drop the text of deleted bitstreams.
+ */
+final class FullTextCache
+{
+    private static final Logger log = Logger.getLogger(FullTextCache.class);
+
+    private static String cacheDir = ConfigurationManager.getProperty("discovery", "index.fulltext.cache.dir");
+
+    private FullTextCache()
+    {
+    }
+
+    /**
+     * Override the configured cache directory, for tests
+     *
+     * @param dir the cache directory, or null to read from the assetstore only
+     */
+    static synchronized void configure(String dir)
+    {
+        cacheDir = dir;
+    }
+
+    /**
+     * Whether the text of a bitstream can be read by {@link #getText(Bitstream, int)}
+     *
+     * @param bitstream a bitstream of the TEXT bundle
+     * @return true if it is plain text, as written by the text media filters
+     */
+    static boolean isPlainText(Bitstream bitstream)
+    {
+        return "text/plain".equals(bitstream.getFormat().getMIMEType());
+    }
+
+    /**
+     * Get the text of a plain text bitstream
+     *
+     * @param bitstream the bitstream
+     * @param maxChars the maximum number of characters to return; the whole
+     *        text is never read into memory, as it may be very large
+     * @return the text, truncated to maxChars
+     */
+    static String getText(Bitstream bitstream, int maxChars)
+        throws IOException, SQLException, AuthorizeException
+    {
+        File cached = getCacheFile(bitstream);
+        if (cached != null && cached.exists())
+        {
+            return read(new FileInputStream(cached), maxChars);
+        }
+
+        if (cached == null)
+        {
+            return read(bitstream.retrieve(), maxChars);
+        }
+
+        // Copy the bitstream into the cache first, then read from there. The
+        // copy is renamed into place once complete, so concurrent indexers
+        // never see a partial file.
+        File parent = cached.getParentFile();
+        if (!parent.exists() && !parent.mkdirs() && !parent.exists())
+        {
+            throw new IOException("Unable to create full text cache directory " + parent);
+        }
+        File temp = File.createTempFile(cached.getName(), ".tmp", parent);
+        try
+        {
+            InputStream in = bitstream.retrieve();
+            OutputStream out = new FileOutputStream(temp);
+            try
+            {
+                IOUtils.copyLarge(in, out);
+            }
+            finally
+            {
+                in.close();
+                out.close();
+            }
+            if (!temp.renameTo(cached))
+            {
+                log.warn("Unable to add " + cached + " to the full text cache");
+                return read(new FileInputStream(temp), maxChars);
+            }
+            return read(new FileInputStream(cached), maxChars);
+        }
+        finally
+        {
+            // Gone already if it was renamed into the cache
+            if (temp.exists() && !temp.delete())
+            {
+                log.warn("Unable to delete " + temp);
+            }
+        }
+    }
+
+    /**
+     * Get the file the text of a bitstream is cached in
+     *
+     * @param bitstream the bitstream
+     * @return the file, which may not exist yet, or null if not cached
+     */
+    static synchronized File getCacheFile(Bitstream bitstream)
+    {
+        String checksum = bitstream.getChecksum();
+        if (cacheDir == null || checksum == null || checksum.length() < 2)
+        {
+            return null;
+        }
+        String name = checksum.toLowerCase() + "." + bitstream.getSize() + ".txt";
+        return new File(new File(cacheDir, name.substring(0, 2)), name);
+    }
+
+    private static String read(InputStream in, int maxChars) throws IOException
+    {
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        try
+        {
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[8192];
+            int read;
+            while (text.length() < maxChars
+                    && (read = reader.read(buffer, 0, Math.min(buffer.length, maxChars - text.length()))) != -1)
+            {
+                text.append(buffer, 0, read);
+            }
+            return text.toString();
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+}
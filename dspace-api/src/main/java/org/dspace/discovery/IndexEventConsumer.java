@@ -10,6 +10,7 @@ package org.dspace.discovery;
 import org.apache.log4j.Logger;
 import org.dspace.content.Bundle;
 import org.dspace.content.DSpaceObject;
+import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.event.Consumer;
@@ -21,6 +22,11 @@ import java.util.Set;
 
 /**
  * Class for updating search indices in discovery from content events.
+ * <P>
+ * If <code>index.queue.window</code> is set in discovery.cfg, the objects are
+ * handed to the JVM-wide {@link IndexQueue} instead of being indexed straight
+ * away, except for interactive Contexts (see {@link Context#isInteractive()})
+ * unless <code>index.queue.interactive.synchronous</code> is false.
  *
  * @author Kevin Van de Velde (kevin at atmire dot com)
  * @author Mark Diggory (markd at atmire dot com)
@@ -156,7 +162,18 @@ public class IndexEventConsumer implements Consumer {
      */
     public void end(Context ctx) throws Exception {
 
-        if (objectsToUpdate != null && handlesToDelete != null) {
+        if (objectsToUpdate != null && handlesToDelete != null && isQueued(ctx)) {
+            for (DSpaceObject iu : objectsToUpdate) {
+                String hdl = iu.getHandle();
+                if (hdl != null && !handlesToDelete.contains(hdl)) {
+                    IndexQueue.update(indexer, iu);
+                }
+            }
+            for (String hdl : handlesToDelete) {
+                IndexQueue.delete(indexer, hdl);
+            }
+        }
+        else if (objectsToUpdate != null && handlesToDelete != null) {
 
             // update the changed Items not deleted because they were on create list
             for (DSpaceObject iu : objectsToUpdate) {
@@ -167,7 +184,9 @@ public class IndexEventConsumer implements Consumer {
                 String hdl = iu.getHandle();
                 if (hdl != null && !handlesToDelete.contains(hdl)) {
                     try {
+                        long queued = IndexQueue.version(hdl);
                         indexer.indexContent(ctx, iu, true);
+                        IndexQueue.remove(hdl, queued);
                         log.debug("Indexed "
                                 + Constants.typeText[iu.getType()]
                                 + ", id=" + String.valueOf(iu.getID())
@@ -181,7 +200,9 @@ public class IndexEventConsumer implements Consumer {
 
             for (String hdl : handlesToDelete) {
                 try {
+                    long queued = IndexQueue.version(hdl);
                     indexer.unIndexContent(ctx, hdl, true);
+                    IndexQueue.remove(hdl, queued);
                     if (log.isDebugEnabled())
                     {
                         log.debug("UN-Indexed Item, handle=" + hdl);
@@ -200,6 +221,17 @@ public class IndexEventConsumer implements Consumer {
         handlesToDelete = null;
     }
 
+    /**
+     * Whether the changes of a Context go through the index queue
+     */
+    private boolean isQueued(Context ctx) {
+        if (!IndexQueue.isEnabled())
+        {
+            return false;
+        }
+        return !ctx.isInteractive() || !ConfigurationManager.getBooleanProperty("discovery", "index.queue.interactive.synchronous", true);
+    }
+
     public void finish(Context ctx) throws Exception {
         // No-op
 
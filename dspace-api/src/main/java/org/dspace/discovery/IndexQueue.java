@@ -0,0 +1,308 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.dspace.content.DSpaceObject;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+
+/**
+ * Collects the index updates of all Contexts of the JVM, so that an object
+ * changed several times in a short while (e.g. by a curation task or a bulk
+ * metadata edit) is only indexed once.
+ * <P>
+ * Updates and deletions are keyed by Handle. The first change of an object
+ * is indexed <code>index.queue.window</code> milliseconds later, together
+ * with any further changes made in the meantime. A background thread indexes
+ * the due objects in batches of <code>index.queue.batch-size</code>, each in
+ * a Context of its own and followed by one commit. Anything still queued is
+ * indexed when the JVM shuts down.
+ *
+ * @see IndexEventConsumer
+ */
+final class IndexQueue
+{
+    private static final Logger log = Logger.getLogger(IndexQueue.class);
+
+    private static long window = ConfigurationManager.getLongProperty("discovery", "index.queue.window", 0);
+    private static int batchSize = Math.max(1, ConfigurationManager.getIntProperty("discovery", "index.queue.batch-size", 100));
+
+    /** Counts the changes queued so far, see {@link #version(String)} */
+    private static long versions = 0;
+
+    /** A queued change of one object */
+    private static final class Pending
+    {
+        private final long due;
+        private long version;
+        private int type;
+        private int id;
+        private boolean delete;
+
+        private Pending(long due)
+        {
+            this.due = due;
+        }
+    }
+
+    /** Queued changes by Handle, in the order they are due */
+    private static final Map<String, Pending> pending = new LinkedHashMap<String, Pending>();
+
+    private static IndexingService indexer = null;
+
+    /** Runs {@link #flush(boolean)} while changes are queued */
+    private static ScheduledExecutorService flusher = null;
+
+    private IndexQueue()
+    {
+    }
+
+    /**
+     * Whether index updates are queued at all
+     *
+     * @return true if <code>index.queue.window</code> is set
+     */
+    static boolean isEnabled()
+    {
+        return window > 0;
+    }
+
+    /**
+     * Queue an object to be (re)indexed
+     *
+     * @param service the indexing service to use
+     * @param dso the object
+     */
+    static synchronized void update(IndexingService service, DSpaceObject dso)
+    {
+        Pending change = getPending(service, dso.getHandle());
+        change.type = dso.getType();
+        change.id = dso.getID();
+        change.delete = false;
+    }
+
+    /**
+     * Queue an object to be removed from the index
+     *
+     * @param service the indexing service to use
+     * @param handle the Handle of the object
+     */
+    static synchronized void delete(IndexingService service, String handle)
+    {
+        getPending(service, handle).delete = true;
+    }
+
+    /**
+     * Get the version of the change queued for an object. The version grows
+     * with every change queued, so it tells whether the object was queued
+     * again in the meantime.
+     *
+     * @param handle the Handle of the object
+     * @return the version of the queued change, or -1 if none is queued
+     */
+    static synchronized long version(String handle)
+    {
+        Pending change = pending.get(handle);
+        return change == null ? -1 : change.version;
+    }
+
+    /**
+     * Forget about a queued change, e.g. because the object has just been
+     * indexed. The change is kept if it was queued again after its version
+     * was read, as the indexed state of the object may not include it.
+     *
+     * @param handle the Handle of the object
+     * @param version the version of the change, as returned by
+     *                {@link #version(String)} before indexing the object
+     */
+    static synchronized void remove(String handle, long version)
+    {
+        Pending change = pending.get(handle);
+        if (change != null && change.version == version)
+        {
+            pending.remove(handle);
+        }
+    }
+
+    /**
+     * Count the queued changes
+     *
+     * @return the number of objects queued
+     */
+    static synchronized int size()
+    {
+        return pending.size();
+    }
+
+    /**
+     * Override the configured window and batch size, for tests
+     *
+     * @param window the time (ms) to wait before indexing a change
+     * @param batchSize the number of objects to index per commit
+     */
+    static synchronized void configure(long window, int batchSize)
+    {
+        IndexQueue.window = window;
+        IndexQueue.batchSize = Math.max(1, batchSize);
+    }
+
+    private static Pending getPending(IndexingService service, String handle)
+    {
+        indexer = service;
+        Pending change = pending.get(handle);
+        if (change == null)
+        {
+            change = new Pending(System.currentTimeMillis() + window);
+            pending.put(handle, change);
+        }
+        change.version = ++versions;
+        startFlusher();
+        return change;
+    }
+
+    private static void startFlusher()
+    {
+        if (flusher != null)
+        {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "Discovery index queue");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long interval = Math.max(100, Math.min(1000, window));
+        flusher.scheduleWithFixedDelay(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                flush(false);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+
+        // Do not lose queued changes when the JVM exits, e.g. at the end of
+        // a command line tool
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                flush(true);
+            }
+        }, "Discovery index queue shutdown"));
+    }
+
+    /**
+     * Index the changes which are due, a batch at a time
+     *
+     * @param all whether to index all queued changes, due or not
+     */
+    static void flush(boolean all)
+    {
+        while (true)
+        {
+            Map<String, Pending> batch = new LinkedHashMap<String, Pending>();
+            IndexingService service;
+            synchronized (IndexQueue.class)
+            {
+                long now = System.currentTimeMillis();
+                Iterator<Map.Entry<String, Pending>> entries = pending.entrySet().iterator();
+                while (entries.hasNext() && batch.size() < batchSize)
+                {
+                    Map.Entry<String, Pending> entry = entries.next();
+                    if (!all && entry.getValue().due > now)
+                    {
+                        break;
+                    }
+                    batch.put(entry.getKey(), entry.getValue());
+                    entries.remove();
+                }
+                service = indexer;
+            }
+            if (batch.isEmpty())
+            {
+                return;
+            }
+            index(service, batch);
+        }
+    }
+
+    private static void index(IndexingService service, Map<String, Pending> batch)
+    {
+        Context context = null;
+        try
+        {
+            context = new Context();
+            context.turnOffAuthorisationSystem();
+
+            List<String> deleted = new ArrayList<String>();
+            for (Map.Entry<String, Pending> entry : batch.entrySet())
+            {
+                String handle = entry.getKey();
+                Pending change = entry.getValue();
+                try
+                {
+                    if (change.delete)
+                    {
+                        service.unIndexContent(context, handle, false);
+                        deleted.add(handle);
+                    }
+                    else
+                    {
+                        DSpaceObject dso = DSpaceObject.find(context, change.type, change.id);
+                        if (dso != null)
+                        {
+                            service.indexContent(context, dso, true);
+                            context.removeCached(dso, dso.getID());
+                            if (log.isDebugEnabled())
+                            {
+                                log.debug("Indexed " + Constants.typeText[change.type]
+                                        + ", id=" + change.id + ", handle=" + handle);
+                            }
+                        }
+                    }
+                }
+                catch (Exception e)
+                {
+                    log.error("Failed while indexing object: " + handle, e);
+                }
+            }
+            service.commit();
+            log.info("Indexed " + batch.size() + " queued objects, " + deleted.size() + " removed");
+        }
+        catch (Exception e)
+        {
+            log.error("Failed while indexing queued objects", e);
+        }
+        finally
+        {
+            if (context != null && context.isValid())
+            {
+                context.abort();
+            }
+        }
+    }
+}
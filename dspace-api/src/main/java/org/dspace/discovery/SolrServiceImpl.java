@@ -9,6 +9,7 @@ package org.dspace.discovery;
 
 import org.dspace.content.*;
 import org.dspace.util.MultiFormatDateParser;
+import org.dspace.util.SolrClientRegistry;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
@@ -48,7 +49,9 @@ import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.ConcurrentUpdateSolrServer;
 import org.apache.solr.client.solrj.impl.HttpSolrServer;
 import org.apache.solr.client.solrj.request.AbstractUpdateRequest;
 import org.apache.solr.client.solrj.request.ContentStreamUpdateRequest;
@@ -82,6 +85,7 @@ import org.dspace.discovery.configuration.DiscoverySortConfiguration;
 import org.dspace.discovery.configuration.DiscoverySortFieldConfiguration;
 import org.dspace.discovery.configuration.HierarchicalSidebarFacetConfiguration;
 import org.dspace.handle.HandleManager;
+import org.dspace.storage.rdbms.DatabaseManager;
 import org.dspace.storage.rdbms.DatabaseUtils;
 import org.dspace.utils.DSpace;
 import org.springframework.stereotype.Service;
@@ -116,6 +120,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
     protected static final String HANDLE_FIELD = "handle";
     protected static final String RESOURCE_TYPE_FIELD = "search.resourcetype";
     protected static final String RESOURCE_ID_FIELD = "search.resourceid";
+    protected static final String UNIQUE_ID_FIELD = "search.uniqueid";
 
     public static final String FILTER_SEPARATOR = "\n|||\n";
 
@@ -142,10 +147,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             {
                 try {
                     log.debug("Solr URL: " + solrService);
-                    solr = new HttpSolrServer(solrService);
-
-                    solr.setBaseURL(solrService);
-                    solr.setUseMultiPartPost(true);
+                    solr = SolrClientRegistry.getServer(solrService);
                     // Dummy/test query to search for Item (type=2) of ID=1
                     SolrQuery solrQuery = new SolrQuery()
                             .setQuery(RESOURCE_TYPE_FIELD + ":2 AND " + RESOURCE_ID_FIELD + ":1");
@@ -199,6 +201,22 @@ public class SolrServiceImpl implements SearchService, IndexingService {
     @Override
     public void indexContent(Context context, DSpaceObject dso,
                              boolean force) throws SQLException {
+        indexContent(context, dso, force, getSolr());
+    }
+
+    /**
+     * Index a DSpace object as {@link #indexContent(Context, DSpaceObject, boolean)}
+     * does, adding the documents through the given client.
+     *
+     * @param context Users Context
+     * @param dso     DSpace Object (Item, Collection or Community
+     * @param force   Force update even if not stale.
+     * @param updates the client the documents are added through, e.g. a batch
+     *                update client during a full reindex
+     * @throws SQLException
+     */
+    protected void indexContent(Context context, DSpaceObject dso,
+                                boolean force, SolrServer updates) throws SQLException {
 
         String handle = dso.getHandle();
 
@@ -221,7 +239,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                                 || force)
                         {
                             unIndexContent(context, handle);
-                            buildDocument(context, (Item) dso);
+                            buildDocument(context, (Item) dso, updates);
                         }
                     } else {
                         /**
@@ -234,12 +252,12 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                     break;
 
                 case Constants.COLLECTION:
-                    buildDocument(context, (Collection) dso);
+                    buildDocument(context, (Collection) dso, updates);
                     log.info("Wrote Collection: " + handle + " to Index");
                     break;
 
                 case Constants.COMMUNITY:
-                    buildDocument(context, (Community) dso);
+                    buildDocument(context, (Community) dso, updates);
                     log.info("Wrote Community: " + handle + " to Index");
                     break;
 
@@ -290,6 +308,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             if(commit)
             {
                 getSolr().commit();
+                DiscoverResponseCache.clear();
             }
         } catch (Exception exception) {
             log.error(exception.getMessage(), exception);
@@ -326,6 +345,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                 if(commit)
                 {
                     getSolr().commit();
+                    DiscoverResponseCache.clear();
                 }
             }
         } catch (SolrServerException e)
@@ -396,12 +416,23 @@ public class SolrServiceImpl implements SearchService, IndexingService {
     public void updateIndex(Context context, boolean force)
     {
         try {
+            // Queue the documents of a full reindex on the batch update
+            // client; everything else still goes straight to Solr
+            SolrServer updates = getSolr();
+            if (getSolr() != null && ConfigurationManager.getBooleanProperty("discovery", "solr.batch-updates", false))
+            {
+                updates = SolrClientRegistry.getUpdateServer(getSolr().getBaseURL());
+            }
+
             ItemIterator items = null;
             try {
-                for (items = Item.findAllUnfiltered(context); items.hasNext();)
+                // Indexing commits nothing, so the items can be streamed
+                items = Item.findAllUnfiltered(context, DatabaseManager.getBulkFetchSize())
+                        .setPrefetchSize(ItemIterator.BATCH_PREFETCH_SIZE);
+                while (items.hasNext())
                 {
                     Item item = items.next();
-                    indexContent(context, item, force);
+                    indexContent(context, item, force, updates);
                     item.decache();
                 }
             } finally {
@@ -414,7 +445,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             Collection[] collections = Collection.findAll(context);
             for (Collection collection : collections)
             {
-                indexContent(context, collection, force);
+                indexContent(context, collection, force, updates);
                 context.removeCached(collection, collection.getID());
 
             }
@@ -422,13 +453,19 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             Community[] communities = Community.findAll(context);
             for (Community community : communities)
             {
-                indexContent(context, community, force);
+                indexContent(context, community, force, updates);
                 context.removeCached(community, community.getID());
             }
 
+            if (updates instanceof ConcurrentUpdateSolrServer)
+            {
+                ((ConcurrentUpdateSolrServer) updates).blockUntilFinished();
+            }
+
             if(getSolr() != null)
             {
                 getSolr().commit();
+                DiscoverResponseCache.clear();
             }
 
         } catch (Exception e)
@@ -707,9 +744,12 @@ public class SolrServiceImpl implements SearchService, IndexingService {
      *
      * @param doc the solr document to be written to the server
      * @param streams
+     * @param updates the client the document is added through, unless it
+     *                has streams to extract
      * @throws IOException IO exception
      */
-    protected void writeDocument(SolrInputDocument doc, List<BitstreamContentStream> streams) throws IOException {
+    protected void writeDocument(SolrInputDocument doc, List<BitstreamContentStream> streams,
+                                 SolrServer updates) throws IOException {
 
         try {
             if(getSolr() != null)
@@ -743,7 +783,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                 }
                 else
                 {
-                    getSolr().add(doc);
+                    updates.add(doc);
                 }
             }
         } catch (SolrServerException e)
@@ -756,10 +796,11 @@ public class SolrServiceImpl implements SearchService, IndexingService {
      * Build a solr document for a DSpace Community.
      *
      * @param community Community to be indexed
+     * @param updates the client the document is added through
      * @throws SQLException
      * @throws IOException
      */
-    protected void buildDocument(Context context, Community community)
+    protected void buildDocument(Context context, Community community, SolrServer updates)
     throws SQLException, IOException {
         // Create Document
         SolrInputDocument doc = buildDocument(Constants.COMMUNITY, community.getID(),
@@ -797,17 +838,18 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             solrServiceIndexPlugin.additionalIndex(context, community, doc);
         }
 
-        writeDocument(doc, null);
+        writeDocument(doc, null, updates);
     }
 
     /**
      * Build a solr document for a DSpace Collection.
      *
      * @param collection Collection to be indexed
+     * @param updates the client the document is added through
      * @throws SQLException sql exception
      * @throws IOException IO exception
      */
-    protected void buildDocument(Context context, Collection collection)
+    protected void buildDocument(Context context, Collection collection, SolrServer updates)
     throws SQLException, IOException {
         List<String> locations = getCollectionLocations(collection);
 
@@ -853,7 +895,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             solrServiceIndexPlugin.additionalIndex(context, collection, doc);
         }
 
-        writeDocument(doc, null);
+        writeDocument(doc, null, updates);
     }
 
     /**
@@ -884,10 +926,11 @@ public class SolrServiceImpl implements SearchService, IndexingService {
      *
      * @param context Users Context
      * @param item    The DSpace Item to be indexed
+     * @param updates the client the document is added through
      * @throws SQLException
      * @throws IOException
      */
-    protected void buildDocument(Context context, Item item)
+    protected void buildDocument(Context context, Item item, SolrServer updates)
             throws SQLException, IOException {
         String handle = item.getHandle();
 
@@ -1381,36 +1424,50 @@ public class SolrServiceImpl implements SearchService, IndexingService {
 
         List<BitstreamContentStream> streams = new ArrayList<BitstreamContentStream>();
 
+        // Maximum full text characters indexed for the item. With no limit
+        // (-1) the text is streamed to Solr's extracting handler instead, so
+        // it is never held in memory as a whole.
+        int fullTextLeft = ConfigurationManager.getIntProperty("discovery", "index.fulltext.max-chars", 10000000);
+
         try {
             // now get full text of any bitstreams in the TEXT bundle
             // trundle through the bundles
-            Bundle[] myBundles = item.getBundles();
+            Bundle[] myBundles = item.getBundles("TEXT");
 
             for (Bundle myBundle : myBundles)
             {
-                if ((myBundle.getName() != null)
-                        && myBundle.getName().equals("TEXT"))
-                {
-                    // a-ha! grab the text out of the bitstreams
-                    Bitstream[] myBitstreams = myBundle.getBitstreams();
+                // a-ha! grab the text out of the bitstreams
+                Bitstream[] myBitstreams = myBundle.getBitstreams();
 
-                    for (Bitstream myBitstream : myBitstreams)
-                    {
-                        try {
+                for (Bitstream myBitstream : myBitstreams)
+                {
+                    try {
 
+                        if (fullTextLeft >= 0 && FullTextCache.isPlainText(myBitstream))
+                        {
+                            // Read the text here and send it as a field, so
+                            // Solr does not have to extract it
+                            if (fullTextLeft == 0)
+                            {
+                                continue;
+                            }
+                            String text = FullTextCache.getText(myBitstream, fullTextLeft);
+                            doc.addField("fulltext", text);
+                            fullTextLeft = Math.max(0, fullTextLeft - text.length());
+                        }
+                        else
+                        {
                             streams.add(new BitstreamContentStream(myBitstream));
+                        }
 
-                            log.debug("  Added BitStream: "
-                                    + myBitstream.getStoreNumber() + "	"
-                                    + myBitstream.getSequenceID() + "   "
-                                    + myBitstream.getName());
+                        log.debug("  Added BitStream: "
+                                + myBitstream.getStoreNumber() + "	"
+                                + myBitstream.getSequenceID() + "   "
+                                + myBitstream.getName());
 
-                        } catch (Exception e)
-                        {
-                            // this will never happen, but compiler is now
-                            // happy.
-                            log.trace(e.getMessage(), e);
-                        }
+                    } catch (Exception e)
+                    {
+                        log.error("Unable to read the full text of bitstream " + myBitstream.getID(), e);
                     }
                 }
             }
@@ -1428,7 +1485,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
 
         // write the index and close the inputstreamreaders
         try {
-            writeDocument(doc, streams);
+            writeDocument(doc, streams, updates);
             log.info("Wrote Item: " + handle + " to Index");
         } catch (RuntimeException e)
         {
@@ -1455,7 +1512,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
 
         // New fields to weaken the dependence on handles, and allow for faster
         // list display
-		doc.addField("search.uniqueid", type+"-"+id);
+		doc.addField(UNIQUE_ID_FIELD, type+"-"+id);
         doc.addField(RESOURCE_TYPE_FIELD, Integer.toString(type));
 
         doc.addField(RESOURCE_ID_FIELD, Integer.toString(id));
@@ -1611,8 +1668,21 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             }
             SolrQuery solrQuery = resolveToSolrQuery(context, discoveryQuery, includeUnDiscoverable);
 
-
-            QueryResponse queryResponse = getSolr().query(solrQuery);
+            // Facet-only queries (sidebars etc.) are answered from the cache if possible
+            String cacheKey = DiscoverResponseCache.getKey(solrQuery);
+            QueryResponse queryResponse = null;
+            if (cacheKey != null)
+            {
+                queryResponse = DiscoverResponseCache.get(cacheKey);
+            }
+            if (queryResponse == null)
+            {
+                queryResponse = getSolr().query(solrQuery);
+                if (cacheKey != null)
+                {
+                    DiscoverResponseCache.put(cacheKey, queryResponse);
+                }
+            }
             return retrieveResult(context, discoveryQuery, queryResponse);
 
         } catch (Exception e)
@@ -1673,7 +1743,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             solrQuery.addFilterQuery(filterQuery + ":[* TO *]");
         }
 
-        if(discoveryQuery.getStart() != -1)
+        if(discoveryQuery.getStart() != -1 && discoveryQuery.getCursorMark() == null)
         {
             solrQuery.setStart(discoveryQuery.getStart());
         }
@@ -1701,6 +1771,21 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             }
         }
 
+        if(discoveryQuery.getCursorMark() != null)
+        {
+            // A cursor needs a total order, so break ties on the unique key
+            String sort = solrQuery.get(CommonParams.SORT);
+            if(sort == null)
+            {
+                sort = "score desc";
+            }
+            if(!sort.contains(UNIQUE_ID_FIELD))
+            {
+                solrQuery.set(CommonParams.SORT, sort + "," + UNIQUE_ID_FIELD + " asc");
+            }
+            solrQuery.set(CursorMarkParams.CURSOR_MARK_PARAM, discoveryQuery.getCursorMark());
+        }
+
         for(String property : discoveryQuery.getProperties().keySet())
         {
             List<String> values = discoveryQuery.getProperties().get(property);
@@ -1830,6 +1915,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             result.setStart(query.getStart());
             result.setMaxResults(query.getMaxResults());
             result.setTotalSearchResults(solrQueryResponse.getResults().getNumFound());
+            result.setNextCursorMark(solrQueryResponse.getNextCursorMark());
 
             List<String> searchFields = query.getSearchFields();
             for (SolrDocument doc : solrQueryResponse.getResults())
@@ -1892,6 +1978,8 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                         {
 
                             //If we have a date & are sorting by value, ensure that the results are flipped for a proper result
+                            //(on a copy, as the response may be cached and shared)
+                           facetValues = new ArrayList<FacetField.Count>(facetValues);
                            Collections.reverse(facetValues);
                         }
 
@@ -2388,6 +2476,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             if(getSolr() != null)
             {
                 getSolr().commit();
+                DiscoverResponseCache.clear();
             }
 		} catch (Exception e) {
 			throw new SearchServiceException(e.getMessage(), e);
@@ -38,6 +38,7 @@ import org.dspace.discovery.configuration.*;
 import org.dspace.handle.HandleManager;
 import org.dspace.storage.rdbms.DatabaseUtils;
 import org.dspace.util.MultiFormatDateParser;
+import org.dspace.util.SolrClientRegistry;
 import org.dspace.utils.DSpace;
 
 import java.io.IOException;
@@ -75,10 +76,7 @@ public class SolrStatisticsServiceImpl  extends SolrServiceImpl {
             if (urlValidator.isValid(solrService) || ConfigurationManager.getBooleanProperty("discovery", "solr.url.validation.enabled", true)) {
                 try {
                     log.debug("Solr URL: " + solrService);
-                    solr = new HttpSolrServer(solrService);
-
-                    solr.setBaseURL(solrService);
-                    solr.setUseMultiPartPost(true);
+                    solr = SolrClientRegistry.getServer(solrService);
 
 
                 } catch (Exception e) {
@@ -0,0 +1,375 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.eperson;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.apache.log4j.Logger;
+import org.dspace.core.Context;
+import org.dspace.core.LogManager;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.QueryUtils;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
+
+/**
+ * Maintains the group2groupcache table, which holds the transitive closure of
+ * the group2group table: one (parent_id, child_id) row for every group which
+ * is a member of another group, directly or through any number of subgroups.
+ * <P>
+ * When the subgroups of a group change, only the closure rows of that group
+ * and of the groups it is a member of can change, so only those are read,
+ * and the rows which differ are inserted and deleted with one batched
+ * statement each. A full rebuild of the table is available from the command
+ * line to repair it.
+ */
+public class Group2GroupCache
+{
+    /** log4j logger */
+    private static final Logger log = Logger.getLogger(Group2GroupCache.class);
+
+    /** Utility class */
+    private Group2GroupCache()
+    {
+    }
+
+    /**
+     * Bring the cache up to date after the subgroups of the given groups have
+     * changed in group2group. The current cache rows are used to find the
+     * groups containing the changed groups, so this must be called before
+     * any other change is made to the cache.
+     *
+     * @param context
+     *            DSpace context object
+     * @param changed
+     *            the IDs of the groups whose subgroups have changed
+     * @throws SQLException
+     */
+    static void update(Context context, Collection<Integer> changed) throws SQLException
+    {
+        if (changed.isEmpty())
+        {
+            return;
+        }
+
+        // The groups whose closure may have changed: the changed groups and
+        // every group they are a member of. Their own parents are unaffected.
+        Set<Integer> affected = new HashSet<Integer>(changed);
+        for (Object[] block : QueryUtils.blocks(changed))
+        {
+            TableRowIterator tri = DatabaseManager.queryTable(context, "group2groupcache",
+                    "SELECT * FROM group2groupcache WHERE child_id IN (" + QueryUtils.placeholders(block.length) + ")",
+                    block);
+            try
+            {
+                while (tri.hasNext())
+                {
+                    affected.add(tri.next().getIntColumn("parent_id"));
+                }
+            }
+            finally
+            {
+                tri.close();
+            }
+        }
+
+        // Read the subgroups of everything below the affected groups
+        Map<Integer, Set<Integer>> children = new HashMap<Integer, Set<Integer>>();
+        Set<Integer> frontier = new HashSet<Integer>(affected);
+        while (!frontier.isEmpty())
+        {
+            Set<Integer> next = new HashSet<Integer>();
+            for (Integer parent : frontier)
+            {
+                children.put(parent, new HashSet<Integer>());
+            }
+            for (Object[] block : QueryUtils.blocks(frontier))
+            {
+                TableRowIterator tri = DatabaseManager.queryTable(context, "group2group",
+                        "SELECT * FROM group2group WHERE parent_id IN (" + QueryUtils.placeholders(block.length) + ")",
+                        block);
+                try
+                {
+                    while (tri.hasNext())
+                    {
+                        TableRow row = tri.next();
+                        Integer childID = row.getIntColumn("child_id");
+                        children.get(row.getIntColumn("parent_id")).add(childID);
+                        if (!children.containsKey(childID))
+                        {
+                            next.add(childID);
+                        }
+                    }
+                }
+                finally
+                {
+                    tri.close();
+                }
+            }
+            frontier = next;
+        }
+
+        // The closure the affected groups should have
+        Map<Integer, Set<Integer>> closure = new HashMap<Integer, Set<Integer>>();
+        for (Integer parent : affected)
+        {
+            closure.put(parent, getDescendants(children, parent));
+        }
+
+        // Compare with the closure they do have
+        List<int[]> toDelete = new ArrayList<int[]>();
+        for (Object[] block : QueryUtils.blocks(affected))
+        {
+            TableRowIterator tri = DatabaseManager.queryTable(context, "group2groupcache",
+                    "SELECT * FROM group2groupcache WHERE parent_id IN (" + QueryUtils.placeholders(block.length) + ")",
+                    block);
+            try
+            {
+                while (tri.hasNext())
+                {
+                    TableRow row = tri.next();
+                    int parentID = row.getIntColumn("parent_id");
+                    int childID = row.getIntColumn("child_id");
+
+                    // Whatever is left in the closure afterwards is missing
+                    if (!closure.get(parentID).remove(childID))
+                    {
+                        toDelete.add(new int[] { parentID, childID });
+                    }
+                }
+            }
+            finally
+            {
+                tri.close();
+            }
+        }
+
+        List<int[]> toInsert = new ArrayList<int[]>();
+        for (Map.Entry<Integer, Set<Integer>> parent : closure.entrySet())
+        {
+            for (Integer child : parent.getValue())
+            {
+                toInsert.add(new int[] { parent.getKey(), child });
+            }
+        }
+
+        delete(context, toDelete);
+        insert(context, toInsert);
+
+        log.debug(LogManager.getHeader(context, "update_group_cache",
+                "groups=" + affected.size() + ",inserted=" + toInsert.size() + ",deleted=" + toDelete.size()));
+    }
+
+    /**
+     * Regenerate the whole cache from the group2group table.
+     *
+     * @param context
+     *            DSpace context object
+     * @throws SQLException
+     */
+    public static void rebuild(Context context) throws SQLException
+    {
+        // read in the group2group table
+        TableRowIterator tri = DatabaseManager.queryTable(context, "group2group",
+                "SELECT * FROM group2group");
+
+        Map<Integer, Set<Integer>> parents = new HashMap<Integer, Set<Integer>>();
+
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+
+                Integer parentID = Integer.valueOf(row.getIntColumn("parent_id"));
+                Integer childID = Integer.valueOf(row.getIntColumn("child_id"));
+
+                // if parent doesn't have an entry, create one
+                if (!parents.containsKey(parentID))
+                {
+                    parents.put(parentID, new HashSet<Integer>());
+                }
+                parents.get(parentID).add(childID);
+            }
+        }
+        finally
+        {
+            // close the TableRowIterator to free up resources
+            tri.close();
+        }
+
+        // now establish all parent,child relationships
+        List<int[]> pairs = new ArrayList<int[]>();
+        for (Integer parentID : parents.keySet())
+        {
+            for (Integer child : getDescendants(parents, parentID))
+            {
+                pairs.add(new int[] { parentID, child });
+            }
+        }
+
+        // empty out group2groupcache table
+        DatabaseManager.updateQuery(context,
+                "DELETE FROM group2groupcache WHERE id >= 0");
+
+        // write out new one
+        insert(context, pairs);
+
+        log.info(LogManager.getHeader(context, "rebuild_group_cache", "rows=" + pairs.size()));
+    }
+
+    /**
+     * Get all of the groups below a group, directly or through subgroups.
+     * Subgroups already visited are not followed again, so a loop of
+     * subgroups cannot recurse forever.
+     */
+    private static Set<Integer> getDescendants(Map<Integer, Set<Integer>> children, Integer parent)
+    {
+        Set<Integer> descendants = new HashSet<Integer>();
+        List<Integer> toVisit = new ArrayList<Integer>();
+        toVisit.add(parent);
+        while (!toVisit.isEmpty())
+        {
+            Set<Integer> subgroups = children.get(toVisit.remove(toVisit.size() - 1));
+            if (subgroups != null)
+            {
+                for (Integer child : subgroups)
+                {
+                    if (descendants.add(child))
+                    {
+                        toVisit.add(child);
+                    }
+                }
+            }
+        }
+        descendants.remove(parent);
+        return descendants;
+    }
+
+    /**
+     * Insert (parent_id, child_id) rows into the cache with one batched statement
+     */
+    private static void insert(Context context, List<int[]> pairs) throws SQLException
+    {
+        if (pairs.isEmpty())
+        {
+            return;
+        }
+
+        String nextID = DatabaseManager.isOracle() ? "group2groupcache_seq.nextval" : "getnextid('group2groupcache')";
+        executeBatch(context,
+                "INSERT INTO group2groupcache (id, parent_id, child_id) VALUES (" + nextID + ", ?, ?)",
+                pairs);
+    }
+
+    /**
+     * Delete (parent_id, child_id) rows from the cache with one batched statement
+     */
+    private static void delete(Context context, List<int[]> pairs) throws SQLException
+    {
+        if (pairs.isEmpty())
+        {
+            return;
+        }
+
+        executeBatch(context,
+                "DELETE FROM group2groupcache WHERE parent_id = ? AND child_id = ?",
+                pairs);
+    }
+
+    private static void executeBatch(Context context, String sql, List<int[]> pairs) throws SQLException
+    {
+        PreparedStatement statement = null;
+        try
+        {
+            statement = context.getDBConnection().prepareStatement(sql);
+            for (int[] pair : pairs)
+            {
+                statement.setInt(1, pair[0]);
+                statement.setInt(2, pair[1]);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        finally
+        {
+            if (statement != null)
+            {
+                try
+                {
+                    statement.close();
+                }
+                catch (SQLException sqle)
+                {
+                    log.error("SQL batch close Error - ", sqle);
+                }
+            }
+        }
+    }
+
+    /**
+     * Command line tool to rebuild the whole group2groupcache table from the
+     * group2group table, e.g. if it is suspected to be out of step.
+     *
+     * @param argv the command line arguments given
+     */
+    public static void main(String[] argv) throws Exception
+    {
+        CommandLineParser parser = new PosixParser();
+        Options options = new Options();
+        options.addOption("r", "rebuild", false, "rebuild the group2groupcache table from group2group");
+        options.addOption("h", "help", false, "help");
+
+        CommandLine line;
+        try
+        {
+            line = parser.parse(options, argv);
+        }
+        catch (ParseException pe)
+        {
+            System.err.println("Error parsing command line arguments: " + pe.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        if (line.hasOption('h') || !line.hasOption('r'))
+        {
+            new HelpFormatter().printHelp("Group2GroupCache -r\n", options);
+            System.exit(line.hasOption('h') ? 0 : 1);
+        }
+
+        Context context = new Context();
+        try
+        {
+            rebuild(context);
+            context.complete();
+            System.out.println("The group2groupcache table has been rebuilt");
+        }
+        finally
+        {
+            if (context.isValid())
+            {
+                context.abort();
+            }
+        }
+    }
+}
@@ -94,6 +94,18 @@ public class RDFConfiguration {
      * SPARQL endpoint is required.
      */
     public static final String STORAGE_SPARQL_PASSWORD_KEY = "rdf.storage.sparql.password";
+    /**
+     * Property key to load the address of the SPARQL 1.1 Update endpoint. If
+     * set, the RDFizer stores converted data in batches of several graphs per
+     * request instead of one Graph Store HTTP Protocol request per graph.
+     * Authentication uses the graph store credentials.
+     */
+    public static final String STORAGE_UPDATE_ENDPOINT_KEY = "rdf.storage.update.endpoint";
+    /**
+     * Property key to load the number of graphs to send in one batch to the
+     * SPARQL 1.1 Update endpoint.
+     */
+    public static final String STORAGE_BATCH_SIZE_KEY = "rdf.storage.batch-size";
     
     /**
      * Property key to load the URL of the dspace-rdf module. This is necessary
@@ -8,11 +8,27 @@
 
 package org.dspace.rdf;
 
+import com.hp.hpl.jena.graph.NodeFactory;
 import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.sparql.core.DatasetGraph;
+import com.hp.hpl.jena.sparql.core.DatasetGraphFactory;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.HelpFormatter;
@@ -21,18 +37,25 @@ import org.apache.commons.cli.OptionBuilder;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.PosixParser;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
 import org.apache.log4j.Logger;
 import org.dspace.authorize.AuthorizeException;
 import org.dspace.content.Collection;
 import org.dspace.content.Community;
+import org.dspace.content.DCDate;
 import org.dspace.content.DSpaceObject;
 import org.dspace.content.Item;
 import org.dspace.content.ItemIterator;
 import org.dspace.content.Site;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
+import org.dspace.eperson.EPerson;
 import org.dspace.handle.HandleManager;
+import org.dspace.rdf.storage.RDFBatchStorage;
+import org.dspace.rdf.storage.RDFStorage;
 import org.dspace.services.ConfigurationService;
 import org.dspace.utils.DSpace;
 
@@ -63,6 +86,38 @@ public class RDFizer {
      */
     protected Set<String> processed;
 
+    /**
+     * Number of Items to convert at once, each in a Context of its own.
+     */
+    protected int threads;
+
+    /**
+     * If set, Items not modified since this date are not converted again.
+     */
+    protected Date changedSince;
+
+    /**
+     * If set, the converted data is written to this stream as N-Quads instead
+     * of being sent to the triple store.
+     */
+    protected OutputStream nquads;
+
+    /**
+     * Converted data waiting to be sent to the triple store in one batch.
+     */
+    protected Map<String, Model> batch;
+
+    /**
+     * Converts Items on a pool of threads while a conversion is running with
+     * more than one thread, null otherwise.
+     */
+    protected ThreadPoolExecutor workers;
+
+    /**
+     * The first exception thrown while converting an Item on the pool.
+     */
+    protected volatile Exception workerFailure;
+
     public RDFizer() throws SQLException
     {
         this.configurationService = new DSpace().getConfigurationService();
@@ -70,8 +125,12 @@ public class RDFizer {
         this.verbose = false;
         this.dryrun = false;
         this.lang = "TURTLE";
-        this.processed = new CopyOnWriteArraySet<String>();
+        this.processed = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
         this.context = new Context(Context.READ_ONLY);
+        this.threads = 1;
+        this.changedSince = null;
+        this.nquads = null;
+        this.batch = new HashMap<String, Model>();
     }
     
     /**
@@ -148,6 +207,56 @@ public class RDFizer {
     public void setDryrun(boolean dryrun) {
         this.dryrun = dryrun;
     }
+
+    /**
+     * Returns the number of Items converted at once.
+     * @return 
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Set the number of Items to convert at once. Each Item is converted in a
+     * Context of its own, with the same user as the context of this RDFizer.
+     * Sites, Communities and Collections are always converted one after
+     * another.
+     * @param threads 
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Returns the date since which Items must have been modified to be 
+     * converted, or null if all Items are converted.
+     * @return 
+     */
+    public Date getChangedSince() {
+        return changedSince;
+    }
+
+    /**
+     * Set this to skip the conversion of Items whose last modification date
+     * is before the given date, g.e. the start of the previous conversion.
+     * Sites, Communities and Collections are always converted, as they have
+     * no modification date.
+     * @param changedSince The date or null to convert all Items.
+     */
+    public void setChangedSince(Date changedSince) {
+        this.changedSince = changedSince;
+    }
+
+    /**
+     * Set a stream to write all converted data to as N-Quads, each 
+     * DSpaceObject in its named graph, g.e. to bulk load it into the triple
+     * store. Nothing is sent to the triple store while this is set. The 
+     * stream is not closed by the RDFizer.
+     * @param nquads The stream, or null to store the data in the triple store.
+     */
+    public void setNQuadsOutput(OutputStream nquads) {
+        this.nquads = nquads;
+    }
     
     /**
      * Deletes all data stored in the triplestore (drops all named graphs and
@@ -240,63 +349,358 @@ public class RDFizer {
             protected void callback(DSpaceObject dso)
                     throws SQLException
             {
-                Model converted = null;
-                try
+                if (changedSince != null && dso instanceof Item)
                 {
-                    if (dryrun)
+                    Date lastModified = ((Item) dso).getLastModified();
+                    if (lastModified != null && lastModified.before(changedSince))
                     {
-                        converted = RDFUtil.convert(context, dso);
-                    } else {
-                        converted = RDFUtil.convertAndStore(context, dso);
+                        report("Skipping conversion of Item " + dso.getID()
+                                + " (handle " + dso.getHandle() + "): Item is "
+                                + "unchanged since " + new DCDate(changedSince) + ".");
+                        return;
                     }
-                } catch (ItemNotArchivedException ex) {
-                    if (!(dso instanceof Item)) throw new IllegalStateException(ex.getMessage(), ex);
-                    report("Skipping conversion of Item " + dso.getID() 
-                            + " (handle " + dso.getHandle() + "): Item is not "
-                            + "archived.");
-                    return;
-                } catch (ItemWithdrawnException ex) {
-                    if (!(dso instanceof Item)) throw new IllegalStateException(ex.getMessage(), ex);
-                    report("Skipping conversion of Item " + dso.getID() 
-                            + " (handle " + dso.getHandle() + "): Item is "
-                            + "withdrawn.");
-                    return;
-                } catch (ItemNotDiscoverableException ex) {
-                    if (!(dso instanceof Item)) throw new IllegalStateException(ex.getMessage(), ex);
-                    report("Skipping conversion of Item " + dso.getID() 
-                            + " (handle " + dso.getHandle() + "): Item is not "
-                            + "discoverable.");
-                    return;
-                } catch (AuthorizeException ex) {
-                    report("Skipping conversion of " + dso.getTypeText() + " " 
-                            + dso.getID() + " (handle " + dso.getHandle() + ")" 
-                            + ", not authorized: " + ex.getMessage());
+                }
+                if (workers != null && dso instanceof Item)
+                {
+                    submitItem(dso.getID());
                     return;
-                } catch (RDFMissingIdentifierException ex) {
-                    String errormessage = "Skipping conversion of " 
-                            + dso.getTypeText() + " " + dso.getID() 
-                            + " (handle " + dso.getHandle() + ").";
-                    log.error(errormessage, ex);
-                    System.err.println(errormessage 
-                            + " Error while converting: " + ex.getMessage());
-                    
+                }
+                convertObject(context, dso);
+            }
+        };
+        
+        this.startWorkers();
+        try
+        {
+            this.dspaceDFS(dso, callback, true, reset);
+        }
+        finally
+        {
+            this.finishWorkers();
+            this.flushBatch();
+        }
+    }
+
+    /**
+     * Converts a DSpaceObject and stores the converted data, reports the
+     * DSpaceObjects it has to skip.
+     */
+    protected void convertObject(Context context, DSpaceObject dso)
+            throws SQLException
+    {
+        Model converted = null;
+        String identifier = null;
+        try
+        {
+            converted = RDFUtil.convert(context, dso);
+            if (!dryrun || nquads != null)
+            {
+                identifier = RDFUtil.generateIdentifier(context, dso);
+                if (StringUtils.isEmpty(identifier))
+                {
+                    log.error("Cannot generate identifier for dso from type " 
+                            + dso.getTypeText() + " (id: " + dso.getID() + ").");
+                    if (converted != null) converted.close();
+                    throw new RDFMissingIdentifierException(dso.getType(), dso.getID());
+                }
+            }
+        } catch (ItemNotArchivedException ex) {
+            if (!(dso instanceof Item)) throw new IllegalStateException(ex.getMessage(), ex);
+            report("Skipping conversion of Item " + dso.getID() 
+                    + " (handle " + dso.getHandle() + "): Item is not "
+                    + "archived.");
+            return;
+        } catch (ItemWithdrawnException ex) {
+            if (!(dso instanceof Item)) throw new IllegalStateException(ex.getMessage(), ex);
+            report("Skipping conversion of Item " + dso.getID() 
+                    + " (handle " + dso.getHandle() + "): Item is "
+                    + "withdrawn.");
+            return;
+        } catch (ItemNotDiscoverableException ex) {
+            if (!(dso instanceof Item)) throw new IllegalStateException(ex.getMessage(), ex);
+            report("Skipping conversion of Item " + dso.getID() 
+                    + " (handle " + dso.getHandle() + "): Item is not "
+                    + "discoverable.");
+            return;
+        } catch (AuthorizeException ex) {
+            report("Skipping conversion of " + dso.getTypeText() + " " 
+                    + dso.getID() + " (handle " + dso.getHandle() + ")" 
+                    + ", not authorized: " + ex.getMessage());
+            return;
+        } catch (RDFMissingIdentifierException ex) {
+            String errormessage = "Skipping conversion of " 
+                    + dso.getTypeText() + " " + dso.getID() 
+                    + " (handle " + dso.getHandle() + ").";
+            log.error(errormessage, ex);
+            System.err.println(errormessage 
+                    + " Error while converting: " + ex.getMessage());
+            
+            return;
+        }
+            
+        if (stdout) {
+            if (converted == null)
+            {
+                System.err.println("Conversion of " + dso.getTypeText() 
+                        + " " + dso.getID() + " resulted in no data.");
+            } else {
+                synchronized (System.out)
+                {
+                    converted.write(System.out, lang);
+                }
+            }
+        }
+        if (identifier != null && store(identifier, converted))
+        {
+            // the model is closed once its batch is stored.
+            return;
+        }
+        if (converted != null) converted.close();
+    }
+
+    /**
+     * Writes converted data to the N-Quads output, or sends it to the triple
+     * store, either directly or as part of a batch.
+     * @param identifier URI of the converted DSpaceObject.
+     * @param converted The converted data, null if the conversion resulted in
+     *                  no data.
+     * @return true if the model was added to a batch and must not be closed.
+     */
+    protected boolean store(String identifier, Model converted)
+    {
+        if (nquads != null)
+        {
+            if (converted != null)
+            {
+                writeNQuads(identifier, converted);
+            }
+            return false;
+        }
+
+        RDFStorage storage = RDFConfiguration.getRDFStorage();
+        if (converted == null)
+        {
+            // if data about this dso is stored in the triplestore already, we 
+            // should remove it as a conversion currently result in no data
+            storage.delete(identifier);
+            return false;
+        }
+        int batchSize = configurationService.getPropertyAsType(
+                RDFConfiguration.STORAGE_BATCH_SIZE_KEY, 50);
+        if (!(storage instanceof RDFBatchStorage) || batchSize <= 1)
+        {
+            storage.store(identifier, converted);
+            return false;
+        }
+
+        Map<String, Model> full = null;
+        synchronized (this)
+        {
+            batch.put(identifier, converted);
+            if (batch.size() >= batchSize)
+            {
+                full = batch;
+                batch = new HashMap<String, Model>();
+            }
+        }
+        if (full != null)
+        {
+            storeBatch(full);
+        }
+        return true;
+    }
+
+    /**
+     * Sends the converted data still waiting in the current batch to the
+     * triple store.
+     */
+    protected void flushBatch()
+    {
+        Map<String, Model> rest;
+        synchronized (this)
+        {
+            rest = batch;
+            batch = new HashMap<String, Model>();
+        }
+        if (!rest.isEmpty())
+        {
+            storeBatch(rest);
+        }
+    }
+
+    protected void storeBatch(Map<String, Model> models)
+    {
+        try
+        {
+            ((RDFBatchStorage) RDFConfiguration.getRDFStorage()).storeAll(models);
+            report("Stored a batch of " + models.size() + " graphs.");
+        }
+        finally
+        {
+            for (Model model : models.values())
+            {
+                model.close();
+            }
+        }
+    }
+
+    protected void writeNQuads(String identifier, Model converted)
+    {
+        DatasetGraph dataset = DatasetGraphFactory.createMem();
+        dataset.addGraph(NodeFactory.createURI(identifier), converted.getGraph());
+        // serialize outside the lock, so workers only wait for each other
+        // while copying bytes.
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        RDFDataMgr.write(buffer, dataset, Lang.NQUADS);
+        synchronized (nquads)
+        {
+            try
+            {
+                buffer.writeTo(nquads);
+            }
+            catch (IOException ex)
+            {
+                throw new RuntimeException("Cannot write N-Quads: " 
+                        + ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * Starts the pool of threads to convert Items on, if this RDFizer is set
+     * to use more than one thread.
+     */
+    protected void startWorkers()
+    {
+        if (threads <= 1 || workers != null)
+        {
+            return;
+        }
+        // initialize the shared converter, URI generator and storage before 
+        // any worker uses them.
+        RDFConfiguration.getRDFConverter();
+        RDFConfiguration.getURIGenerator();
+        if (!dryrun && nquads == null)
+        {
+            RDFConfiguration.getRDFStorage();
+        }
+        workerFailure = null;
+        // Bounded queue: when full, the caller converts the Item itself, which
+        // keeps it from walking far ahead of the workers.
+        workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(threads * 4), 
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Converts an Item on the pool of threads, in a read-only Context with
+     * the same user and authorization state as the context of this RDFizer.
+     */
+    protected void submitItem(final int itemID)
+    {
+        if (workerFailure != null)
+        {
+            return;
+        }
+        final int userID = context.getCurrentUser() == null ? -1 
+                : context.getCurrentUser().getID();
+        final boolean ignoreAuthorization = context.ignoreAuthorization();
+        workers.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if (workerFailure != null)
+                {
                     return;
                 }
-                    
-                if (stdout) {
-                    if (converted == null)
+                Context itemContext = null;
+                try
+                {
+                    itemContext = new Context(Context.READ_ONLY);
+                    if (userID != -1)
                     {
-                        System.err.println("Conversion of " + dso.getTypeText() 
-                                + " " + dso.getID() + " resulted in no data.");
-                    } else {
-                        converted.write(System.out, lang);
+                        itemContext.setCurrentUser(EPerson.find(itemContext, userID));
+                    }
+                    if (ignoreAuthorization)
+                    {
+                        itemContext.turnOffAuthorisationSystem();
+                    }
+                    Item item = Item.find(itemContext, itemID);
+                    if (item != null)
+                    {
+                        convertObject(itemContext, item);
+                    }
+                }
+                catch (Exception ex)
+                {
+                    log.error("Conversion of Item " + itemID + " failed.", ex);
+                    synchronized (RDFizer.this)
+                    {
+                        if (workerFailure == null)
+                        {
+                            workerFailure = ex;
+                        }
+                    }
+                }
+                finally
+                {
+                    // we don't change anything in the database.
+                    if (itemContext != null && itemContext.isValid())
+                    {
+                        itemContext.abort();
                     }
                 }
-                if (converted != null) converted.close();
             }
-        };
-        
-        this.dspaceDFS(dso, callback, true, reset);
+        });
+    }
+
+    /**
+     * Waits for the Items submitted to the pool of threads to be converted.
+     * @throws SQLException if the conversion of an Item failed with one.
+     */
+    protected void finishWorkers()
+            throws SQLException
+    {
+        if (workers == null)
+        {
+            return;
+        }
+        workers.shutdown();
+        try
+        {
+            while (!workers.awaitTermination(1, TimeUnit.MINUTES))
+            {
+                report("Waiting for " + (workers.getActiveCount() 
+                        + workers.getQueue().size()) + " Items, " 
+                        + workers.getCompletedTaskCount() + " converted.");
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while converting Items.", ex);
+        }
+        finally
+        {
+            workers = null;
+        }
+
+        Exception failure = workerFailure;
+        workerFailure = null;
+        if (failure instanceof SQLException)
+        {
+            throw (SQLException) failure;
+        }
+        else if (failure instanceof RuntimeException)
+        {
+            throw (RuntimeException) failure;
+        }
+        else if (failure != null)
+        {
+            throw new IllegalStateException(failure.getMessage(), failure);
+        }
     }
     
     protected void dspaceDFS(DSpaceObject dso, Callback callback, boolean check, boolean reset)
@@ -502,6 +906,20 @@ public class RDFizer {
         {
             setStdout(true);
         }
+
+        if (line.hasOption("threads"))
+        {
+            try
+            {
+                setThreads(Integer.parseInt(line.getOptionValue("threads")));
+            }
+            catch (NumberFormatException ex)
+            {
+                usage(options);
+                System.err.println("\n\nThe option --threads requires a number.");
+                System.exit(1);
+            }
+        }
                 
         // check mutual exclusive arguments
         if (line.hasOption("delete") && line.hasOption("delete-all"))
@@ -536,6 +954,22 @@ public class RDFizer {
                     + "with --delete or --deleta-all.");
             System.exit(1);
         }
+        if ((line.hasOption("nquads") || line.hasOption("incremental"))
+                && (line.hasOption("delete") || line.hasOption("delete-all")))
+        {
+            usage(options);
+            System.err.println("\n\nYou cannot use the options --nquads or "
+                    + "--incremental together with --delete or --delete-all.");
+            System.exit(1);
+        }
+        if (line.hasOption("incremental") && line.hasOption("identifiers"))
+        {
+            // The timestamp would claim everything got converted
+            usage(options);
+            System.err.println("\n\nYou cannot use the option --incremental "
+                    + "together with --identifiers, only with --convert-all.");
+            System.exit(1);
+        }
 
         // Run commands depending on CLI arguments.
         // process help first to prevent further evaluation of given options.
@@ -600,6 +1034,43 @@ public class RDFizer {
             System.exit(0);
         }
         
+        if (!line.hasOption("identifiers") && !line.hasOption("convert-all"))
+        {
+            usage(options);
+            System.exit(0);
+        }
+
+        File incremental = null;
+        Date started = new Date();
+        if (line.hasOption("incremental"))
+        {
+            incremental = new File(line.getOptionValue("incremental"));
+            setChangedSince(readTimestamp(incremental));
+            if (getChangedSince() != null)
+            {
+                report("Converting Items changed since " 
+                        + new DCDate(getChangedSince()) + " only.");
+            }
+        }
+
+        OutputStream nquadsOut = null;
+        if (line.hasOption("nquads"))
+        {
+            try
+            {
+                nquadsOut = new BufferedOutputStream(new FileOutputStream(
+                        line.getOptionValue("nquads")));
+            }
+            catch (IOException ex)
+            {
+                log.error(ex);
+                System.err.println("Cannot open " + line.getOptionValue("nquads")
+                        + ": " + ex.getMessage());
+                System.exit(1);
+            }
+            setNQuadsOutput(nquadsOut);
+        }
+
         if (line.hasOption("identifiers"))
         {
             String[] identifiers = line.getOptionValues("identifiers");
@@ -633,10 +1104,8 @@ public class RDFizer {
                 }
             }
             report("Conversion ended.");
-            System.exit(0);
         }
-
-        if (line.hasOption("convert-all"))
+        else
         {
             try {
                 this.convertAll();
@@ -650,13 +1119,62 @@ public class RDFizer {
                 ex.printStackTrace(System.err);
                 System.exit(1);
             }
-            System.exit(0);
         }
-        
-        usage(options);
+
+        try
+        {
+            if (nquadsOut != null)
+            {
+                nquadsOut.close();
+            }
+            // only remember the start of this run once everything got 
+            // converted, the next run converts all Items changed since.
+            if (incremental != null && (!this.dryrun || nquadsOut != null))
+            {
+                FileUtils.writeStringToFile(incremental, 
+                        new DCDate(started).toString(), "UTF-8");
+            }
+        }
+        catch (IOException ex)
+        {
+            log.error(ex);
+            System.err.println(ex.getMessage());
+            System.exit(1);
+        }
         System.exit(0);
     }
 
+    /**
+     * Reads the start of the previous conversion from the file used by the 
+     * option --incremental.
+     * @return The date or null if the file does not exist yet.
+     */
+    protected Date readTimestamp(File file)
+    {
+        if (!file.exists())
+        {
+            return null;
+        }
+        try
+        {
+            String timestamp = FileUtils.readFileToString(file, "UTF-8").trim();
+            Date date = new DCDate(timestamp).toDate();
+            if (date == null)
+            {
+                System.err.println("Cannot read the date in " + file 
+                        + ", converting all Items.");
+            }
+            return date;
+        }
+        catch (IOException ex)
+        {
+            log.error(ex);
+            System.err.println("Cannot read " + file + ": " + ex.getMessage());
+            System.exit(1);
+            return null;
+        }
+    }
+
     protected DSpaceObject resolveHandle(String handle)
     {
         DSpaceObject dso = null;
@@ -731,6 +1249,33 @@ public class RDFizer {
                     + "space.")
             .create('i');
         options.addOption(optIdentifiers);
+
+        Option optThreads = OptionBuilder.withLongOpt("threads")
+            .hasArg()
+            .withArgName("number")
+            .withDescription("Convert this many Items at once. Default is 1.")
+            .create('t');
+        options.addOption(optThreads);
+
+        Option optIncremental = OptionBuilder.withLongOpt("incremental")
+            .hasArg()
+            .withArgName("file")
+            .withDescription("Only convert Items modified since the last run "
+                    + "using the same file. The start of each run is stored "
+                    + "in this file once the conversion ended. Communities "
+                    + "and Collections are always converted. Can only be "
+                    + "used with --convert-all.")
+            .create();
+        options.addOption(optIncremental);
+
+        Option optNQuads = OptionBuilder.withLongOpt("nquads")
+            .hasArg()
+            .withArgName("file")
+            .withDescription("Write the converted data to this file as "
+                    + "N-Quads, g.e. to bulk load it into the triple store, "
+                    + "instead of sending it to the triple store.")
+            .create();
+        options.addOption(optNQuads);
         
         Option optDelete = OptionBuilder.withLongOpt("delete")
                 .hasArgs()
@@ -762,6 +1307,7 @@ public class RDFizer {
         String header = "";
         String footer = "\nYou cannot use the options --convert-all, --identifiers " +
                 "or --stdout together with --delete or --delete-all.\n" +
+                "You can use the option --incremental only with --convert-all.\n" +
                 "Please use at least one option out of --convert-all, --delete, " +
                 "--delete-all or --identifiers.\n";
         
@@ -0,0 +1,29 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+
+package org.dspace.rdf.storage;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import java.util.Map;
+
+/**
+ * An {@link RDFStorage} that can store several graphs at once. Used by the
+ * {@link org.dspace.rdf.RDFizer RDFizer} to cut down the number of requests
+ * to the triple store when converting many DSpaceObjects.
+ */
+public interface RDFBatchStorage extends RDFStorage {
+    /**
+     * Store several models, each replacing the graph named by its URI.
+     * Don't use this method directly, use the
+     * {@link org.dspace.rdf.RDFizer RDFizer} instead.
+     * @param models The models to store, by URI.
+     * @see #store(String, Model)
+     */
+    void storeAll(Map<String, Model> models);
+}
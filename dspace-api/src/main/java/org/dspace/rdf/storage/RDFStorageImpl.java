@@ -17,13 +17,22 @@ import com.hp.hpl.jena.query.QueryExecution;
 import com.hp.hpl.jena.query.QueryExecutionFactory;
 import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.sparql.core.Quad;
+import com.hp.hpl.jena.sparql.modify.request.QuadDataAcc;
+import com.hp.hpl.jena.sparql.modify.request.UpdateDataInsert;
+import com.hp.hpl.jena.sparql.modify.request.UpdateDrop;
+import com.hp.hpl.jena.update.UpdateExecutionFactory;
+import com.hp.hpl.jena.update.UpdateRequest;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
 import com.hp.hpl.jena.sparql.core.DatasetGraph;
 import com.hp.hpl.jena.update.GraphStore;
 import com.hp.hpl.jena.update.GraphStoreFactory;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import org.apache.commons.lang.StringUtils;
 import org.apache.jena.atlas.web.auth.HttpAuthenticator;
 import org.apache.jena.atlas.web.auth.SimpleAuthenticator;
@@ -39,7 +48,7 @@ import org.dspace.utils.DSpace;
  * @author Pascal-Nicolas Becker (dspace -at- pascal -hyphen- becker -dot- de)
  */
 public class RDFStorageImpl
-implements RDFStorage
+implements RDFBatchStorage
 {
     private static final Logger log = Logger.getLogger(RDFStorageImpl.class);
     
@@ -49,6 +58,7 @@ implements RDFStorage
     private final String SPARQL_ENDPOINT;
     private final String SPARQL_LOGIN;
     private final String SPARQL_PASSWORD;
+    private final String UPDATE_ENDPOINT;
     
     private ConfigurationService configurationService;
     
@@ -121,6 +131,11 @@ implements RDFStorage
             this.SPARQL_LOGIN = sparql_login;
             this.SPARQL_PASSWORD = sparql_password;
         }
+
+        String update_endpoint = this.configurationService.getProperty(
+                RDFConfiguration.STORAGE_UPDATE_ENDPOINT_KEY);
+        this.UPDATE_ENDPOINT = StringUtils.isEmpty(update_endpoint) ? null
+                : update_endpoint;
     }
     
     @Override
@@ -134,6 +149,57 @@ implements RDFStorage
         accessor.httpPut(graphNode, g);
     }
     
+    @Override
+    public void storeAll(Map<String, Model> models)
+    {
+        if (this.UPDATE_ENDPOINT == null)
+        {
+            for (Map.Entry<String, Model> entry : models.entrySet())
+            {
+                this.store(entry.getKey(), entry.getValue());
+            }
+            return;
+        }
+        if (models.isEmpty())
+        {
+            return;
+        }
+
+        // replace all graphs in one SPARQL Update request: drop each graph
+        // and insert its new content.
+        UpdateRequest request = new UpdateRequest();
+        for (Map.Entry<String, Model> entry : models.entrySet())
+        {
+            Node graphNode = NodeFactory.createURI(entry.getKey());
+            request.add(new UpdateDrop(graphNode, true));
+            List<Quad> quads = new ArrayList<Quad>();
+            ExtendedIterator<Triple> triples = entry.getValue().getGraph().find(
+                    Node.ANY, Node.ANY, Node.ANY);
+            try
+            {
+                while (triples.hasNext())
+                {
+                    quads.add(new Quad(graphNode, triples.next()));
+                }
+            }
+            finally
+            {
+                triples.close();
+            }
+            request.add(new UpdateDataInsert(new QuadDataAcc(quads)));
+        }
+
+        if (this.GRAPHSTORE_LOGIN != null)
+        {
+            HttpAuthenticator httpAuthenticator = new SimpleAuthenticator(
+                    GRAPHSTORE_LOGIN, GRAPHSTORE_PASSWORD.toCharArray());
+            UpdateExecutionFactory.createRemote(request, UPDATE_ENDPOINT,
+                    httpAuthenticator).execute();
+        } else {
+            UpdateExecutionFactory.createRemote(request, UPDATE_ENDPOINT).execute();
+        }
+    }
+    
     public Model load(String uri)
     {
         Node graphNode = NodeFactory.createURI(uri);
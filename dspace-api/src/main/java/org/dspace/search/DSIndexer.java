@@ -16,6 +16,7 @@ import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.index.*;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.Bits;
@@ -55,6 +56,11 @@ import java.util.*;
  * repeats regularly, a failed attempt to index from the UI will be "caught" up
  * on in that cron.
  *
+ * Within a JVM, the index is written through one long-lived IndexWriter and
+ * searched through near-real-time readers of it, which are refreshed and
+ * committed in the background (see SearchIndex). The writer is closed when
+ * idle, so that other processes can attain the lock.
+ *
  * @author Mark Diggory
  * @author Graham Triggs
  * 
@@ -196,14 +202,25 @@ public class DSIndexer
          */
         try
         {
-            if (!DirectoryReader.indexExists(FSDirectory.open(new File(indexDirectory))))
+            Directory dir = FSDirectory.open(new File(indexDirectory));
+            try
             {
-
-                if (!new File(indexDirectory).mkdirs())
+                if (!DirectoryReader.indexExists(dir))
                 {
-                    log.error("Unable to create index directory: " + indexDirectory);
+
+                    if (!new File(indexDirectory).mkdirs())
+                    {
+                        log.error("Unable to create index directory: " + indexDirectory);
+                    }
+                    IndexWriter writer = openIndex(true);
+                    Directory writerDir = writer.getDirectory();
+                    writer.close();
+                    writerDir.close();
                 }
-                openIndex(true).close();
+            }
+            finally
+            {
+                dir.close();
             }
         }
         catch (IOException e)
@@ -342,8 +359,8 @@ public class DSIndexer
     public static void createIndex(Context c) throws SQLException, IOException
     {
 
-    	/* Create a new index, blowing away the old. */
-        openIndex(true).close();
+    	/* Start a new, empty index, blowing away the old content. */
+        SearchIndex.create();
 
         /* Reindex all content preemptively. */
         DSIndexer.updateIndex(c, true);
@@ -359,21 +376,13 @@ public class DSIndexer
      */
     public static void optimizeIndex(Context c) throws SQLException, IOException
     {
-        IndexWriter writer = openIndex(false);
-
-        try
-        {
-            flushIndexingTaskQueue(writer);
-            //With lucene 4.0 this method has been deleted , as it is horribly inefficient and very
-            //rarely justified. Lucene's multi-segment search performance has improved
-            //over time, and the default TieredMergePolicy now targets segments with
-            //deletions. For more info see http://blog.trifork.com/2011/11/21/simon-says-optimize-is-bad-for-you/
-            //writer.optimize();
-        }
-        finally
-        {
-            writer.close();
-        }
+        flushIndexingTaskQueue();
+        //With lucene 4.0 this method has been deleted , as it is horribly inefficient and very
+        //rarely justified. Lucene's multi-segment search performance has improved
+        //over time, and the default TieredMergePolicy now targets segments with
+        //deletions. For more info see http://blog.trifork.com/2011/11/21/simon-says-optimize-is-bad-for-you/
+        //writer.optimize();
+        SearchIndex.commit();
     }
 
     /**
@@ -478,6 +487,7 @@ public class DSIndexer
         finally
         {
             setBatchProcessingMode(false);
+            SearchIndex.close();
             Date endTime = new Date();
             System.out.println("Started: " + startTime.getTime());
             System.out.println("Ended: " + endTime.getTime());
@@ -501,10 +511,8 @@ public class DSIndexer
      * them in the index. Uses decaching to control memory footprint.
      * Uses indexContent and isStale to check state of item in index.
      *
-     * At first it may appear counterintuitive to have an IndexWriter/Reader
-     * opened and closed on each DSO. But this allows the UI processes
-     * to step in and attain a lock and write to the index even if other
-     * processes/jvms are running a reindex.
+     * The shared IndexWriter is committed regularly while the reindex
+     * runs, and is only closed once it goes idle.
      *
      * @param context
      * @param force
@@ -560,39 +568,47 @@ public class DSIndexer
      */
     public static void cleanIndex(Context context) throws IOException, SQLException {
 
-    	IndexReader reader = DSQuery.getIndexReader();
-    	
-    	Bits liveDocs = MultiFields.getLiveDocs(reader);
-    	  
-    	for(int i = 0 ; i < reader.numDocs(); i++)
-    	{
-    	    if (!liveDocs.get(i))
-    		{         
-    	        // document is deleted...
-    	        log.debug("Encountered deleted doc: " + i);
-    		}
-    	    else {
-                Document doc = reader.document(i);
-        		String handle = doc.get("handle");
-                if (!StringUtils.isEmpty(handle))
-                {
-                    DSpaceObject o = HandleManager.resolveToObject(context, handle);
+        IndexSearcher searcher = SearchIndex.acquireSearcher();
+        try
+        {
+            IndexReader reader = searcher.getIndexReader();
 
-                    if (o == null)
-                    {
-                        log.info("Deleting: " + handle);
-                        /* Use IndexWriter to delete, its easier to manage write.lock */
-                        DSIndexer.unIndexContent(context, handle);
-                    }
-                    else
+            Bits liveDocs = MultiFields.getLiveDocs(reader);
+
+            for(int i = 0 ; i < reader.numDocs(); i++)
+            {
+                if (!liveDocs.get(i))
+                {
+                    // document is deleted...
+                    log.debug("Encountered deleted doc: " + i);
+                }
+                else {
+                    Document doc = reader.document(i);
+                    String handle = doc.get("handle");
+                    if (!StringUtils.isEmpty(handle))
                     {
-                        context.removeCached(o, o.getID());
-                        log.debug("Keeping: " + handle);
+                        DSpaceObject o = HandleManager.resolveToObject(context, handle);
+
+                        if (o == null)
+                        {
+                            log.info("Deleting: " + handle);
+                            /* Use IndexWriter to delete, its easier to manage write.lock */
+                            DSIndexer.unIndexContent(context, handle);
+                        }
+                        else
+                        {
+                            context.removeCached(o, o.getID());
+                            log.debug("Keeping: " + handle);
+                        }
                     }
                 }
-    		}    		
-    	}
-	}
+            }
+        }
+        finally
+        {
+            SearchIndex.releaseSearcher(searcher);
+        }
+    }
 
 	/**
      * Get the Lucene analyzer to use according to current configuration (or
@@ -689,11 +705,9 @@ public class DSIndexer
         }
         else
         {
-            IndexWriter writer = null;
             try
             {
-                writer = openIndex(false);
-                executeIndexingTask(writer, task);
+                executeIndexingTask(task);
             }
             finally
             {
@@ -701,23 +715,11 @@ public class DSIndexer
                 {
                     closeAllReaders(task.getDocument());
                 }
-
-                if (writer != null)
-                {
-                    try
-                    {
-                        writer.close();
-                    }
-                    catch (IOException e)
-                    {
-                        log.error("Unable to close IndexWriter", e);
-                    }
-                }
             }
         }
     }
 
-    private static void executeIndexingTask(IndexWriter writer, IndexingTask action) throws IOException
+    private static void executeIndexingTask(IndexingTask action) throws IOException
     {
         if (action != null)
         {
@@ -725,16 +727,16 @@ public class DSIndexer
             {
                 if (action.getDocument() != null)
                 {
-                    writer.updateDocument(action.getTerm(), action.getDocument());
+                    SearchIndex.updateDocument(action.getTerm(), action.getDocument());
                 }
                 else
                 {
-                    writer.deleteDocuments(action.getTerm());
+                    SearchIndex.deleteDocuments(action.getTerm());
                 }
             }
             else
             {
-                writer.updateDocument(action.getTerm(), action.getDocument());
+                SearchIndex.updateDocument(action.getTerm(), action.getDocument());
             }
         }
     }
@@ -753,45 +755,13 @@ public class DSIndexer
         }
     }
 
-    static void flushIndexingTaskQueue()
-    {
-        if (queuedTaskMap.size() > 0)
-        {
-            IndexWriter writer = null;
-
-            try
-            {
-                writer = openIndex(false);
-                flushIndexingTaskQueue(writer);
-            }
-            catch (IOException e)
-            {
-                log.error(e);
-            }
-            finally
-            {
-                if (writer != null)
-                {
-                    try
-                    {
-                        writer.close();
-                    }
-                    catch (IOException ex)
-                    {
-                        log.error(ex);
-                    }
-                }
-            }
-        }
-    }
-
-    private static synchronized void flushIndexingTaskQueue(IndexWriter writer)
+    static synchronized void flushIndexingTaskQueue()
     {
         for (IndexingTask action : queuedTaskMap.values())
         {
             try
             {
-                executeIndexingTask(writer, action);
+                executeIndexingTask(action);
             }
             catch (IOException e)
             {
@@ -867,38 +837,47 @@ public class DSIndexer
     throws SQLException, IOException
     {
 
-		boolean reindexItem = false;
-		boolean inIndex = false;
+        boolean reindexItem = false;
+        boolean inIndex = false;
 
-		IndexReader ir = DSQuery.getIndexReader();
-		Bits liveDocs = MultiFields.getLiveDocs(ir);
-		DocsEnum docs = MultiFields.getTermDocsEnum(ir, liveDocs, t.field(), t.bytes());
-
-		int id;
-        if (docs != null)
+        IndexSearcher searcher = SearchIndex.acquireSearcher();
+        try
         {
-            while ((id = docs.nextDoc()) != DocsEnum.NO_MORE_DOCS)
+            IndexReader ir = searcher.getIndexReader();
+            Bits liveDocs = MultiFields.getLiveDocs(ir);
+            DocsEnum docs = MultiFields.getTermDocsEnum(ir, liveDocs, t.field(), t.bytes());
+
+            int id;
+            if (docs != null)
             {
-                inIndex = true;
-                Document doc = ir.document(id);
+                while ((id = docs.nextDoc()) != DocsEnum.NO_MORE_DOCS)
+                {
+                    inIndex = true;
+                    Document doc = ir.document(id);
 
-                IndexableField lastIndexed = doc.getField(LAST_INDEXED_FIELD);
+                    IndexableField lastIndexed = doc.getField(LAST_INDEXED_FIELD);
 
-                if (lastIndexed == null
-                        || Long.parseLong(lastIndexed.stringValue()) < lastModified
-                                .getTime())
-                {
-                    reindexItem = true;
+                    if (lastIndexed == null
+                            || Long.parseLong(lastIndexed.stringValue()) < lastModified
+                                    .getTime())
+                    {
+                        reindexItem = true;
+                    }
                 }
             }
         }
-		return reindexItem || !inIndex;
-	}
+        finally
+        {
+            SearchIndex.releaseSearcher(searcher);
+        }
+        return reindexItem || !inIndex;
+    }
 
     /**
-     * prepare index, opening writer, and wiping out existing index if necessary
+     * prepare index, opening writer, and wiping out existing index if necessary.
+     * Closing the writer does not close its directory.
      */
-    private static IndexWriter openIndex(boolean wipeExisting)
+    static IndexWriter openIndex(boolean wipeExisting)
             throws IOException
     {
         Directory dir = FSDirectory.open(new File(indexDirectory));
@@ -7,7 +7,6 @@
  */
 package org.dspace.search;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
@@ -16,8 +15,6 @@ import java.util.List;
 
 import org.apache.log4j.Logger;
 import org.apache.lucene.document.Document;
-import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.queryparser.classic.TokenMgrError;
@@ -27,8 +24,6 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TopDocs;
-import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.Version;
 import org.dspace.content.Collection;
 import org.dspace.content.Community;
@@ -64,15 +59,8 @@ public class DSQuery
 
     static final String COMMUNITY = "" + Constants.COMMUNITY;
 
-    // cache a Lucene IndexSearcher for more efficient searches
-    private static IndexSearcher searcher = null;
-
-    private static String indexDir = null;
-    
     private static String operator = null;
     
-    private static long lastModified;
-    
     /** log4j logger */
     private static Logger log = Logger.getLogger(DSQuery.class);
 
@@ -85,8 +73,6 @@ public class DSQuery
             BooleanQuery.setMaxClauseCount(Integer.parseInt(maxClauses));
         } 
         
-        indexDir = ConfigurationManager.getProperty("search.dir");
-        
         operator = ConfigurationManager.getProperty("search.operator");   
     }
 
@@ -122,13 +108,14 @@ public class DSQuery
         querystring = stripHandles(querystring); // remove handles from query string
         querystring = stripAsterisk(querystring); // remove asterisk from beginning of string
 
+        IndexSearcher searcher = null;
         try
         {
             // calculate execution time 
             Date startTime = new Date();
             
             // grab a searcher, and do the search
-            IndexSearcher searcher = getSearcher(c);
+            searcher = SearchIndex.acquireSearcher();
 
             QueryParser qp = new QueryParser(DSIndexer.luceneVersion, "default", DSIndexer.getAnalyzer());
             log.debug("Final query string: " + querystring);
@@ -218,6 +205,10 @@ public class DSQuery
             log.warn(LogManager.getHeader(c, "Query too broad", e.toString()));
             qr.setErrorMsg("query-too-broad");
         }
+        finally
+        {
+            SearchIndex.releaseSearcher(searcher);
+        }
 
         return qr;
     }
@@ -396,22 +387,12 @@ public class DSQuery
     }
 
     /**
-     * Close any IndexSearcher that is currently open.
+     * Close the index searchers (and any index writer) held open by this JVM.
+     * Searches still running keep theirs until they finish.
      */
-    public static synchronized void close()
+    public static void close()
     {
-        if (searcher != null)
-        {
-            try
-            {
-                searcher.getIndexReader().close();                
-                searcher = null;
-            }
-            catch (IOException ioe)
-            {
-                log.error("DSQuery: Unable to close open IndexSearcher", ioe);
-            }
-        }
+        SearchIndex.close();
     }
     
     public static void main(String[] args)
@@ -421,67 +402,6 @@ public class DSQuery
             DSQuery.doCMDLineQuery(args[0]);
         }
     }
-
-    /*---------  protected methods ----------*/
-
-    /**	
-     * get an IndexReader.
-     * @throws IOException 
-     */
-    protected static IndexReader getIndexReader() 
-    	throws IOException
-    {
-    	return getSearcher(null).getIndexReader();
-    }
-    
-    /**
-     * get an IndexSearcher, hopefully a cached one (gives much better
-     * performance.) checks to see if the index has been modified - if so, it
-     * creates a new IndexSearcher
-     */
-    protected static synchronized IndexSearcher getSearcher(Context c)
-            throws IOException
-    {
-       
-        // If we have already opened a searcher, check to see if the index has been updated
-        // If it has, we need to close the existing searcher - we will open a new one later
-
-        Directory searchDir = FSDirectory.open(new File(indexDir));
-        DirectoryReader reader = DirectoryReader.open(searchDir);
-        if (searcher != null && lastModified != reader.getVersion())
-        {
-            try
-            {
-                // Close the cached IndexSearcher
-                searcher.getIndexReader().close();
-            }
-            catch (IOException ioe)
-            {
-                // Index is probably corrupt. Log the error, but continue to either:
-                // 1) Return existing searcher (may yet throw exception, no worse than throwing here)
-                log.warn("DSQuery: Unable to check for updated index", ioe);
-            }
-            finally
-            {
-            	searcher = null;
-            }
-        }
-
-        // There is no existing searcher - either this is the first execution,
-        // or the index has been updated and we closed the old index.
-        if (searcher == null)
-        {                        
-            // So, open a new searcher
-            lastModified = reader.getVersion();         
-            searcher = new IndexSearcher(reader);
-            
-        } else {
-            reader.close();
-            searchDir.close();
-        }
-
-        return searcher;
-    }
 }
 
 // it's now up to the display page to do the right thing displaying
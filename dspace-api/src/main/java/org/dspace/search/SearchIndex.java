@@ -0,0 +1,379 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.dspace.core.ConfigurationManager;
+
+/**
+ * Holds the Lucene index open for the whole JVM: one IndexWriter shared by
+ * all indexing, and a SearcherManager handing out searchers to DSQuery.
+ * <P>
+ * While this JVM has the writer open, searchers are near-real-time readers
+ * of the writer, so changes become searchable without being committed. A
+ * background thread refreshes the searchers every
+ * <code>search.index.refresh-interval</code> milliseconds, commits the
+ * writer every <code>search.index.commit-interval</code> milliseconds, and
+ * closes it once nothing has been written for
+ * <code>search.index.writer-idle</code> milliseconds, releasing the index
+ * write lock for other processes (e.g. the index-update command line tool).
+ * Without the writer, the refresh picks up changes committed by other
+ * processes.
+ *
+ * @deprecated Since DSpace 4 the system use an abstraction layer named
+ *             Discovery to provide access to different search providers. The
+ *             legacy system built upon Apache Lucene is likely to be removed in
+ *             a future version. If you are interested in using Lucene as backend
+ *             for the DSpace search system, please consider to build a Lucene
+ *             implementation of the Discovery interfaces
+ */
+@Deprecated
+final class SearchIndex
+{
+    private static final Logger log = Logger.getLogger(SearchIndex.class);
+
+    private static final String indexDirectory = ConfigurationManager.getProperty("search.dir");
+
+    private static final long refreshInterval = ConfigurationManager.getLongProperty("search.index.refresh-interval", 1000);
+    private static final long commitInterval = ConfigurationManager.getLongProperty("search.index.commit-interval", 10000);
+    private static final long writerIdle = ConfigurationManager.getLongProperty("search.index.writer-idle", 20000);
+
+    /** The shared writer, or null if this JVM does not currently hold the index */
+    private static IndexWriter writer = null;
+
+    /** Hands out searchers, or null until the first search */
+    private static SearcherManager searcherManager = null;
+
+    /** The directory the searchers were opened on, if not the writer's */
+    private static Directory searcherDirectory = null;
+
+    /** Runs {@link #maintain()} every refresh interval */
+    private static ScheduledExecutorService refresher = null;
+
+    private static boolean shutdownHookAdded = false;
+
+    private static boolean uncommitted = false;
+    private static long lastCommit;
+    private static long lastWrite;
+
+    private SearchIndex()
+    {
+    }
+
+    /**
+     * Add or replace the document(s) with the given term
+     */
+    static synchronized void updateDocument(Term term, Document doc) throws IOException
+    {
+        getWriter().updateDocument(term, doc);
+        written();
+    }
+
+    /**
+     * Delete the document(s) with the given term
+     */
+    static synchronized void deleteDocuments(Term term) throws IOException
+    {
+        getWriter().deleteDocuments(term);
+        written();
+    }
+
+    /**
+     * Replace the index with an empty one, and commit straight away. The
+     * writer is opened with {@link IndexWriterConfig.OpenMode#CREATE}, so
+     * the old index is not read, and can be rebuilt even if it is corrupt.
+     */
+    static synchronized void create() throws IOException
+    {
+        closeWriter();
+        useWriter(DSIndexer.openIndex(true));
+        written();
+        commit();
+    }
+
+    /**
+     * Commit any changes made through the shared writer
+     */
+    static synchronized void commit() throws IOException
+    {
+        if (writer != null && uncommitted)
+        {
+            writer.commit();
+            uncommitted = false;
+            lastCommit = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Get a searcher on the current state of the index. It must be given
+     * back to {@link #releaseSearcher(IndexSearcher)} when finished with.
+     */
+    static synchronized IndexSearcher acquireSearcher() throws IOException
+    {
+        if (searcherManager == null)
+        {
+            Directory directory = FSDirectory.open(new File(indexDirectory));
+            try
+            {
+                setSearcherManager(new SearcherManager(directory, null), directory);
+            }
+            catch (IOException e)
+            {
+                directory.close();
+                throw e;
+            }
+            startRefresher();
+        }
+        return searcherManager.acquire();
+    }
+
+    /**
+     * Make changes searchable now, rather than at the next background refresh
+     */
+    static void refresh() throws IOException
+    {
+        SearcherManager manager;
+        synchronized (SearchIndex.class)
+        {
+            manager = searcherManager;
+        }
+        if (manager != null)
+        {
+            manager.maybeRefreshBlocking();
+        }
+    }
+
+    /**
+     * Give back a searcher obtained from {@link #acquireSearcher()}
+     */
+    static void releaseSearcher(IndexSearcher searcher) throws IOException
+    {
+        if (searcher != null)
+        {
+            // The manager it came from may have been replaced since, so give
+            // back the reference to the reader itself
+            searcher.getIndexReader().decRef();
+        }
+    }
+
+    /**
+     * Commit and close the writer, and close the searchers. Searchers still
+     * in use stay open until released. The index is opened again if used
+     * afterwards.
+     */
+    static synchronized void close()
+    {
+        closeWriter();
+        setSearcherManager(null, null);
+        if (refresher != null)
+        {
+            refresher.shutdown();
+            refresher = null;
+        }
+    }
+
+    /**
+     * Open the shared writer if this JVM does not hold it yet
+     */
+    private static IndexWriter getWriter() throws IOException
+    {
+        if (writer == null)
+        {
+            useWriter(DSIndexer.openIndex(false));
+        }
+        return writer;
+    }
+
+    /**
+     * Make a newly opened writer the shared one
+     */
+    private static void useWriter(IndexWriter opened) throws IOException
+    {
+        try
+        {
+            // Search the writer directly, so changes show before they are committed
+            setSearcherManager(new SearcherManager(opened, true, null), null);
+        }
+        catch (IOException e)
+        {
+            Directory directory = opened.getDirectory();
+            opened.close();
+            directory.close();
+            throw e;
+        }
+        writer = opened;
+        lastCommit = System.currentTimeMillis();
+        startRefresher();
+        log.debug("Opened shared index writer");
+    }
+
+    private static void written()
+    {
+        uncommitted = true;
+        lastWrite = System.currentTimeMillis();
+    }
+
+    private static void closeWriter()
+    {
+        if (writer != null)
+        {
+            Directory directory = writer.getDirectory();
+            try
+            {
+                commit();
+                writer.close();
+                directory.close();
+                log.debug("Closed shared index writer");
+            }
+            catch (IOException e)
+            {
+                log.error("Unable to close IndexWriter", e);
+            }
+            finally
+            {
+                writer = null;
+                uncommitted = false;
+
+                // The searchers read the writer, so open the directory instead next time
+                setSearcherManager(null, null);
+            }
+        }
+    }
+
+    /**
+     * Replace the searcher manager, closing the old one and the directory it
+     * was opened on, if any
+     */
+    private static void setSearcherManager(SearcherManager manager, Directory directory)
+    {
+        if (searcherManager != null)
+        {
+            try
+            {
+                searcherManager.close();
+            }
+            catch (IOException e)
+            {
+                log.error("Unable to close SearcherManager", e);
+            }
+        }
+        if (searcherDirectory != null)
+        {
+            try
+            {
+                searcherDirectory.close();
+            }
+            catch (IOException e)
+            {
+                log.error("Unable to close index directory", e);
+            }
+        }
+        searcherManager = manager;
+        searcherDirectory = directory;
+    }
+
+    private static void startRefresher()
+    {
+        if (refresher == null)
+        {
+            refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, "DSIndexer refresher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            refresher.scheduleWithFixedDelay(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    maintain();
+                }
+            }, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+        }
+
+        if (!shutdownHookAdded)
+        {
+            // Do not lose uncommitted changes when the JVM exits
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    SearchIndex.close();
+                }
+            }, "DSIndexer shutdown"));
+            shutdownHookAdded = true;
+        }
+    }
+
+    /**
+     * Commit the writer if due, close it if idle, and refresh the searchers
+     */
+    private static void maintain()
+    {
+        SearcherManager manager;
+        synchronized (SearchIndex.class)
+        {
+            long now = System.currentTimeMillis();
+            try
+            {
+                if (now - lastCommit >= commitInterval)
+                {
+                    commit();
+                }
+            }
+            catch (IOException e)
+            {
+                log.error("Unable to commit index", e);
+            }
+            if (writer != null && now - lastWrite >= writerIdle)
+            {
+                closeWriter();
+            }
+            manager = searcherManager;
+        }
+
+        // Refresh without holding up writers and searches
+        if (manager != null)
+        {
+            try
+            {
+                manager.maybeRefresh();
+            }
+            catch (AlreadyClosedException e)
+            {
+                // Replaced in the meantime, nothing to refresh
+            }
+            catch (IOException e)
+            {
+                log.error("Unable to refresh index searcher", e);
+            }
+        }
+    }
+}
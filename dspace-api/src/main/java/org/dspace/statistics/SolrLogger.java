@@ -47,6 +47,7 @@ import org.dspace.statistics.util.DnsLookup;
 import org.dspace.statistics.util.LocationUtils;
 import org.dspace.statistics.util.SpiderDetector;
 import org.dspace.usage.UsageWorkflowEvent;
+import org.dspace.util.SolrClientRegistry;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.*;
@@ -109,7 +110,7 @@ public class SolrLogger
         {
             try
             {
-                server = new HttpSolrServer(ConfigurationManager.getProperty("solr-statistics", "server"));
+                server = SolrClientRegistry.getServer(ConfigurationManager.getProperty("solr-statistics", "server"));
                 SolrQuery solrQuery = new SolrQuery()
                         .setQuery("type:2 AND id:1");
                 server.query(solrQuery);
@@ -222,6 +223,7 @@ public class SolrLogger
 
 
             solr.add(doc1);
+            StatisticsRollup.record(doc1);
             //commits are executed automatically using the solr autocommit
 //            solr.commit(false, false);
 
@@ -261,6 +263,7 @@ public class SolrLogger
 			doc1.addField("statistics_type", StatisticsType.VIEW.text());
 
 			solr.add(doc1);
+			StatisticsRollup.record(doc1);
 			// commits are executed automatically using the solr autocommit
 			// solr.commit(false, false);
 
@@ -708,6 +711,42 @@ public class SolrLogger
 
         }
 
+        /**
+         * Process every document matching a query, paging through them in
+         * a stable order with a cursor, so that deep pages cost no more than
+         * the first.
+         *
+         * @param query the query
+         * @param filterQuery a filter query, or null
+         * @param rows the number of documents per page
+         * @param fields the fields to return, or none for all
+         */
+        public void executeWithCursor(String query, String filterQuery, int rows, String... fields)
+                throws SolrServerException, IOException {
+            SolrQuery solrQuery = new SolrQuery(query).setRows(rows);
+            if (filterQuery != null) {
+                solrQuery.addFilterQuery(filterQuery);
+            }
+            if (0 < fields.length) {
+                solrQuery.setFields(fields);
+            }
+            solrQuery.setSort("uid", SolrQuery.ORDER.asc);
+            addAdditionalSolrYearCores(solrQuery);
+
+            String cursorMark = CursorMarkParams.CURSOR_MARK_START;
+            while (true) {
+                solrQuery.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+                QueryResponse response = solr.query(solrQuery);
+                process(response.getResults());
+
+                String nextCursorMark = response.getNextCursorMark();
+                if (cursorMark.equals(nextCursorMark)) {
+                    break;
+                }
+                cursorMark = nextCursorMark;
+            }
+        }
+
         public void commit() throws IOException, SolrServerException {
             solr.commit();
         }
@@ -1065,31 +1104,44 @@ public class SolrLogger
                 }
                 // e.printStackTrace();
             }
-            String dateformatString = "dd-MM-yyyy";
-            if ("DAY".equals(type))
-            {
-                dateformatString = "dd-MM-yyyy";
-            }
-            else if ("MONTH".equals(type))
-            {
-                dateformatString = "MMMM yyyy";
-
-            }
-            else if ("YEAR".equals(type))
-            {
-                dateformatString = "yyyy";
-            }
-            SimpleDateFormat simpleFormat = new SimpleDateFormat(
-                    dateformatString, context.getCurrentLocale());
             if (date != null)
             {
-                name = simpleFormat.format(date);
+                name = formatDateView(date, type, context);
             }
 
         }
         return name;
     }
 
+    /**
+     * Format the date of a time facet entry for display
+     *
+     * @param date the start of the period
+     * @param type DAY, MONTH or YEAR
+     * @param context the DSpace context, for the locale
+     * @return the formatted date
+     */
+    static String formatDateView(Date date, String type, Context context)
+    {
+        String dateformatString = "dd-MM-yyyy";
+        if ("DAY".equals(type))
+        {
+            dateformatString = "dd-MM-yyyy";
+        }
+        else if ("MONTH".equals(type))
+        {
+            dateformatString = "MMMM yyyy";
+
+        }
+        else if ("YEAR".equals(type))
+        {
+            dateformatString = "yyyy";
+        }
+        SimpleDateFormat simpleFormat = new SimpleDateFormat(
+                dateformatString, context.getCurrentLocale());
+        return simpleFormat.format(date);
+    }
+
     public static QueryResponse query(String query, String filterQuery,
             String facetField, int rows, int max, String dateType, String dateStart,
             String dateEnd, List<String> facetQueries, String sort, boolean ascending)
@@ -1364,10 +1416,9 @@ public class SolrLogger
         create.setCoreName(coreName);
         create.setInstanceDir("statistics");
         create.setDataDir(solrDir + coreName + File.separator + "data");
-        HttpSolrServer solrServer = new HttpSolrServer(baseSolrUrl);
-        create.process(solrServer);
+        create.process(SolrClientRegistry.getServer(baseSolrUrl));
         log.info("Created core with name: " + coreName);
-        return new HttpSolrServer(baseSolrUrl + "/" + coreName);
+        return SolrClientRegistry.getServer(baseSolrUrl + "/" + coreName);
     }
 
 
@@ -0,0 +1,813 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrInputDocument;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.statistics.util.LocationUtils;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
+
+/**
+ * Daily and monthly view counts, kept in the statistics_rollup table so that
+ * the usage statistics pages can be answered with a few database queries
+ * rather than one Solr facet query per object shown.
+ * <P>
+ * There is a row per period, viewed object, country and isBot flag, both for
+ * the object itself (owner -1) and for each item, collection and community
+ * it belongs to, so that "the most viewed items of this collection" is one
+ * grouped query. Periods are stored as yyyyMMdd integers in UTC, as Solr
+ * stores the view times; a month row starts on the first of the month.
+ * <P>
+ * Views are counted in memory as they are logged, and written every
+ * <code>rollup.flush-interval</code> milliseconds. The rollups of past
+ * months can be rebuilt from the Solr statistics core with
+ * <code>stats-util -l yyyy-MM</code>, which is also needed after changing
+ * <code>query.filter.bundles</code> or marking robots in Solr, since only
+ * views passing the bundle filter are counted. Rollups are only used when
+ * <code>rollup.enabled</code> is set in solr-statistics.cfg, and not while
+ * <code>query.filter.spiderIp</code> is.
+ */
+public class StatisticsRollup
+{
+    private static final Logger log = Logger.getLogger(StatisticsRollup.class);
+
+    /** Rows counting the views of one day */
+    public static final int DAY = 1;
+
+    /** Rows counting the views of one calendar month */
+    public static final int MONTH = 2;
+
+    /** Owner of the rows counting the views of an object itself */
+    public static final int NO_OWNER = -1;
+
+    /** Stored when the country of a view is not known */
+    private static final String UNKNOWN_COUNTRY = "--";
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    /** Views logged but not written yet */
+    private static final Map<Key, Long> pending = new HashMap<Key, Long>();
+
+    /** Writes the pending views in the background */
+    private static ScheduledExecutorService flusher = null;
+
+    /** Utility class */
+    private StatisticsRollup()
+    {
+    }
+
+    /**
+     * Are views being counted into the rollups?
+     */
+    public static boolean isEnabled()
+    {
+        return ConfigurationManager.getBooleanProperty("solr-statistics", "rollup.enabled", false);
+    }
+
+    /**
+     * Can the rollups give the same answers as the Solr statistics core,
+     * with the statistics query filters currently configured?
+     */
+    public static boolean canAnswer()
+    {
+        return isEnabled()
+                && !ConfigurationManager.getBooleanProperty("solr-statistics", "query.filter.spiderIp", false);
+    }
+
+    /**
+     * Count a view which has just been logged to Solr. It is written to the
+     * database by the background flusher.
+     *
+     * @param doc
+     *            the Solr document of the view
+     */
+    static void record(SolrInputDocument doc)
+    {
+        if (!isEnabled() || doc.getFieldValue("type") == null || doc.getFieldValue("id") == null
+                || !isCounted(doc.getFieldValues("bundleName")))
+        {
+            return;
+        }
+
+        Date time;
+        try
+        {
+            time = parseTime((String) doc.getFieldValue("time"));
+        }
+        catch (ParseException e)
+        {
+            log.warn("Unable to count view with time " + doc.getFieldValue("time"));
+            return;
+        }
+
+        synchronized (pending)
+        {
+            addView(pending, toInt(doc.getFieldValue("type")), toInt(doc.getFieldValue("id")),
+                    doc.getFieldValues("owningItem"), doc.getFieldValues("owningColl"),
+                    doc.getFieldValues("owningComm"), (String) doc.getFieldValue("countryCode"),
+                    Boolean.TRUE.equals(doc.getFieldValue("isBot")), time);
+            startFlusher();
+        }
+    }
+
+    /**
+     * Write the views counted in memory to the database. Should the write
+     * fail they are kept for the next attempt.
+     */
+    public static void flush()
+    {
+        Map<Key, Long> toWrite;
+        synchronized (pending)
+        {
+            if (pending.isEmpty())
+            {
+                return;
+            }
+            toWrite = new HashMap<Key, Long>(pending);
+            pending.clear();
+        }
+
+        Context context = null;
+        try
+        {
+            context = new Context();
+            for (Map.Entry<Key, Long> entry : toWrite.entrySet())
+            {
+                increment(context, entry.getKey(), entry.getValue());
+            }
+            context.complete();
+        }
+        catch (SQLException e)
+        {
+            log.error("Unable to write statistics rollups", e);
+            synchronized (pending)
+            {
+                for (Map.Entry<Key, Long> entry : toWrite.entrySet())
+                {
+                    add(pending, entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        finally
+        {
+            if (context != null && context.isValid())
+            {
+                context.abort();
+            }
+        }
+    }
+
+    /**
+     * Rebuild the rollups of the given months from the views in the Solr
+     * statistics core, one month at a time.
+     *
+     * @param context
+     *            DSpace context object, committed after each month
+     * @param start
+     *            the first month to rebuild (any day of it)
+     * @param end
+     *            the last month to rebuild (any day of it)
+     * @throws SQLException
+     * @throws SolrServerException
+     * @throws IOException
+     */
+    public static void rebuild(Context context, Date start, Date end)
+            throws SQLException, SolrServerException, IOException
+    {
+        Calendar month = truncate(start, MONTH);
+        Calendar last = truncate(end, MONTH);
+        SimpleDateFormat solrDate = new SimpleDateFormat(SolrLogger.DATE_FORMAT_8601);
+        solrDate.setTimeZone(UTC);
+
+        while (!month.after(last))
+        {
+            Calendar next = (Calendar) month.clone();
+            next.add(Calendar.MONTH, 1);
+            int monthStart = toPeriod(month);
+
+            // Count the views of the month
+            final Map<Key, Long> counts = new HashMap<Key, Long>();
+            SolrLogger.ResultProcessor counter = new SolrLogger.ResultProcessor()
+            {
+                @Override
+                public void process(SolrDocument doc)
+                {
+                    if (doc.getFieldValue("type") != null && doc.getFieldValue("id") != null
+                            && isCounted(doc.getFieldValues("bundleName")))
+                    {
+                        addView(counts, toInt(doc.getFieldValue("type")), toInt(doc.getFieldValue("id")),
+                                doc.getFieldValues("owningItem"), doc.getFieldValues("owningColl"),
+                                doc.getFieldValues("owningComm"), (String) doc.getFieldValue("countryCode"),
+                                Boolean.TRUE.equals(doc.getFieldValue("isBot")), (Date) doc.getFieldValue("time"));
+                    }
+                }
+            };
+            counter.executeWithCursor("*:*",
+                    "time:[" + solrDate.format(month.getTime()) + " TO " + solrDate.format(next.getTime()) + "} AND "
+                    + "-(statistics_type:[* TO *] AND -statistics_type:" + SolrLogger.StatisticsType.VIEW.text() + ")",
+                    10000, "type", "id", "owningItem", "owningColl", "owningComm", "countryCode", "isBot",
+                    "bundleName", "time");
+
+            // Replace the rows of the month
+            DatabaseManager.updateQuery(context,
+                    "DELETE FROM statistics_rollup WHERE period_type = ? AND period_start >= ? AND period_start < ?",
+                    DAY, monthStart, toPeriod(next));
+            DatabaseManager.updateQuery(context,
+                    "DELETE FROM statistics_rollup WHERE period_type = ? AND period_start = ?",
+                    MONTH, monthStart);
+            insert(context, counts);
+            context.commit();
+
+            log.info("Rebuilt statistics rollups of " + monthStart / 100 + ": " + counts.size() + " rows");
+            month = next;
+        }
+    }
+
+    /**
+     * Get the periods from a start to an end relative to now, as used by the
+     * statistics date facets; e.g. MONTH "-6" to "+1" gives the first days
+     * of the six months before this one and of this month.
+     *
+     * @param dateType
+     *            DAY, MONTH or YEAR
+     * @param start
+     *            the first period, relative to the current one
+     * @param end
+     *            the period after the last one, relative to the current one
+     * @return the start of each period followed by the end of the last one,
+     *         or null if the date type is not supported or there is no period
+     */
+    public static List<Integer> getPeriods(String dateType, String start, String end)
+    {
+        int field;
+        if ("DAY".equalsIgnoreCase(dateType))
+        {
+            field = Calendar.DATE;
+        }
+        else if ("MONTH".equalsIgnoreCase(dateType))
+        {
+            field = Calendar.MONTH;
+        }
+        else if ("YEAR".equalsIgnoreCase(dateType))
+        {
+            field = Calendar.YEAR;
+        }
+        else
+        {
+            return null;
+        }
+
+        Calendar now = truncate(new Date(), DAY);
+        if (field != Calendar.DATE)
+        {
+            now.set(Calendar.DATE, 1);
+        }
+        if (field == Calendar.YEAR)
+        {
+            now.set(Calendar.MONTH, Calendar.JANUARY);
+        }
+
+        int first = Integer.parseInt(StringUtils.removeStart(start, "+"));
+        int last = Integer.parseInt(StringUtils.removeStart(end, "+"));
+        List<Integer> periods = new ArrayList<Integer>();
+        for (int offset = first; offset <= last; offset++)
+        {
+            Calendar period = (Calendar) now.clone();
+            period.add(field, offset);
+            periods.add(toPeriod(period));
+        }
+        return periods.size() < 2 ? null : periods;
+    }
+
+    /**
+     * Get the label of a period as shown for the Solr date facets
+     *
+     * @param period
+     *            the start of the period as yyyyMMdd
+     * @param dateType
+     *            DAY, MONTH or YEAR
+     * @param context
+     *            DSpace context object, for the locale
+     * @return the label
+     */
+    public static String getPeriodLabel(int period, String dateType, Context context)
+    {
+        // Solr facet dates are read in the local time zone, so do the same
+        Calendar date = Calendar.getInstance();
+        date.clear();
+        date.set(period / 10000, (period / 100) % 100 - 1, period % 100);
+        return SolrLogger.formatDateView(date.getTime(), dateType, context);
+    }
+
+    /**
+     * Count the views of the selected objects in each of the given periods.
+     *
+     * @param context
+     *            DSpace context object
+     * @param dateType
+     *            DAY, MONTH or YEAR, as given to
+     *            {@link #getPeriods(String, String, String)}
+     * @param periods
+     *            the start of each period, followed by the end of the last,
+     *            as returned by {@link #getPeriods(String, String, String)}
+     * @param resourceType
+     *            the type of the objects, or -1 for any
+     * @param resourceIDs
+     *            the objects, or null for any
+     * @param ownerType
+     *            the type of the item, collection or community containing
+     *            the objects, or NO_OWNER for the objects themselves
+     * @param ownerID
+     *            the ID of the containing object, or NO_OWNER
+     * @return the views of each object in each period, by object ID and
+     *         period; absent if none
+     * @throws SQLException
+     */
+    public static Map<Integer, Map<Integer, Long>> countByPeriod(Context context, String dateType,
+            List<Integer> periods, int resourceType, List<Integer> resourceIDs, int ownerType, int ownerID)
+            throws SQLException
+    {
+        List<Object> params = new ArrayList<Object>();
+        StringBuilder sql = new StringBuilder(
+                "SELECT resource_id, period_start, SUM(view_count) AS views FROM statistics_rollup ");
+        where(sql, params, getPeriodType(dateType), periods.get(0), periods.get(periods.size() - 1),
+                resourceType, resourceIDs, ownerType, ownerID);
+        sql.append(" GROUP BY resource_id, period_start");
+
+        Map<Integer, Map<Integer, Long>> counts = new HashMap<Integer, Map<Integer, Long>>();
+        TableRowIterator tri = DatabaseManager.query(context, sql.toString(), params.toArray());
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+                int resourceID = row.getIntColumn("resource_id");
+                if (!counts.containsKey(resourceID))
+                {
+                    counts.put(resourceID, new HashMap<Integer, Long>());
+                }
+
+                // Find the period the row falls in (month rows in years)
+                int periodStart = row.getIntColumn("period_start");
+                int index = Collections.binarySearch(periods, periodStart);
+                Integer period = periods.get(index >= 0 ? index : -index - 2);
+                add(counts.get(resourceID), period, row.getLongColumn("views"));
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+        return counts;
+    }
+
+    /**
+     * Find the most viewed objects or countries within the selected objects.
+     *
+     * @param context
+     *            DSpace context object
+     * @param facetField
+     *            "id", "countryCode" or "continent", as the Solr statistics field
+     * @param dateType
+     *            DAY, MONTH or YEAR, as given to
+     *            {@link #getPeriods(String, String, String)}; ignored
+     *            without periods
+     * @param periods
+     *            the periods to count the views of, as returned by
+     *            {@link #getPeriods(String, String, String)}, or null for
+     *            all views
+     * @param resourceType
+     *            the type of the objects, or -1 for any
+     * @param resourceID
+     *            the object, or -1 for any
+     * @param ownerType
+     *            the type of the item, collection or community containing
+     *            the objects, or NO_OWNER for the objects themselves
+     * @param ownerID
+     *            the ID of the containing object, or NO_OWNER
+     * @param max
+     *            the number of results wanted, or -1 for all
+     * @return the IDs or country codes with their views, most viewed first;
+     *         null if the field is not counted by the rollups
+     * @throws SQLException
+     */
+    public static ObjectCount[] top(Context context, String facetField, String dateType, List<Integer> periods,
+            int resourceType, int resourceID, int ownerType, int ownerID, int max) throws SQLException
+    {
+        String column;
+        if ("id".equals(facetField))
+        {
+            column = "resource_id";
+        }
+        else if ("countryCode".equals(facetField) || "continent".equals(facetField))
+        {
+            column = "country_code";
+        }
+        else
+        {
+            return null;
+        }
+
+        List<Object> params = new ArrayList<Object>();
+        StringBuilder sql = new StringBuilder("SELECT " + column + ", SUM(view_count) AS views FROM statistics_rollup ");
+        if (periods == null)
+        {
+            where(sql, params, MONTH, -1, -1, resourceType,
+                    resourceID == -1 ? null : Collections.singletonList(resourceID), ownerType, ownerID);
+        }
+        else
+        {
+            where(sql, params, getPeriodType(dateType), periods.get(0), periods.get(periods.size() - 1),
+                    resourceType, resourceID == -1 ? null : Collections.singletonList(resourceID), ownerType, ownerID);
+        }
+        if ("country_code".equals(column))
+        {
+            sql.append(" AND country_code <> ?");
+            params.add(UNKNOWN_COUNTRY);
+        }
+        sql.append(" GROUP BY ").append(column).append(" ORDER BY views DESC, ").append(column);
+
+        Map<String, Long> counts = new LinkedHashMap<String, Long>();
+        TableRowIterator tri = DatabaseManager.query(context, sql.toString(), params.toArray());
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+                String value = "resource_id".equals(column)
+                        ? String.valueOf(row.getIntColumn(column)) : row.getStringColumn(column);
+                if ("continent".equals(facetField))
+                {
+                    value = LocationUtils.getContinentCode(value);
+                }
+                add(counts, value, row.getLongColumn("views"));
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+
+        List<Map.Entry<String, Long>> sorted = new ArrayList<Map.Entry<String, Long>>(counts.entrySet());
+        if ("continent".equals(facetField))
+        {
+            Collections.sort(sorted, new Comparator<Map.Entry<String, Long>>()
+            {
+                @Override
+                public int compare(Map.Entry<String, Long> a, Map.Entry<String, Long> b)
+                {
+                    return b.getValue().compareTo(a.getValue());
+                }
+            });
+        }
+
+        int size = max == -1 ? sorted.size() : Math.min(max, sorted.size());
+        ObjectCount[] result = new ObjectCount[size];
+        for (int i = 0; i < size; i++)
+        {
+            result[i] = new ObjectCount();
+            result[i].setValue(sorted.get(i).getKey());
+            result[i].setCount(sorted.get(i).getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Days are counted from the day rows; months and years from the month
+     * rows
+     */
+    private static int getPeriodType(String dateType)
+    {
+        return "DAY".equalsIgnoreCase(dateType) ? DAY : MONTH;
+    }
+
+    /**
+     * Build the WHERE clause selecting the rollup rows to count
+     */
+    private static void where(StringBuilder sql, List<Object> params, int periodType, int first, int end,
+            int resourceType, List<Integer> resourceIDs, int ownerType, int ownerID)
+    {
+        sql.append("WHERE period_type = ? AND owner_type_id = ? AND owner_id = ?");
+        params.add(periodType);
+        params.add(ownerType);
+        params.add(ownerID);
+        if (first != -1)
+        {
+            sql.append(" AND period_start >= ? AND period_start < ?");
+            params.add(first);
+            params.add(end);
+        }
+        if (resourceType != -1)
+        {
+            sql.append(" AND resource_type_id = ?");
+            params.add(resourceType);
+        }
+        if (resourceIDs != null)
+        {
+            sql.append(" AND resource_id IN (");
+            for (int i = 0; i < resourceIDs.size(); i++)
+            {
+                sql.append(i > 0 ? ",?" : "?");
+                params.add(resourceIDs.get(i));
+            }
+            sql.append(")");
+        }
+        if (ConfigurationManager.getBooleanProperty("solr-statistics", "query.filter.isBot", true))
+        {
+            sql.append(" AND is_bot = 0");
+        }
+    }
+
+    /**
+     * Does the bundle filter of the statistics queries let a view through?
+     */
+    private static boolean isCounted(Collection<Object> bundleNames)
+    {
+        String bundles = ConfigurationManager.getProperty("solr-statistics", "query.filter.bundles");
+        if (bundleNames == null || bundleNames.isEmpty() || StringUtils.isBlank(bundles))
+        {
+            return true;
+        }
+        for (String bundle : bundles.split(","))
+        {
+            if (bundleNames.contains(bundle.trim()))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Count one view of an object on its own rows and on the rows of each
+     * object containing it, for the day and the month.
+     */
+    private static void addView(Map<Key, Long> counts, int type, int id, Collection<Object> items,
+            Collection<Object> collections, Collection<Object> communities, String country, boolean isBot, Date time)
+    {
+        country = StringUtils.isBlank(country) ? UNKNOWN_COUNTRY : country;
+        int day = toPeriod(truncate(time, DAY));
+        int month = toPeriod(truncate(time, MONTH));
+
+        List<int[]> owners = new ArrayList<int[]>();
+        owners.add(new int[] { NO_OWNER, NO_OWNER });
+        addOwners(owners, Constants.ITEM, items);
+        addOwners(owners, Constants.COLLECTION, collections);
+        addOwners(owners, Constants.COMMUNITY, communities);
+
+        for (int[] owner : owners)
+        {
+            add(counts, new Key(DAY, day, type, id, owner[0], owner[1], country, isBot), 1L);
+            add(counts, new Key(MONTH, month, type, id, owner[0], owner[1], country, isBot), 1L);
+        }
+    }
+
+    private static void addOwners(List<int[]> owners, int type, Collection<Object> ids)
+    {
+        if (ids != null)
+        {
+            for (Object id : ids)
+            {
+                owners.add(new int[] { type, toInt(id) });
+            }
+        }
+    }
+
+    /**
+     * Add views to a row, inserting it if it does not exist yet. Should two
+     * processes insert the same row, both are counted by the queries.
+     */
+    private static void increment(Context context, Key key, long views) throws SQLException
+    {
+        int updated = DatabaseManager.updateQuery(context,
+                "UPDATE statistics_rollup SET view_count = view_count + ? WHERE period_type = ? AND period_start = ? " +
+                "AND resource_type_id = ? AND resource_id = ? AND owner_type_id = ? AND owner_id = ? " +
+                "AND country_code = ? AND is_bot = ?",
+                views, key.periodType, key.periodStart, key.resourceType, key.resourceID, key.ownerType,
+                key.ownerID, key.country, key.isBot ? 1 : 0);
+        if (updated == 0)
+        {
+            insert(context, Collections.singletonMap(key, views));
+        }
+    }
+
+    /**
+     * Insert new rows with one batched statement
+     */
+    private static void insert(Context context, Map<Key, Long> counts) throws SQLException
+    {
+        if (counts.isEmpty())
+        {
+            return;
+        }
+
+        String nextID = DatabaseManager.isOracle() ? "statistics_rollup_seq.nextval" : "getnextid('statistics_rollup')";
+        PreparedStatement statement = null;
+        try
+        {
+            statement = context.getDBConnection().prepareStatement(
+                    "INSERT INTO statistics_rollup (rollup_id, period_type, period_start, resource_type_id, " +
+                    "resource_id, owner_type_id, owner_id, country_code, is_bot, view_count) " +
+                    "VALUES (" + nextID + ", ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            for (Map.Entry<Key, Long> entry : counts.entrySet())
+            {
+                Key key = entry.getKey();
+                statement.setInt(1, key.periodType);
+                statement.setInt(2, key.periodStart);
+                statement.setInt(3, key.resourceType);
+                statement.setInt(4, key.resourceID);
+                statement.setInt(5, key.ownerType);
+                statement.setInt(6, key.ownerID);
+                statement.setString(7, key.country);
+                statement.setInt(8, key.isBot ? 1 : 0);
+                statement.setLong(9, entry.getValue());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        finally
+        {
+            if (statement != null)
+            {
+                try
+                {
+                    statement.close();
+                }
+                catch (SQLException sqle)
+                {
+                    log.error("SQL batch close Error - ", sqle);
+                }
+            }
+        }
+    }
+
+    private static void startFlusher()
+    {
+        if (flusher == null)
+        {
+            long interval = ConfigurationManager.getLongProperty("solr-statistics", "rollup.flush-interval", 10000);
+            flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, "Statistics rollup flusher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            flusher.scheduleWithFixedDelay(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    flush();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+
+            // Write what is left when the JVM exits
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    flush();
+                }
+            }, "Statistics rollup shutdown"));
+        }
+    }
+
+    private static <K> void add(Map<K, Long> counts, K key, long views)
+    {
+        Long current = counts.get(key);
+        counts.put(key, current == null ? views : current + views);
+    }
+
+    /**
+     * Parse the time of a view as Solr does: the time zone is always UTC
+     */
+    private static Date parseTime(String time) throws ParseException
+    {
+        SimpleDateFormat format = new SimpleDateFormat(SolrLogger.DATE_FORMAT_8601);
+        format.setTimeZone(UTC);
+        return format.parse(time);
+    }
+
+    /**
+     * Get the start of the day or month of a time, in UTC
+     */
+    private static Calendar truncate(Date time, int periodType)
+    {
+        Calendar calendar = Calendar.getInstance(UTC);
+        calendar.setTime(time);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        if (periodType == MONTH)
+        {
+            calendar.set(Calendar.DATE, 1);
+        }
+        return calendar;
+    }
+
+    private static int toPeriod(Calendar calendar)
+    {
+        return calendar.get(Calendar.YEAR) * 10000 + (calendar.get(Calendar.MONTH) + 1) * 100
+                + calendar.get(Calendar.DATE);
+    }
+
+    private static int toInt(Object value)
+    {
+        return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString());
+    }
+
+    /**
+     * Identifies a row of the statistics_rollup table
+     */
+    private static class Key
+    {
+        final int periodType;
+        final int periodStart;
+        final int resourceType;
+        final int resourceID;
+        final int ownerType;
+        final int ownerID;
+        final String country;
+        final boolean isBot;
+
+        Key(int periodType, int periodStart, int resourceType, int resourceID, int ownerType, int ownerID,
+                String country, boolean isBot)
+        {
+            this.periodType = periodType;
+            this.periodStart = periodStart;
+            this.resourceType = resourceType;
+            this.resourceID = resourceID;
+            this.ownerType = ownerType;
+            this.ownerID = ownerID;
+            this.country = country;
+            this.isBot = isBot;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) o;
+            return periodType == other.periodType && periodStart == other.periodStart
+                    && resourceType == other.resourceType && resourceID == other.resourceID
+                    && ownerType == other.ownerType && ownerID == other.ownerID
+                    && country.equals(other.country) && isBot == other.isBot;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int hash = periodStart;
+            hash = 31 * hash + periodType;
+            hash = 31 * hash + resourceType;
+            hash = 31 * hash + resourceID;
+            hash = 31 * hash + ownerType;
+            hash = 31 * hash + ownerID;
+            hash = 31 * hash + country.hashCode();
+            return 31 * hash + (isBot ? 1 : 0);
+        }
+    }
+}
@@ -12,6 +12,7 @@ import org.dspace.content.*;
 import org.dspace.statistics.Dataset;
 import org.dspace.statistics.ObjectCount;
 import org.dspace.statistics.SolrLogger;
+import org.dspace.statistics.StatisticsRollup;
 import org.dspace.statistics.content.filter.StatisticsFilter;
 import org.dspace.statistics.content.filter.StatisticsSolrDateFilter;
 import org.dspace.statistics.util.LocationUtils;
@@ -24,6 +25,7 @@ import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.util.ClientUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
@@ -129,6 +131,15 @@ public class StatisticsDataVisits extends StatisticsData
             showTotal = true;
         }
 
+        // Views of a single set of objects can be counted from the rollups
+        Dataset rollupDataset = createRollupDataset(context, datasetQueries, dateFacet, showTotal);
+        if (rollupDataset != null)
+        {
+            rollupDataset.setRowTitle("Dataset 1");
+            rollupDataset.setColTitle("Dataset 2");
+            return rollupDataset;
+        }
+
         if (dateFacet != null && dateFacet.getActualStartDate() != null
                 && dateFacet.getActualEndDate() != null)
         {
@@ -367,6 +378,156 @@ public class StatisticsDataVisits extends StatisticsData
         return dataset;
     }
 
+    /**
+     * Count the visits from the statistics rollups rather than Solr, when they
+     * hold what is asked: the visits of one set of objects, in total or per
+     * period relative to now, without further filters.
+     *
+     * @return the dataset, or null if Solr has to be queried
+     */
+    private Dataset createRollupDataset(Context context, List<DatasetQuery> datasetQueries,
+            DatasetTimeGenerator dateFacet, boolean showTotal) throws SQLException
+    {
+        if (!StatisticsRollup.canAnswer() || !getFilters().isEmpty() || datasetQueries.size() != 1
+                || datasetQueries.get(0).getQueries().size() != 1)
+        {
+            return null;
+        }
+        DatasetQuery datasetQuery = datasetQueries.get(0);
+        Query query = datasetQuery.getQueries().get(0);
+        String facetField = datasetQuery.getFacetField() == null ? "id" : datasetQuery.getFacetField();
+
+        // Children of the current object are counted on its rows
+        int ownerType = StatisticsRollup.NO_OWNER;
+        int ownerID = StatisticsRollup.NO_OWNER;
+        if (query.owningDso != null && currentDso != null)
+        {
+            if (currentDso.getType() != Constants.ITEM && currentDso.getType() != Constants.COLLECTION
+                    && currentDso.getType() != Constants.COMMUNITY)
+            {
+                return null;
+            }
+            ownerType = currentDso.getType();
+            ownerID = currentDso.getID();
+        }
+
+        if (dateFacet == null)
+        {
+            ObjectCount[] topCounts = StatisticsRollup.top(context, facetField, null, null, query.getDsoType(),
+                    query.getDsoId(), ownerType, ownerID, datasetQuery.getMax());
+            if (topCounts == null)
+            {
+                return null;
+            }
+            Dataset dataset = new Dataset(1, topCounts.length);
+            for (int i = 0; i < topCounts.length; i++) {
+                ObjectCount count = topCounts[i];
+                dataset.setColLabel(i, getResultName(count.getValue(), datasetQuery, context));
+                dataset.setColLabelAttr(i, getAttributes(count.getValue(), datasetQuery, context));
+                dataset.addValueToMatrix(0, i, count.getCount());
+            }
+            return dataset;
+        }
+
+        // Only periods relative to now, per object
+        if (dateFacet.getActualStartDate() != null || dateFacet.getActualEndDate() != null
+                || dateFacet.getStartDate() == null || dateFacet.getEndDate() == null || !"id".equals(facetField))
+        {
+            return null;
+        }
+        String dateType = dateFacet.getDateType();
+        List<Integer> periods = StatisticsRollup.getPeriods(dateType, dateFacet.getStartDate(), dateFacet.getEndDate());
+        if (periods == null)
+        {
+            return null;
+        }
+        int columns = periods.size() - 1;
+
+        // The objects to count: the one queried, or the most visited
+        List<Integer> ids = null;
+        ObjectCount[] topCounts = null;
+        if (datasetQuery.getMax() == -1)
+        {
+            if (query.getDsoId() != -1)
+            {
+                ids = Collections.singletonList(query.getDsoId());
+            }
+        }
+        else
+        {
+            topCounts = StatisticsRollup.top(context, facetField, dateType, periods, query.getDsoType(),
+                    query.getDsoId(), ownerType, ownerID, datasetQuery.getMax());
+            if (topCounts.length == 0)
+            {
+                return new Dataset(0, 0);
+            }
+            ids = new ArrayList<Integer>();
+            for (ObjectCount count : topCounts) {
+                ids.add(Integer.valueOf(count.getValue()));
+            }
+        }
+        Map<Integer, Map<Integer, Long>> counts = StatisticsRollup.countByPeriod(context, dateType, periods,
+                query.getDsoType(), ids, ownerType, ownerID);
+
+        Dataset dataset = new Dataset(topCounts == null ? 1 : topCounts.length, columns + (showTotal ? 1 : 0));
+        for (int k = 0; k < columns; k++) {
+            dataset.setColLabel(k, StatisticsRollup.getPeriodLabel(periods.get(k), dateType, context));
+        }
+        if (showTotal)
+        {
+            dataset.setColLabel(columns, "total");
+        }
+
+        if (topCounts == null)
+        {
+            // All the visits of the query in one row
+            long total = 0;
+            for (int k = 0; k < columns; k++) {
+                long views = 0;
+                for (Map<Integer, Long> idCounts : counts.values()) {
+                    views += getCount(idCounts, periods.get(k));
+                }
+                dataset.addValueToMatrix(0, k, views);
+                total += views;
+            }
+            if (showTotal)
+            {
+                dataset.addValueToMatrix(0, columns, total);
+            }
+            dataset.setRowLabel(0, getResultName(datasetQuery.getName(), datasetQuery, context));
+            dataset.setRowLabelAttr(0, getAttributes(datasetQuery.getName(), datasetQuery, context));
+        }
+        else
+        {
+            // A row per object
+            for (int j = 0; j < topCounts.length; j++) {
+                dataset.setRowLabel(j, getResultName(topCounts[j].getValue(), datasetQuery, context));
+                dataset.setRowLabelAttr(j, getAttributes(topCounts[j].getValue(), datasetQuery, context));
+                long total = 0;
+                for (int k = 0; k < columns; k++) {
+                    long views = getCount(counts.get(ids.get(j)), periods.get(k));
+                    dataset.addValueToMatrix(j, k, views);
+                    total += views;
+                }
+                if (showTotal)
+                {
+                    dataset.addValueToMatrix(j, columns, total);
+                }
+            }
+            if (!(getDatasetGenerators().get(0) instanceof DatasetTimeGenerator))
+            {
+                dataset.flipRowCols();
+            }
+        }
+        return dataset;
+    }
+
+    private long getCount(Map<Integer, Long> counts, Integer period)
+    {
+        Long count = counts == null ? null : counts.get(period);
+        return count == null ? 0 : count;
+    }
+
     private void processAxis(DatasetGenerator datasetGenerator, List<DatasetQuery> queries) throws SQLException {
         if(datasetGenerator instanceof DatasetDSpaceObjectGenerator){
             DatasetDSpaceObjectGenerator dspaceObjAxis = (DatasetDSpaceObjectGenerator) datasetGenerator;
@@ -389,14 +550,19 @@ public class StatisticsDataVisits extends StatisticsData
                         // CURRENTLY THIS IS ONLY POSSIBLE FOR AN ITEM ! ! ! ! ! ! !
                         // We need to get the separate bitstreams from our item and make a query for each of them
                         Item item = (Item) currentDso;
-                        for (int j = 0; j < item.getBundles().length; j++) {
-                            Bundle bundle = item.getBundles()[j];
-                            for (int k = 0; k < bundle.getBitstreams().length; k++) {
-                                Bitstream bitstream = bundle.getBitstreams()[k];
-                                if(!bitstream.getFormat().isInternal()){
-                                    // Add a separate query for each bitstream
-                                    query.setDso(bitstream.getID(), bitstream.getType(), dsoLength);
+                        for (Bundle bundle : item.getBundles()) {
+                            // Read the bitstreams one by one rather than loading them all
+                            BitstreamIterator bitstreams = bundle.iterateBitstreams();
+                            try {
+                                while (bitstreams.hasNext()) {
+                                    Bitstream bitstream = bitstreams.next();
+                                    if(!bitstream.getFormat().isInternal()){
+                                        // Add a separate query for each bitstream
+                                        query.setDso(bitstream.getID(), bitstream.getType(), dsoLength);
+                                    }
                                 }
+                            } finally {
+                                bitstreams.close();
                             }
                         }
                     } else {
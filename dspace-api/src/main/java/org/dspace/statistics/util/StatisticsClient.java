@@ -11,10 +11,14 @@ import org.apache.commons.cli.*;
 import org.apache.log4j.Logger;
 import org.apache.tools.ant.taskdefs.Get;
 import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Context;
 import org.dspace.statistics.SolrLogger;
+import org.dspace.statistics.StatisticsRollup;
 
 import java.io.*;
 import java.net.URL;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 
 /**
  * Class to load intermediate statistics files into solr
@@ -63,6 +67,7 @@ public class StatisticsClient
         options.addOption("e", "export", false, "Export SOLR view statistics data to usage-statistics-intermediate-format");
         options.addOption("r", "remove-deleted-bitstreams", false, "While indexing the bundle names remove the statistics about deleted bitstreams");
         options.addOption("s", "shard-solr-index", false, "Split the data from the main Solr core into separate Solr cores per year");
+        options.addOption("l", "rollup", true, "Rebuild the statistics rollups from the views in SOLR, from the given month (yyyy-MM) to the current month");
         options.addOption("h", "help", false, "help");
 
 		CommandLine line = parser.parse(options, args);
@@ -105,6 +110,23 @@ public class StatisticsClient
         {
             SolrLogger.shardSolrIndex();
         }
+        else if(line.hasOption('l'))
+        {
+            Date start = new SimpleDateFormat("yyyy-MM").parse(line.getOptionValue('l'));
+            Context context = new Context();
+            try
+            {
+                StatisticsRollup.rebuild(context, start, new Date());
+                context.complete();
+            }
+            finally
+            {
+                if (context.isValid())
+                {
+                    context.abort();
+                }
+            }
+        }
         else
         {
             printHelp(options, 0);
@@ -15,8 +15,17 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 import org.dspace.checker.BitstreamInfoDAO;
@@ -24,7 +33,9 @@ import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Context;
 import org.dspace.core.Utils;
 import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.QueryUtils;
 import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
 
 import edu.sdsc.grid.io.FileFactory;
 import edu.sdsc.grid.io.GeneralFile;
@@ -89,6 +100,16 @@ public class BitstreamStorageManager
     /** The asset store to use for new bitstreams */
     private static int incoming;
 
+    /**
+     * If true, new bitstreams are stored under the SHA-256 digest of their
+     * content, so that bitstreams with the same content share one file
+     */
+    private static boolean contentAddressed = ConfigurationManager
+            .getBooleanProperty("assetstore.deduplicate", false);
+
+    /** The digest naming the files of a content addressed store */
+    private static final String CONTENT_DIGEST = "SHA-256";
+
     // These settings control the way an identifier is hashed into
     // directory and file names
     //
@@ -108,6 +129,12 @@ public class BitstreamStorageManager
 	 */
 	private static final String REGISTERED_FLAG = "-R";
 
+    /**
+     * Number of deleted bitstreams handled at a time by the parallel cleanup,
+     * which is also the size of its IN (...) lists (Oracle allows 1000)
+     */
+    private static final int CLEANUP_BATCH_SIZE = 1000;
+
     /* Read in the asset stores from the config. */
     static
     {
@@ -235,6 +262,11 @@ public class BitstreamStorageManager
      * and some or all of the bits have also been stored.
      * </ul>
      * 
+     * <p>
+     * If <code>assetstore.deduplicate</code> is true, the bits are stored under
+     * their SHA-256 digest, and bitstreams with the same bits share one file.
+     * </p>
+     * 
      * @param context
      *            The current context
      * @param is
@@ -288,16 +320,19 @@ public class BitstreamStorageManager
         // Where on the file system will this new bitstream go?
 		GeneralFile file = getFile(bitstream);
 
-        // Make the parent dirs if necessary
-		GeneralFile parent = file.getParentFile();
-
-        if (!parent.exists())
+        // Make the parent dirs if necessary, and create the corresponding
+        // file, without deleteParents() removing the dirs in between
+        synchronized (BitstreamStorageManager.class)
         {
-            parent.mkdirs();
-        }
+            GeneralFile parent = file.getParentFile();
 
-        //Create the corresponding file and open it
-        file.createNewFile();
+            if (!parent.exists())
+            {
+                parent.mkdirs();
+            }
+
+            file.createNewFile();
+        }
 
 		GeneralFileOutputStream fos = FileFactory.newFileOutputStream(file);
 
@@ -314,7 +349,23 @@ public class BitstreamStorageManager
             log.warn("Caught NoSuchAlgorithmException", nsae);
         }
 
-        Utils.bufferedCopy(dis, fos);
+        // and, for a content addressed store, the name of the file
+        DigestInputStream keyDis = null;
+
+        if (contentAddressed)
+        {
+            try
+            {
+                keyDis = new DigestInputStream(dis, MessageDigest.getInstance(CONTENT_DIGEST));
+            }
+            // Should never happen either
+            catch (NoSuchAlgorithmException nsae)
+            {
+                log.warn("Caught NoSuchAlgorithmException", nsae);
+            }
+        }
+
+        Utils.bufferedCopy(keyDis != null ? keyDis : dis, fos);
         fos.close();
         is.close();
 
@@ -326,6 +377,12 @@ public class BitstreamStorageManager
                     .digest()));
             bitstream.setColumn("checksum_algorithm", "MD5");
         }
+
+        if (keyDis != null)
+        {
+            file = moveToContentAddress(bitstream, file,
+                    Utils.toHex(keyDis.getMessageDigest().digest()));
+        }
         
         bitstream.setColumn("deleted", false);
         DatabaseManager.update(context, bitstream);
@@ -566,6 +623,8 @@ public class BitstreamStorageManager
     public static void cleanup(boolean deleteDbRecords, boolean verbose) throws SQLException, IOException
     {
         Context context = null;
+        Context scanContext = null;
+        TableRowIterator storage = null;
         BitstreamInfoDAO bitstreamInfoDAO = new BitstreamInfoDAO();
         int commitCounter = 0;
 
@@ -573,14 +632,19 @@ public class BitstreamStorageManager
         {
             context = new Context();
 
+            // Stream the deleted bitstreams rather than holding them all in
+            // memory. The cursor would not survive the commits below, so it
+            // gets a context of its own.
+            scanContext = new Context(Context.READ_ONLY);
+
             String myQuery = "select * from Bitstream where deleted = '1'";
 
-            List<TableRow> storage = DatabaseManager.queryTable(context, "Bitstream", myQuery)
-                    .toList();
+            storage = DatabaseManager.queryTableStreaming(scanContext,
+                    DatabaseManager.getBulkFetchSize(), "Bitstream", myQuery);
 
-            for (Iterator<TableRow> iterator = storage.iterator(); iterator.hasNext();)
+            while (storage.hasNext())
             {
-                TableRow row = iterator.next();
+                TableRow row = storage.next();
                 int bid = row.getIntColumn("bitstream_id");
 
 				GeneralFile file = getFile(row);
@@ -635,10 +699,18 @@ public class BitstreamStorageManager
 
 
                 // Since versioning allows for multiple bitstreams, check if the internal identifier isn't used on another place
-                TableRow duplicateBitRow = DatabaseManager.querySingleTable(context, "Bitstream", "SELECT * FROM Bitstream WHERE internal_id = ? AND bitstream_id <> ?", row.getStringColumn("internal_id"), bid);
+                String duplicateQuery = "SELECT * FROM Bitstream WHERE internal_id = ? AND bitstream_id <> ?";
+                TableRow duplicateBitRow = DatabaseManager.querySingleTable(context, "Bitstream", duplicateQuery, row.getStringColumn("internal_id"), bid);
                 if(duplicateBitRow == null)
                 {
-                    boolean success = file.delete();
+                    // Check again once the file is out of the way of store()
+                    boolean success = false;
+                    GeneralFile aside = moveAside(file);
+                    if (aside != null)
+                    {
+                        duplicateBitRow = DatabaseManager.querySingleTable(context, "Bitstream", duplicateQuery, row.getStringColumn("internal_id"), bid);
+                        success = deleteOrRestore(file, aside, duplicateBitRow != null);
+                    }
 
                     String message = ("Deleted bitstream " + bid + " (file "
                                 + file.getAbsolutePath() + ") with result "
@@ -701,6 +773,451 @@ public class BitstreamStorageManager
             context.abort();
             throw ioe;
         }
+        finally
+        {
+            if (storage != null)
+            {
+                storage.close();
+            }
+            if (scanContext != null && scanContext.isValid())
+            {
+                scanContext.abort();
+            }
+        }
+    }
+
+    /**
+     * Clean up the bitstream storage area, with several threads deleting the
+     * files. The deleted bitstreams are handled in batches: the files of a
+     * batch are looked at and deleted by a pool of <code>threads</code>
+     * workers, whether another bitstream still uses a file is checked with
+     * one query per batch, and the database records of the batch are deleted
+     * with one statement per table and committed together. The number of
+     * bitstreams handled per second and the space reclaimed are reported at
+     * the end.
+     * <p>
+     * With one thread or less this is the same as
+     * {@link #cleanup(boolean, boolean)}.
+     *
+     * @param deleteDbRecords if true deletes the database records otherwise it
+     *             only deletes the files and directories in the assetstore
+     * @param verbose report the deletion of each bitstream
+     * @param threads the number of threads deleting files
+     * @exception IOException
+     *                If a problem occurs while cleaning up
+     * @exception SQLException
+     *                If a problem occurs accessing the RDBMS
+     */
+    public static void cleanup(boolean deleteDbRecords, boolean verbose, int threads)
+            throws SQLException, IOException
+    {
+        if (threads <= 1)
+        {
+            cleanup(deleteDbRecords, verbose);
+            return;
+        }
+        cleanup(deleteDbRecords, verbose, threads, CLEANUP_BATCH_SIZE);
+    }
+
+    /**
+     * The parallel cleanup, with a given batch size.
+     *
+     * @return what was done
+     */
+    static CleanupStatistics cleanup(boolean deleteDbRecords, boolean verbose, int threads, int batchSize)
+            throws SQLException, IOException
+    {
+        Context context = null;
+        Context scanContext = null;
+        TableRowIterator storage = null;
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        CleanupStatistics statistics = new CleanupStatistics();
+
+        try
+        {
+            context = new Context();
+            scanContext = new Context(Context.READ_ONLY);
+
+            String myQuery = "select * from Bitstream where deleted = '1'";
+
+            storage = DatabaseManager.queryTableStreaming(scanContext,
+                    DatabaseManager.getBulkFetchSize(), "Bitstream", myQuery);
+
+            List<TableRow> batch = new ArrayList<TableRow>(batchSize);
+            while (storage.hasNext())
+            {
+                batch.add(storage.next());
+                if (batch.size() == batchSize)
+                {
+                    cleanupBatch(context, workers, batch, deleteDbRecords, verbose, statistics);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty())
+            {
+                cleanupBatch(context, workers, batch, deleteDbRecords, verbose, statistics);
+            }
+
+            context.complete();
+            return statistics;
+        }
+        // As above, aborting only leaves records behind for the next run,
+        // as the records of a batch are committed after its files are gone.
+        catch (SQLException sqle)
+        {
+            if (verbose)
+            {
+                System.err.println("Error: " + sqle.getMessage());
+            }
+            context.abort();
+            throw sqle;
+        }
+        catch (IOException ioe)
+        {
+            if (verbose)
+            {
+                System.err.println("Error: " + ioe.getMessage());
+            }
+            context.abort();
+            throw ioe;
+        }
+        finally
+        {
+            workers.shutdownNow();
+            if (storage != null)
+            {
+                storage.close();
+            }
+            if (scanContext != null && scanContext.isValid())
+            {
+                scanContext.abort();
+            }
+            log.info(statistics);
+            System.out.println(statistics);
+        }
+    }
+
+    /**
+     * Clean up one batch of deleted bitstreams, and commit.
+     */
+    private static void cleanupBatch(Context context, ExecutorService workers, List<TableRow> batch,
+            final boolean deleteDbRecords, final boolean verbose, final CleanupStatistics statistics)
+            throws SQLException, IOException
+    {
+        // Look at the files in parallel
+        List<Future<CleanupCandidate>> checks = new ArrayList<Future<CleanupCandidate>>(batch.size());
+        for (final TableRow row : batch)
+        {
+            checks.add(workers.submit(new Callable<CleanupCandidate>()
+            {
+                @Override
+                public CleanupCandidate call() throws IOException
+                {
+                    return new CleanupCandidate(row);
+                }
+            }));
+        }
+        List<CleanupCandidate> candidates = waitFor(checks);
+
+        // Records of missing files go, and so do those of files old enough
+        Set<Integer> deletedRecords = new HashSet<Integer>();
+        for (CleanupCandidate candidate : candidates)
+        {
+            if (deleteDbRecords && (candidate.file == null || !candidate.recent))
+            {
+                deletedRecords.add(candidate.id);
+            }
+        }
+
+        // Since versioning allows for multiple bitstreams, find all those
+        // using the files at once. A file can only go if the records of all
+        // the other bitstreams using it go too.
+        List<CleanupCandidate> old = new ArrayList<CleanupCandidate>();
+        for (CleanupCandidate candidate : candidates)
+        {
+            if (candidate.file != null && !candidate.recent && !isRegisteredBitstream(candidate.internalId))
+            {
+                old.add(candidate);
+            }
+        }
+        Map<String, Set<Integer>> users = getUsers(context, old);
+
+        // Move the unused files aside in parallel, each once, out of the way
+        // of store() linking new bitstreams to them
+        Set<String> paths = new HashSet<String>();
+        List<Future<CleanupCandidate>> moves = new ArrayList<Future<CleanupCandidate>>();
+        for (final CleanupCandidate candidate : old)
+        {
+            if (!isUnused(candidate, users.get(candidate.internalId), deletedRecords)
+                    || !paths.add(candidate.file.getAbsolutePath()))
+            {
+                continue;
+            }
+            moves.add(workers.submit(new Callable<CleanupCandidate>()
+            {
+                @Override
+                public CleanupCandidate call() throws IOException
+                {
+                    candidate.aside = moveAside(candidate.file);
+                    return candidate;
+                }
+            }));
+        }
+        List<CleanupCandidate> moved = new ArrayList<CleanupCandidate>();
+        for (CleanupCandidate candidate : waitFor(moves))
+        {
+            if (candidate.aside != null)
+            {
+                moved.add(candidate);
+            }
+        }
+
+        // Then check again which are used, and delete the others in parallel
+        users = getUsers(context, moved);
+        List<Future<Boolean>> deletions = new ArrayList<Future<Boolean>>();
+        for (final CleanupCandidate candidate : moved)
+        {
+            final boolean used = !isUnused(candidate, users.get(candidate.internalId), deletedRecords);
+            deletions.add(workers.submit(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call() throws IOException
+                {
+                    boolean success = deleteOrRestore(candidate.file, candidate.aside, used);
+
+                    String message = ("Deleted bitstream " + candidate.id + " (file "
+                                + candidate.file.getAbsolutePath() + ") with result "
+                                + success);
+                    if (log.isDebugEnabled())
+                    {
+                        log.debug(message);
+                    }
+                    if (verbose)
+                    {
+                        System.out.println(message);
+                    }
+
+                    if (success)
+                    {
+                        statistics.filesDeleted.incrementAndGet();
+                        statistics.bytesReclaimed.addAndGet(candidate.size);
+                        deleteParents(candidate.file);
+                    }
+                    else
+                    {
+                        statistics.filesFailed.incrementAndGet();
+                    }
+                    return success;
+                }
+            }));
+        }
+        waitFor(deletions);
+
+        if (!deletedRecords.isEmpty())
+        {
+            Object[] ids = deletedRecords.toArray();
+            String in = " IN (" + QueryUtils.placeholders(ids.length) + ")";
+            if (verbose)
+            {
+                System.out.println(" - Deleting " + ids.length + " bitstream records from database");
+            }
+            DatabaseManager.updateQuery(context, "DELETE FROM most_recent_checksum WHERE bitstream_id" + in, ids);
+            DatabaseManager.updateQuery(context, "DELETE FROM checksum_history WHERE bitstream_id" + in, ids);
+            DatabaseManager.updateQuery(context, "DELETE FROM Bitstream WHERE bitstream_id" + in, ids);
+            statistics.recordsDeleted.addAndGet(ids.length);
+        }
+        context.commit();
+
+        statistics.scanned.addAndGet(batch.size());
+        if (verbose)
+        {
+            System.out.println(statistics);
+        }
+    }
+
+    /**
+     * Find the bitstreams using the files of some candidates.
+     *
+     * @return the IDs of the bitstreams using each internal ID
+     */
+    private static Map<String, Set<Integer>> getUsers(Context context, List<CleanupCandidate> candidates)
+            throws SQLException
+    {
+        Set<Object> internalIds = new HashSet<Object>();
+        for (CleanupCandidate candidate : candidates)
+        {
+            internalIds.add(candidate.internalId);
+        }
+
+        Map<String, Set<Integer>> users = new HashMap<String, Set<Integer>>();
+        if (internalIds.isEmpty())
+        {
+            return users;
+        }
+        TableRowIterator rows = DatabaseManager.query(context,
+                "SELECT bitstream_id, internal_id FROM Bitstream WHERE internal_id IN ("
+                        + QueryUtils.placeholders(internalIds.size()) + ")", internalIds.toArray());
+        try
+        {
+            while (rows.hasNext())
+            {
+                TableRow row = rows.next();
+                String internalId = row.getStringColumn("internal_id");
+                if (!users.containsKey(internalId))
+                {
+                    users.put(internalId, new HashSet<Integer>());
+                }
+                users.get(internalId).add(row.getIntColumn("bitstream_id"));
+            }
+        }
+        finally
+        {
+            rows.close();
+        }
+        return users;
+    }
+
+    /**
+     * @return true if no bitstream other than the candidate uses its file,
+     *         apart from those whose records are being deleted
+     */
+    private static boolean isUnused(CleanupCandidate candidate, Set<Integer> users, Set<Integer> deletedRecords)
+    {
+        if (users != null)
+        {
+            for (Integer user : users)
+            {
+                if (user.intValue() != candidate.id && !deletedRecords.contains(user))
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wait for the tasks of the parallel cleanup, and pass on their errors.
+     */
+    private static <T> List<T> waitFor(List<Future<T>> tasks) throws IOException
+    {
+        List<T> results = new ArrayList<T>(tasks.size());
+        try
+        {
+            for (Future<T> task : tasks)
+            {
+                results.add(task.get());
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while cleaning up", e);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+        finally
+        {
+            for (Future<T> task : tasks)
+            {
+                task.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * A deleted bitstream, and the state of its file
+     */
+    private static final class CleanupCandidate
+    {
+        private final int id;
+        private final String internalId;
+        /** The file, or null if it does not exist */
+        private final GeneralFile file;
+        private final boolean recent;
+        private final long size;
+        /** Where the file was moved before being deleted */
+        private GeneralFile aside;
+
+        private CleanupCandidate(TableRow row) throws IOException
+        {
+            id = row.getIntColumn("bitstream_id");
+            internalId = row.getStringColumn("internal_id");
+            GeneralFile candidate = getFile(row);
+            if (candidate == null || !candidate.exists())
+            {
+                file = null;
+                recent = false;
+                size = 0;
+            }
+            else
+            {
+                file = candidate;
+                recent = isRecent(candidate);
+                size = candidate.length();
+            }
+        }
+    }
+
+    /**
+     * What the parallel cleanup did
+     */
+    static final class CleanupStatistics
+    {
+        private final long start = System.currentTimeMillis();
+        private final AtomicLong scanned = new AtomicLong();
+        private final AtomicLong recordsDeleted = new AtomicLong();
+        private final AtomicLong filesDeleted = new AtomicLong();
+        private final AtomicLong filesFailed = new AtomicLong();
+        private final AtomicLong bytesReclaimed = new AtomicLong();
+
+        long getScanned()
+        {
+            return scanned.get();
+        }
+
+        long getRecordsDeleted()
+        {
+            return recordsDeleted.get();
+        }
+
+        long getFilesDeleted()
+        {
+            return filesDeleted.get();
+        }
+
+        long getFilesFailed()
+        {
+            return filesFailed.get();
+        }
+
+        long getBytesReclaimed()
+        {
+            return bytesReclaimed.get();
+        }
+
+        @Override
+        public String toString()
+        {
+            long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+            return "Cleanup: " + scanned.get() + " deleted bitstreams in " + (elapsed / 1000) + " s ("
+                    + (scanned.get() * 1000 / elapsed) + " per second), "
+                    + filesDeleted.get() + " files deleted (" + bytesReclaimed.get() + " bytes reclaimed), "
+                    + filesFailed.get() + " files not deleted, "
+                    + recordsDeleted.get() + " database records deleted";
+        }
     }
 
     /**
@@ -719,10 +1236,144 @@ public class BitstreamStorageManager
     }
 
 
+    /**
+     * Override <code>assetstore.deduplicate</code>, for tests
+     *
+     * @param deduplicate whether new bitstreams are stored under their
+     *            content digest
+     */
+    static synchronized void configure(boolean deduplicate)
+    {
+        contentAddressed = deduplicate;
+    }
+
     ////////////////////////////////////////
     // Internal methods
     ////////////////////////////////////////
 
+    /**
+     * Give a newly stored file the name of its content digest. If a file
+     * with the same content is already there the new bitstream uses it, and
+     * the new file is deleted. The bitstreams using a file are counted by
+     * {@link #cleanup}, which only deletes it once none is left. A copy left
+     * aside by an interrupted cleanup is put back and used in the same way.
+     *
+     * @param bitstream
+     *            the database table row for the new bitstream, whose
+     *            internal_id is updated
+     * @param file
+     *            the file just written
+     * @param digest
+     *            the digest of its content
+     * @return the file now holding the content
+     */
+    private static GeneralFile moveToContentAddress(TableRow bitstream, GeneralFile file, String digest)
+            throws IOException
+    {
+        String randomId = bitstream.getStringColumn("internal_id");
+        bitstream.setColumn("internal_id", digest);
+        GeneralFile target = getFile(bitstream);
+
+        if (target.exists() && target.length() == file.length())
+        {
+            // Make the existing file recent, so that cleanup does not take
+            // it for unused before the new bitstream is committed. Cleanup
+            // moves a file aside before it checks that again, so if the file
+            // is still there afterwards it is safe to use.
+            target.setLastModified(System.currentTimeMillis());
+            if (target.exists())
+            {
+                file.delete();
+                deleteParents(file);
+                if (log.isDebugEnabled())
+                {
+                    log.debug("Bitstream content already stored in file " + target.getAbsolutePath());
+                }
+                return target;
+            }
+        }
+
+        // Cleanup may have died between moving the file aside and deleting
+        // it. If it is still running, it fails to delete the file once it is
+        // back in place.
+        GeneralFile aside = FileFactory.newFile(target.getParentFile(), target.getName() + ".deleted");
+        if (!target.exists() && aside.exists() && aside.length() == file.length()
+                && aside.renameTo(target))
+        {
+            target.setLastModified(System.currentTimeMillis());
+            file.delete();
+            deleteParents(file);
+            if (log.isDebugEnabled())
+            {
+                log.debug("Bitstream content restored from " + aside.getAbsolutePath());
+            }
+            return target;
+        }
+
+        boolean moved;
+        synchronized (BitstreamStorageManager.class)
+        {
+            GeneralFile parent = target.getParentFile();
+            if (!parent.exists())
+            {
+                parent.mkdirs();
+            }
+            moved = file.renameTo(target);
+        }
+        if (!moved)
+        {
+            // Keep the file where it is, it just won't be shared
+            log.warn("Unable to move " + file.getAbsolutePath() + " to " + target.getAbsolutePath());
+            bitstream.setColumn("internal_id", randomId);
+            return file;
+        }
+        deleteParents(file);
+        return target;
+    }
+
+    /**
+     * Move a file which no bitstream seems to use any more aside, before
+     * checking again and deleting it. Once it is moved, store() can no
+     * longer link a new bitstream to it (see moveToContentAddress).
+     *
+     * @param file
+     *            the file
+     * @return where it now is, or null if it could not be moved
+     */
+    private static GeneralFile moveAside(GeneralFile file)
+    {
+        GeneralFile aside = FileFactory.newFile(file.getParentFile(), file.getName() + ".deleted");
+        return file.renameTo(aside) ? aside : null;
+    }
+
+    /**
+     * Delete a file moved aside, unless it turns out to be used or recent
+     * after all, e.g. because store() linked a new bitstream to it just
+     * before it was moved. In that case put it back.
+     *
+     * @param file
+     *            where the file was
+     * @param aside
+     *            where it is now
+     * @param used
+     *            whether a bitstream is now known to use it
+     * @return true if the file was deleted
+     */
+    private static boolean deleteOrRestore(GeneralFile file, GeneralFile aside, boolean used)
+    {
+        if (used || isRecent(aside))
+        {
+            // If store() has put the same content back already, this copy
+            // is not needed
+            if (file.exists() || !aside.renameTo(file))
+            {
+                aside.delete();
+            }
+            return false;
+        }
+        return aside.delete();
+    }
+
     /**
      * Return true if this file is too recent to be deleted, false otherwise.
      * 
@@ -789,7 +1440,7 @@ public class BitstreamStorageManager
      * @exception IOException
      *                If a problem occurs while determining the file
      */
-    private static GeneralFile getFile(TableRow bitstream) throws IOException
+    static GeneralFile getFile(TableRow bitstream) throws IOException
     {
         // Check that bitstream is not null
         if (bitstream == null)
@@ -48,6 +48,7 @@ public class Cleanup
 
             options.addOption("l", "leave", false, "Leave database records but delete file from assetstore");
             options.addOption("v", "verbose", false, "Provide verbose output");
+            options.addOption("t", "threads", true, "Delete files with this many threads, in batches (default 1)");
             options.addOption("h", "help", false, "Help");
             
             try
@@ -75,7 +76,22 @@ public class Cleanup
                 deleteDbRecords = false;    
             }
            	log.debug("leave db records = " + deleteDbRecords);
-            BitstreamStorageManager.cleanup(deleteDbRecords, line.hasOption('v'));
+
+            int threads = 1;
+            if (line.hasOption('t'))
+            {
+                try
+                {
+                    threads = Integer.parseInt(line.getOptionValue('t'));
+                }
+                catch (NumberFormatException e)
+                {
+                    System.err.println("Invalid number of threads: " + line.getOptionValue('t'));
+                    printHelp(options);
+                    System.exit(1);
+                }
+            }
+            BitstreamStorageManager.cleanup(deleteDbRecords, line.hasOption('v'), threads);
             
             System.exit(0);
         }
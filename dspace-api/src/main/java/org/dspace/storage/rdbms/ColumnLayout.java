@@ -0,0 +1,110 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The columns of a TableRow and their positions in its array of values.
+ * Resolved once for each list of column names (i.e. each table, or each
+ * shape of query result) and shared by all rows with those columns.
+ * Instances are immutable.
+ */
+final class ColumnLayout
+{
+    /** Layouts by list of column names, as given to {@link #forColumns(List)} */
+    private static final Map<List<String>, ColumnLayout> layouts = new ConcurrentHashMap<List<String>, ColumnLayout>();
+
+    /** Beyond this many distinct lists of columns, layouts are not shared */
+    private static final int MAX_LAYOUTS = 1000;
+
+    /** The canonical column names, in order */
+    private final String[] names;
+
+    /**
+     * Column positions by canonical, lower case and upper case name, so that
+     * lookups with the names used in the code need no case conversion
+     */
+    private final Map<String, Integer> positions = new HashMap<String, Integer>();
+
+    private ColumnLayout(List<String> columns)
+    {
+        List<String> unique = new ArrayList<String>(columns.size());
+        for (String column : columns)
+        {
+            String canonicalized = ColumnInfo.canonicalize(column);
+            if (!positions.containsKey(canonicalized))
+            {
+                Integer position = Integer.valueOf(unique.size());
+                unique.add(canonicalized);
+                positions.put(canonicalized, position);
+                positions.put(column.toLowerCase(), position);
+                positions.put(column.toUpperCase(), position);
+            }
+        }
+        names = unique.toArray(new String[unique.size()]);
+    }
+
+    /**
+     * Get the layout of a list of columns
+     *
+     * @param columns the column names (case-insensitive)
+     * @return the shared layout
+     */
+    static ColumnLayout forColumns(List<String> columns)
+    {
+        ColumnLayout layout = layouts.get(columns);
+        if (layout == null)
+        {
+            layout = new ColumnLayout(columns);
+            if (layouts.size() < MAX_LAYOUTS)
+            {
+                layouts.put(Collections.unmodifiableList(new ArrayList<String>(columns)), layout);
+            }
+        }
+        return layout;
+    }
+
+    /**
+     * @return the number of columns
+     */
+    int size()
+    {
+        return names.length;
+    }
+
+    /**
+     * @param position a column position
+     * @return the canonical name of the column
+     */
+    String getName(int position)
+    {
+        return names[position];
+    }
+
+    /**
+     * Find the position of a column
+     *
+     * @param column the column name (case-insensitive)
+     * @return the position, or -1 if there is no such column
+     */
+    int indexOf(String column)
+    {
+        Integer position = positions.get(column);
+        if (position == null)
+        {
+            position = positions.get(ColumnInfo.canonicalize(column));
+        }
+        return position == null ? -1 : position.intValue();
+    }
+}
@@ -28,6 +28,38 @@ public class DataSourceInit {
 
     private static DataSource dataSource = null;
 
+    /** The pool behind dataSource */
+    private static ObjectPool connectionPool = null;
+
+    private static DataSource readOnlyDataSource = null;
+
+    /** The pool behind readOnlyDataSource */
+    private static ObjectPool readOnlyConnectionPool = null;
+
+    /**
+     * Get the pool of connections of a data source, if it is one created
+     * by {@link #getDatasource()} or {@link #getReadOnlyDatasource()}.
+     *
+     * @param source a data source
+     * @return its pool, or null if it is not ours
+     */
+    static ObjectPool getConnectionPool(DataSource source)
+    {
+        if (source == null)
+        {
+            return null;
+        }
+        if (source == dataSource)
+        {
+            return connectionPool;
+        }
+        if (source == readOnlyDataSource)
+        {
+            return readOnlyConnectionPool;
+        }
+        return null;
+    }
+
     public static DataSource getDatasource() throws SQLException
     {
         if (dataSource != null)
@@ -35,41 +67,99 @@ public class DataSourceInit {
             return dataSource;
         }
 
-        try
+        Pool pool = createDatasource("db.", false);
+        dataSource = pool.dataSource;
+        connectionPool = pool.connectionPool;
+        return dataSource;
+    }
+
+    /**
+     * Get a pool of read-only connections to the database replica configured
+     * by the <code>db.readonly.*</code> properties. Any property other than
+     * <code>db.readonly.url</code> which is not set is taken from the
+     * corresponding <code>db.*</code> property.
+     *
+     * @return the data source, or null if db.readonly.url is not set
+     * @throws SQLException if the pool cannot be created
+     */
+    public static synchronized DataSource getReadOnlyDatasource() throws SQLException
+    {
+        if (readOnlyDataSource != null)
         {
-            // Register basic JDBC driver
-            Class driverClass = Class.forName(ConfigurationManager
-                    .getProperty("db.driver"));
-            Driver basicDriver = (Driver) driverClass.newInstance();
-            DriverManager.registerDriver(basicDriver);
+            return readOnlyDataSource;
+        }
+        if (StringUtils.isBlank(ConfigurationManager.getProperty("db.readonly.url")))
+        {
+            return null;
+        }
 
-            // Read pool configuration parameter or use defaults
-            // Note we check to see if property is null; getIntProperty returns
-            // '0' if the property is not set OR if it is actually set to zero.
-            // But 0 is a valid option...
-            int maxConnections = ConfigurationManager
-                    .getIntProperty("db.maxconnections");
+        Pool pool = createDatasource("db.readonly.", true);
+        readOnlyDataSource = pool.dataSource;
+        readOnlyConnectionPool = pool.connectionPool;
+        return readOnlyDataSource;
+    }
 
-            if (ConfigurationManager.getProperty("db.maxconnections") == null)
-            {
-                maxConnections = 30;
-            }
+    /**
+     * A data source and its pool of connections
+     */
+    private static final class Pool
+    {
+        private final DataSource dataSource;
+        private final ObjectPool connectionPool;
 
-            int maxWait = ConfigurationManager.getIntProperty("db.maxwait");
+        private Pool(DataSource dataSource, ObjectPool connectionPool)
+        {
+            this.dataSource = dataSource;
+            this.connectionPool = connectionPool;
+        }
+    }
 
-            if (ConfigurationManager.getProperty("db.maxwait") == null)
-            {
-                maxWait = 5000;
-            }
+    /**
+     * Get the name of a configuration property, or of the corresponding
+     * property of the main pool if it is not set
+     */
+    private static String getKey(String prefix, String name)
+    {
+        if (ConfigurationManager.getProperty(prefix + name) != null)
+        {
+            return prefix + name;
+        }
+        return "db." + name;
+    }
 
-            int maxIdle = ConfigurationManager.getIntProperty("db.maxidle");
+    private static String getProperty(String prefix, String name)
+    {
+        return ConfigurationManager.getProperty(getKey(prefix, name));
+    }
 
-            if (ConfigurationManager.getProperty("db.maxidle") == null)
-            {
-                maxIdle = -1;
-            }
+    private static int getIntProperty(String prefix, String name, int defaultValue)
+    {
+        // Note we check to see if property is null; getIntProperty returns
+        // '0' if the property is not set OR if it is actually set to zero.
+        // But 0 is a valid option...
+        String key = getKey(prefix, name);
+        if (ConfigurationManager.getProperty(key) == null)
+        {
+            return defaultValue;
+        }
+        return ConfigurationManager.getIntProperty(key);
+    }
 
-            boolean useStatementPool = ConfigurationManager.getBooleanProperty("db.statementpool",true);
+    private static Pool createDatasource(String prefix, boolean readOnly) throws SQLException
+    {
+        try
+        {
+            // Register basic JDBC driver
+            Class driverClass = Class.forName(getProperty(prefix, "driver"));
+            Driver basicDriver = (Driver) driverClass.newInstance();
+            DriverManager.registerDriver(basicDriver);
+
+            // Read pool configuration parameter or use defaults
+            int maxConnections = getIntProperty(prefix, "maxconnections", 30);
+            int maxWait = getIntProperty(prefix, "maxwait", 5000);
+            int maxIdle = getIntProperty(prefix, "maxidle", -1);
+            boolean useStatementPool = ConfigurationManager.getBooleanProperty(
+                    getKey(prefix, "statementpool"), true);
 
             // Create object pool
             ObjectPool connectionPool = new GenericObjectPool(null, // PoolableObjectFactory
@@ -86,9 +176,9 @@ public class DataSourceInit {
 
             // ConnectionFactory the pool will use to create connections.
             ConnectionFactory connectionFactory = new DriverManagerConnectionFactory(
-                    ConfigurationManager.getProperty("db.url"),
-                    ConfigurationManager.getProperty("db.username"),
-                    ConfigurationManager.getProperty("db.password"));
+                    ConfigurationManager.getProperty(prefix + "url"),
+                    getProperty(prefix, "username"),
+                    getProperty(prefix, "password"));
 
             //
             // Now we'll create the PoolableConnectionFactory, which wraps
@@ -120,7 +210,7 @@ public class DataSourceInit {
             PoolableConnectionFactory poolableConnectionFactory = new PoolableConnectionFactory(
                     connectionFactory, connectionPool, statementFactory,
                     null, // validation query (none until we know DBMS brand)
-                    false, // read only is not default for now
+                    readOnly, // read only for the replica pool only
                     false); // Autocommit defaults to none
 
             //
@@ -133,11 +223,9 @@ public class DataSourceInit {
             //
             poolingDataSource.setPool(connectionPool);
 
-            dataSource = poolingDataSource;
-
             // Set the proper validation query by DBMS brand.
             // For reference see: http://stackoverflow.com/a/10684260/3750035
-            Connection connection = dataSource.getConnection();
+            Connection connection = poolingDataSource.getConnection();
             String productNameLC = connection.getMetaData().getDatabaseProductName()
                     .toLowerCase();
             if (productNameLC.contains("oracle"))
@@ -148,7 +236,7 @@ public class DataSourceInit {
             {
                 poolableConnectionFactory.setValidationQuery("SELECT 1");
     
-                String dbSchema = ConfigurationManager.getProperty("db.schema");
+                String dbSchema = getProperty(prefix, "schema");
                 if (StringUtils.isBlank(dbSchema) != true)
                 {
                     List initSql = Arrays.asList("set search_path to ".concat(dbSchema));
@@ -161,7 +249,7 @@ public class DataSourceInit {
             poolableConnectionFactory.getPool().clear();
 
             // Ready to use
-            return poolingDataSource;
+            return new Pool(poolingDataSource, connectionPool);
         }
         catch (Exception e)
         {
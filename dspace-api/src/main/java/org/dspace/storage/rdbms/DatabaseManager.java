@@ -60,6 +60,9 @@ public class DatabaseManager
     /** DataSource (retrieved from jndi */
     private static DataSource dataSource = null;
 
+    /** The data source for read-only connections, if not the main one */
+    private static DataSource readOnlyDataSource = null;
+
     /** Name of the DBMS, as returned by its driver. */
     private static String dbms;
 
@@ -316,6 +319,121 @@ public class DatabaseManager
         }
     }
 
+    /**
+     * Return an iterator with the results of a query which may return a
+     * large number of rows, such as a scan of a whole table. The rows are
+     * read from a forward-only, read-only cursor, a few at a time, so the
+     * iteration runs in constant memory rather than holding all the rows.
+     * <P>
+     * On PostgreSQL the cursor only lives as long as the transaction:
+     * <em>the Context must not be committed while iterating</em>. Use a
+     * separate (e.g. read-only) Context for the scan if changes have to be
+     * committed along the way.
+     *
+     * @param context
+     *            The context object
+     * @param fetchSize
+     *            The number of rows to read at a time, see
+     *            {@link #getBulkFetchSize()}
+     * @param table
+     *            The name of the table which results
+     * @param query
+     *            The SQL query
+     * @param parameters
+     * 			  A set of SQL parameters to be included in query. The order of
+     * 			  the parameters must correspond to the order of their reference
+     * 			  within the query.
+     * @return A TableRowIterator with the results of the query
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    public static TableRowIterator queryTableStreaming(Context context, int fetchSize, String table,
+            String query, Object... parameters) throws SQLException
+    {
+        return executeStreaming(context, fetchSize, canonicalize(table), query, parameters);
+    }
+
+    /**
+     * Return an iterator with the results of a query which may return a
+     * large number of rows, read from a forward-only, read-only cursor a few
+     * at a time. The column names are read from the ResultSetMetaData.
+     *
+     * @see #queryTableStreaming(Context, int, String, String, Object...)
+     * @param context
+     *            The context object
+     * @param fetchSize
+     *            The number of rows to read at a time, see
+     *            {@link #getBulkFetchSize()}
+     * @param query
+     *            The SQL query
+     * @param parameters
+     * 			  A set of SQL parameters to be included in query.
+     * @return A TableRowIterator with the results of the query
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    public static TableRowIterator queryStreaming(Context context, int fetchSize, String query,
+            Object... parameters) throws SQLException
+    {
+        return executeStreaming(context, fetchSize, null, query, parameters);
+    }
+
+    /**
+     * Get the number of rows read at a time by scans of whole tables, from
+     * <code>db.fetchsize</code> in dspace.cfg (default 1000).
+     *
+     * @return the fetch size
+     */
+    public static int getBulkFetchSize()
+    {
+        return ConfigurationManager.getIntProperty("db.fetchsize", 1000);
+    }
+
+    private static TableRowIterator executeStreaming(Context context, int fetchSize, String table,
+            String query, Object[] parameters) throws SQLException
+    {
+        if (log.isDebugEnabled())
+        {
+            log.debug("Running streaming query \"" + query + "\" with parameters: "
+                    + StringUtils.join(parameters, ",") + ", fetch size " + fetchSize);
+        }
+
+        PreparedStatement statement = null;
+        try
+        {
+            statement = context.getDBConnection().prepareStatement(query,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            if (fetchSize > 0)
+            {
+                statement.setFetchSize(fetchSize);
+            }
+
+            loadParameters(statement, parameters);
+
+            TableRowIterator retTRI = new TableRowIterator(statement.executeQuery(), table);
+
+            retTRI.setStatement(statement);
+            return retTRI;
+        }
+        catch (SQLException sqle)
+        {
+            if (statement != null)
+            {
+                try
+                {
+                    statement.close();
+                }
+                catch (SQLException s)
+                {
+                    log.error("SQL streaming query close Error - ",s);
+                    throw s;
+                }
+            }
+            log.error("SQL streaming query Error - ",sqle);
+            throw sqle;
+        }
+    }
+
     /**
      * Return the single row result to this query, or null if no result. If more
      * than one row results, only the first is returned.
@@ -631,7 +749,76 @@ public class DatabaseManager
         try
         {
             if (dsource != null) {
-                return dsource.getConnection();
+                Connection connection = dsource.getConnection();
+                // A pool which does not reset it may hand back a connection
+                // used by a read-only Context
+                setReadOnly(connection, false);
+                return connection;
+            }
+
+            return null;
+        } catch (SQLException e) {
+            log.error("SQL connection Error - ", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Obtain a read-only RDBMS connection from the main pool, used by
+     * read-only Contexts.
+     *
+     * @return A new read-only database connection.
+     * @exception SQLException
+     *                If a database error occurs, or a connection cannot be
+     *                obtained.
+     */
+    public static Connection getReadOnlyConnection() throws SQLException
+    {
+        return getReadOnlyConnection(getDataSource());
+    }
+
+    /**
+     * Obtain a read-only RDBMS connection from the read-only database
+     * replica if one is configured, otherwise from the main pool. The
+     * replica may lag behind the main database, so this is only used by
+     * Contexts created with the READ_REPLICA option.
+     *
+     * @return A new read-only database connection.
+     * @exception SQLException
+     *                If a database error occurs, or a connection cannot be
+     *                obtained.
+     */
+    public static Connection getReplicaConnection() throws SQLException
+    {
+        return getReadOnlyConnection(getReplicaDataSource());
+    }
+
+    /**
+     * Obtain a connection from a data source, and make it read-only.
+     *
+     * @param dsource the data source
+     * @return A new read-only database connection, or null if there is no
+     *         data source.
+     * @exception SQLException
+     *                If a database error occurs, or a connection cannot be
+     *                obtained.
+     */
+    static Connection getReadOnlyConnection(DataSource dsource) throws SQLException
+    {
+        try
+        {
+            if (dsource != null) {
+                Connection connection = dsource.getConnection();
+                try
+                {
+                    setReadOnly(connection, true);
+                }
+                catch (SQLException e)
+                {
+                    freeConnection(connection);
+                    throw e;
+                }
+                return connection;
             }
 
             return null;
@@ -641,6 +828,37 @@ public class DatabaseManager
         }
     }
 
+    /**
+     * Make a connection read-only or read/write. PostgreSQL refuses to while
+     * a transaction is in progress, and with autocommit off the validation
+     * query of the pool has already started one, so it is ended first.
+     *
+     * @param connection the connection
+     * @param readOnly whether it should be read-only
+     * @throws SQLException if a database error occurs
+     */
+    private static void setReadOnly(Connection connection, boolean readOnly) throws SQLException
+    {
+        if (connection.isReadOnly() != readOnly)
+        {
+            if (!connection.getAutoCommit())
+            {
+                connection.rollback();
+            }
+            connection.setReadOnly(readOnly);
+        }
+    }
+
+    /**
+     * @return the DataSource of the read-only database replica if one is
+     *         configured, otherwise the main DataSource
+     */
+    public static DataSource getReplicaDataSource()
+    {
+        DataSource main = getDataSource();
+        return readOnlyDataSource != null ? readOnlyDataSource : main;
+    }
+
     public static DataSource getDataSource()
     {
         if(dataSource==null)
@@ -913,7 +1131,7 @@ public class DatabaseManager
      */
     static TableRow process(ResultSet results, String table) throws SQLException
     {
-        return process(results, table, null);
+        return process(results, table, (List<String>) null);
     }
 
     /**
@@ -931,14 +1149,49 @@ public class DatabaseManager
      */
     static TableRow process(ResultSet results, String table, List<String> pColumnNames) throws SQLException
     {
-        ResultSetMetaData meta = results.getMetaData();
-        int columns = meta.getColumnCount() + 1;
+        return process(results, table, getColumnLayout(results, table, pColumnNames));
+    }
 
+    /**
+     * Get the columns of the rows of a ResultSet.
+     *
+     * @param results
+     *            A ResultSet to process
+     * @param table
+     *            The name of the table
+     * @param pColumnNames
+     *            The name of the columns in this resultset, or null
+     * @return The shared column layout
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    static ColumnLayout getColumnLayout(ResultSet results, String table, List<String> pColumnNames) throws SQLException
+    {
         // If we haven't been passed the column names try to generate them from the metadata / table
         List<String> columnNames = pColumnNames != null ? pColumnNames :
-                                        ((table == null) ? getColumnNames(meta) : getColumnNames(table));
+                                        ((table == null) ? getColumnNames(results.getMetaData()) : getColumnNames(table));
+        return ColumnLayout.forColumns(columnNames);
+    }
 
-        TableRow row = new TableRow(canonicalize(table), columnNames);
+    /**
+     * Convert the current row in a ResultSet into a TableRow object.
+     *
+     * @param results
+     *            A ResultSet to process
+     * @param table
+     *            The name of the table
+     * @param layout
+     *            The columns of the rows of this resultset
+     * @return A TableRow object with the data from the ResultSet
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    static TableRow process(ResultSet results, String table, ColumnLayout layout) throws SQLException
+    {
+        ResultSetMetaData meta = results.getMetaData();
+        int columns = meta.getColumnCount() + 1;
+
+        TableRow row = new TableRow(canonicalize(table), layout);
 
         // Process the columns in order
         // (This ensures maximum backwards compatibility with
@@ -1312,7 +1565,16 @@ public class DatabaseManager
     {
         if (initialized)
         {
+            if (dataSource instanceof MonitoredDataSource)
+            {
+                ((MonitoredDataSource) dataSource).close();
+            }
+            if (readOnlyDataSource instanceof MonitoredDataSource)
+            {
+                ((MonitoredDataSource) readOnlyDataSource).close();
+            }
             dataSource = null;
+            readOnlyDataSource = null;
             initialized = false;
         }
     }
@@ -1329,8 +1591,20 @@ public class DatabaseManager
 
         try
         {
-            // Initialize our data source
-            dataSource = initDataSource();
+            // Initialize our data sources, and watch their connections
+            String poolName = ConfigurationManager.getProperty("db.poolname");
+            if (StringUtils.isBlank(poolName))
+            {
+                poolName = "dspacepool";
+            }
+            DataSource pool = initDataSource();
+            dataSource = new MonitoredDataSource(pool, DataSourceInit.getConnectionPool(pool), poolName);
+            DataSource readOnlyPool = initReadOnlyDataSource();
+            if (readOnlyPool != null)
+            {
+                readOnlyDataSource = new MonitoredDataSource(readOnlyPool,
+                        DataSourceInit.getConnectionPool(readOnlyPool), poolName + "-readonly");
+            }
 
             // What brand of DBMS do we have?
             Connection connection = dataSource.getConnection();
@@ -1443,6 +1717,46 @@ public class DatabaseManager
         return dSource;
     }
 
+    /**
+     * Initialize the DataSource for read-only connections to a database
+     * replica, from JNDI (db.readonly.jndi) or the db.readonly.* properties.
+     *
+     * @return the DataSource, or null if no replica is configured
+     * @throws SQLException if an initialization error occurs
+     */
+    protected static DataSource initReadOnlyDataSource()
+            throws SQLException
+    {
+        String jndiName = ConfigurationManager.getProperty("db.readonly.jndi");
+        if (!StringUtils.isEmpty(jndiName))
+        {
+            try
+            {
+                javax.naming.Context ctx = new InitialContext();
+                javax.naming.Context env = (javax.naming.Context) ctx.lookup("java:/comp/env");
+                DataSource dSource = (DataSource) env.lookup(jndiName);
+                if (dSource != null)
+                {
+                    log.info("Using JNDI read-only dataSource: " + jndiName);
+                    return dSource;
+                }
+            }
+            catch (Exception e)
+            {
+                log.error("Error retrieving JNDI context: " + jndiName, e);
+            }
+            log.info("Unable to locate JNDI read-only dataSource: " + jndiName);
+        }
+
+        DataSource dSource = DataSourceInit.getReadOnlyDatasource();
+        if (dSource != null)
+        {
+            log.info("Using read-only database replica: "
+                    + ConfigurationManager.getProperty("db.readonly.url"));
+        }
+        return dSource;
+    }
+
     /**
      * Return the "DbKeyword" for a specific database name.
      * <P>
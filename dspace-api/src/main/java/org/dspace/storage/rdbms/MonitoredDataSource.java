@@ -0,0 +1,470 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+
+import org.apache.commons.pool.ObjectPool;
+import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
+
+/**
+ * Wraps the DataSource of the DatabaseManager, whether DSpace's own pool or
+ * one from JNDI, to measure how long getting a connection takes and to find
+ * connections which are never given back, e.g. by a Context which is never
+ * completed or aborted.
+ * <P>
+ * Connections held for longer than <code>db.leak.threshold</code> seconds
+ * (default 600, 0 to disable) are logged once. Only the time and thread of
+ * each borrow are kept by default; the stack of the code which got the
+ * connection is recorded too if <code>db.leak.stacktrace</code> is true, at
+ * some cost on every borrow. The statistics are registered with JMX (unless
+ * <code>db.jmx</code> is false) under the name of the pool, see
+ * {@link MonitoredDataSourceMBean}.
+ */
+public class MonitoredDataSource implements DataSource, MonitoredDataSourceMBean
+{
+    private static final Logger log = Logger.getLogger(MonitoredDataSource.class);
+
+    /** Upper bounds of the acquire time histogram ranges, in milliseconds */
+    private static final long[] BUCKETS = { 1, 5, 10, 50, 100, 500, 1000, 5000 };
+
+    /** The data source doing the work */
+    private final DataSource delegate;
+
+    /** Our own pool, if the data source is DSpace's, for the idle count */
+    private final ObjectPool pool;
+
+    private final long leakThreshold;
+
+    /** Whether to keep the stack of each borrow, for the leak reports */
+    private final boolean leakStacktrace;
+
+    /** Connections handed out and not closed yet, by their proxy */
+    private final Map<Connection, Borrowed> borrowed = new ConcurrentHashMap<Connection, Borrowed>();
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong acquireFailures = new AtomicLong();
+    private final AtomicLong acquireTime = new AtomicLong();
+    private final AtomicLong maxAcquireTime = new AtomicLong();
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS.length + 1);
+
+    private ScheduledExecutorService leakChecker = null;
+
+    private ObjectName objectName = null;
+
+    /**
+     * A connection handed out, and where from
+     */
+    private static final class Borrowed
+    {
+        private final long time = System.currentTimeMillis();
+        private final String thread = Thread.currentThread().getName();
+        private final Throwable stack;
+        private volatile boolean reported = false;
+
+        private Borrowed(boolean keepStack)
+        {
+            stack = keepStack ? new Throwable("Connection obtained here") : null;
+        }
+
+        private String describe(long now)
+        {
+            StringWriter description = new StringWriter();
+            description.append("Connection held for ").append(String.valueOf((now - time) / 1000))
+                    .append(" s by thread ").append(thread);
+            if (stack != null)
+            {
+                description.append(", obtained at:\n");
+                stack.printStackTrace(new PrintWriter(description));
+            }
+            return description.toString();
+        }
+    }
+
+    /**
+     * Wrap a data source, and start monitoring it.
+     *
+     * @param delegate
+     *            the data source to get connections from
+     * @param pool
+     *            the pool of the data source if it is DSpace's own, or null
+     * @param name
+     *            the name to register the statistics under
+     */
+    public MonitoredDataSource(DataSource delegate, ObjectPool pool, String name)
+    {
+        this.delegate = delegate;
+        this.pool = pool;
+        this.leakThreshold = ConfigurationManager.getLongProperty("db.leak.threshold", 600) * 1000;
+        this.leakStacktrace = leakThreshold > 0
+                && ConfigurationManager.getBooleanProperty("db.leak.stacktrace", false);
+
+        if (leakThreshold > 0)
+        {
+            leakChecker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, "Database connection leak checker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            long period = Math.max(leakThreshold / 4, 1000);
+            leakChecker.scheduleWithFixedDelay(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    reportLeaks();
+                }
+            }, period, period, TimeUnit.MILLISECONDS);
+        }
+
+        if (ConfigurationManager.getBooleanProperty("db.jmx", true))
+        {
+            registerMBean(name);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        return monitor(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException
+    {
+        return monitor(username, password);
+    }
+
+    private Connection monitor(String username, String password) throws SQLException
+    {
+        long start = System.nanoTime();
+        pending.incrementAndGet();
+        Connection connection;
+        try
+        {
+            connection = username == null ? delegate.getConnection()
+                    : delegate.getConnection(username, password);
+        }
+        catch (SQLException e)
+        {
+            acquireFailures.incrementAndGet();
+            throw e;
+        }
+        catch (RuntimeException e)
+        {
+            acquireFailures.incrementAndGet();
+            throw e;
+        }
+        finally
+        {
+            pending.decrementAndGet();
+        }
+        record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        Connection proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class[] { Connection.class }, new ConnectionHandler(connection));
+        borrowed.put(proxy, new Borrowed(leakStacktrace));
+        return proxy;
+    }
+
+    private void record(long millis)
+    {
+        acquireCount.incrementAndGet();
+        acquireTime.addAndGet(millis);
+        long max = maxAcquireTime.get();
+        while (millis > max && !maxAcquireTime.compareAndSet(max, millis))
+        {
+            max = maxAcquireTime.get();
+        }
+        int bucket = 0;
+        while (bucket < BUCKETS.length && millis > BUCKETS[bucket])
+        {
+            bucket++;
+        }
+        histogram.incrementAndGet(bucket);
+    }
+
+    /**
+     * Forget a connection when it is closed, i.e. given back to the pool
+     */
+    private final class ConnectionHandler implements InvocationHandler
+    {
+        private final Connection connection;
+
+        private ConnectionHandler(Connection connection)
+        {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            String name = method.getName();
+            if ("equals".equals(name) && args != null && args.length == 1)
+            {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(name) && args == null)
+            {
+                return System.identityHashCode(proxy);
+            }
+            if ("close".equals(name) && args == null)
+            {
+                Borrowed released = borrowed.remove(proxy);
+                if (released != null && released.reported)
+                {
+                    log.warn("Connection reported as leaked was closed after "
+                            + (System.currentTimeMillis() - released.time) / 1000 + " s");
+                }
+            }
+            try
+            {
+                return method.invoke(connection, args);
+            }
+            catch (InvocationTargetException e)
+            {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Log the connections held for too long which have not been logged yet
+     */
+    private void reportLeaks()
+    {
+        long now = System.currentTimeMillis();
+        for (Borrowed connection : borrowed.values())
+        {
+            if (!connection.reported && now - connection.time > leakThreshold)
+            {
+                connection.reported = true;
+                log.warn("Possible connection leak: " + connection.describe(now));
+            }
+        }
+    }
+
+    /**
+     * Register with the platform MBean server
+     */
+    private void registerMBean(String name)
+    {
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName candidate = new ObjectName("org.dspace:type=ConnectionPool,name=" + ObjectName.quote(name));
+            if (server.isRegistered(candidate))
+            {
+                // E.g. another webapp in the same JVM with the same pool name
+                log.warn("Not registering connection pool statistics, " + candidate + " is already registered");
+                return;
+            }
+            server.registerMBean(this, candidate);
+            objectName = candidate;
+        }
+        catch (Exception e)
+        {
+            log.warn("Unable to register connection pool statistics with JMX", e);
+        }
+    }
+
+    /**
+     * Stop monitoring: stop looking for leaks, and unregister from JMX.
+     */
+    public void close()
+    {
+        if (leakChecker != null)
+        {
+            leakChecker.shutdownNow();
+            leakChecker = null;
+        }
+        if (objectName != null)
+        {
+            try
+            {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            }
+            catch (Exception e)
+            {
+                log.warn("Unable to unregister " + objectName, e);
+            }
+            objectName = null;
+        }
+    }
+
+    @Override
+    public int getActiveConnections()
+    {
+        return borrowed.size();
+    }
+
+    @Override
+    public int getIdleConnections()
+    {
+        return pool == null ? -1 : pool.getNumIdle();
+    }
+
+    @Override
+    public int getPendingRequests()
+    {
+        return pending.get();
+    }
+
+    @Override
+    public long getAcquireCount()
+    {
+        return acquireCount.get();
+    }
+
+    @Override
+    public long getAcquireFailures()
+    {
+        return acquireFailures.get();
+    }
+
+    @Override
+    public double getMeanAcquireTime()
+    {
+        long count = acquireCount.get();
+        return count == 0 ? 0 : (double) acquireTime.get() / count;
+    }
+
+    @Override
+    public long getMaxAcquireTime()
+    {
+        return maxAcquireTime.get();
+    }
+
+    @Override
+    public String getAcquireTimeHistogram()
+    {
+        StringBuilder result = new StringBuilder();
+        for (int bucket = 0; bucket <= BUCKETS.length; bucket++)
+        {
+            if (bucket > 0)
+            {
+                result.append(", ");
+            }
+            if (bucket < BUCKETS.length)
+            {
+                result.append("<=").append(BUCKETS[bucket]).append("ms: ");
+            }
+            else
+            {
+                result.append(">").append(BUCKETS[BUCKETS.length - 1]).append("ms: ");
+            }
+            result.append(histogram.get(bucket));
+        }
+        return result.toString();
+    }
+
+    @Override
+    public String[] getLeakedConnections()
+    {
+        long now = System.currentTimeMillis();
+        List<String> leaked = new ArrayList<String>();
+        for (Borrowed connection : borrowed.values())
+        {
+            if (leakThreshold > 0 && now - connection.time > leakThreshold)
+            {
+                leaked.add(connection.describe(now));
+            }
+        }
+        return leaked.toArray(new String[leaked.size()]);
+    }
+
+    @Override
+    public void resetStatistics()
+    {
+        acquireCount.set(0);
+        acquireFailures.set(0);
+        acquireTime.set(0);
+        maxAcquireTime.set(0);
+        for (int bucket = 0; bucket <= BUCKETS.length; bucket++)
+        {
+            histogram.set(bucket, 0);
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException
+    {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException
+    {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException
+    {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException
+    {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException
+    {
+        throw new SQLFeatureNotSupportedException("getParentLogger");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException
+    {
+        if (iface.isInstance(this))
+        {
+            return iface.cast(this);
+        }
+        return delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException
+    {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+/**
+ * JMX view of the database connection pool, as registered by
+ * {@link MonitoredDataSource} under
+ * <code>org.dspace:type=ConnectionPool,name=&lt;db.poolname&gt;</code>, and
+ * <code>org.dspace:type=ConnectionPool,name=&lt;db.poolname&gt;-readonly</code>
+ * for the read-only replica if there is one.
+ */
+public interface MonitoredDataSourceMBean
+{
+    /**
+     * @return the number of connections handed out and not closed yet
+     */
+    public int getActiveConnections();
+
+    /**
+     * @return the number of idle connections in the pool, or -1 if the pool
+     *         is not DSpace's own (e.g. it comes from JNDI)
+     */
+    public int getIdleConnections();
+
+    /**
+     * @return the number of threads waiting for a connection
+     */
+    public int getPendingRequests();
+
+    /**
+     * @return the number of connections handed out since startup or the
+     *         last reset
+     */
+    public long getAcquireCount();
+
+    /**
+     * @return the number of requests for a connection which failed (e.g.
+     *         timed out after db.maxwait) since startup or the last reset
+     */
+    public long getAcquireFailures();
+
+    /**
+     * @return the mean time taken to get a connection, in milliseconds
+     */
+    public double getMeanAcquireTime();
+
+    /**
+     * @return the longest time taken to get a connection, in milliseconds
+     */
+    public long getMaxAcquireTime();
+
+    /**
+     * @return the number of connections obtained within each time range,
+     *         e.g. "&lt;=1ms: 950, &lt;=5ms: 40, ..."
+     */
+    public String getAcquireTimeHistogram();
+
+    /**
+     * @return a description of each connection held for longer than
+     *         db.leak.threshold, with the stack of the code which got it
+     */
+    public String[] getLeakedConnections();
+
+    /**
+     * Reset the counts and times, but not the active connections
+     */
+    public void resetStatistics();
+}
@@ -0,0 +1,77 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Helpers for queries with IN (...) lists. All values are passed as bind
+ * parameters, so that the statement text only depends on the number of
+ * values and the prepared statements can be reused from the pool.
+ */
+public final class QueryUtils
+{
+    /** Largest number of IDs put into one IN (...) list (Oracle allows 1000) */
+    public static final int MAX_IN_SIZE = 1000;
+
+    /** Utility class */
+    private QueryUtils()
+    {
+    }
+
+    /**
+     * Split IDs into blocks small enough for an IN (...) list, dropping
+     * duplicates.
+     *
+     * @param ids the IDs
+     * @return the blocks of IDs, none of them empty
+     */
+    public static List<Object[]> blocks(Collection<Integer> ids)
+    {
+        List<Integer> all = new ArrayList<Integer>(new LinkedHashSet<Integer>(ids));
+        List<Object[]> blocks = new ArrayList<Object[]>();
+        for (int start = 0; start < all.size(); start += MAX_IN_SIZE)
+        {
+            blocks.add(all.subList(start, Math.min(start + MAX_IN_SIZE, all.size())).toArray());
+        }
+        return blocks;
+    }
+
+    /**
+     * @param count the number of values
+     * @return the list of bind parameters for an IN (...) list of that many values
+     */
+    public static String placeholders(int count)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++)
+        {
+            sb.append(i > 0 ? ",?" : "?");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Put parameters in front of a block of IDs, for a query with other bind
+     * parameters before its IN (...) list.
+     *
+     * @param block the IDs
+     * @param first the other parameters
+     * @return all the parameters
+     */
+    public static Object[] parameters(Object[] block, Object... first)
+    {
+        Object[] parameters = new Object[first.length + block.length];
+        System.arraycopy(first, 0, parameters, 0, first.length);
+        System.arraycopy(block, 0, parameters, first.length, block.length);
+        return parameters;
+    }
+}
@@ -8,13 +8,17 @@
 package org.dspace.storage.rdbms;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Represents a database row.
+ * <P>
+ * The values are kept in an array, in the order of a {@link ColumnLayout}
+ * shared by all rows with the same columns, so that rows are cheap to create
+ * and column lookups need no case conversion for the usual lower or upper
+ * case column names.
  * 
  * @author Peter Breton
  * @version $Revision$
@@ -27,14 +31,18 @@ public class TableRow
     /** The name of the database table containing this row */
     private String table;
 
+    /** The columns of this row */
+    private final ColumnLayout layout;
+
     /**
-     * A map of column names to column values. The key of the map is a String,
-     * the column name; the value is an Object, either an Integer, Boolean,
-     * Date, or String. If the value is NULL_OBJECT, then the column was NULL.
+     * The column values, in the order of the layout: an Integer, Long,
+     * BigDecimal, Double, Boolean, Date or String. If the value is
+     * NULL_OBJECT, then the column was NULL.
      */
-    private Map<String, Object> data = new HashMap<String, Object>();
+    private final Object[] values;
 
-    private Map<String, Boolean> changed = new HashMap<String, Boolean>();
+    /** The positions of the columns which have been updated */
+    private final BitSet changed;
 
     /**
      * Constructor
@@ -49,14 +57,25 @@ public class TableRow
      */
     public TableRow(String table, List<String> columns)
     {
-        this.table = table;
+        this(table, ColumnLayout.forColumns(columns));
+    }
 
-        for (String column : columns)
-        {
-            String canonicalized = ColumnInfo.canonicalize(column);
-            data.put(canonicalized, NULL_OBJECT);
-            changed.put(canonicalized, Boolean.TRUE);
-        }
+    /**
+     * Constructor for a row with all columns NULL and marked as updated.
+     *
+     * @param table
+     *            The name of the database table containing this row.
+     * @param layout
+     *            The columns of the row.
+     */
+    TableRow(String table, ColumnLayout layout)
+    {
+        this.table = table;
+        this.layout = layout;
+        values = new Object[layout.size()];
+        Arrays.fill(values, NULL_OBJECT);
+        changed = new BitSet(layout.size());
+        changed.set(0, layout.size());
     }
 
     /**
@@ -83,14 +102,7 @@ public class TableRow
      */
     public boolean hasColumn(String column)
     {
-        try
-        {
-            return canonicalizeAndCheck(column) != null;
-        }
-        catch (IllegalArgumentException e)
-        {
-            return false;
-        }
+        return layout.indexOf(column) >= 0;
     }
 
     /**
@@ -102,12 +114,8 @@ public class TableRow
      */
     public boolean hasColumnChanged(String column)
     {
-        return hasColumnChangedCanonicalized(ColumnInfo.canonicalize(column));
-    }
-
-    boolean hasColumnChangedCanonicalized(String column)
-    {
-        return changed.get(column) == Boolean.TRUE;
+        int index = layout.indexOf(column);
+        return index >= 0 && changed.get(index);
     }
 
     /**
@@ -119,12 +127,7 @@ public class TableRow
      */
     public boolean isColumnNull(String column)
     {
-        return isColumnNullCanonicalized(canonicalizeAndCheck(column));
-    }
-
-    boolean isColumnNullCanonicalized(String column)
-    {
-        return data.get(column) == NULL_OBJECT;
+        return values[canonicalizeAndCheck(column)] == NULL_OBJECT;
     }
 
     /**
@@ -140,13 +143,13 @@ public class TableRow
      */
     public int getIntColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int index = canonicalizeAndCheck(column);
+        if (values[index] == NULL_OBJECT)
         {
             return -1;
         }
 
-        Object value = data.get(canonicalized);
+        Object value = values[index];
 
         if (value == null)
         {
@@ -189,13 +192,13 @@ public class TableRow
      */
     public long getLongColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int index = canonicalizeAndCheck(column);
+        if (values[index] == NULL_OBJECT)
         {
             return -1;
         }
 
-        Object value = data.get(canonicalized);
+        Object value = values[index];
 
         if (value == null)
         {
@@ -233,11 +236,11 @@ public class TableRow
      */
     public BigDecimal getNumericColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int index = canonicalizeAndCheck(column);
+        if (values[index] == NULL_OBJECT)
             return BigDecimal.valueOf(-1);
 
-        Object value = data.get(canonicalized);
+        Object value = values[index];
 
         if (value == null)
             throw new IllegalArgumentException("Column " + column + " not present");
@@ -266,13 +269,13 @@ public class TableRow
      */
     public double getDoubleColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int index = canonicalizeAndCheck(column);
+        if (values[index] == NULL_OBJECT)
         {
             return -1;
         }
 
-        Object value = data.get(canonicalized);
+        Object value = values[index];
 
         if (value == null)
         {
@@ -300,13 +303,13 @@ public class TableRow
      */
     public String getStringColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int index = canonicalizeAndCheck(column);
+        if (values[index] == NULL_OBJECT)
         {
             return null;
         }
 
-        Object value = data.get(canonicalized);
+        Object value = values[index];
 
         if (value == null)
         {
@@ -334,13 +337,13 @@ public class TableRow
      */
     public boolean getBooleanColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int index = canonicalizeAndCheck(column);
+        if (values[index] == NULL_OBJECT)
         {
             return false;
         }
 
-        Object value = data.get(canonicalized);
+        Object value = values[index];
 
         // make sure that we tolerate integers or booleans
         if (value == null)
@@ -386,13 +389,13 @@ public class TableRow
      */
     public java.util.Date getDateColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int index = canonicalizeAndCheck(column);
+        if (values[index] == NULL_OBJECT)
         {
             return null;
         }
 
-        Object value = data.get(canonicalized);
+        Object value = values[index];
 
         if (value == null)
         {
@@ -417,11 +420,11 @@ public class TableRow
      */
     public void setColumnNull(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (data.get(canonicalized) != NULL_OBJECT)
+        int index = canonicalizeAndCheck(column);
+        if (values[index] != NULL_OBJECT)
         {
-            data.put(canonicalized, NULL_OBJECT);
-            changed.put(canonicalized, Boolean.TRUE);
+            values[index] = NULL_OBJECT;
+            changed.set(index);
         }
     }
     /**
@@ -436,25 +439,25 @@ public class TableRow
      */
     public void setColumn(String column, boolean b)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int index = canonicalizeAndCheck(column);
         if (DatabaseManager.isOracle())
         {
             // if oracle, use 1 or 0 for true/false
             Integer value = b ? Integer.valueOf(1) : Integer.valueOf(0);
-            if (!value.equals(data.get(canonicalized)))
+            if (!value.equals(values[index]))
             {
-                data.put(canonicalized, value);
-                changed.put(canonicalized, Boolean.TRUE);
+                values[index] = value;
+                changed.set(index);
             }
         }
         else
         {
             // default to postgres true/false
             Boolean value = b ? Boolean.TRUE : Boolean.FALSE;
-            if (!value.equals(data.get(canonicalized)))
+            if (!value.equals(values[index]))
             {
-                data.put(canonicalized, value);
-                changed.put(canonicalized, Boolean.TRUE);
+                values[index] = value;
+                changed.set(index);
             }
         }
     }
@@ -471,12 +474,12 @@ public class TableRow
      */
     public void setColumn(String column, String s)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int index = canonicalizeAndCheck(column);
         Object value = (s == null) ? NULL_OBJECT : s;
-        if (!value.equals(data.get(canonicalized)))
+        if (!value.equals(values[index]))
         {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
+            values[index] = value;
+            changed.set(index);
         }
     }
 
@@ -492,12 +495,12 @@ public class TableRow
      */
     public void setColumn(String column, int i)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int index = canonicalizeAndCheck(column);
         Integer value = Integer.valueOf(i);
-        if (!value.equals(data.get(canonicalized)))
+        if (!value.equals(values[index]))
         {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
+            values[index] = value;
+            changed.set(index);
         }
     }
 
@@ -513,12 +516,12 @@ public class TableRow
      */
     public void setColumn(String column, long l)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int index = canonicalizeAndCheck(column);
         Long value = Long.valueOf(l);
-        if (!value.equals(data.get(canonicalized)))
+        if (!value.equals(values[index]))
         {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
+            values[index] = value;
+            changed.set(index);
         }
     }
 
@@ -533,12 +536,12 @@ public class TableRow
      */
     public void setColumn(String column, BigDecimal bd)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int index = canonicalizeAndCheck(column);
         Object value = (bd == null) ? NULL_OBJECT : bd;
-        if (!value.equals(data.get(canonicalized)))
+        if (!value.equals(values[index]))
         {
-            data.put(canonicalized, bd);
-            changed.put(canonicalized, Boolean.TRUE);
+            values[index] = value;
+            changed.set(index);
         }
     }
 
@@ -554,12 +557,12 @@ public class TableRow
      */
     public void setColumn(String column, double d)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int index = canonicalizeAndCheck(column);
         Double value = new Double(d);
-        if (!value.equals(data.get(canonicalized)))
+        if (!value.equals(values[index]))
         {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
+            values[index] = value;
+            changed.set(index);
         }
     }
 
@@ -576,12 +579,12 @@ public class TableRow
      */
     public void setColumn(String column, java.util.Date d)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int index = canonicalizeAndCheck(column);
         Object value = (d == null) ? NULL_OBJECT : d;
-        if (!value.equals(data.get(canonicalized)))
+        if (!value.equals(values[index]))
         {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
+            values[index] = value;
+            changed.set(index);
         }
     }
 
@@ -610,11 +613,10 @@ public class TableRow
     	
     	result.append(NEWLINE);
 
-        for (Iterator iterator = data.keySet().iterator(); iterator.hasNext();)
+        for (int i = 0; i < values.length; i++)
         {
-            String column = (String) iterator.next();
-            result.append("\t").append(column).append(" = ").append(
-                    isColumnNull(column) ? "NULL" : data.get(column)).append(
+            result.append("\t").append(layout.getName(i)).append(" = ").append(
+                    values[i] == NULL_OBJECT ? "NULL" : values[i]).append(
                     NEWLINE);
         }
 
@@ -628,7 +630,13 @@ public class TableRow
      */
     public int hashCode()
     {
-        return toString().hashCode();
+        // Independent of the column order, like equals
+        int hash = 0;
+        for (int i = 0; i < values.length; i++)
+        {
+            hash += layout.getName(i).hashCode() ^ values[i].hashCode();
+        }
+        return hash;
     }
 
     /**
@@ -644,23 +652,34 @@ public class TableRow
             return false;
         }
 
-        return data.equals(((TableRow) obj).data);
-    }
-
-    private String canonicalizeAndCheck(String column)
-    {
-        if (data.containsKey(column))
+        TableRow other = (TableRow) obj;
+        if (layout == other.layout)
         {
-            return column;
+            return Arrays.equals(values, other.values);
         }
-
-        String canonicalized = ColumnInfo.canonicalize(column);
-        if (data.containsKey(canonicalized))
+        if (values.length != other.values.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < values.length; i++)
         {
-            return canonicalized;
+            int index = other.layout.indexOf(layout.getName(i));
+            if (index < 0 || !values[i].equals(other.values[index]))
+            {
+                return false;
+            }
         }
+        return true;
+    }
 
-        throw new IllegalArgumentException("No such column '" + canonicalized + "'");
+    private int canonicalizeAndCheck(String column)
+    {
+        int index = layout.indexOf(column);
+        if (index < 0)
+        {
+            throw new IllegalArgumentException("No such column '" + ColumnInfo.canonicalize(column) + "'");
+        }
+        return index;
     }
 
     /**
@@ -672,9 +691,6 @@ public class TableRow
      */
     void resetChanged()
     {
-        for (String column : changed.keySet())
-        {
-            changed.put(column, Boolean.FALSE);
-        }
+        changed.clear();
     }
 }
@@ -10,6 +10,7 @@ package org.dspace.submit.lookup;
 import gr.ekt.bte.core.Record;
 
 import java.io.IOException;
+import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
@@ -20,16 +21,11 @@ import javax.xml.parsers.DocumentBuilderFactory;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.HttpException;
-import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.params.CoreConnectionPNames;
-import org.apache.http.params.HttpParams;
 import org.dspace.app.util.XMLUtils;
+import org.dspace.util.LookupHttpClient;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -83,82 +79,68 @@ public class ArXivService
     }
 
     private List<Record> search(String query, String arxivid, int max_result)
-    		throws IOException, HttpException
-    		{
-    	List<Record> results = new ArrayList<Record>();
-    	HttpGet method = null;
-    	try
-    	{
-    		HttpClient client = new DefaultHttpClient();
-            HttpParams params = client.getParams();
-            params.setIntParameter(CoreConnectionPNames.CONNECTION_TIMEOUT, timeout);
-
-            try {
-                URIBuilder uriBuilder = new URIBuilder("http://export.arxiv.org/api/query");
-                uriBuilder.addParameter("id_list", arxivid);
-                uriBuilder.addParameter("search_query", query);
-                uriBuilder.addParameter("max_results", String.valueOf(max_result));
-                method = new HttpGet(uriBuilder.build());
-            } catch (URISyntaxException ex)
+            throws IOException, HttpException
+    {
+        List<Record> results = new ArrayList<Record>();
+        URI uri;
+        try {
+            URIBuilder uriBuilder = new URIBuilder("http://export.arxiv.org/api/query");
+            uriBuilder.addParameter("id_list", arxivid);
+            uriBuilder.addParameter("search_query", query);
+            uriBuilder.addParameter("max_results", String.valueOf(max_result));
+            uri = uriBuilder.build();
+        } catch (URISyntaxException ex)
+        {
+            throw new HttpException(ex.getMessage());
+        }
+
+        // Execute the method.
+        LookupHttpClient.Response response = LookupHttpClient.get(uri, timeout);
+        StatusLine responseStatus = response.getStatusLine();
+        int statusCode = responseStatus.getStatusCode();
+
+        if (statusCode != HttpStatus.SC_OK)
+        {
+            if (statusCode == HttpStatus.SC_BAD_REQUEST)
+                throw new RuntimeException("arXiv query is not valid");
+            else
+                throw new RuntimeException("Http call failed: "
+                        + responseStatus);
+        }
+
+        try
+        {
+            DocumentBuilderFactory factory = DocumentBuilderFactory
+                    .newInstance();
+            factory.setValidating(false);
+            factory.setIgnoringComments(true);
+            factory.setIgnoringElementContentWhitespace(true);
+
+            DocumentBuilder db = factory.newDocumentBuilder();
+            Document inDoc = db.parse(response.getContent());
+
+            Element xmlRoot = inDoc.getDocumentElement();
+            List<Element> dataRoots = XMLUtils.getElementList(xmlRoot,
+                    "entry");
+
+            for (Element dataRoot : dataRoots)
             {
-                throw new HttpException(ex.getMessage());
+                Record crossitem = ArxivUtils
+                        .convertArxixDomToRecord(dataRoot);
+                if (crossitem != null)
+                {
+                    results.add(crossitem);
+                }
             }
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException(
+                    "ArXiv identifier is not valid or not exist");
+        }
 
-            // Execute the method.
-    		HttpResponse response = client.execute(method);
-            StatusLine responseStatus = response.getStatusLine();
-            int statusCode = responseStatus.getStatusCode();
-
-    		if (statusCode != HttpStatus.SC_OK)
-    		{
-    			if (statusCode == HttpStatus.SC_BAD_REQUEST)
-    				throw new RuntimeException("arXiv query is not valid");
-    			else
-    				throw new RuntimeException("Http call failed: "
-    						+ responseStatus);
-    		}
-
-    		try
-    		{
-    			DocumentBuilderFactory factory = DocumentBuilderFactory
-    					.newInstance();
-    			factory.setValidating(false);
-    			factory.setIgnoringComments(true);
-    			factory.setIgnoringElementContentWhitespace(true);
-
-    			DocumentBuilder db = factory.newDocumentBuilder();
-    			Document inDoc = db.parse(response.getEntity().getContent());
-
-    			Element xmlRoot = inDoc.getDocumentElement();
-    			List<Element> dataRoots = XMLUtils.getElementList(xmlRoot,
-    					"entry");
-
-    			for (Element dataRoot : dataRoots)
-    			{
-    				Record crossitem = ArxivUtils
-    						.convertArxixDomToRecord(dataRoot);
-    				if (crossitem != null)
-    				{
-    					results.add(crossitem);
-    				}
-    			}
-    		}
-    		catch (Exception e)
-    		{
-    			throw new RuntimeException(
-    					"ArXiv identifier is not valid or not exist");
-    		}
-    	}
-    	finally
-    	{
-    		if (method != null)
-    		{
-    			method.releaseConnection();
-    		}
-    	}
-
-    	return results;
-    		}
+        return results;
+    }
 
     public Record getByArXivIDs(String raw) throws HttpException, IOException
     {
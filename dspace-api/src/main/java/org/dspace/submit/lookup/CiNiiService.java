@@ -10,6 +10,7 @@ package org.dspace.submit.lookup;
 import gr.ekt.bte.core.Record;
 
 import java.io.IOException;
+import java.net.URI;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.List;
@@ -17,16 +18,12 @@ import java.util.List;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import org.apache.http.HttpException;
-import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.params.CoreConnectionPNames;
 
 import org.apache.log4j.Logger;
 import org.dspace.app.util.XMLUtils;
+import org.dspace.util.LookupHttpClient;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -80,53 +77,40 @@ public class CiNiiService
     private Record search(String id, String appId)
         throws IOException, HttpException
     {
-        HttpGet method = null;
-        try
+        // Execute the method.
+        LookupHttpClient.Response response = LookupHttpClient.get(
+                URI.create("http://ci.nii.ac.jp/naid/"+id+".rdf?appid="+appId), timeout);
+        StatusLine statusLine = response.getStatusLine();
+        int statusCode = statusLine.getStatusCode();
+
+        if (statusCode != HttpStatus.SC_OK)
         {
-            HttpClient client = new DefaultHttpClient();
-            client.getParams().setIntParameter(CoreConnectionPNames.CONNECTION_TIMEOUT, timeout);
-            method = new HttpGet("http://ci.nii.ac.jp/naid/"+id+".rdf?appid="+appId);
-            // Execute the method.
-            HttpResponse response = client.execute(method);
-            StatusLine statusLine = response.getStatusLine();
-            int statusCode = statusLine.getStatusCode();
-
-            if (statusCode != HttpStatus.SC_OK)
-            {
-                if (statusCode == HttpStatus.SC_BAD_REQUEST)
-                    throw new RuntimeException("CiNii RDF is not valid");
-                else
-                    throw new RuntimeException("CiNii RDF Http call failed: "
-                            + statusLine);
-            }
+            if (statusCode == HttpStatus.SC_BAD_REQUEST)
+                throw new RuntimeException("CiNii RDF is not valid");
+            else
+                throw new RuntimeException("CiNii RDF Http call failed: "
+                        + statusLine);
+        }
 
-            try
-            {
-                DocumentBuilderFactory factory = DocumentBuilderFactory
-                        .newInstance();
-                factory.setValidating(false);
-                factory.setIgnoringComments(true);
-                factory.setIgnoringElementContentWhitespace(true);
+        try
+        {
+            DocumentBuilderFactory factory = DocumentBuilderFactory
+                    .newInstance();
+            factory.setValidating(false);
+            factory.setIgnoringComments(true);
+            factory.setIgnoringElementContentWhitespace(true);
 
-                DocumentBuilder db = factory.newDocumentBuilder();
-                Document inDoc = db.parse(response.getEntity().getContent());
+            DocumentBuilder db = factory.newDocumentBuilder();
+            Document inDoc = db.parse(response.getContent());
 
-                Element xmlRoot = inDoc.getDocumentElement();
+            Element xmlRoot = inDoc.getDocumentElement();
 
-                return CiNiiUtils.convertCiNiiDomToRecord(xmlRoot);
-            }
-            catch (Exception e)
-            {
-                throw new RuntimeException(
-                        "CiNii RDF identifier is not valid or not exist");
-            }
+            return CiNiiUtils.convertCiNiiDomToRecord(xmlRoot);
         }
-        finally
+        catch (Exception e)
         {
-            if (method != null)
-            {
-                method.releaseConnection();
-            }
+            throw new RuntimeException(
+                    "CiNii RDF identifier is not valid or not exist");
         }
     }
 
@@ -144,80 +128,67 @@ public class CiNiiService
             return null;
         }
 
-        HttpGet method = null;
         List<String> ids = new ArrayList<String>();
-        try
+        StringBuilder query = new StringBuilder();
+        query.append("format=rss&appid=").append(appId)
+             .append("&count=").append(maxResults);
+        if (title != null)
         {
-            HttpClient client = new DefaultHttpClient();
-            client.getParams().setIntParameter(CoreConnectionPNames.CONNECTION_TIMEOUT, timeout);
-            StringBuilder query = new StringBuilder();
-            query.append("format=rss&appid=").append(appId)
-                 .append("&count=").append(maxResults);
-            if (title != null)
-            {
-                query.append("&title=").append(URLEncoder.encode(title, "UTF-8"));
-            }
-            if (author != null)
-            {
-                query.append("&author=").append(URLEncoder.encode(author, "UTF-8"));
-            }
-            if (year != -1)
-            {
-                query.append("&year_from=").append(String.valueOf(year));
-                query.append("&year_to=").append(String.valueOf(year));
-            }
-            method = new HttpGet("http://ci.nii.ac.jp/opensearch/search?"+query.toString());
-            // Execute the method.
-            HttpResponse response = client.execute(method);
-            StatusLine statusLine = response.getStatusLine();
-            int statusCode = statusLine.getStatusCode();
-            if (statusCode != HttpStatus.SC_OK)
-            {
-                if (statusCode == HttpStatus.SC_BAD_REQUEST)
-                    throw new RuntimeException("CiNii OpenSearch query is not valid");
-                else
-                    throw new RuntimeException("CiNii OpenSearch call failed: "
-                            + statusLine);
-            }
+            query.append("&title=").append(URLEncoder.encode(title, "UTF-8"));
+        }
+        if (author != null)
+        {
+            query.append("&author=").append(URLEncoder.encode(author, "UTF-8"));
+        }
+        if (year != -1)
+        {
+            query.append("&year_from=").append(String.valueOf(year));
+            query.append("&year_to=").append(String.valueOf(year));
+        }
+        // Execute the method.
+        LookupHttpClient.Response response = LookupHttpClient.get(
+                URI.create("http://ci.nii.ac.jp/opensearch/search?"+query.toString()), timeout);
+        StatusLine statusLine = response.getStatusLine();
+        int statusCode = statusLine.getStatusCode();
+        if (statusCode != HttpStatus.SC_OK)
+        {
+            if (statusCode == HttpStatus.SC_BAD_REQUEST)
+                throw new RuntimeException("CiNii OpenSearch query is not valid");
+            else
+                throw new RuntimeException("CiNii OpenSearch call failed: "
+                        + statusLine);
+        }
 
-            try
-            {
-                DocumentBuilderFactory factory = DocumentBuilderFactory
-                        .newInstance();
-                factory.setValidating(false);
-                factory.setIgnoringComments(true);
-                factory.setIgnoringElementContentWhitespace(true);
+        try
+        {
+            DocumentBuilderFactory factory = DocumentBuilderFactory
+                    .newInstance();
+            factory.setValidating(false);
+            factory.setIgnoringComments(true);
+            factory.setIgnoringElementContentWhitespace(true);
 
-                DocumentBuilder db = factory.newDocumentBuilder();
-                Document inDoc = db.parse(response.getEntity().getContent());
+            DocumentBuilder db = factory.newDocumentBuilder();
+            Document inDoc = db.parse(response.getContent());
 
-                Element xmlRoot = inDoc.getDocumentElement();
-                List<Element> items = XMLUtils.getElementList(xmlRoot, "item");
+            Element xmlRoot = inDoc.getDocumentElement();
+            List<Element> items = XMLUtils.getElementList(xmlRoot, "item");
 
-                int url_len = "http://ci.nii.ac.jp/naid/".length();
-                for (Element item : items)
+            int url_len = "http://ci.nii.ac.jp/naid/".length();
+            for (Element item : items)
+            {
+                String about = item.getAttribute("rdf:about");
+                if (about.length() > url_len)
                 {
-                    String about = item.getAttribute("rdf:about");
-                    if (about.length() > url_len)
-                    {
-                        ids.add(about.substring(url_len));
-                    }
+                    ids.add(about.substring(url_len));
                 }
-
-                return ids;
-            }
-            catch (Exception e)
-            {
-                throw new RuntimeException(
-                              "CiNii OpenSearch results is not valid or not exist");
             }
+
+            return ids;
         }
-        finally
+        catch (Exception e)
         {
-            if (method != null)
-            {
-                method.releaseConnection();
-            }
+            throw new RuntimeException(
+                          "CiNii OpenSearch results is not valid or not exist");
         }
     }
 }
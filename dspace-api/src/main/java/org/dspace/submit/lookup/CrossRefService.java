@@ -26,6 +26,7 @@ import org.apache.log4j.Logger;
 import org.dspace.app.util.XMLUtils;
 import org.dspace.core.Context;
 import org.dspace.core.LogManager;
+import org.dspace.util.LookupHttpClient;
 import org.jdom.JDOMException;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -33,18 +34,14 @@ import org.xml.sax.SAXException;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpException;
-import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.params.CoreConnectionPNames;
 
 /**
  * @author Andrea Bollini
@@ -73,81 +70,68 @@ public class CrossRefService
         {
             for (String record : dois)
             {
-            	try
-            	{
-            		HttpGet method = null;
-            		try
-            		{
-            			HttpClient client = new DefaultHttpClient();
-                        client.getParams().setIntParameter(CoreConnectionPNames.CONNECTION_TIMEOUT, timeout);
-
-                        try {
+                try
+                {
+                    URI uri;
+                    try {
                         URIBuilder uriBuilder = new URIBuilder(
-            					"http://www.crossref.org/openurl/");
+                                "http://www.crossref.org/openurl/");
                         uriBuilder.addParameter("pid", apiKey);
                         uriBuilder.addParameter("noredirect", "true");
                         uriBuilder.addParameter("id", record);
-                        method = new HttpGet(uriBuilder.build());
-                        } catch (URISyntaxException ex) {
-                            throw new HttpException("Request not sent", ex);
-                        }
-
-                        // Execute the method.
-            			HttpResponse response = client.execute(method);
-                        StatusLine statusLine = response.getStatusLine();
-                        int statusCode = statusLine.getStatusCode();
-
-            			if (statusCode != HttpStatus.SC_OK)
-            			{
-            				throw new RuntimeException("Http call failed: "
-            						+ statusLine);
-            			}
-
-            			Record crossitem;
-            			try
-            			{
-            				DocumentBuilderFactory factory = DocumentBuilderFactory
-            						.newInstance();
-            				factory.setValidating(false);
-            				factory.setIgnoringComments(true);
-            				factory.setIgnoringElementContentWhitespace(true);
-
-            				DocumentBuilder db = factory
-            						.newDocumentBuilder();
-            				Document inDoc = db.parse(response.getEntity().getContent());
-
-            				Element xmlRoot = inDoc.getDocumentElement();
-            				Element queryResult = XMLUtils.getSingleElement(xmlRoot, "query_result");
-            				Element body = XMLUtils.getSingleElement(queryResult, "body");
-            				Element dataRoot = XMLUtils.getSingleElement(body, "query");
-
-            				crossitem = CrossRefUtils
-            						.convertCrossRefDomToRecord(dataRoot);
-            				results.add(crossitem);
-            			}
-            			catch (Exception e)
-            			{
-            				log.warn(LogManager
-            						.getHeader(
-            								context,
-            								"retrieveRecordDOI",
-            								record
-            								+ " DOI is not valid or not exist: "
-            								+ e.getMessage()));
-            			}
-            		}
-            		finally
-            		{
-            			if (method != null)
-            			{
-            				method.releaseConnection();
-            			}
-            		}
-            	}
-            	catch (RuntimeException rt)
-            	{
-            		log.error(rt.getMessage(), rt);
-            	}
+                        uri = uriBuilder.build();
+                    } catch (URISyntaxException ex) {
+                        throw new HttpException("Request not sent", ex);
+                    }
+
+                    // Execute the method.
+                    LookupHttpClient.Response response = LookupHttpClient.get(uri, timeout);
+                    StatusLine statusLine = response.getStatusLine();
+                    int statusCode = statusLine.getStatusCode();
+
+                    if (statusCode != HttpStatus.SC_OK)
+                    {
+                        throw new RuntimeException("Http call failed: "
+                                + statusLine);
+                    }
+
+                    Record crossitem;
+                    try
+                    {
+                        DocumentBuilderFactory factory = DocumentBuilderFactory
+                                .newInstance();
+                        factory.setValidating(false);
+                        factory.setIgnoringComments(true);
+                        factory.setIgnoringElementContentWhitespace(true);
+
+                        DocumentBuilder db = factory
+                                .newDocumentBuilder();
+                        Document inDoc = db.parse(response.getContent());
+
+                        Element xmlRoot = inDoc.getDocumentElement();
+                        Element queryResult = XMLUtils.getSingleElement(xmlRoot, "query_result");
+                        Element body = XMLUtils.getSingleElement(queryResult, "body");
+                        Element dataRoot = XMLUtils.getSingleElement(body, "query");
+
+                        crossitem = CrossRefUtils
+                                .convertCrossRefDomToRecord(dataRoot);
+                        results.add(crossitem);
+                    }
+                    catch (Exception e)
+                    {
+                        log.warn(LogManager
+                                .getHeader(
+                                        context,
+                                        "retrieveRecordDOI",
+                                        record
+                                        + " DOI is not valid or not exist: "
+                                        + e.getMessage()));
+                    }
+                }
+                catch (RuntimeException rt)
+                {
+                    log.error(rt.getMessage(), rt);
+                }
             }
         }
         return results;
@@ -156,12 +140,8 @@ public class CrossRefService
     public List<Record> search(Context context, String title, String authors,
             int year, int count, String apiKey) throws IOException, HttpException
     {
-        HttpGet method = null;
         try
         {
-            HttpClient client = new DefaultHttpClient();
-            client.getParams().setIntParameter(CoreConnectionPNames.CONNECTION_TIMEOUT, timeout);
-
             URIBuilder uriBuilder = new URIBuilder("http://search.labs.crossref.org/dois");
 
             StringBuilder sb = new StringBuilder();
@@ -179,10 +159,9 @@ public class CrossRefService
 
             uriBuilder.addParameter("year", year != -1 ? String.valueOf(year) : "");
             uriBuilder.addParameter("rows", count != -1 ? String.valueOf(count) : "");
-            method = new HttpGet(uriBuilder.build());
 
             // Execute the method.
-            HttpResponse response = client.execute(method);
+            LookupHttpClient.Response response = LookupHttpClient.get(uriBuilder.build(), timeout);
             StatusLine statusLine = response.getStatusLine();
             int statusCode = statusLine.getStatusCode();
 
@@ -197,7 +176,7 @@ public class CrossRefService
             {
             }.getType();
             List<Map> json = gson.fromJson(
-                    IOUtils.toString(response.getEntity().getContent(), StandardCharsets.UTF_8),
+                    IOUtils.toString(response.getContent(), StandardCharsets.UTF_8),
                     listType);
             Set<String> dois = new HashSet<String>();
             for (Map r : json)
@@ -205,7 +184,6 @@ public class CrossRefService
                 dois.add(SubmissionLookupUtils.normalizeDOI((String) r
                         .get("doi")));
             }
-            method.releaseConnection();
 
             return search(context, dois, apiKey);
         }
@@ -213,12 +191,5 @@ public class CrossRefService
         {
             throw new RuntimeException(e.getMessage(), e);
         }
-        finally
-        {
-            if (method != null)
-            {
-                method.releaseConnection();
-            }
-        }
     }
 }
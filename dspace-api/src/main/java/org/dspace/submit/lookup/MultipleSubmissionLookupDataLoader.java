@@ -10,11 +10,22 @@ package org.dspace.submit.lookup;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Context;
 
 import gr.ekt.bte.core.DataLoader;
@@ -26,6 +37,18 @@ import gr.ekt.bte.dataloader.FileDataLoader;
 import gr.ekt.bte.exceptions.MalformedSourceException;
 
 /**
+ * Loads records from all the providers which can handle the identifiers,
+ * search terms or file given. The online providers are queried at the same
+ * time, each on a thread of its own, and whatever they have returned within
+ * {@link #setTimeout(long) the timeout} is merged; slower providers are
+ * left out of the result. The time taken by each provider is logged.
+ * <P>
+ * The queries share a pool of <code>lookup.threads</code> threads (dspace.cfg,
+ * default 16). A provider left out keeps its thread until it answers or
+ * <code>lookup.http.socket-timeout</code> runs out, since a blocked socket
+ * read cannot be interrupted; when all threads are busy and too many
+ * queries are waiting, further ones are skipped.
+ *
  * @author Andrea Bollini
  * @author Kostas Stamatis
  * @author Luigi Andrea Pascarelli
@@ -39,6 +62,29 @@ public class MultipleSubmissionLookupDataLoader implements DataLoader
 
     private static final String NOT_FOUND_DOI = "NOT-FOUND-DOI";
 
+    /** Runs the provider queries, shared by all instances */
+    private static final ThreadPoolExecutor executor;
+
+    static
+    {
+        int threads = Math.max(1, ConfigurationManager.getIntProperty("lookup.threads", 16));
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(threads * 4), new ThreadFactory()
+                {
+                    @Override
+                    public Thread newThread(Runnable r)
+                    {
+                        Thread thread = new Thread(r, "Submission lookup");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /** Milliseconds to wait for the online providers, 0 for ever */
+    private long timeout = 10000;
+
     Map<String, DataLoader> dataloadersMap;
 
     // Depending on these values, the multiple data loader loads data from the
@@ -64,17 +110,31 @@ public class MultipleSubmissionLookupDataLoader implements DataLoader
 
         RecordSet recordSet = new RecordSet();
 
-        // KSTA:ToDo: Support timeout (problematic) providers
-        // List<String> timeoutProviders = new ArrayList<String>();
-        for (String providerName : filterProviders().keySet())
+        // Files are read by a single provider, and however long it takes
+        long deadline = (filename != null || timeout <= 0) ? Long.MAX_VALUE
+                : System.currentTimeMillis() + timeout;
+
+        Map<String, Callable<List<Record>>> queries = new LinkedHashMap<String, Callable<List<Record>>>();
+        for (Map.Entry<String, DataLoader> entry : filterProviders().entrySet())
+        {
+            final DataLoader provider = entry.getValue();
+            queries.put(entry.getKey(), new Callable<List<Record>>()
+            {
+                @Override
+                public List<Record> call() throws MalformedSourceException
+                {
+                    return provider.getRecords().getRecords();
+                }
+            });
+        }
+        Map<String, List<Record>> found = query(queries, deadline);
+        for (String providerName : found.keySet())
         {
-            DataLoader provider = dataloadersMap.get(providerName);
-            RecordSet subRecordSet = provider.getRecords();
-            recordSet.addAll(subRecordSet);
             // Add in each record the provider name... a new provider doesn't
             // need to know about it!
-            for (Record record : subRecordSet.getRecords())
+            for (Record record : found.get(providerName))
             {
+                recordSet.addRecord(record);
                 if (record.isMutable())
                 {
                     record.makeMutable().addValue(
@@ -129,6 +189,7 @@ public class MultipleSubmissionLookupDataLoader implements DataLoader
                 }
             }
 
+            Map<String, Callable<List<Record>>> doiQueries = new LinkedHashMap<String, Callable<List<Record>>>();
             for (String providerName : dataloadersMap.keySet())
             {
                 DataLoader genProvider = dataloadersMap.get(providerName);
@@ -138,7 +199,7 @@ public class MultipleSubmissionLookupDataLoader implements DataLoader
                     continue;
                 }
 
-                SubmissionLookupDataLoader provider = (SubmissionLookupDataLoader) genProvider;
+                final SubmissionLookupDataLoader provider = (SubmissionLookupDataLoader) genProvider;
 
                 // Provider must support DOI
                 if (!provider.getSupportedIdentifiers().contains(
@@ -151,7 +212,7 @@ public class MultipleSubmissionLookupDataLoader implements DataLoader
                 // && evictProviders.contains(provider.getShortName())) {
                 // continue;
                 // }
-                Set<String> doiToSearch = new HashSet<String>();
+                final Set<String> doiToSearch = new HashSet<String>();
                 Set<String> alreadyFoundDOIs = provider2foundDOIs
                         .get(providerName);
                 for (String doi : foundDOIs)
@@ -162,25 +223,33 @@ public class MultipleSubmissionLookupDataLoader implements DataLoader
                         doiToSearch.add(doi);
                     }
                 }
-                List<Record> pPublications = null;
-                Context context = null;
-                try
+                if (doiToSearch.size() > 0)
                 {
-                    if (doiToSearch.size() > 0)
+                    doiQueries.put(providerName, new Callable<List<Record>>()
                     {
-                        context = new Context();
-                        pPublications = provider.getByDOIs(context, doiToSearch);
-                    }
-                }
-                catch (Exception e)
-                {
-                    log.error(e.getMessage(), e);
-                }
-                finally {
-                    if(context!=null && context.isValid()) {
-                        context.abort();
-                    }
+                        @Override
+                        public List<Record> call() throws Exception
+                        {
+                            Context context = null;
+                            try
+                            {
+                                context = new Context();
+                                return provider.getByDOIs(context, doiToSearch);
+                            }
+                            finally {
+                                if(context!=null && context.isValid()) {
+                                    context.abort();
+                                }
+                            }
+                        }
+                    });
                 }
+            }
+
+            Map<String, List<Record>> foundByDOI = query(doiQueries, deadline);
+            for (String providerName : foundByDOI.keySet())
+            {
+                List<Record> pPublications = foundByDOI.get(providerName);
                 if (pPublications != null)
                 {
                     for (Record rec : pPublications)
@@ -213,6 +282,120 @@ public class MultipleSubmissionLookupDataLoader implements DataLoader
         return recordSet;
     }
 
+    /**
+     * Run provider queries at the same time, and wait for their results
+     *
+     * @param queries the queries, by provider name
+     * @param deadline the time to stop waiting at
+     * @return the records found by each provider which answered in time,
+     * in the order of the queries
+     * @throws MalformedSourceException if a provider could not read its source
+     */
+    private Map<String, List<Record>> query(Map<String, Callable<List<Record>>> queries, long deadline)
+            throws MalformedSourceException
+    {
+        Map<String, List<Record>> results = new LinkedHashMap<String, List<Record>>();
+        if (queries.size() == 1 && deadline == Long.MAX_VALUE)
+        {
+            // Nothing to overlap or to time out
+            Map.Entry<String, Callable<List<Record>>> query = queries.entrySet().iterator().next();
+            results.put(query.getKey(), timed(query.getKey(), query.getValue()));
+            return results;
+        }
+
+        Map<String, Future<List<Record>>> futures = new LinkedHashMap<String, Future<List<Record>>>();
+        for (final Map.Entry<String, Callable<List<Record>>> query : queries.entrySet())
+        {
+            try
+            {
+                futures.put(query.getKey(), executor.submit(new Callable<List<Record>>()
+                {
+                    @Override
+                    public List<Record> call() throws Exception
+                    {
+                        return timed(query.getKey(), query.getValue());
+                    }
+                }));
+            }
+            catch (RejectedExecutionException e)
+            {
+                log.warn("Too many lookups in progress, provider " + query.getKey()
+                        + " is left out");
+            }
+        }
+
+        try
+        {
+            for (Map.Entry<String, Future<List<Record>>> future : futures.entrySet())
+            {
+                String providerName = future.getKey();
+                try
+                {
+                    long wait = Math.max(0, deadline - System.currentTimeMillis());
+                    results.put(providerName, future.getValue().get(wait, TimeUnit.MILLISECONDS));
+                }
+                catch (TimeoutException e)
+                {
+                    log.warn("Lookup provider " + providerName + " did not answer within "
+                            + timeout + " ms, its results are left out");
+                }
+                catch (ExecutionException e)
+                {
+                    if (e.getCause() instanceof MalformedSourceException)
+                    {
+                        throw (MalformedSourceException) e.getCause();
+                    }
+                    log.error("Lookup provider " + providerName + " failed: "
+                            + e.getCause().getMessage(), e.getCause());
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for the lookup providers");
+        }
+        finally
+        {
+            for (Future<List<Record>> future : futures.values())
+            {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Run a provider query, logging how long it took
+     */
+    private static List<Record> timed(String providerName, Callable<List<Record>> query)
+            throws MalformedSourceException
+    {
+        long start = System.currentTimeMillis();
+        try
+        {
+            List<Record> records = query.call();
+            log.info("Lookup provider " + providerName + " returned "
+                    + (records == null ? 0 : records.size()) + " records in "
+                    + (System.currentTimeMillis() - start) + " ms");
+            return records;
+        }
+        catch (MalformedSourceException e)
+        {
+            throw e;
+        }
+        catch (RuntimeException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            log.info("Lookup provider " + providerName + " failed after "
+                    + (System.currentTimeMillis() - start) + " ms");
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -230,6 +413,17 @@ public class MultipleSubmissionLookupDataLoader implements DataLoader
         return getRecords();
     }
 
+    /**
+     * Set how long to wait for the online providers. Providers which have
+     * not answered by then are left out of the result.
+     *
+     * @param timeout milliseconds, 0 to wait for ever (default 10000)
+     */
+    public void setTimeout(long timeout)
+    {
+        this.timeout = timeout;
+    }
+
     public Map<String, DataLoader> getProvidersMap()
     {
         return dataloadersMap;
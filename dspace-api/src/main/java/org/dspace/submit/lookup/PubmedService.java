@@ -13,6 +13,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
@@ -23,17 +24,13 @@ import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.HttpException;
-import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.params.CoreConnectionPNames;
 import org.apache.log4j.Logger;
 import org.dspace.app.util.XMLUtils;
 import org.dspace.core.ConfigurationManager;
+import org.dspace.util.LookupHttpClient;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.xml.sax.SAXException;
@@ -101,22 +98,17 @@ public class PubmedService
         List<Record> results = new ArrayList<>();
         if (!ConfigurationManager.getBooleanProperty(SubmissionLookupService.CFG_MODULE, "remoteservice.demo"))
         {
-            HttpGet method = null;
             try
             {
-                HttpClient client = new DefaultHttpClient();
-                client.getParams().setIntParameter(CoreConnectionPNames.CONNECTION_TIMEOUT, timeout);
-
                 URIBuilder uriBuilder = new URIBuilder(
                         "http://eutils.ncbi.nlm.nih.gov/entrez/eutils/esearch.fcgi");
                 uriBuilder.addParameter("db", "pubmed");
                 uriBuilder.addParameter("datetype", "edat");
                 uriBuilder.addParameter("retmax", "10");
                 uriBuilder.addParameter("term", query);
-                method = new HttpGet(uriBuilder.build());
 
                 // Execute the method.
-                HttpResponse response = client.execute(method);
+                LookupHttpClient.Response response = LookupHttpClient.get(uriBuilder.build(), timeout);
                 StatusLine statusLine = response.getStatusLine();
                 int statusCode = statusLine.getStatusCode();
 
@@ -137,7 +129,7 @@ public class PubmedService
                 {
                     builder = factory.newDocumentBuilder();
 
-                    Document inDoc = builder.parse(response.getEntity().getContent());
+                    Document inDoc = builder.parse(response.getContent());
 
                     Element xmlRoot = inDoc.getDocumentElement();
                     Element idList = XMLUtils.getSingleElement(xmlRoot,
@@ -159,13 +151,6 @@ public class PubmedService
             {
                 log.error(e1.getMessage(), e1);
             }
-            finally
-            {
-                if (method != null)
-                {
-                    method.releaseConnection();
-                }
-            }
         }
         else
         {
@@ -217,77 +202,64 @@ public class PubmedService
             throws HttpException, IOException, ParserConfigurationException,
             SAXException
     {
-    	List<Record> results = new ArrayList<Record>();
-    	HttpGet method = null;
-    	try
-    	{
-    		HttpClient client = new DefaultHttpClient();
-    		client.getParams().setIntParameter(CoreConnectionPNames.CONNECTION_TIMEOUT, 5 * timeout);
-
-            try {
-                URIBuilder uriBuilder = new URIBuilder(
-                        "http://eutils.ncbi.nlm.nih.gov/entrez/eutils/efetch.fcgi");
-                uriBuilder.addParameter("db", "pubmed");
-                uriBuilder.addParameter("retmode", "xml");
-                uriBuilder.addParameter("rettype", "full");
-                uriBuilder.addParameter("id", StringUtils.join(
-                        pubmedIDs.iterator(), ","));
-                method = new HttpGet(uriBuilder.build());
-            } catch (URISyntaxException ex)
-            {
-                throw new RuntimeException("Request not sent", ex);
-            }
+        List<Record> results = new ArrayList<Record>();
+        URI uri;
+        try {
+            URIBuilder uriBuilder = new URIBuilder(
+                    "http://eutils.ncbi.nlm.nih.gov/entrez/eutils/efetch.fcgi");
+            uriBuilder.addParameter("db", "pubmed");
+            uriBuilder.addParameter("retmode", "xml");
+            uriBuilder.addParameter("rettype", "full");
+            uriBuilder.addParameter("id", StringUtils.join(
+                    pubmedIDs.iterator(), ","));
+            uri = uriBuilder.build();
+        } catch (URISyntaxException ex)
+        {
+            throw new RuntimeException("Request not sent", ex);
+        }
 
-            // Execute the method.
-    		HttpResponse response = client.execute(method);
-            StatusLine statusLine = response.getStatusLine();
-            int statusCode = statusLine.getStatusCode();
+        // Execute the method.
+        LookupHttpClient.Response response = LookupHttpClient.get(uri, 5 * timeout);
+        StatusLine statusLine = response.getStatusLine();
+        int statusCode = statusLine.getStatusCode();
 
-    		if (statusCode != HttpStatus.SC_OK)
-    		{
-    			throw new RuntimeException("WS call failed: " + statusLine);
-    		}
+        if (statusCode != HttpStatus.SC_OK)
+        {
+            throw new RuntimeException("WS call failed: " + statusLine);
+        }
 
-    		DocumentBuilderFactory factory = DocumentBuilderFactory
-    				.newInstance();
-    		factory.setValidating(false);
-    		factory.setIgnoringComments(true);
-    		factory.setIgnoringElementContentWhitespace(true);
+        DocumentBuilderFactory factory = DocumentBuilderFactory
+                .newInstance();
+        factory.setValidating(false);
+        factory.setIgnoringComments(true);
+        factory.setIgnoringElementContentWhitespace(true);
 
-    		DocumentBuilder builder = factory.newDocumentBuilder();
-    		Document inDoc = builder
-    				.parse(response.getEntity().getContent());
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        Document inDoc = builder
+                .parse(response.getContent());
 
-    		Element xmlRoot = inDoc.getDocumentElement();
-    		List<Element> pubArticles = XMLUtils.getElementList(xmlRoot,
-    				"PubmedArticle");
+        Element xmlRoot = inDoc.getDocumentElement();
+        List<Element> pubArticles = XMLUtils.getElementList(xmlRoot,
+                "PubmedArticle");
 
-    		for (Element xmlArticle : pubArticles)
-    		{
-    			Record pubmedItem = null;
-    			try
-    			{
-    				pubmedItem = PubmedUtils
-    						.convertPubmedDomToRecord(xmlArticle);
-    				results.add(pubmedItem);
-    			}
-    			catch (Exception e)
-    			{
-    				throw new RuntimeException(
-    						"PubmedID is not valid or not exist: "
-    								+ e.getMessage(), e);
-    			}
-    		}
+        for (Element xmlArticle : pubArticles)
+        {
+            Record pubmedItem = null;
+            try
+            {
+                pubmedItem = PubmedUtils
+                        .convertPubmedDomToRecord(xmlArticle);
+                results.add(pubmedItem);
+            }
+            catch (Exception e)
+            {
+                throw new RuntimeException(
+                        "PubmedID is not valid or not exist: "
+                                + e.getMessage(), e);
+            }
+        }
 
-    		return results;
-    	}
-    	finally
-    	{
-    		if (method != null)
-    		{
-    			method.releaseConnection();
-    		}
-    	}
+        return results;
     }
 
     public List<Record> search(String doi, String pmid) throws HttpException,
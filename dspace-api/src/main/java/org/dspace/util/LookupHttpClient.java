@@ -0,0 +1,362 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.StatusLine;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
+import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
+
+/**
+ * Sends the GET requests of the remote authority and submission lookup
+ * providers (SHERPA/RoMEO, LC Names, PubMed, arXiv, CrossRef, CiNii) through
+ * one shared pool of keep-alive connections, instead of a new HTTP client
+ * per query.
+ * <P>
+ * Successful responses are cached by URL, with the query parameters sorted,
+ * so the same lookup repeated while a submitter types or goes back and forth
+ * in the submission form is answered without another round trip. Identical
+ * requests made at the same time by several threads are sent once, and all
+ * threads get its response.
+ * <P>
+ * Configured in dspace.cfg:
+ * <ul>
+ * <li><code>lookup.http.max-connections</code> - connections in the pool (default 32)</li>
+ * <li><code>lookup.http.max-connections-per-route</code> - connections to one host (default 8)</li>
+ * <li><code>lookup.http.connection-timeout</code> - milliseconds to wait for a connection,
+ * unless the provider sets its own (default 10000)</li>
+ * <li><code>lookup.http.socket-timeout</code> - milliseconds to wait for a response, 0 for ever (default 30000)</li>
+ * <li><code>lookup.http.cache.size</code> - responses kept, 0 to disable the cache (default 1000)</li>
+ * <li><code>lookup.http.cache.ttl</code> - seconds a response is kept (default 600)</li>
+ * <li><code>lookup.http.cache.max-body</code> - largest response kept, in bytes (default 262144)</li>
+ * </ul>
+ */
+public class LookupHttpClient
+{
+    /** log4j logger */
+    private static final Logger log = Logger.getLogger(LookupHttpClient.class);
+
+    private static final int cacheSize = ConfigurationManager.getIntProperty("lookup.http.cache.size", 1000);
+    private static final long cacheTTL = ConfigurationManager.getLongProperty("lookup.http.cache.ttl", 600) * 1000;
+    private static final int maxCachedBody = ConfigurationManager.getIntProperty("lookup.http.cache.max-body", 262144);
+
+    /** The connection pool */
+    private static PoolingHttpClientConnectionManager connectionManager = null;
+
+    /** The HTTP client using the pool */
+    private static CloseableHttpClient httpClient = null;
+
+    /** Successful responses by normalized URL, least recently used first */
+    private static final Map<String, Response> cache = new LinkedHashMap<String, Response>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Response> eldest)
+        {
+            return size() > cacheSize;
+        }
+    };
+
+    /** Requests being sent, by normalized URL */
+    private static final ConcurrentMap<String, FutureTask<Response>> inFlight = new ConcurrentHashMap<String, FutureTask<Response>>();
+
+    /**
+     * The response to a request, read completely so the connection can be
+     * reused straight away
+     */
+    public static final class Response
+    {
+        private final StatusLine statusLine;
+        private final byte[] body;
+        private final long created = System.currentTimeMillis();
+
+        private Response(StatusLine statusLine, byte[] body)
+        {
+            this.statusLine = statusLine;
+            this.body = body;
+        }
+
+        /**
+         * @return the status line of the response
+         */
+        public StatusLine getStatusLine()
+        {
+            return statusLine;
+        }
+
+        /**
+         * @return the status code of the response
+         */
+        public int getStatusCode()
+        {
+            return statusLine.getStatusCode();
+        }
+
+        /**
+         * @return a new stream over the body of the response
+         */
+        public InputStream getContent()
+        {
+            return new ByteArrayInputStream(body);
+        }
+    }
+
+    /** Utility class */
+    private LookupHttpClient()
+    {
+    }
+
+    /**
+     * Send a GET request with the configured connection timeout, or get the
+     * response to an identical earlier one from the cache.
+     *
+     * @param uri
+     *            the URL to get
+     * @return the response
+     * @throws IOException
+     *             if the request could not be sent or the response read
+     * @see #get(URI, int)
+     */
+    public static Response get(URI uri) throws IOException
+    {
+        return get(uri, ConfigurationManager.getIntProperty("lookup.http.connection-timeout", 10000));
+    }
+
+    /**
+     * Send a GET request, or get the response to an identical earlier one
+     * from the cache. Only responses with status 200 are cached.
+     *
+     * @param uri
+     *            the URL to get
+     * @param connectionTimeout
+     *            milliseconds to wait for a connection
+     * @return the response
+     * @throws IOException
+     *             if the request could not be sent or the response read
+     */
+    public static Response get(final URI uri, final int connectionTimeout) throws IOException
+    {
+        final String key = normalize(uri);
+        Response response = getCached(key);
+        if (response != null)
+        {
+            log.debug("Cached response for " + uri);
+            return response;
+        }
+
+        FutureTask<Response> request = new FutureTask<Response>(new Callable<Response>()
+        {
+            @Override
+            public Response call() throws IOException
+            {
+                return execute(key, uri, connectionTimeout);
+            }
+        });
+        FutureTask<Response> sent = inFlight.putIfAbsent(key, request);
+        if (sent == null)
+        {
+            sent = request;
+            try
+            {
+                request.run();
+            }
+            finally
+            {
+                inFlight.remove(key, request);
+            }
+        }
+        else
+        {
+            log.debug("Waiting for the response to an identical request for " + uri);
+        }
+
+        try
+        {
+            return sent.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + uri);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Request for " + uri + " failed", cause);
+        }
+    }
+
+    /**
+     * Get the usage of the connection pool.
+     *
+     * @return the pool statistics, or null if no request has been sent yet
+     */
+    public static synchronized PoolStats getPoolStats()
+    {
+        if (connectionManager == null)
+        {
+            return null;
+        }
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * Forget all cached responses
+     */
+    public static void clearCache()
+    {
+        synchronized (cache)
+        {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Close the connection pool and forget all cached responses. Requests
+     * sent afterwards get a new pool.
+     */
+    public static synchronized void shutdown()
+    {
+        clearCache();
+        if (httpClient != null)
+        {
+            try
+            {
+                httpClient.close();
+            }
+            catch (IOException e)
+            {
+                log.warn("Unable to close lookup HTTP client", e);
+            }
+            httpClient = null;
+            connectionManager = null;
+        }
+    }
+
+    private static Response getCached(String key)
+    {
+        synchronized (cache)
+        {
+            Response response = cache.get(key);
+            if (response != null && System.currentTimeMillis() - response.created > cacheTTL)
+            {
+                cache.remove(key);
+                response = null;
+            }
+            return response;
+        }
+    }
+
+    private static Response execute(String key, URI uri, int connectionTimeout) throws IOException
+    {
+        HttpGet method = new HttpGet(uri);
+        method.setConfig(RequestConfig.custom()
+                .setConnectTimeout(connectionTimeout)
+                .setConnectionRequestTimeout(connectionTimeout)
+                .setSocketTimeout(ConfigurationManager.getIntProperty("lookup.http.socket-timeout", 30000))
+                .build());
+
+        log.debug("Sending lookup request " + uri);
+        CloseableHttpResponse httpResponse = getHttpClient().execute(method);
+        Response response;
+        try
+        {
+            HttpEntity entity = httpResponse.getEntity();
+            response = new Response(httpResponse.getStatusLine(),
+                    entity == null ? new byte[0] : EntityUtils.toByteArray(entity));
+        }
+        finally
+        {
+            httpResponse.close();
+        }
+
+        if (cacheSize > 0 && response.getStatusCode() == HttpStatus.SC_OK
+                && response.body.length <= maxCachedBody)
+        {
+            synchronized (cache)
+            {
+                cache.put(key, response);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Create the HTTP client on first use
+     */
+    private static synchronized CloseableHttpClient getHttpClient()
+    {
+        if (httpClient == null)
+        {
+            int maxConnections = ConfigurationManager.getIntProperty("lookup.http.max-connections", 32);
+            int maxPerRoute = ConfigurationManager.getIntProperty("lookup.http.max-connections-per-route", 8);
+            connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(maxConnections);
+            connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+            httpClient = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .useSystemProperties()
+                    .build();
+            log.info("Created lookup connection pool: max-connections=" + maxConnections
+                    + ", max-connections-per-route=" + maxPerRoute);
+        }
+        return httpClient;
+    }
+
+    /**
+     * Make a cache key of a URL, which is the same whatever the case of the
+     * scheme and host and the order of the query parameters
+     */
+    private static String normalize(URI uri)
+    {
+        URI normalized = uri.normalize();
+        StringBuilder key = new StringBuilder();
+        key.append(StringUtils.lowerCase(normalized.getScheme())).append("://")
+                .append(StringUtils.lowerCase(normalized.getRawAuthority()))
+                .append(StringUtils.defaultString(normalized.getRawPath()));
+        String query = normalized.getRawQuery();
+        if (StringUtils.isNotEmpty(query))
+        {
+            String[] parameters = query.split("&");
+            Arrays.sort(parameters);
+            key.append('?').append(StringUtils.join(parameters, '&'));
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.AbstractHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.impl.ConcurrentUpdateSolrServer;
+import org.apache.solr.client.solrj.impl.HttpClientUtil;
+import org.apache.solr.client.solrj.impl.HttpSolrServer;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.dspace.core.ConfigurationManager;
+
+/**
+ * Hands out the Solr clients used throughout DSpace. All clients share one
+ * pooled, keep-alive HTTP connection manager, and there is one client per
+ * Solr core URL, so that the discovery, statistics, authority and OAI cores
+ * no longer each open their own connections with default settings.
+ * <P>
+ * The pool is configured in dspace.cfg:
+ * <ul>
+ * <li><code>solr.client.max-connections</code> - connections in the pool (default 128)</li>
+ * <li><code>solr.client.max-connections-per-route</code> - connections to one Solr host (default 32)</li>
+ * <li><code>solr.client.connection-timeout</code> - milliseconds to wait for a connection (default 10000)</li>
+ * <li><code>solr.client.socket-timeout</code> - milliseconds to wait for a response, 0 for ever (default 0)</li>
+ * <li><code>solr.client.keep-alive</code> - milliseconds an idle connection is kept if Solr
+ * does not say otherwise (default 60000)</li>
+ * <li><code>solr.client.update.queue-size</code> and <code>solr.client.update.threads</code> -
+ * the request queue and sending threads of the batch update clients (default 100 and 4)</li>
+ * </ul>
+ */
+public class SolrClientRegistry
+{
+    /** log4j logger */
+    private static final Logger log = Logger.getLogger(SolrClientRegistry.class);
+
+    /** The connection pool shared by all clients */
+    private static PoolingClientConnectionManager connectionManager = null;
+
+    /** The HTTP client shared by all clients */
+    private static HttpClient httpClient = null;
+
+    /** The clients, by core URL */
+    private static final Map<String, HttpSolrServer> servers = new HashMap<String, HttpSolrServer>();
+
+    /** The batch update clients, by core URL */
+    private static final Map<String, ConcurrentUpdateSolrServer> updateServers = new HashMap<String, ConcurrentUpdateSolrServer>();
+
+    /** Utility class */
+    private SolrClientRegistry()
+    {
+    }
+
+    /**
+     * Get the client for a Solr core. The same client is returned for the
+     * same URL, so it must not be shut down or reconfigured by the caller.
+     * It sends POST requests as multipart form data.
+     *
+     * @param url
+     *            the URL of the Solr core, e.g. http://localhost:8080/solr/search
+     * @return the client
+     */
+    public static synchronized HttpSolrServer getServer(String url)
+    {
+        String key = normalize(url);
+        HttpSolrServer server = servers.get(key);
+        if (server == null)
+        {
+            server = new HttpSolrServer(key, getHttpClient());
+            server.setUseMultiPartPost(true);
+            servers.put(key, server);
+            log.debug("Created Solr client for " + key);
+        }
+        return server;
+    }
+
+    /**
+     * Get a client for sending a large number of updates to a Solr core, such
+     * as during a full reindex. Documents added through it are queued and
+     * sent in the background by several threads, each streaming many
+     * documents per request; other requests are sent straight away through
+     * the shared connection pool. Call <code>blockUntilFinished()</code>
+     * before relying on the updates having reached Solr.
+     *
+     * @param url
+     *            the URL of the Solr core
+     * @return the batch update client
+     */
+    public static synchronized ConcurrentUpdateSolrServer getUpdateServer(String url)
+    {
+        String key = normalize(url);
+        ConcurrentUpdateSolrServer server = updateServers.get(key);
+        if (server == null)
+        {
+            server = new ConcurrentUpdateSolrServer(key, getHttpClient(),
+                    ConfigurationManager.getIntProperty("solr.client.update.queue-size", 100),
+                    ConfigurationManager.getIntProperty("solr.client.update.threads", 4));
+            updateServers.put(key, server);
+            log.debug("Created Solr batch update client for " + key);
+        }
+        return server;
+    }
+
+    /**
+     * Get the usage of the shared connection pool: the connections leased
+     * and available, the requests waiting for a connection, and the maximum.
+     *
+     * @return the pool statistics, or null if no client has been created yet
+     */
+    public static synchronized PoolStats getPoolStats()
+    {
+        if (connectionManager == null)
+        {
+            return null;
+        }
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * Wait for the batch update clients to send what they have queued, then
+     * release all clients and close the connection pool. Clients requested
+     * afterwards get a new pool. Intended for command line tools which are
+     * about to exit.
+     */
+    public static synchronized void shutdown()
+    {
+        for (ConcurrentUpdateSolrServer server : updateServers.values())
+        {
+            server.blockUntilFinished();
+            server.shutdownNow();
+        }
+        updateServers.clear();
+        servers.clear();
+
+        if (connectionManager != null)
+        {
+            log.debug("Closing Solr connection pool: " + connectionManager.getTotalStats());
+            connectionManager.shutdown();
+            connectionManager = null;
+            httpClient = null;
+        }
+    }
+
+    /**
+     * Create the shared HTTP client on first use
+     */
+    private static HttpClient getHttpClient()
+    {
+        if (httpClient == null)
+        {
+            int maxConnections = ConfigurationManager.getIntProperty("solr.client.max-connections", 128);
+            int maxPerRoute = ConfigurationManager.getIntProperty("solr.client.max-connections-per-route", 32);
+
+            ModifiableSolrParams params = new ModifiableSolrParams();
+            params.set(HttpClientUtil.PROP_MAX_CONNECTIONS, maxConnections);
+            params.set(HttpClientUtil.PROP_MAX_CONNECTIONS_PER_HOST, maxPerRoute);
+            params.set(HttpClientUtil.PROP_CONNECTION_TIMEOUT,
+                    ConfigurationManager.getIntProperty("solr.client.connection-timeout", 10000));
+            params.set(HttpClientUtil.PROP_SO_TIMEOUT,
+                    ConfigurationManager.getIntProperty("solr.client.socket-timeout", 0));
+            params.set(HttpClientUtil.PROP_FOLLOW_REDIRECTS, false);
+
+            connectionManager = new PoolingClientConnectionManager(SchemeRegistryFactory.createSystemDefault());
+            httpClient = HttpClientUtil.createClient(params, connectionManager);
+
+            final long keepAlive = ConfigurationManager.getLongProperty("solr.client.keep-alive", 60000);
+            if (httpClient instanceof AbstractHttpClient)
+            {
+                ((AbstractHttpClient) httpClient).setKeepAliveStrategy(new ConnectionKeepAliveStrategy()
+                {
+                    private final ConnectionKeepAliveStrategy fromResponse = new DefaultConnectionKeepAliveStrategy();
+
+                    @Override
+                    public long getKeepAliveDuration(HttpResponse response, HttpContext context)
+                    {
+                        // Honour a Keep-Alive header, otherwise use the configured time
+                        long duration = fromResponse.getKeepAliveDuration(response, context);
+                        return duration > 0 ? duration : keepAlive;
+                    }
+                });
+            }
+
+            log.info("Created Solr connection pool: max-connections=" + maxConnections
+                    + ", max-connections-per-route=" + maxPerRoute + ", keep-alive=" + keepAlive);
+        }
+        return httpClient;
+    }
+
+    /**
+     * Remove any trailing slashes, so that the same core always gets the same client
+     */
+    private static String normalize(String url)
+    {
+        return StringUtils.stripEnd(StringUtils.trim(url), "/");
+    }
+}
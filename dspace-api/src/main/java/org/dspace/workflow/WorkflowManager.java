@@ -817,7 +817,7 @@ public class WorkflowManager
 
         // Now remove the workflow object manually from the database
         DatabaseManager.updateQuery(c,
-                "DELETE FROM WorkflowItem WHERE workflow_id=" + wfi.getID());
+                "DELETE FROM WorkflowItem WHERE workflow_id= ?", wfi.getID());
 
         return wi;
     }
@@ -797,7 +797,7 @@ public class XmlWorkflowManager {
 
         // Now remove the workflow object manually from the database
         DatabaseManager.updateQuery(c,
-                "DELETE FROM cwf_workflowitem WHERE workflowitem_id=" + wfi.getID());
+                "DELETE FROM cwf_workflowitem WHERE workflowitem_id= ?", wfi.getID());
 
         return wi;
     }
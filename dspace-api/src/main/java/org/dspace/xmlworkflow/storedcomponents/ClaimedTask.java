@@ -9,12 +9,16 @@ package org.dspace.xmlworkflow.storedcomponents;
 
 import org.dspace.core.Context;
 import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.QueryUtils;
 import org.dspace.storage.rdbms.TableRow;
 import org.dspace.storage.rdbms.TableRowIterator;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Claimed task representing the database representation of an action claimed by an eperson
@@ -61,7 +65,7 @@ public class ClaimedTask {
 
     public static List<ClaimedTask> findByWorkflowId(Context context, int workflowID) throws SQLException {
         TableRowIterator tri = DatabaseManager.queryTable(context,"cwf_claimtask",
-                "SELECT * FROM cwf_claimtask WHERE workflowitem_id= "+workflowID);
+                "SELECT * FROM cwf_claimtask WHERE workflowitem_id= ?", workflowID);
         List<ClaimedTask> list = new ArrayList<ClaimedTask>();
         while(tri.hasNext()) {
             TableRow row = tri.next();
@@ -81,7 +85,7 @@ public class ClaimedTask {
 
     public static List<ClaimedTask> findByEperson(Context context, int epersonID) throws SQLException {
         TableRowIterator tri = DatabaseManager.queryTable(context,"cwf_claimtask",
-                "SELECT * FROM cwf_claimtask WHERE owner_id= "+epersonID);
+                "SELECT * FROM cwf_claimtask WHERE owner_id= ?", epersonID);
         List<ClaimedTask> list = new ArrayList<ClaimedTask>();
         while(tri.hasNext()) {
             TableRow row = tri.next();
@@ -92,7 +96,7 @@ public class ClaimedTask {
 
     public static List<ClaimedTask> find(Context c, int wfiID, String stepID) throws SQLException {
         TableRowIterator tri = DatabaseManager.queryTable(c,"cwf_claimtask",
-                "SELECT * FROM cwf_claimtask WHERE workflowitem_id="+wfiID+" AND step_id= ?", stepID);
+                "SELECT * FROM cwf_claimtask WHERE workflowitem_id= ? AND step_id= ?", wfiID, stepID);
         List<ClaimedTask> list = new ArrayList<ClaimedTask>();
 
         while(tri.hasNext()) {
@@ -105,13 +109,13 @@ public class ClaimedTask {
 
     public static ClaimedTask find(Context c, int epersonID, int wfiID, String stepID, String actionID) throws SQLException {
         TableRow row = DatabaseManager.querySingleTable(c,"cwf_claimtask",
-                "SELECT * FROM cwf_claimtask WHERE workflowitem_id="+wfiID+" AND owner_id= "+epersonID+" AND action_id= ? AND step_id= ?",actionID, stepID);
+                "SELECT * FROM cwf_claimtask WHERE workflowitem_id= ? AND owner_id= ? AND action_id= ? AND step_id= ?", wfiID, epersonID, actionID, stepID);
 
         return new ClaimedTask(c, row);
     }
     public static List<ClaimedTask> find(Context c, int wfiID, String stepID, String actionID) throws SQLException {
         TableRowIterator tri = DatabaseManager.queryTable(c,"cwf_claimtask",
-                "SELECT * FROM cwf_claimtask WHERE workflowitem_id="+wfiID+" AND step_id= ? AND action_id=?", stepID, actionID);
+                "SELECT * FROM cwf_claimtask WHERE workflowitem_id= ? AND step_id= ? AND action_id= ?", wfiID, stepID, actionID);
         List<ClaimedTask> list = new ArrayList<ClaimedTask>();
         while(tri.hasNext()) {
             TableRow row = tri.next();
@@ -122,7 +126,7 @@ public class ClaimedTask {
 
     public static List<ClaimedTask> find(Context c, XmlWorkflowItem workflowItem) throws SQLException {
         TableRowIterator tri = DatabaseManager.queryTable(c,"cwf_claimtask",
-                "SELECT * FROM cwf_claimtask WHERE workflowitem_id="+workflowItem.getID());
+                "SELECT * FROM cwf_claimtask WHERE workflowitem_id= ?", workflowItem.getID());
         List<ClaimedTask> list = new ArrayList<ClaimedTask>();
         while(tri.hasNext()) {
             TableRow row = tri.next();
@@ -131,6 +135,37 @@ public class ClaimedTask {
         return list;
     }
 
+    /**
+     * Find the claimed tasks of several workflow items at once, with one
+     * query per thousand items rather than one per item.
+     *
+     * @param c
+     *            the context
+     * @param workflowItemIDs
+     *            the IDs of the workflow items
+     * @return the claimed tasks of each workflow item, by workflow item ID,
+     *         with an empty list for items without any
+     */
+    public static Map<Integer, List<ClaimedTask>> findByWorkflowItems(Context c, Collection<Integer> workflowItemIDs) throws SQLException {
+        Map<Integer, List<ClaimedTask>> tasks = new LinkedHashMap<Integer, List<ClaimedTask>>();
+        for (Integer workflowItemID : workflowItemIDs) {
+            tasks.put(workflowItemID, new ArrayList<ClaimedTask>());
+        }
+        for (Object[] block : QueryUtils.blocks(workflowItemIDs)) {
+            TableRowIterator tri = DatabaseManager.queryTable(c,"cwf_claimtask",
+                    "SELECT * FROM cwf_claimtask WHERE workflowitem_id IN (" + QueryUtils.placeholders(block.length) + ")", block);
+            try {
+                while(tri.hasNext()) {
+                    ClaimedTask task = new ClaimedTask(c, tri.next());
+                    tasks.get(task.getWorkflowItemID()).add(task);
+                }
+            } finally {
+                tri.close();
+            }
+        }
+        return tasks;
+    }
+
     public static List<ClaimedTask> findAllInStep(Context c, String stepID) throws SQLException {
         TableRowIterator tri = DatabaseManager.queryTable(c,"cwf_claimtask", "SELECT * FROM cwf_claimtask WHERE step_id= ?", stepID);
 
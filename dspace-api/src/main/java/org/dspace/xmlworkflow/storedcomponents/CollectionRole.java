@@ -68,8 +68,8 @@ public class CollectionRole {
 
     public static CollectionRole find(Context context, int collection, String role) throws SQLException {
          TableRowIterator tri = DatabaseManager.queryTable(context,"cwf_collectionrole",
-                "SELECT * FROM cwf_collectionrole WHERE collection_id="+collection+" AND role_id= ? ",
-                role);
+                "SELECT * FROM cwf_collectionrole WHERE collection_id= ? AND role_id= ? ",
+                collection, role);
 
         TableRow row = null;
         if (tri.hasNext())
@@ -70,7 +70,7 @@ public class InProgressUser {
 
     public static List<InProgressUser> findByEperson(Context context, int epersonID) throws SQLException {
         TableRowIterator tri = DatabaseManager.queryTable(context,"cwf_in_progress_user",
-                "SELECT * FROM cwf_in_progress_user WHERE user_id = "+epersonID);
+                "SELECT * FROM cwf_in_progress_user WHERE user_id = ?", epersonID);
         List<InProgressUser> list = new ArrayList<InProgressUser>();
         while(tri.hasNext()) {
             TableRow row = tri.next();
@@ -81,7 +81,7 @@ public class InProgressUser {
 
     public static List<InProgressUser> findByWorkflowItem(Context c, int wfiID) throws SQLException {
         TableRowIterator tri = DatabaseManager.queryTable(c,"cwf_in_progress_user",
-                "SELECT * FROM cwf_in_progress_user WHERE workflowitem_id="+wfiID);
+                "SELECT * FROM cwf_in_progress_user WHERE workflowitem_id= ?", wfiID);
         List<InProgressUser> list = new ArrayList<InProgressUser>();
 
         while(tri.hasNext()) {
@@ -94,13 +94,13 @@ public class InProgressUser {
 
     public static int getNumberOfInProgressUsers(Context c, int wfiID) throws SQLException {
         TableRowIterator tri = DatabaseManager.queryTable(c,"cwf_in_progress_user",
-                "SELECT * FROM cwf_in_progress_user WHERE workflowitem_id="+wfiID+" AND finished= '0'");
+                "SELECT * FROM cwf_in_progress_user WHERE workflowitem_id= ? AND finished= '0'", wfiID);
         return tri.toList().size();
     }
 
     public static int getNumberOfFinishedUsers(Context c, int wfiID) throws SQLException {
         TableRowIterator tri = DatabaseManager.queryTable(c,"cwf_in_progress_user",
-                "SELECT * FROM cwf_in_progress_user WHERE workflowitem_id="+wfiID+" AND finished= '1'");
+                "SELECT * FROM cwf_in_progress_user WHERE workflowitem_id= ? AND finished= '1'", wfiID);
         return tri.toList().size();
     }
 
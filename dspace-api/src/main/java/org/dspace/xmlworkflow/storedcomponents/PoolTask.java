@@ -12,6 +12,7 @@ import org.dspace.core.Context;
 import org.dspace.eperson.EPerson;
 import org.dspace.eperson.Group;
 import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.QueryUtils;
 import org.dspace.storage.rdbms.TableRow;
 import org.dspace.storage.rdbms.TableRowIterator;
 import org.dspace.xmlworkflow.WorkflowRequirementsManager;
@@ -19,8 +20,13 @@ import org.dspace.xmlworkflow.WorkflowRequirementsManager;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Pool task representing the database representation of a pool task for a step and an eperson
@@ -66,39 +72,54 @@ public class PoolTask {
     }
 
     public static List<PoolTask> findByEperson(Context context, int eperson_id) throws SQLException, AuthorizeException, IOException {
-        TableRowIterator tri = DatabaseManager.queryTable(context,"cwf_pooltask",
-                "SELECT * FROM cwf_pooltask WHERE eperson_id= "+eperson_id);
         //Hashmap to map workflow item id's to pooltasks. This will allow to have a list of unique workflowitems for which
         //the user will see PoolTasks
         HashMap<Integer, PoolTask> tasks = new HashMap<Integer, PoolTask>();
-        //Get all PoolTasks for a specific eperson
-        while(tri.hasNext()){
-            TableRow row = tri.next();
-            PoolTask task = new PoolTask(context, row);
-            tasks.put(task.getWorkflowItemID(), task);
+        List<PoolTask> groupTasks = new ArrayList<PoolTask>();
+        //Get all PoolTasks for a specific eperson and for groups of which this eperson is a member in one query
+        //(one per thousand groups)
+        List<Object[]> blocks = QueryUtils.blocks(Group.allMemberGroupIDs(context, EPerson.find(context, eperson_id)));
+        if(blocks.isEmpty()){
+            blocks.add(new Object[0]);
         }
-        tri.close();
-        //Get all PoolTasks for groups of which this eperson is a member
-        for(Group group: Group.allMemberGroups(context, EPerson.find(context, eperson_id))){
-            tri = DatabaseManager.queryTable(context,"cwf_pooltask",
-                    "SELECT * FROM cwf_pooltask WHERE group_id= "+group.getID());
-            while(tri.hasNext()){
-                TableRow row = tri.next();
-                PoolTask task = new PoolTask(context, row);
-                XmlWorkflowItem wfi = XmlWorkflowItem.find(context, task.getWorkflowItemID());
+        for(Object[] block : blocks){
+            String query = "SELECT * FROM cwf_pooltask WHERE eperson_id= ?";
+            if(block.length > 0){
+                query += " OR group_id IN (" + QueryUtils.placeholders(block.length) + ")";
+            }
+            TableRowIterator tri = DatabaseManager.queryTable(context,"cwf_pooltask", query,
+                    QueryUtils.parameters(block, eperson_id));
+            try{
+                while(tri.hasNext()){
+                    PoolTask task = new PoolTask(context, tri.next());
+                    if(task.getEpersonID() == eperson_id){
+                        tasks.put(task.getWorkflowItemID(), task);
+                    }else{
+                        groupTasks.add(task);
+                    }
+                }
+            }finally{
+                tri.close();
+            }
+        }
+        if(!groupTasks.isEmpty()){
+            Set<Integer> inProgress = new HashSet<Integer>();
+            for(InProgressUser user : InProgressUser.findByEperson(context, eperson_id)){
+                inProgress.add(user.getWorkflowItemID());
+            }
+            for(PoolTask task : groupTasks){
                 //If the user has not claimed and not finished the step, return a pooltask for the user
-                if(!(InProgressUser.findByWorkflowItemAndEPerson(context, wfi.getID(), eperson_id)!=null)){
+                if(!inProgress.contains(task.getWorkflowItemID())){
                     tasks.put(task.getWorkflowItemID(), task);
                 }
             }
-            tri.close();
         }
-        return new ArrayList(tasks.values());
+        return new ArrayList<PoolTask>(tasks.values());
     }
 
     public static List<PoolTask> find(Context context, XmlWorkflowItem workflowItem) throws SQLException {
         TableRowIterator tri = DatabaseManager.queryTable(context,"cwf_pooltask",
-                "SELECT * FROM cwf_pooltask WHERE workflowitem_id= "+workflowItem.getID());
+                "SELECT * FROM cwf_pooltask WHERE workflowitem_id= ?", workflowItem.getID());
         List<PoolTask> list = new ArrayList<PoolTask>();
         while(tri.hasNext()){
             TableRow row = tri.next();
@@ -108,6 +129,37 @@ public class PoolTask {
         return list;
     }
 
+    /**
+     * Find the pool tasks of several workflow items at once, with one query
+     * per thousand items rather than one per item.
+     *
+     * @param context
+     *            the context
+     * @param workflowItemIDs
+     *            the IDs of the workflow items
+     * @return the pool tasks of each workflow item, by workflow item ID,
+     *         with an empty list for items without any
+     */
+    public static Map<Integer, List<PoolTask>> findByWorkflowItems(Context context, Collection<Integer> workflowItemIDs) throws SQLException {
+        Map<Integer, List<PoolTask>> tasks = new LinkedHashMap<Integer, List<PoolTask>>();
+        for(Integer workflowItemID : workflowItemIDs){
+            tasks.put(workflowItemID, new ArrayList<PoolTask>());
+        }
+        for(Object[] block : QueryUtils.blocks(workflowItemIDs)){
+            TableRowIterator tri = DatabaseManager.queryTable(context,"cwf_pooltask",
+                    "SELECT * FROM cwf_pooltask WHERE workflowitem_id IN (" + QueryUtils.placeholders(block.length) + ")", block);
+            try{
+                while(tri.hasNext()){
+                    PoolTask task = new PoolTask(context, tri.next());
+                    tasks.get(task.getWorkflowItemID()).add(task);
+                }
+            }finally{
+                tri.close();
+            }
+        }
+        return tasks;
+    }
+
     public static PoolTask findByWorkflowIdAndEPerson(Context context, int workflowID, int epersonID) throws SQLException, AuthorizeException, IOException {
         TableRow row = DatabaseManager.querySingleTable(context,"cwf_pooltask",
                 "SELECT * FROM cwf_pooltask WHERE workflowitem_id= ? AND eperson_id = ?", workflowID, epersonID);
@@ -117,18 +169,22 @@ public class PoolTask {
         else{
             //If the user has a is processing or has finished the step for a workflowitem, there is no need to look for pooltasks for one of his
             //groups because the user already has the task claimed
-            XmlWorkflowItem wfi = XmlWorkflowItem.find(context, workflowID);
             if(InProgressUser.findByWorkflowItemAndEPerson(context, workflowID, epersonID)!=null){
                 return null;
             }
             else{
                 //If the user does not have a claimedtask yet, see whether one of the groups of the user has pooltasks
                 //for this workflow item
-                for(Group group: Group.allMemberGroups(context, EPerson.find(context, epersonID))){
-                    row = DatabaseManager.querySingleTable(context,"cwf_pooltask",
-                        "SELECT * FROM cwf_pooltask WHERE workflowitem_id= ? AND group_id = ?", workflowID, group.getID());
-                    if(row != null){
-                        return new PoolTask(context, row);
+                for(Object[] block : QueryUtils.blocks(Group.allMemberGroupIDs(context, EPerson.find(context, epersonID)))){
+                    TableRowIterator tri = DatabaseManager.queryTable(context,"cwf_pooltask",
+                        "SELECT * FROM cwf_pooltask WHERE workflowitem_id= ? AND group_id IN (" + QueryUtils.placeholders(block.length) + ")",
+                        QueryUtils.parameters(block, workflowID));
+                    try{
+                        if(tri.hasNext()){
+                            return new PoolTask(context, tri.next());
+                        }
+                    }finally{
+                        tri.close();
                     }
                 }
             }
@@ -175,9 +175,12 @@ public class XmlWorkflowItem implements InProgressSubmission {
         List wfItems = new ArrayList();
         StringBuffer query = new StringBuffer();
 
+        List<Object> params = new ArrayList<Object>();
+
         query.append("SELECT * FROM cwf_workflowitem ");
         if(collectionId != -1){
-            query.append("WHERE collection_id=").append(collectionId);
+            query.append("WHERE collection_id= ? ");
+            params.add(collectionId);
         }
         int offset = (page - 1) * pagesize;
         if (DatabaseManager.isOracle()) {
@@ -208,14 +211,13 @@ public class XmlWorkflowItem implements InProgressSubmission {
             }
         }
         String queryString = query.toString();
-        Object[] paramArr = new Object[]{};
-        if (pagesize > 0 && offset > 0) {
-            paramArr = new Object[]{pagesize, offset};
-        } else if (pagesize > 0) {
-            paramArr = new Object[]{pagesize};
-        } else if (offset > 0) {
-            paramArr = new Object[]{offset};
+        if (pagesize > 0) {
+            params.add(pagesize);
+        }
+        if (offset > 0) {
+            params.add(offset);
         }
+        Object[] paramArr = params.toArray();
         // Get all the epeople that match the query
         TableRowIterator tri = DatabaseManager.query(c, queryString, paramArr);
         try
@@ -260,11 +262,15 @@ public class XmlWorkflowItem implements InProgressSubmission {
         public static int countAllInCollection(Context c, int collId) throws SQLException, AuthorizeException, IOException, WorkflowConfigurationException {
         StringBuffer query = new StringBuffer();
         query.append("SELECT count(*) AS count FROM cwf_workflowitem ");
+        TableRow tr;
         if(collId != -1){
-            query.append(" WHERE collection_id= ").append(collId);
+            query.append(" WHERE collection_id= ?");
+            tr = DatabaseManager.querySingle(c,query.toString(), collId);
+        }
+        else
+        {
+            tr = DatabaseManager.querySingle(c,query.toString());
         }
-
-        TableRow tr = DatabaseManager.querySingle(c,query.toString());
 
             return new Long(tr.getLongColumn("count")).intValue();
         }
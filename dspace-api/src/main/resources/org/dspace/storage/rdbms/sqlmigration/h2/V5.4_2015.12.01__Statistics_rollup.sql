@@ -0,0 +1,37 @@
+--
+-- The contents of this file are subject to the license and copyright
+-- detailed in the LICENSE and NOTICE files at the root of the source
+-- tree and available online at
+--
+-- http://www.dspace.org/license/
+--
+
+-- ===============================================================
+-- WARNING WARNING WARNING WARNING WARNING WARNING WARNING WARNING
+--
+-- DO NOT MANUALLY RUN THIS DATABASE MIGRATION. IT WILL BE EXECUTED
+-- AUTOMATICALLY (IF NEEDED) BY "FLYWAY" WHEN YOU STARTUP DSPACE.
+-- http://flywaydb.org/
+-- ===============================================================
+
+------------------------------------------------------
+-- Daily and monthly usage statistics rollups
+------------------------------------------------------
+CREATE SEQUENCE statistics_rollup_seq;
+
+CREATE TABLE statistics_rollup
+(
+  rollup_id         INTEGER PRIMARY KEY,
+  period_type       INTEGER NOT NULL,
+  period_start      INTEGER NOT NULL,
+  resource_type_id  INTEGER NOT NULL,
+  resource_id       INTEGER NOT NULL,
+  owner_type_id     INTEGER NOT NULL,
+  owner_id          INTEGER NOT NULL,
+  country_code      VARCHAR2(8) NOT NULL,
+  is_bot            INTEGER NOT NULL,
+  view_count        BIGINT NOT NULL
+);
+
+CREATE INDEX statistics_rollup_resource_idx ON statistics_rollup(resource_type_id, resource_id, period_type, period_start);
+CREATE INDEX statistics_rollup_owner_idx ON statistics_rollup(owner_type_id, owner_id, period_type, period_start);
@@ -143,4 +143,52 @@ public class DSpaceCSVTest extends AbstractUnitTest
             fail("IO Error while creating test CSV file");
         }
     }
+
+    /**
+     * Test the streaming of CSV files in chunks
+     */
+    @Test
+    public void testDSpaceCSVReader()
+    {
+        try
+        {
+            String[] csv = {"id,collection,\"dc.title[en]\",dc.contributor.author,dc.description.abstract",
+                            "1,2,Easy line,\"Lewis, Stuart\",A nice short abstract",
+                            "2,2,Two authors,\"Lewis, Stuart||Bloggs, Joe\",Two people wrote this item",
+                            "3,2,\"Two line\ntitle\",\"Lewis, Stuart\",abstract",
+                            "4,2,\"\"\"Embedded quotes\"\" here\",\"Lewis, Stuart\",\"Abstract with\ntwo\nnew lines\"",};
+            // Write the string to a file
+            String filename = "test-reader.csv";
+            BufferedWriter out = new BufferedWriter(
+                                 new OutputStreamWriter(
+                                 new FileOutputStream(filename), "UTF-8"));
+            for (String csvLine : csv) {
+                out.write(csvLine + "\n");
+            }
+            out.flush();
+            out.close();
+
+            // Read the lines back in chunks
+            DSpaceCSVReader reader = new DSpaceCSVReader(new File(filename), context);
+            assertThat("testDSpaceCSVReader Headings", reader.getCSV().getHeadings().size(), equalTo(4));
+            assertThat("testDSpaceCSVReader Lines held", reader.getCSV().getCSVLines().size(), equalTo(0));
+            List<DSpaceCSVLine> chunk = reader.next(3);
+            assertThat("testDSpaceCSVReader First chunk", chunk.size(), equalTo(3));
+            assertThat("testDSpaceCSVReader Multi-line value", chunk.get(2).get("dc.title[en]").get(0),
+                                                               equalTo("Two line\ntitle"));
+            chunk = reader.next(3);
+            assertThat("testDSpaceCSVReader Second chunk", chunk.size(), equalTo(1));
+            assertThat("testDSpaceCSVReader Embedded quotes", chunk.get(0).getID(), equalTo(4));
+            assertThat("testDSpaceCSVReader End of file", reader.next(3).size(), equalTo(0));
+            assertThat("testDSpaceCSVReader Lines read", reader.getLinesRead(), equalTo(4));
+            reader.close();
+
+            // Delete the test file
+            new File(filename).delete();
+        }
+        catch (Exception ex) {
+            log.error("IO Error while creating test CSV file", ex);
+            fail("IO Error while creating test CSV file");
+        }
+    }
 }
@@ -0,0 +1,65 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.bulkedit;
+
+import java.io.*;
+
+import org.dspace.AbstractUnitTest;
+
+import org.junit.*;
+import static org.junit.Assert.* ;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class MetadataImport
+ */
+public class MetadataImportTest extends AbstractUnitTest
+{
+    /**
+     * Test that a streamed import refuses a file with an item on more than
+     * one line, before importing anything
+     */
+    @Test
+    public void testRunImportDuplicateIDs() throws Exception
+    {
+        String[] csv = {"id,collection,dc.title",
+                        "+,2,A new item",
+                        "1,2,First title",
+                        "+,2,Another new item",
+                        "1,2,Second title"};
+        File file = File.createTempFile("test-duplicates", ".csv");
+        try
+        {
+            BufferedWriter out = new BufferedWriter(
+                                 new OutputStreamWriter(
+                                 new FileOutputStream(file), "UTF-8"));
+            for (String csvLine : csv) {
+                out.write(csvLine + "\n");
+            }
+            out.close();
+
+            DSpaceCSVReader reader = new DSpaceCSVReader(file, context);
+            MetadataImport importer = new MetadataImport(context, reader.getCSV());
+            reader.close();
+            try
+            {
+                importer.runImport(file, false, false, false, false, 2, 1);
+                fail("testRunImportDuplicateIDs 0");
+            }
+            catch (MetadataImportException mie)
+            {
+                assertThat("testRunImportDuplicateIDs 1", mie.getMessage(), containsString("Item 1 "));
+                assertThat("testRunImportDuplicateIDs 2", mie.getMessage(), containsString("line 4"));
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}
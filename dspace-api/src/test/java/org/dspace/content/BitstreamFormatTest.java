@@ -131,6 +131,21 @@ public class BitstreamFormatTest extends AbstractUnitTest
         assertFalse("testFindByShortDescription 5", found.isInternal());
     }
 
+    /**
+     * Test of findByExtension method, of class BitstreamFormat.
+     */
+    @Test
+    public void testFindByExtension() throws SQLException
+    {
+        BitstreamFormat found =  BitstreamFormat.findByExtension(context, "pdf");
+        assertThat("testFindByExtension 0", found, notNullValue());
+        assertThat("testFindByExtension 1", found.getShortDescription(), equalTo("Adobe PDF"));
+        assertThat("testFindByExtension 2", found, sameInstance(BitstreamFormat.findByMIMEType(context, "application/pdf")));
+
+        found =  BitstreamFormat.findByExtension(context, "no-such-extension");
+        assertThat("testFindByExtension 3", found, nullValue());
+    }
+
     /**
      * Test of findUnknown method, of class BitstreamFormat.
      */
@@ -248,6 +248,55 @@ public class BundleTest extends AbstractDSpaceObjectTest
         context.commit();
     }
 
+    /**
+     * Test of getBitstreams(int, int), countBitstreams and iterateBitstreams
+     * methods, of class Bundle.
+     */
+    @Test
+    public void testGetBitstreamsPaged() throws SQLException, IOException, AuthorizeException
+    {
+        new NonStrictExpectations(AuthorizeManager.class)
+        {{
+            // Allow Bundle ADD perms
+            AuthorizeManager.authorizeAction((Context) any, (Bundle) any,
+                    Constants.ADD); result = null;
+
+        }};
+
+        File f = new File(testProps.get("test.bitstream").toString());
+        for (int i = 0; i < 3; i++)
+        {
+            b.addBitstream(Bitstream.create(context, new FileInputStream(f)));
+        }
+        Bitstream[] all = b.getBitstreams();
+
+        // read the bundle again, without its bitstreams
+        context.removeCached(b, b.getID());
+        Bundle found = Bundle.find(context, b.getID());
+        assertThat("testGetBitstreamsPaged 0", found.countBitstreams(), equalTo(3));
+
+        Bitstream[] page = found.getBitstreams(1, 5);
+        assertThat("testGetBitstreamsPaged 1", page.length, equalTo(2));
+        assertThat("testGetBitstreamsPaged 2", page[0].getID(), equalTo(all[1].getID()));
+        assertThat("testGetBitstreamsPaged 3", found.getBitstreams(3, 5).length, equalTo(0));
+
+        BitstreamIterator iterator = found.iterateBitstreams();
+        try
+        {
+            for (Bitstream bs : all)
+            {
+                assertTrue("testGetBitstreamsPaged 4", iterator.hasNext());
+                assertThat("testGetBitstreamsPaged 5", iterator.next().getID(), equalTo(bs.getID()));
+            }
+            assertFalse("testGetBitstreamsPaged 6", iterator.hasNext());
+        }
+        finally
+        {
+            iterator.close();
+        }
+        context.commit();
+    }
+
     /**
      * Test of getItems method, of class Bundle.
      */
@@ -165,6 +165,42 @@ public class ItemIteratorTest extends AbstractUnitTest
         }
     }
 
+    /**
+     * Test of setPrefetchSize method, of class ItemIterator.
+     */
+    @Test
+    public void testPrefetch() throws Exception
+    {
+        context.turnOffAuthorisationSystem();
+        ArrayList<Integer> list = new ArrayList<Integer>();
+        for(int i = 0; i < 3; i++)
+        {
+            Item it = Item.create(context);
+            it.addMetadata("dc", "title", null, null, "Prefetched item " + i);
+            it.createBundle("ORIGINAL");
+            it.update();
+            list.add(it.getID());
+        }
+        context.commit();
+        context.restoreAuthSystemState();
+
+        // Read them back in blocks of two from a fresh cache
+        context.clearCache();
+        ItemIterator prefetching = new ItemIterator(context, list).setPrefetchSize(2);
+        for(int i = 0; i < 3; i++)
+        {
+            assertTrue("testPrefetch hasNext "+i, prefetching.hasNext());
+            Item it = prefetching.next();
+            assertThat("testPrefetch id "+i, it.getID(), equalTo(list.get(i)));
+            assertThat("testPrefetch title "+i, it.getMetadata("dc", "title", null, Item.ANY)[0].value,
+                    equalTo("Prefetched item " + i));
+            assertThat("testPrefetch bundles "+i, it.getBundles("ORIGINAL").length, equalTo(1));
+            assertThat("testPrefetch collections "+i, it.getCollections().length, equalTo(0));
+        }
+        assertFalse("testPrefetch end", prefetching.hasNext());
+        assertThat("testPrefetch end next", prefetching.next(), nullValue());
+    }
+
     /**
      * Test of close method, of class ItemIterator.
      */
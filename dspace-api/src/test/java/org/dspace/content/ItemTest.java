@@ -676,6 +676,39 @@ public class ItemTest  extends AbstractDSpaceObjectTest
         assertTrue("testGetBundles_String 1", it.getBundles(name).length == 0);
     }
 
+    /**
+     * Test of getBundles method with several names, of class Item.
+     */
+    @Test
+    public void testGetBundles_StringArray() throws Exception
+    {
+        new NonStrictExpectations(AuthorizeManager.class)
+        {{
+            // Allow Item ADD perms
+            AuthorizeManager.authorizeAction((Context) any, (Item) any,
+                    Constants.ADD); result = null;
+
+        }};
+
+        for (String name : new String[] { "ORIGINAL", "THUMBNAIL", "TEXT" })
+        {
+            it.createBundle(name);
+        }
+        String[] names = new String[] { "ORIGINAL", "THUMBNAIL" };
+        assertThat("testGetBundles_StringArray 0", it.getBundles(names).length, equalTo(2));
+
+        // read the item again, without its bundles
+        context.removeCached(it, it.getID());
+        Item found = Item.find(context, it.getID());
+        Bundle[] bundles = found.getBundles(names);
+        assertThat("testGetBundles_StringArray 1", bundles.length, equalTo(2));
+        for (Bundle bundle : bundles)
+        {
+            assertFalse("testGetBundles_StringArray 2", "TEXT".equals(bundle.getName()));
+        }
+        assertThat("testGetBundles_StringArray 3", found.getBundles(new String[] { "LICENSE" }).length, equalTo(0));
+    }
+
     /**
      * Test of createBundle method, of class Item.
      */
@@ -12,6 +12,7 @@ import org.dspace.authorize.AuthorizeManager;
 import mockit.NonStrictExpectations;
 import java.sql.SQLException;
 import org.dspace.AbstractUnitTest;
+import org.dspace.core.Context;
 import org.apache.log4j.Logger;
 import org.junit.*;
 import static org.junit.Assert.* ;
@@ -141,6 +142,66 @@ public class MetadataSchemaTest extends AbstractUnitTest
         assertThat("testCreateAuth 0",found.getSchemaID(), equalTo(m.getSchemaID()));
     }
 
+    /**
+     * Test of create method, of class MetadataSchema: other contexts do not
+     * see the schema until it is committed.
+     */
+    @Test
+    public void testCreateUncommitted() throws Exception
+    {
+        new NonStrictExpectations(AuthorizeManager.class)
+        {{
+            // Allow full admin permissions
+            AuthorizeManager.isAdmin(context); result = true;
+        }};
+
+        String namespace = "uncommitted namespace";
+        Context other = new Context();
+        try
+        {
+            // Load the shared snapshot first
+            assertThat("testCreateUncommitted 0",
+                    MetadataSchema.findByNamespace(other, namespace), nullValue());
+
+            MetadataSchema m = new MetadataSchema();
+            m.setName("uncommitted");
+            m.setNamespace(namespace);
+            m.create(context);
+
+            MetadataSchema found = MetadataSchema.findByNamespace(context, namespace);
+            assertThat("testCreateUncommitted 1", found, notNullValue());
+            assertThat("testCreateUncommitted 2", found.getSchemaID(), equalTo(m.getSchemaID()));
+            assertThat("testCreateUncommitted 3",
+                    MetadataSchema.findByNamespace(other, namespace), nullValue());
+
+            // Nothing is left behind once the change is rolled back
+            context.abort();
+            assertThat("testCreateUncommitted 4",
+                    MetadataSchema.findByNamespace(other, namespace), nullValue());
+            assertThat("testCreateUncommitted 5",
+                    MetadataSchema.find(other, "uncommitted"), nullValue());
+        }
+        finally
+        {
+            other.abort();
+        }
+    }
+
+    /**
+     * Test of findAll method, of class MetadataSchema: the schemas returned
+     * can be changed without affecting other callers.
+     */
+    @Test
+    public void testFindAllCopies() throws Exception
+    {
+        MetadataSchema[] found = MetadataSchema.findAll(context);
+        assertTrue("testFindAllCopies 0", found.length >= 1);
+        String name = found[0].getName();
+        found[0].setName("changed");
+
+        assertThat("testFindAllCopies 1", MetadataSchema.findAll(context)[0].getName(), equalTo(name));
+    }
+
     /**
      * Test of create method, of class MetadataSchema.
      */
@@ -20,6 +20,8 @@ import org.junit.*;
  */
 public class DSpaceControlledVocabularyTest
 {
+    private static final String PLUGIN_INTERFACE = "org.dspace.content.authority.ChoiceAuthority";
+
     public DSpaceControlledVocabularyTest()
     {
     }
@@ -70,8 +72,6 @@ public class DSpaceControlledVocabularyTest
     {
         System.out.println("getMatches");
 
-        final String PLUGIN_INTERFACE = "org.dspace.content.authority.ChoiceAuthority";
-
         // Ensure that 'id' attribute is optional
         String field = null; // not used
         String text = "north 40";
@@ -111,23 +111,40 @@ public class DSpaceControlledVocabularyTest
     }
 */
 
+    /**
+     * Test of getMatches method, of class DSpaceControlledVocabulary, with
+     * the start of a word other than the first and in another case.
+     */
+    @Test
+    public void testGetMatchesWord() throws ClassNotFoundException
+    {
+        System.out.println("getMatches, word");
+        DSpaceControlledVocabulary instance = (DSpaceControlledVocabulary)
+                PluginManager.getNamedPlugin(Class.forName(PLUGIN_INTERFACE), "farm");
+        Choices result = instance.getMatches(null, "4", 0, 0, 0, null);
+        assertEquals(2, result.values.length);
+        assertEquals("the farm::north 40", result.values[0].value);
+        assertEquals("the farm::south 40", result.values[1].value);
+        assertEquals("s40", result.values[1].authority);
+
+        result = instance.getMatches(null, "SOUTH", 0, 0, 0, null);
+        assertEquals(1, result.values.length);
+        assertEquals("the farm::south 40", result.values[0].value);
+
+        result = instance.getMatches(null, "outh", 0, 0, 0, null);
+        assertEquals(0, result.values.length);
+    }
+
     /**
      * Test of getLabel method, of class DSpaceControlledVocabulary.
      */
-/*
     @Test
-    public void testGetLabel()
+    public void testGetLabel() throws ClassNotFoundException
     {
         System.out.println("getLabel");
-        String field = "";
-        String key = "";
-        String locale = "";
-        DSpaceControlledVocabulary instance = new DSpaceControlledVocabulary();
-        String expResult = "";
-        String result = instance.getLabel(field, key, locale);
-        assertEquals(expResult, result);
-        // TODO review the generated test code and remove the default call to fail.
-        fail("The test case is a prototype.");
+        DSpaceControlledVocabulary instance = (DSpaceControlledVocabulary)
+                PluginManager.getNamedPlugin(Class.forName(PLUGIN_INTERFACE), "farm");
+        assertEquals("south 40", instance.getLabel(null, "s40", null));
+        assertEquals("", instance.getLabel(null, "n40", null));
     }
-*/
 }
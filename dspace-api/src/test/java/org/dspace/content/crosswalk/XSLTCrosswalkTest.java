@@ -0,0 +1,130 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content.crosswalk;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import org.dspace.AbstractUnitTest;
+import org.junit.*;
+import static org.junit.Assert.* ;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for the stylesheet loading of class XSLTCrosswalk
+ */
+public class XSLTCrosswalkTest extends AbstractUnitTest
+{
+    private static final String GOOD =
+        "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+        + "<xsl:template match=\"/\"><out/></xsl:template>"
+        + "</xsl:stylesheet>";
+
+    private static final String BROKEN =
+        "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+        + "<xsl:template match=\"/\"><out></xsl:template>";
+
+    /**
+     * Stylesheet file for the tests
+     */
+    private File file;
+
+    /**
+     * This method will be run before every test as per @Before. It will
+     * initialize resources required for the tests.
+     */
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            this.file = File.createTempFile("XSLTCrosswalkTest", ".xsl");
+        }
+        catch (IOException ex)
+        {
+            fail("IO Error in init: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * This method will be run after every test as per @After. It will
+     * clean resources initialized by the @Before methods.
+     */
+    @After
+    @Override
+    public void destroy()
+    {
+        file.delete();
+        file = null;
+        super.destroy();
+    }
+
+    /**
+     * Test of load method, of class XSLTCrosswalk.
+     */
+    @Test
+    public void testLoad() throws Exception
+    {
+        write(GOOD, 1000000L);
+        XSLTCrosswalk.Stylesheet first = XSLTCrosswalk.load(file, null);
+        assertThat("testLoad 0", first, notNullValue());
+        assertThat("testLoad 1", first.templates, notNullValue());
+
+        // unchanged file: the same version is kept
+        assertThat("testLoad 2", XSLTCrosswalk.load(file, first), sameInstance(first));
+
+        // changed file: a new version is compiled
+        write(GOOD, 2000000L);
+        XSLTCrosswalk.Stylesheet second = XSLTCrosswalk.load(file, first);
+        assertThat("testLoad 3", second, not(sameInstance(first)));
+        assertThat("testLoad 4", second.templates, not(sameInstance(first.templates)));
+    }
+
+    /**
+     * Test of load method, of class XSLTCrosswalk, with a broken stylesheet.
+     */
+    @Test
+    public void testLoadBroken() throws Exception
+    {
+        write(BROKEN, 1000000L);
+        assertThat("testLoadBroken 0", XSLTCrosswalk.load(file, null), nullValue());
+
+        write(GOOD, 2000000L);
+        XSLTCrosswalk.Stylesheet good = XSLTCrosswalk.load(file, null);
+        assertThat("testLoadBroken 1", good, notNullValue());
+
+        // the last good version is kept when the file is broken
+        write(BROKEN, 3000000L);
+        XSLTCrosswalk.Stylesheet kept = XSLTCrosswalk.load(file, good);
+        assertThat("testLoadBroken 2", kept, notNullValue());
+        assertThat("testLoadBroken 3", kept.templates, sameInstance(good.templates));
+
+        // and the broken file is not compiled again until it changes
+        assertThat("testLoadBroken 4", XSLTCrosswalk.load(file, kept), sameInstance(kept));
+
+        write(GOOD, 4000000L);
+        XSLTCrosswalk.Stylesheet fixed = XSLTCrosswalk.load(file, kept);
+        assertThat("testLoadBroken 5", fixed.templates, not(sameInstance(good.templates)));
+    }
+
+    private void write(String content, long lastModified) throws IOException
+    {
+        FileWriter writer = new FileWriter(file);
+        try
+        {
+            writer.write(content);
+        }
+        finally
+        {
+            writer.close();
+        }
+        assertTrue(file.setLastModified(lastModified));
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content.crosswalk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.sql.SQLException;
+import org.apache.log4j.Logger;
+import org.dspace.AbstractUnitTest;
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.Item;
+import org.dspace.content.WorkspaceItem;
+import org.dspace.core.PluginManager;
+import org.jdom.Element;
+import org.jdom.input.SAXBuilder;
+import org.jdom.output.Format;
+import org.jdom.output.XMLOutputter;
+import org.junit.*;
+import static org.junit.Assert.* ;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class XSLTDisseminationCrosswalk
+ */
+public class XSLTDisseminationCrosswalkTest extends AbstractUnitTest
+{
+    /** log4j category */
+    private static final Logger log = Logger.getLogger(XSLTDisseminationCrosswalkTest.class);
+
+    /**
+     * Item instance for the tests
+     */
+    private Item item;
+
+    /**
+     * This method will be run before every test as per @Before. It will
+     * initialize resources required for the tests.
+     */
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            Collection col = Community.create(null, context).createCollection();
+            this.item = WorkspaceItem.create(context, col, false).getItem();
+            item.addMetadata("dc", "title", null, null, "A title & <more>");
+            item.addMetadata("dc", "contributor", "author", "en", "Author, An");
+            item.update();
+            context.commit();
+            context.restoreAuthSystemState();
+        }
+        catch (AuthorizeException ex)
+        {
+            log.error("Authorization Error in init", ex);
+            fail("Authorization Error in init: " + ex.getMessage());
+        }
+        catch (SQLException ex)
+        {
+            log.error("SQL Error in init", ex);
+            fail("SQL Error in init: " + ex.getMessage());
+        }
+        catch (java.io.IOException ex)
+        {
+            log.error("IO Error in init", ex);
+            fail("IO Error in init: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * This method will be run after every test as per @After. It will
+     * clean resources initialized by the @Before methods.
+     */
+    @After
+    @Override
+    public void destroy()
+    {
+        item = null;
+        super.destroy();
+    }
+
+    /**
+     * Test of disseminate method, of class XSLTDisseminationCrosswalk, which
+     * must give the same result as disseminateElement.
+     */
+    @Test
+    public void testDisseminate() throws Exception
+    {
+        Object plugin = PluginManager.getNamedPlugin(StreamDisseminationCrosswalk.class, "marc");
+        assertThat("testDisseminate 0", plugin, instanceOf(XSLTDisseminationCrosswalk.class));
+        XSLTDisseminationCrosswalk xwalk = (XSLTDisseminationCrosswalk) plugin;
+        assertTrue("testDisseminate 1", xwalk.canDisseminate(context, item));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        xwalk.disseminate(context, item, out);
+        Element streamed = new SAXBuilder().build(new ByteArrayInputStream(out.toByteArray())).getRootElement();
+        Element built = xwalk.disseminateElement(item);
+
+        XMLOutputter outputter = new XMLOutputter(Format.getCompactFormat());
+        assertThat("testDisseminate 2", outputter.outputString(streamed), equalTo(outputter.outputString(built)));
+        assertThat("testDisseminate 3", outputter.outputString(streamed), containsString("A title &amp; &lt;more&gt;"));
+    }
+
+    /**
+     * Test of createDIM method, of class XSLTDisseminationCrosswalk.
+     */
+    @Test
+    public void testCreateDIM() throws Exception
+    {
+        Element dim = XSLTDisseminationCrosswalk.createDIM(item);
+        assertThat("testCreateDIM 0", dim.getAttributeValue("dspaceType"), equalTo("ITEM"));
+        assertThat("testCreateDIM 1", dim.getChildren().size(), equalTo(item.getMetadata("*", "*", "*", "*").length));
+    }
+}
@@ -9,6 +9,9 @@ package org.dspace.core;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 import mockit.NonStrictExpectations;
 import org.dspace.AbstractUnitTest;
@@ -16,6 +19,8 @@ import org.dspace.authorize.AuthorizeException;
 import org.dspace.authorize.AuthorizeManager;
 import org.dspace.eperson.EPerson;
 import org.dspace.eperson.Group;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
 import org.junit.*;
 import static org.junit.Assert.* ;
 import static org.hamcrest.CoreMatchers.*;
@@ -382,6 +387,81 @@ public class ContextTest extends AbstractUnitTest
         cleanupContext(instance);
     }
 
+    /**
+     * Test that a read-only context can read, and gives back a connection
+     * which read/write contexts can use afterwards.
+     */
+    @Test
+    public void testReadOnlyConnection() throws SQLException
+    {
+        Context instance = new Context(Context.READ_ONLY);
+        TableRow row = DatabaseManager.querySingle(instance, "SELECT COUNT(*) AS count FROM eperson");
+        assertThat("testReadOnlyConnection 0", row, notNullValue());
+        instance.complete();
+        assertThat("testReadOnlyConnection 1", instance.isValid(), equalTo(false));
+
+        Context newInstance = new Context();
+        assertThat("testReadOnlyConnection 2", newInstance.getDBConnection().isReadOnly(), equalTo(false));
+
+        // Cleanup our context
+        cleanupContext(newInstance);
+    }
+
+    /**
+     * Test that a context using the replica, or the main database if there
+     * is none, is read-only.
+     */
+    @Test
+    public void testReadReplica() throws SQLException
+    {
+        Context instance = new Context(Context.READ_REPLICA);
+        assertThat("testReadReplica 0", instance.isReadOnly(), equalTo(true));
+        assertThat("testReadReplica 1", instance.getDBConnection().isReadOnly(), equalTo(true));
+        TableRow row = DatabaseManager.querySingle(instance, "SELECT COUNT(*) AS count FROM eperson");
+        assertThat("testReadReplica 2", row, notNullValue());
+
+        // Cleanup our context
+        cleanupContext(instance);
+    }
+
+    /**
+     * Test of addCommitAction method, of class Context.
+     */
+    @Test
+    public void testAddCommitAction() throws SQLException
+    {
+        final List<String> run = new ArrayList<String>();
+        Context instance = new Context();
+        instance.addCommitAction("test", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                run.add("first");
+            }
+        });
+        Runnable second = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                run.add("second");
+            }
+        };
+        instance.addCommitAction("test", second);
+        assertThat("testAddCommitAction 0", instance.getCommitAction("test"), equalTo(second));
+        assertThat("testAddCommitAction 1", run.isEmpty(), equalTo(true));
+
+        instance.commit();
+        assertThat("testAddCommitAction 2", run, equalTo(Arrays.asList("second")));
+        assertThat("testAddCommitAction 3", instance.getCommitAction("test"), nullValue());
+
+        // Dropped if the transaction is rolled back
+        instance.addCommitAction("test", second);
+        instance.abort();
+        assertThat("testAddCommitAction 4", run.size(), equalTo(1));
+    }
+
     /**
      * Test of fromCache method, of class Context.
      */
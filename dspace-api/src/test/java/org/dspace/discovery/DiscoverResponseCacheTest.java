@@ -0,0 +1,167 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.impl.HttpSolrServer;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.dspace.core.ConfigurationManager;
+import org.junit.*;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class DiscoverResponseCache
+ */
+public class DiscoverResponseCacheTest
+{
+    /**
+     * Use a small cache with a long time to live, unless a test says
+     * otherwise
+     */
+    @Before
+    public void setUp()
+    {
+        DiscoverResponseCache.configure(2, 3600000, 1);
+    }
+
+    /**
+     * Restore the configured limits
+     */
+    @After
+    public void tearDown()
+    {
+        DiscoverResponseCache.configure(ConfigurationManager.getIntProperty("discovery", "search.cache.size", 500),
+                ConfigurationManager.getLongProperty("discovery", "search.cache.ttl", 60) * 1000,
+                ConfigurationManager.getIntProperty("discovery", "search.cache.max-rows", 1));
+    }
+
+    private static SolrQuery query(String q, int rows)
+    {
+        SolrQuery query = new SolrQuery(q);
+        query.setRows(rows);
+        return query;
+    }
+
+    /**
+     * Test of getKey method, only small queries are cached
+     */
+    @Test
+    public void testGetKeyRows()
+    {
+        assertThat("testGetKeyRows 0", DiscoverResponseCache.getKey(query("*:*", 0)), notNullValue());
+        assertThat("testGetKeyRows 1", DiscoverResponseCache.getKey(query("*:*", 1)), notNullValue());
+        assertThat("testGetKeyRows 2", DiscoverResponseCache.getKey(query("*:*", 2)), nullValue());
+        assertThat("testGetKeyRows 3", DiscoverResponseCache.getKey(new SolrQuery("*:*")), nullValue());
+
+        DiscoverResponseCache.configure(0, 3600000, 1);
+        assertThat("testGetKeyRows 4", DiscoverResponseCache.getKey(query("*:*", 0)), nullValue());
+    }
+
+    /**
+     * Test of getKey method, queries differing only in their filter queries
+     * or sort get different keys
+     */
+    @Test
+    public void testGetKeyParameters()
+    {
+        SolrQuery plain = query("*:*", 0);
+        SolrQuery filtered = query("*:*", 0);
+        filtered.addFilterQuery("location:m1");
+        SolrQuery otherFilter = query("*:*", 0);
+        otherFilter.addFilterQuery("location:m2");
+        SolrQuery twoFilters = query("*:*", 0);
+        twoFilters.addFilterQuery("location:m1", "read:g0");
+        SolrQuery sorted = query("*:*", 0);
+        sorted.addSort("dc.title_sort", SolrQuery.ORDER.asc);
+        SolrQuery sortedDesc = query("*:*", 0);
+        sortedDesc.addSort("dc.title_sort", SolrQuery.ORDER.desc);
+
+        SolrQuery[] queries = { plain, filtered, otherFilter, twoFilters, sorted, sortedDesc };
+        for (int i = 0; i < queries.length; i++)
+        {
+            for (int j = i + 1; j < queries.length; j++)
+            {
+                assertThat("testGetKeyParameters " + i + "-" + j,
+                        DiscoverResponseCache.getKey(queries[i]),
+                        not(equalTo(DiscoverResponseCache.getKey(queries[j]))));
+            }
+        }
+
+        SolrQuery same = query("*:*", 0);
+        same.addFilterQuery("location:m1");
+        assertThat("testGetKeyParameters 0", DiscoverResponseCache.getKey(same),
+                equalTo(DiscoverResponseCache.getKey(filtered)));
+    }
+
+    /**
+     * Test of put and get methods, the least recently used response is
+     * dropped first
+     */
+    @Test
+    public void testEviction()
+    {
+        QueryResponse a = new QueryResponse();
+        QueryResponse b = new QueryResponse();
+        QueryResponse c = new QueryResponse();
+        DiscoverResponseCache.put("a", a);
+        DiscoverResponseCache.put("b", b);
+        assertThat("testEviction 0", DiscoverResponseCache.get("a"), sameInstance(a));
+
+        DiscoverResponseCache.put("c", c);
+        assertThat("testEviction 1", DiscoverResponseCache.get("b"), nullValue());
+        assertThat("testEviction 2", DiscoverResponseCache.get("a"), sameInstance(a));
+        assertThat("testEviction 3", DiscoverResponseCache.get("c"), sameInstance(c));
+    }
+
+    /**
+     * Test of get method, expired responses are dropped
+     */
+    @Test
+    public void testTtl() throws Exception
+    {
+        DiscoverResponseCache.configure(2, 200, 1);
+        QueryResponse a = new QueryResponse();
+        DiscoverResponseCache.put("a", a);
+        assertThat("testTtl 0", DiscoverResponseCache.get("a"), sameInstance(a));
+
+        Thread.sleep(300);
+        assertThat("testTtl 1", DiscoverResponseCache.get("a"), nullValue());
+    }
+
+    /**
+     * Test that committing the index drops all cached responses
+     */
+    @Test
+    public void testClearOnCommit() throws Exception
+    {
+        DiscoverResponseCache.put("a", new QueryResponse());
+        DiscoverResponseCache.put("b", new QueryResponse());
+
+        final HttpSolrServer server = new HttpSolrServer("http://localhost:8080/solr/search")
+        {
+            @Override
+            public UpdateResponse commit()
+            {
+                return new UpdateResponse();
+            }
+        };
+        SolrServiceImpl service = new SolrServiceImpl()
+        {
+            @Override
+            protected HttpSolrServer getSolr()
+            {
+                return server;
+            }
+        };
+        service.commit();
+        assertThat("testClearOnCommit 0", DiscoverResponseCache.get("a"), nullValue());
+        assertThat("testClearOnCommit 1", DiscoverResponseCache.get("b"), nullValue());
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.Community;
+import org.dspace.content.DSpaceObject;
+import org.dspace.core.Context;
+import org.junit.*;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class DiscoverResultIterator
+ */
+public class DiscoverResultIteratorTest extends AbstractUnitTest
+{
+    /** log4j category */
+    private static final Logger log = Logger.getLogger(DiscoverResultIteratorTest.class);
+
+    /**
+     * Objects returned as search results
+     */
+    private Community[] communities;
+
+    /**
+     * This method will be run before every test as per @Before. It will
+     * initialize resources required for the tests.
+     *
+     * Other methods can be annotated with @Before here or in subclasses
+     * but no execution order is guaranteed
+     */
+    @Before
+    @Override
+    public void init()
+    {
+        try
+        {
+            super.init();
+            context.turnOffAuthorisationSystem();
+            communities = new Community[3];
+            for (int i = 0; i < communities.length; i++)
+            {
+                communities[i] = Community.create(null, context);
+            }
+            context.restoreAuthSystemState();
+        }
+        catch (Exception ex)
+        {
+            log.error("Error in init", ex);
+            fail("Error in init: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * This method will be run after every test as per @After. It will
+     * clean resources initialized by the @Before methods.
+     *
+     * Other methods can be annotated with @After here or in subclasses
+     * but no execution order is guaranteed
+     */
+    @After
+    @Override
+    public void destroy()
+    {
+        communities = null;
+        super.destroy();
+    }
+
+    /**
+     * Test that the iteration goes through all pages and stops once Solr
+     * returns the cursor mark it was sent
+     */
+    @Test
+    public void testIteration() throws Exception
+    {
+        PagedSearchService service = new PagedSearchService();
+        service.addPage(DiscoverQuery.CURSOR_MARK_START, "A", communities[0], communities[1]);
+        service.addPage("A", "B", communities[2]);
+        service.addPage("B", "B");
+
+        DiscoverQuery query = new DiscoverQuery();
+        query.setMaxResults(2);
+        DiscoverResultIterator iterator = new DiscoverResultIterator(context, null, query, service);
+
+        List<DSpaceObject> results = new ArrayList<DSpaceObject>();
+        while (iterator.hasNext())
+        {
+            results.add(iterator.next());
+        }
+        assertThat("testIteration 0", results.size(), equalTo(3));
+        assertThat("testIteration 1", results.get(0).getID(), equalTo(communities[0].getID()));
+        assertThat("testIteration 2", results.get(2).getID(), equalTo(communities[2].getID()));
+        assertThat("testIteration 3", service.getCursorMarks(),
+                equalTo(Arrays.asList(DiscoverQuery.CURSOR_MARK_START, "A", "B")));
+        assertThat("testIteration 4", iterator.next(), nullValue());
+        assertThat("testIteration 5", service.getCursorMarks().size(), equalTo(3));
+    }
+
+    /**
+     * Test that a page returning the cursor mark it was sent is the last
+     * one, even if it is not empty
+     */
+    @Test
+    public void testSameCursorMark() throws Exception
+    {
+        PagedSearchService service = new PagedSearchService();
+        service.addPage(DiscoverQuery.CURSOR_MARK_START, "A", communities[0], communities[1]);
+        service.addPage("A", "A", communities[2]);
+
+        DiscoverQuery query = new DiscoverQuery();
+        query.setMaxResults(2);
+        DiscoverResultIterator iterator = new DiscoverResultIterator(context, null, query, service);
+
+        int count = 0;
+        while (iterator.hasNext())
+        {
+            iterator.next();
+            count++;
+        }
+        assertThat("testSameCursorMark 0", count, equalTo(3));
+        assertThat("testSameCursorMark 1", service.getCursorMarks(),
+                equalTo(Arrays.asList(DiscoverQuery.CURSOR_MARK_START, "A")));
+        assertThat("testSameCursorMark 2", iterator.getTotalResults(), equalTo(3L));
+    }
+
+    /**
+     * Test that the iterator sets the page size and the first cursor mark
+     * of the query
+     */
+    @Test
+    public void testQuery()
+    {
+        DiscoverQuery query = new DiscoverQuery();
+        query.setStart(20);
+        new DiscoverResultIterator(context, null, query, new PagedSearchService());
+        assertThat("testQuery 0", query.getMaxResults(), equalTo(DiscoverResultIterator.DEFAULT_PAGE_SIZE));
+        assertThat("testQuery 1", query.getCursorMark(), equalTo(DiscoverQuery.CURSOR_MARK_START));
+    }
+
+    /**
+     * Test that a query with a cursor mark is sorted on the unique key, to
+     * break ties, and ignores the start
+     */
+    @Test
+    public void testCursorMarkSort()
+    {
+        SolrServiceImpl service = new SolrServiceImpl();
+
+        DiscoverQuery query = new DiscoverQuery();
+        query.setStart(20);
+        query.setCursorMark(DiscoverQuery.CURSOR_MARK_START);
+        SolrQuery solrQuery = service.resolveToSolrQuery(context, query, false);
+        assertThat("testCursorMarkSort 0", solrQuery.get(CommonParams.SORT),
+                equalTo("score desc," + SolrServiceImpl.UNIQUE_ID_FIELD + " asc"));
+        assertThat("testCursorMarkSort 1", solrQuery.get(CursorMarkParams.CURSOR_MARK_PARAM),
+                equalTo(DiscoverQuery.CURSOR_MARK_START));
+        assertThat("testCursorMarkSort 2", solrQuery.getStart(), nullValue());
+
+        query = new DiscoverQuery();
+        query.setSortField("dc.title_sort", DiscoverQuery.SORT_ORDER.desc);
+        query.setCursorMark("A");
+        solrQuery = service.resolveToSolrQuery(context, query, false);
+        assertThat("testCursorMarkSort 3", solrQuery.get(CommonParams.SORT),
+                equalTo("dc.title_sort desc," + SolrServiceImpl.UNIQUE_ID_FIELD + " asc"));
+        assertThat("testCursorMarkSort 4", solrQuery.get(CursorMarkParams.CURSOR_MARK_PARAM), equalTo("A"));
+
+        query = new DiscoverQuery();
+        query.setSortField(SolrServiceImpl.UNIQUE_ID_FIELD, DiscoverQuery.SORT_ORDER.asc);
+        query.setCursorMark("A");
+        solrQuery = service.resolveToSolrQuery(context, query, false);
+        assertThat("testCursorMarkSort 5", solrQuery.get(CommonParams.SORT),
+                equalTo(SolrServiceImpl.UNIQUE_ID_FIELD + " asc"));
+
+        query = new DiscoverQuery();
+        query.setStart(20);
+        solrQuery = service.resolveToSolrQuery(context, query, false);
+        assertThat("testCursorMarkSort 6", solrQuery.get(CommonParams.SORT), nullValue());
+        assertThat("testCursorMarkSort 7", solrQuery.get(CursorMarkParams.CURSOR_MARK_PARAM), nullValue());
+        assertThat("testCursorMarkSort 8", solrQuery.getStart(), equalTo(20));
+    }
+
+    /**
+     * A search service which returns the pages it is given by cursor mark
+     * and records the cursor marks it is sent
+     */
+    private static class PagedSearchService extends SolrServiceImpl
+    {
+        private final Map<String, DiscoverResult> pages = new HashMap<String, DiscoverResult>();
+        private final List<String> cursorMarks = new ArrayList<String>();
+        private int total = 0;
+
+        void addPage(String cursorMark, String nextCursorMark, DSpaceObject... objects)
+        {
+            DiscoverResult page = new DiscoverResult();
+            for (DSpaceObject dso : objects)
+            {
+                page.addDSpaceObject(dso);
+            }
+            page.setNextCursorMark(nextCursorMark);
+            pages.put(cursorMark, page);
+            total += objects.length;
+        }
+
+        List<String> getCursorMarks()
+        {
+            return cursorMarks;
+        }
+
+        @Override
+        public DiscoverResult search(Context context, DiscoverQuery query)
+        {
+            cursorMarks.add(query.getCursorMark());
+            DiscoverResult page = pages.get(query.getCursorMark());
+            page.setTotalSearchResults(total);
+            return page;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.Bitstream;
+import org.dspace.content.BitstreamFormat;
+import org.dspace.content.Bundle;
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.WorkspaceItem;
+import org.dspace.core.ConfigurationManager;
+import org.junit.*;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class FullTextCache
+ */
+public class FullTextCacheTest extends AbstractUnitTest
+{
+    /** log4j category */
+    private static final Logger log = Logger.getLogger(FullTextCacheTest.class);
+
+    private static final String TEXT = "The full text of a test bitstream";
+
+    /**
+     * Directory of the full text cache
+     */
+    private File cacheDir;
+
+    /**
+     * The TEXT bundle of a test item
+     */
+    private Bundle bundle;
+
+    /**
+     * A plain text bitstream
+     */
+    private Bitstream bs;
+
+    /**
+     * This method will be run before every test as per @Before. It will
+     * initialize resources required for the tests.
+     *
+     * Other methods can be annotated with @Before here or in subclasses
+     * but no execution order is guaranteed
+     */
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            cacheDir = File.createTempFile("fulltext", "");
+            cacheDir.delete();
+            cacheDir.mkdirs();
+            FullTextCache.configure(cacheDir.getAbsolutePath());
+
+            context.turnOffAuthorisationSystem();
+            Collection collection = Community.create(null, context).createCollection();
+            bundle = WorkspaceItem.create(context, collection, false).getItem().createBundle("TEXT");
+            bs = bundle.createBitstream(new ByteArrayInputStream(TEXT.getBytes(StandardCharsets.UTF_8)));
+            bs.setFormat(BitstreamFormat.findByMIMEType(context, "text/plain"));
+        }
+        catch (Exception ex)
+        {
+            log.error("Error in init", ex);
+            fail("Error in init: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * This method will be run after every test as per @After. It will
+     * clean resources initialized by the @Before methods.
+     *
+     * Other methods can be annotated with @After here or in subclasses
+     * but no execution order is guaranteed
+     */
+    @After
+    @Override
+    public void destroy()
+    {
+        context.restoreAuthSystemState();
+        FullTextCache.configure(ConfigurationManager.getProperty("discovery", "index.fulltext.cache.dir"));
+        FileUtils.deleteQuietly(cacheDir);
+        bs = null;
+        bundle = null;
+        super.destroy();
+    }
+
+    /**
+     * Test of isPlainText method, only text/plain bitstreams are read
+     */
+    @Test
+    public void testIsPlainText() throws Exception
+    {
+        assertTrue("testIsPlainText 0", FullTextCache.isPlainText(bs));
+
+        Bitstream pdf = bundle.createBitstream(new ByteArrayInputStream(new byte[] { '%', 'P', 'D', 'F' }));
+        pdf.setFormat(BitstreamFormat.findByMIMEType(context, "application/pdf"));
+        assertFalse("testIsPlainText 1", FullTextCache.isPlainText(pdf));
+
+        Bitstream unknown = bundle.createBitstream(new ByteArrayInputStream(new byte[] { 0 }));
+        assertFalse("testIsPlainText 2", FullTextCache.isPlainText(unknown));
+    }
+
+    /**
+     * Test of getText method, the text is copied into a file named by the
+     * checksum and size, and read from there afterwards
+     */
+    @Test
+    public void testGetTextCached() throws Exception
+    {
+        File cached = FullTextCache.getCacheFile(bs);
+        String name = bs.getChecksum().toLowerCase() + "." + bs.getSize() + ".txt";
+        assertThat("testGetTextCached 0", cached,
+                equalTo(new File(new File(cacheDir, name.substring(0, 2)), name)));
+        assertFalse("testGetTextCached 1", cached.exists());
+
+        assertThat("testGetTextCached 2", FullTextCache.getText(bs, 1000), equalTo(TEXT));
+        assertTrue("testGetTextCached 3", cached.exists());
+        assertThat("testGetTextCached 4", FileUtils.readFileToString(cached, "UTF-8"), equalTo(TEXT));
+        // No temporary file left behind
+        assertThat("testGetTextCached 5", cached.getParentFile().list().length, equalTo(1));
+
+        // Later reads come from the cache, not from the assetstore
+        FileUtils.writeStringToFile(cached, "cached", "UTF-8");
+        assertThat("testGetTextCached 6", FullTextCache.getText(bs, 1000), equalTo("cached"));
+    }
+
+    /**
+     * Test of getText method, the text is truncated to the maximum number
+     * of characters
+     */
+    @Test
+    public void testGetTextMaxChars() throws Exception
+    {
+        assertThat("testGetTextMaxChars 0", FullTextCache.getText(bs, 8), equalTo(TEXT.substring(0, 8)));
+        // The whole text is cached, however little of it was asked for
+        assertThat("testGetTextMaxChars 1", FileUtils.readFileToString(FullTextCache.getCacheFile(bs), "UTF-8"),
+                equalTo(TEXT));
+        assertThat("testGetTextMaxChars 2", FullTextCache.getText(bs, 3), equalTo(TEXT.substring(0, 3)));
+        assertThat("testGetTextMaxChars 3", FullTextCache.getText(bs, 0), equalTo(""));
+    }
+
+    /**
+     * Test of getText method, without a cache directory the text is read
+     * from the assetstore
+     */
+    @Test
+    public void testGetTextUncached() throws Exception
+    {
+        FullTextCache.configure(null);
+        assertThat("testGetTextUncached 0", FullTextCache.getCacheFile(bs), nullValue());
+        assertThat("testGetTextUncached 1", FullTextCache.getText(bs, 1000), equalTo(TEXT));
+        assertThat("testGetTextUncached 2", FullTextCache.getText(bs, 8), equalTo(TEXT.substring(0, 8)));
+        assertThat("testGetTextUncached 3", cacheDir.list().length, equalTo(0));
+    }
+}
@@ -0,0 +1,289 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.Community;
+import org.dspace.content.DSpaceObject;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Context;
+import org.junit.*;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class IndexQueue
+ */
+public class IndexQueueTest extends AbstractUnitTest
+{
+    /** log4j category */
+    private static final Logger log = Logger.getLogger(IndexQueueTest.class);
+
+    /** A window no test waits for */
+    private static final long LONG_WINDOW = 3600000;
+
+    /**
+     * Records what the queue asks it to index
+     */
+    private RecordingIndexingService service;
+
+    /**
+     * This method will be run before every test as per @Before. It will
+     * initialize resources required for the tests.
+     *
+     * Other methods can be annotated with @Before here or in subclasses
+     * but no execution order is guaranteed
+     */
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        service = new RecordingIndexingService();
+    }
+
+    /**
+     * This method will be run after every test as per @After. It will
+     * clean resources initialized by the @Before methods.
+     *
+     * Other methods can be annotated with @After here or in subclasses
+     * but no execution order is guaranteed
+     */
+    @After
+    @Override
+    public void destroy()
+    {
+        IndexQueue.flush(true);
+        IndexQueue.configure(ConfigurationManager.getLongProperty("discovery", "index.queue.window", 0),
+                ConfigurationManager.getIntProperty("discovery", "index.queue.batch-size", 100));
+        service = null;
+        super.destroy();
+    }
+
+    /**
+     * Test that the changes are indexed a batch at a time, with one commit
+     * per batch
+     */
+    @Test
+    public void testBatches()
+    {
+        IndexQueue.configure(LONG_WINDOW, 2);
+        for (int i = 0; i < 5; i++)
+        {
+            IndexQueue.delete(service, "123456789/test-batch-" + i);
+        }
+        assertThat("testBatches 0", IndexQueue.size(), equalTo(5));
+
+        IndexQueue.flush(true);
+        assertThat("testBatches 1", IndexQueue.size(), equalTo(0));
+        assertThat("testBatches 2", service.getDeleted().size(), equalTo(5));
+        assertThat("testBatches 3", service.getDeleted().get(0), equalTo("123456789/test-batch-0"));
+        assertThat("testBatches 4", service.getDeleted().get(4), equalTo("123456789/test-batch-4"));
+        assertThat("testBatches 5", service.getCommits(), equalTo(3));
+    }
+
+    /**
+     * Test that changes are not indexed before the window has passed, and
+     * that the changes to one object within the window are indexed once
+     */
+    @Test
+    public void testWindow() throws Exception
+    {
+        IndexQueue.configure(300, 100);
+        IndexQueue.delete(service, "123456789/test-window");
+        IndexQueue.delete(service, "123456789/test-window");
+        assertThat("testWindow 0", IndexQueue.size(), equalTo(1));
+
+        IndexQueue.flush(false);
+        assertThat("testWindow 1", IndexQueue.size(), equalTo(1));
+        assertThat("testWindow 2", service.getDeleted().size(), equalTo(0));
+
+        // Either the background thread or this one indexes the change once
+        // it is due
+        Thread.sleep(400);
+        IndexQueue.flush(false);
+        assertThat("testWindow 3", IndexQueue.size(), equalTo(0));
+        assertTrue("testWindow 4", service.awaitDeleted(1));
+        assertThat("testWindow 5", service.getDeleted().size(), equalTo(1));
+    }
+
+    /**
+     * Test that the last change queued for an object wins
+     */
+    @Test
+    public void testUpdateThenDelete() throws Exception
+    {
+        IndexQueue.configure(LONG_WINDOW, 100);
+        context.turnOffAuthorisationSystem();
+        Community community = Community.create(null, context);
+        context.restoreAuthSystemState();
+        context.commit();
+
+        IndexQueue.update(service, community);
+        IndexQueue.flush(true);
+        assertThat("testUpdateThenDelete 0", service.getIndexed().size(), equalTo(1));
+        assertThat("testUpdateThenDelete 1", service.getIndexed().get(0), equalTo(community.getHandle()));
+
+        IndexQueue.update(service, community);
+        IndexQueue.delete(service, community.getHandle());
+        assertThat("testUpdateThenDelete 2", IndexQueue.size(), equalTo(1));
+        IndexQueue.flush(true);
+        assertThat("testUpdateThenDelete 3", service.getIndexed().size(), equalTo(1));
+        assertThat("testUpdateThenDelete 4", service.getDeleted().size(), equalTo(1));
+    }
+
+    /**
+     * Test that removing a change keeps it if it was queued again after its
+     * version was read
+     */
+    @Test
+    public void testRemove()
+    {
+        IndexQueue.configure(LONG_WINDOW, 100);
+        String handle = "123456789/test-remove";
+        assertThat("testRemove 0", IndexQueue.version(handle), equalTo(-1L));
+
+        IndexQueue.delete(service, handle);
+        long first = IndexQueue.version(handle);
+        IndexQueue.delete(service, handle);
+        long second = IndexQueue.version(handle);
+        assertTrue("testRemove 1", second > first);
+
+        IndexQueue.remove(handle, first);
+        assertThat("testRemove 2", IndexQueue.size(), equalTo(1));
+
+        IndexQueue.remove(handle, second);
+        assertThat("testRemove 3", IndexQueue.size(), equalTo(0));
+        assertThat("testRemove 4", IndexQueue.version(handle), equalTo(-1L));
+    }
+
+    /**
+     * An IndexingService which only records the Handles it is asked to
+     * (un)index and the number of commits
+     */
+    private static class RecordingIndexingService implements IndexingService
+    {
+        private final List<String> indexed = new ArrayList<String>();
+        private final List<String> deleted = new ArrayList<String>();
+        private int commits = 0;
+
+        synchronized List<String> getIndexed()
+        {
+            return new ArrayList<String>(indexed);
+        }
+
+        synchronized List<String> getDeleted()
+        {
+            return new ArrayList<String>(deleted);
+        }
+
+        synchronized int getCommits()
+        {
+            return commits;
+        }
+
+        synchronized boolean awaitDeleted(int count) throws InterruptedException
+        {
+            long until = System.currentTimeMillis() + 5000;
+            while (deleted.size() < count && System.currentTimeMillis() < until)
+            {
+                wait(100);
+            }
+            return deleted.size() >= count;
+        }
+
+        @Override
+        public void indexContent(Context context, DSpaceObject dso)
+        {
+            indexContent(context, dso, false);
+        }
+
+        @Override
+        public synchronized void indexContent(Context context, DSpaceObject dso, boolean force)
+        {
+            indexed.add(dso.getHandle());
+        }
+
+        @Override
+        public void indexContent(Context context, DSpaceObject dso, boolean force, boolean commit)
+        {
+            indexContent(context, dso, force);
+        }
+
+        @Override
+        public void unIndexContent(Context context, DSpaceObject dso)
+        {
+            unIndexContent(context, dso.getHandle(), false);
+        }
+
+        @Override
+        public void unIndexContent(Context context, DSpaceObject dso, boolean commit)
+        {
+            unIndexContent(context, dso.getHandle(), commit);
+        }
+
+        @Override
+        public void unIndexContent(Context context, String handle)
+        {
+            unIndexContent(context, handle, false);
+        }
+
+        @Override
+        public synchronized void unIndexContent(Context context, String handle, boolean commit)
+        {
+            deleted.add(handle);
+            notifyAll();
+        }
+
+        @Override
+        public void reIndexContent(Context context, DSpaceObject dso)
+        {
+            indexContent(context, dso, true);
+        }
+
+        @Override
+        public void createIndex(Context context)
+        {
+        }
+
+        @Override
+        public void updateIndex(Context context)
+        {
+        }
+
+        @Override
+        public void updateIndex(Context context, boolean force)
+        {
+        }
+
+        @Override
+        public void cleanIndex(boolean force)
+        {
+        }
+
+        @Override
+        public synchronized void commit()
+        {
+            commits++;
+        }
+
+        @Override
+        public void optimize()
+        {
+        }
+
+        @Override
+        public void buildSpellCheck()
+        {
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.eperson;
+
+import java.util.Set;
+
+import org.dspace.AbstractUnitTest;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit Tests for class Group2GroupCache
+ */
+public class Group2GroupCacheTest extends AbstractUnitTest
+{
+    /**
+     * Test that the cache follows nested groups as they are added and removed.
+     */
+    @Test
+    public void testIncrementalUpdate() throws Exception
+    {
+        context.turnOffAuthorisationSystem();
+
+        // top contains middle, which contains bottom, which contains eperson
+        Group top = Group.create(context);
+        Group middle = Group.create(context);
+        Group bottom = Group.create(context);
+        bottom.addMember(eperson);
+        bottom.update();
+        middle.addMember(bottom);
+        middle.update();
+        top.addMember(middle);
+        top.update();
+
+        Set<Integer> groups = Group.allMemberGroupIDs(context, eperson);
+        assertTrue("testIncrementalUpdate top", groups.contains(top.getID()));
+        assertTrue("testIncrementalUpdate middle", groups.contains(middle.getID()));
+        assertTrue("testIncrementalUpdate bottom", groups.contains(bottom.getID()));
+
+        // Cutting bottom out of middle also cuts it out of top
+        middle.removeMember(bottom);
+        middle.update();
+        groups = Group.allMemberGroupIDs(context, eperson);
+        assertFalse("testIncrementalUpdate top removed", groups.contains(top.getID()));
+        assertFalse("testIncrementalUpdate middle removed", groups.contains(middle.getID()));
+
+        // ...unless there is another path to it
+        top.addMember(bottom);
+        top.update();
+        groups = Group.allMemberGroupIDs(context, eperson);
+        assertTrue("testIncrementalUpdate top direct", groups.contains(top.getID()));
+        middle.addMember(bottom);
+        middle.update();
+        top.removeMember(bottom);
+        top.update();
+        groups = Group.allMemberGroupIDs(context, eperson);
+        assertTrue("testIncrementalUpdate top via middle", groups.contains(top.getID()));
+
+        // Deleting middle cuts bottom out of top
+        middle.delete();
+        groups = Group.allMemberGroupIDs(context, eperson);
+        assertFalse("testIncrementalUpdate top after delete", groups.contains(top.getID()));
+
+        // A full rebuild gives the same result
+        Group2GroupCache.rebuild(context);
+        groups = Group.allMemberGroupIDs(context, eperson);
+        assertFalse("testIncrementalUpdate top after rebuild", groups.contains(top.getID()));
+        assertTrue("testIncrementalUpdate bottom after rebuild", groups.contains(bottom.getID()));
+
+        context.restoreAuthSystemState();
+    }
+}
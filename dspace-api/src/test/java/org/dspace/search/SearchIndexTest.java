@@ -0,0 +1,117 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.search;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.dspace.AbstractUnitTest;
+import org.dspace.core.ConfigurationManager;
+import org.junit.*;
+import static org.junit.Assert.* ;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class SearchIndex
+ */
+public class SearchIndexTest extends AbstractUnitTest
+{
+    private static final Term TERM = new Term("handle", "search-index-test/1");
+
+    /**
+     * This method will be run after every test as per @After. It will
+     * clean resources initialized by the @Before methods.
+     */
+    @After
+    @Override
+    public void destroy()
+    {
+        try
+        {
+            SearchIndex.create();
+            SearchIndex.close();
+        }
+        catch (IOException ex)
+        {
+            fail("IO Error in destroy: " + ex.getMessage());
+        }
+        super.destroy();
+    }
+
+    /**
+     * Test of create method, of class SearchIndex.
+     */
+    @Test
+    public void testCreate() throws Exception
+    {
+        SearchIndex.updateDocument(TERM, document());
+        assertThat("testCreate 0", count(), equalTo(1));
+
+        SearchIndex.create();
+        assertThat("testCreate 1", count(), equalTo(0));
+    }
+
+    /**
+     * Test of create method, of class SearchIndex, with an index which
+     * cannot be read any more.
+     */
+    @Test
+    public void testCreateCorrupt() throws Exception
+    {
+        SearchIndex.updateDocument(TERM, document());
+        SearchIndex.close();
+
+        File[] files = new File(ConfigurationManager.getProperty("search.dir")).listFiles();
+        assertNotNull("testCreateCorrupt 0", files);
+        for (File file : files)
+        {
+            if (file.getName().startsWith("segments"))
+            {
+                FileOutputStream out = new FileOutputStream(file);
+                out.write("not an index".getBytes("UTF-8"));
+                out.close();
+            }
+        }
+
+        SearchIndex.create();
+        assertThat("testCreateCorrupt 1", count(), equalTo(0));
+        SearchIndex.updateDocument(TERM, document());
+        assertThat("testCreateCorrupt 2", count(), equalTo(1));
+    }
+
+    private static Document document()
+    {
+        Document doc = new Document();
+        doc.add(new StringField(TERM.field(), TERM.text(), Field.Store.YES));
+        return doc;
+    }
+
+    /**
+     * Count the documents with the test term, refreshing the searchers first
+     */
+    private static int count() throws IOException
+    {
+        SearchIndex.refresh();
+        IndexSearcher searcher = SearchIndex.acquireSearcher();
+        try
+        {
+            return searcher.search(new TermQuery(TERM), 10).totalHits;
+        }
+        finally
+        {
+            SearchIndex.releaseSearcher(searcher);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import mockit.NonStrictExpectations;
+import org.apache.commons.lang.time.DateFormatUtils;
+import org.apache.solr.common.SolrInputDocument;
+import org.dspace.AbstractUnitTest;
+import org.dspace.core.Constants;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit Tests for class StatisticsRollup
+ */
+public class StatisticsRollupTest extends AbstractUnitTest
+{
+    /** A made up item, so as not to count the views of real ones */
+    private static final int ITEM_ID = 987654;
+
+    private static final int COLLECTION_ID = 987655;
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        new NonStrictExpectations(StatisticsRollup.class)
+        {{
+            StatisticsRollup.isEnabled(); result = true;
+        }};
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        try
+        {
+            DatabaseManager.updateQuery(context,
+                    "DELETE FROM statistics_rollup WHERE resource_id = ?", ITEM_ID);
+            context.commit();
+        }
+        catch (Exception e)
+        {
+            fail("Unable to clean up the rollups: " + e.getMessage());
+        }
+        super.destroy();
+    }
+
+    /**
+     * Log a view of the test item
+     */
+    private void view(Date time, String country)
+    {
+        SolrInputDocument doc = new SolrInputDocument();
+        doc.addField("type", Constants.ITEM);
+        doc.addField("id", ITEM_ID);
+        doc.addField("owningColl", COLLECTION_ID);
+        doc.addField("countryCode", country);
+        doc.addField("isBot", false);
+        doc.addField("time", DateFormatUtils.format(time, SolrLogger.DATE_FORMAT_8601, UTC));
+        StatisticsRollup.record(doc);
+    }
+
+    private Date date(int year, int month, int day)
+    {
+        Calendar calendar = Calendar.getInstance(UTC);
+        calendar.clear();
+        calendar.set(year, month - 1, day, 12, 0);
+        return calendar.getTime();
+    }
+
+    /**
+     * Test that relative date facets become the yyyyMMdd starts of the
+     * periods, followed by the end of the last one.
+     */
+    @Test
+    public void testGetPeriods()
+    {
+        Calendar now = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        int thisYear = now.get(Calendar.YEAR);
+        int thisMonth = thisYear * 10000 + (now.get(Calendar.MONTH) + 1) * 100 + 1;
+
+        List<Integer> months = StatisticsRollup.getPeriods("MONTH", "-6", "+1");
+        assertEquals("testGetPeriods months", 8, months.size());
+        assertEquals("testGetPeriods this month", Integer.valueOf(thisMonth), months.get(6));
+        for (int i = 1; i < months.size(); i++)
+        {
+            assertTrue("testGetPeriods ascending", months.get(i - 1) < months.get(i));
+            assertEquals("testGetPeriods first of month", 1, months.get(i) % 100);
+        }
+
+        List<Integer> years = StatisticsRollup.getPeriods("YEAR", "-1", "+1");
+        assertEquals("testGetPeriods years", 3, years.size());
+        assertEquals("testGetPeriods last year", Integer.valueOf((thisYear - 1) * 10000 + 101), years.get(0));
+        assertEquals("testGetPeriods next year", Integer.valueOf((thisYear + 1) * 10000 + 101), years.get(2));
+
+        assertEquals("testGetPeriods days", 32, StatisticsRollup.getPeriods("DAY", "-30", "+1").size());
+        assertNull("testGetPeriods hours", StatisticsRollup.getPeriods("HOUR", "-6", "+1"));
+        assertNull("testGetPeriods no period", StatisticsRollup.getPeriods("MONTH", "0", "0"));
+    }
+
+    /**
+     * Test that recorded views are counted per day once flushed.
+     */
+    @Test
+    public void testRecordAndFlush() throws Exception
+    {
+        view(new Date(), "BE");
+        view(new Date(), "BE");
+        view(new Date(), "FR");
+        StatisticsRollup.flush();
+
+        List<Integer> days = StatisticsRollup.getPeriods("DAY", "-1", "+1");
+        Map<Integer, Map<Integer, Long>> counts = StatisticsRollup.countByPeriod(context, "DAY", days,
+                Constants.ITEM, Arrays.asList(ITEM_ID), StatisticsRollup.NO_OWNER, StatisticsRollup.NO_OWNER);
+        assertEquals("testRecordAndFlush today", Long.valueOf(3), counts.get(ITEM_ID).get(days.get(1)));
+        assertNull("testRecordAndFlush yesterday", counts.get(ITEM_ID).get(days.get(0)));
+
+        counts = StatisticsRollup.countByPeriod(context, "DAY", days,
+                Constants.ITEM, null, Constants.COLLECTION, COLLECTION_ID);
+        assertEquals("testRecordAndFlush collection", Long.valueOf(3), counts.get(ITEM_ID).get(days.get(1)));
+
+        // Flushing again writes nothing more
+        StatisticsRollup.flush();
+        counts = StatisticsRollup.countByPeriod(context, "DAY", days,
+                Constants.ITEM, Arrays.asList(ITEM_ID), StatisticsRollup.NO_OWNER, StatisticsRollup.NO_OWNER);
+        assertEquals("testRecordAndFlush flushed once", Long.valueOf(3), counts.get(ITEM_ID).get(days.get(1)));
+    }
+
+    /**
+     * Test that days are counted from the day rows, also when they span
+     * the end of a year.
+     */
+    @Test
+    public void testCountByPeriodYearEnd() throws Exception
+    {
+        view(date(2015, 12, 31), "BE");
+        view(date(2016, 1, 1), "BE");
+        view(date(2016, 1, 1), "BE");
+        StatisticsRollup.flush();
+
+        List<Integer> days = Arrays.asList(20151231, 20160101, 20160102);
+        Map<Integer, Long> counts = StatisticsRollup.countByPeriod(context, "DAY", days, Constants.ITEM,
+                Arrays.asList(ITEM_ID), StatisticsRollup.NO_OWNER, StatisticsRollup.NO_OWNER).get(ITEM_ID);
+        assertEquals("testCountByPeriodYearEnd 2015-12-31", Long.valueOf(1), counts.get(20151231));
+        assertEquals("testCountByPeriodYearEnd 2016-01-01", Long.valueOf(2), counts.get(20160101));
+
+        List<Integer> months = Arrays.asList(20151101, 20151201, 20160101, 20160201);
+        counts = StatisticsRollup.countByPeriod(context, "MONTH", months, Constants.ITEM,
+                Arrays.asList(ITEM_ID), StatisticsRollup.NO_OWNER, StatisticsRollup.NO_OWNER).get(ITEM_ID);
+        assertEquals("testCountByPeriodYearEnd December", Long.valueOf(1), counts.get(20151201));
+        assertEquals("testCountByPeriodYearEnd January", Long.valueOf(2), counts.get(20160101));
+        assertNull("testCountByPeriodYearEnd November", counts.get(20151101));
+
+        List<Integer> years = Arrays.asList(20150101, 20160101, 20170101);
+        counts = StatisticsRollup.countByPeriod(context, "YEAR", years, Constants.ITEM,
+                Arrays.asList(ITEM_ID), StatisticsRollup.NO_OWNER, StatisticsRollup.NO_OWNER).get(ITEM_ID);
+        assertEquals("testCountByPeriodYearEnd 2015", Long.valueOf(1), counts.get(20150101));
+        assertEquals("testCountByPeriodYearEnd 2016", Long.valueOf(2), counts.get(20160101));
+    }
+
+    /**
+     * Test that the most viewed objects and countries come first.
+     */
+    @Test
+    public void testTop() throws Exception
+    {
+        view(date(2016, 1, 1), "BE");
+        view(date(2016, 1, 2), "FR");
+        view(date(2016, 1, 3), "FR");
+        view(date(2016, 2, 1), "FR");
+        StatisticsRollup.flush();
+
+        ObjectCount[] countries = StatisticsRollup.top(context, "countryCode", "MONTH",
+                Arrays.asList(20160101, 20160201), Constants.ITEM, ITEM_ID,
+                StatisticsRollup.NO_OWNER, StatisticsRollup.NO_OWNER, -1);
+        assertEquals("testTop countries", 2, countries.length);
+        assertEquals("testTop first country", "FR", countries[0].getValue());
+        assertEquals("testTop first country views", 2, countries[0].getCount());
+        assertEquals("testTop second country", "BE", countries[1].getValue());
+
+        ObjectCount[] days = StatisticsRollup.top(context, "countryCode", "DAY",
+                Arrays.asList(20160101, 20160102), Constants.ITEM, ITEM_ID,
+                StatisticsRollup.NO_OWNER, StatisticsRollup.NO_OWNER, -1);
+        assertEquals("testTop one day", 1, days.length);
+        assertEquals("testTop one day country", "BE", days[0].getValue());
+
+        ObjectCount[] items = StatisticsRollup.top(context, "id", null, null, Constants.ITEM, -1,
+                Constants.COLLECTION, COLLECTION_ID, 10);
+        assertEquals("testTop items", 1, items.length);
+        assertEquals("testTop item", String.valueOf(ITEM_ID), items[0].getValue());
+        assertEquals("testTop item views", 4, items[0].getCount());
+
+        assertNull("testTop unsupported field", StatisticsRollup.top(context, "city", null, null,
+                Constants.ITEM, ITEM_ID, StatisticsRollup.NO_OWNER, StatisticsRollup.NO_OWNER, 10));
+    }
+}
@@ -0,0 +1,252 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.bitstore;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+import org.apache.log4j.Logger;
+import org.dspace.AbstractUnitTest;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.junit.*;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class BitstreamStorageManager, storing with
+ * <code>assetstore.deduplicate</code> on, and its cleanup
+ */
+public class BitstreamStorageManagerTest extends AbstractUnitTest
+{
+    /** log4j category */
+    private static final Logger log = Logger.getLogger(BitstreamStorageManagerTest.class);
+
+    /** Two hours, well past the age at which cleanup deletes a file */
+    private static final long OLD = 2 * 60 * 60 * 1000;
+
+    /**
+     * This method will be run before every test as per @Before. It will
+     * initialize resources required for the tests.
+     *
+     * Other methods can be annotated with @Before here or in subclasses
+     * but no execution order is guaranteed
+     */
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        BitstreamStorageManager.configure(true);
+    }
+
+    /**
+     * This method will be run after every test as per @After. It will
+     * clean resources initialized by the @Before methods.
+     *
+     * Other methods can be annotated with @After here or in subclasses
+     * but no execution order is guaranteed
+     */
+    @After
+    @Override
+    public void destroy()
+    {
+        BitstreamStorageManager.configure(false);
+        super.destroy();
+    }
+
+    /**
+     * Store some content, unique to the test unless given twice
+     */
+    private int store(String content) throws SQLException, IOException
+    {
+        return BitstreamStorageManager.store(context,
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private TableRow row(int id) throws SQLException
+    {
+        return DatabaseManager.find(context, "bitstream", id);
+    }
+
+    private File file(int id) throws SQLException, IOException
+    {
+        return new File(BitstreamStorageManager.getFile(row(id)).getAbsolutePath());
+    }
+
+    /**
+     * Make a file old enough for cleanup to delete it
+     */
+    private static void age(File file)
+    {
+        assertTrue("age " + file, file.setLastModified(System.currentTimeMillis() - OLD));
+    }
+
+    /**
+     * Test of store method, the same content is stored once
+     */
+    @Test
+    public void testStoreSameContent() throws Exception
+    {
+        String content = "testStoreSameContent " + System.nanoTime();
+        int first = store(content);
+        int second = store(content);
+
+        assertThat("testStoreSameContent 0", second, not(equalTo(first)));
+        assertThat("testStoreSameContent 1", row(second).getStringColumn("internal_id"),
+                equalTo(row(first).getStringColumn("internal_id")));
+        assertThat("testStoreSameContent 2", row(second).getStringColumn("checksum"),
+                equalTo(row(first).getStringColumn("checksum")));
+        File file = file(first);
+        assertTrue("testStoreSameContent 3", file.exists());
+        assertThat("testStoreSameContent 4", file.length(), equalTo((long) content.length()));
+        // Nothing but the shared file is left in its directory
+        assertThat("testStoreSameContent 5", file.getParentFile().list().length, equalTo(1));
+    }
+
+    /**
+     * Test of store method, different content goes to different files
+     */
+    @Test
+    public void testStoreDifferentContent() throws Exception
+    {
+        int first = store("testStoreDifferentContent 1 " + System.nanoTime());
+        int second = store("testStoreDifferentContent 2 " + System.nanoTime());
+
+        assertThat("testStoreDifferentContent 0", row(second).getStringColumn("internal_id"),
+                not(equalTo(row(first).getStringColumn("internal_id"))));
+        assertThat("testStoreDifferentContent 1", file(second), not(equalTo(file(first))));
+        assertTrue("testStoreDifferentContent 2", file(first).exists());
+        assertTrue("testStoreDifferentContent 3", file(second).exists());
+    }
+
+    /**
+     * Test of cleanup method, a shared file is kept while any bitstream
+     * uses it, and deleted with the last one
+     */
+    @Test
+    public void testCleanupSharedFile() throws Exception
+    {
+        String content = "testCleanupSharedFile " + System.nanoTime();
+        int first = store(content);
+        int second = store(content);
+        File file = file(first);
+        BitstreamStorageManager.delete(context, first);
+        context.commit();
+        age(file);
+
+        BitstreamStorageManager.cleanup(true, false);
+        assertThat("testCleanupSharedFile 0", row(first), nullValue());
+        assertThat("testCleanupSharedFile 1", row(second), notNullValue());
+        assertTrue("testCleanupSharedFile 2", file.exists());
+
+        BitstreamStorageManager.delete(context, second);
+        context.commit();
+        BitstreamStorageManager.cleanup(true, false);
+        assertThat("testCleanupSharedFile 3", row(second), nullValue());
+        assertFalse("testCleanupSharedFile 4", file.exists());
+        assertFalse("testCleanupSharedFile 5", new File(file.getPath() + ".deleted").exists());
+    }
+
+    /**
+     * Test of the parallel cleanup method, over several batches
+     */
+    @Test
+    public void testParallelCleanup() throws Exception
+    {
+        // Forget the deleted bitstreams of other tests, so that only those
+        // below are counted
+        for (String table : new String[] { "most_recent_checksum", "checksum_history" })
+        {
+            DatabaseManager.updateQuery(context, "DELETE FROM " + table
+                    + " WHERE bitstream_id IN (SELECT bitstream_id FROM Bitstream WHERE deleted = '1')");
+        }
+        DatabaseManager.updateQuery(context, "DELETE FROM Bitstream WHERE deleted = '1'");
+
+        // A deleted bitstream sharing its file with a live one, as versioning
+        // does
+        int live = store("testParallelCleanup live " + System.nanoTime());
+        int shared = BitstreamStorageManager.clone(context, live);
+        BitstreamStorageManager.delete(context, shared);
+        age(file(live));
+
+        // A deleted bitstream too recent to be cleaned up
+        int recent = store("testParallelCleanup recent " + System.nanoTime());
+        BitstreamStorageManager.delete(context, recent);
+
+        // A deleted bitstream whose file is gone already
+        int missing = store("testParallelCleanup missing " + System.nanoTime());
+        BitstreamStorageManager.delete(context, missing);
+        assertTrue("testParallelCleanup 0", file(missing).delete());
+
+        // Old deleted bitstreams
+        int[] old = new int[5];
+        File[] oldFiles = new File[old.length];
+        long oldSize = 0;
+        for (int i = 0; i < old.length; i++)
+        {
+            old[i] = store("testParallelCleanup old " + i + " " + System.nanoTime());
+            BitstreamStorageManager.delete(context, old[i]);
+            oldFiles[i] = file(old[i]);
+            oldSize += oldFiles[i].length();
+            age(oldFiles[i]);
+        }
+        context.commit();
+
+        // 8 candidates, in batches of 3
+        BitstreamStorageManager.CleanupStatistics statistics = BitstreamStorageManager.cleanup(true, false, 4, 3);
+
+        assertThat("testParallelCleanup 1", statistics.getScanned(), equalTo(8L));
+        assertThat("testParallelCleanup 2", statistics.getRecordsDeleted(), equalTo(7L));
+        assertThat("testParallelCleanup 3", statistics.getFilesDeleted(), equalTo(5L));
+        assertThat("testParallelCleanup 4", statistics.getFilesFailed(), equalTo(0L));
+        assertThat("testParallelCleanup 5", statistics.getBytesReclaimed(), equalTo(oldSize));
+
+        assertThat("testParallelCleanup 6", row(live), notNullValue());
+        assertTrue("testParallelCleanup 7", file(live).exists());
+        assertThat("testParallelCleanup 8", row(shared), nullValue());
+
+        assertThat("testParallelCleanup 9", row(recent), notNullValue());
+        assertTrue("testParallelCleanup 10", file(recent).exists());
+
+        assertThat("testParallelCleanup 11", row(missing), nullValue());
+        for (int i = 0; i < old.length; i++)
+        {
+            assertThat("testParallelCleanup 12 " + i, row(old[i]), nullValue());
+            assertFalse("testParallelCleanup 13 " + i, oldFiles[i].exists());
+        }
+    }
+
+    /**
+     * Test of store method, a file left aside by an interrupted cleanup is
+     * put back when the same content is stored again
+     */
+    @Test
+    public void testStoreRestoresDeleted() throws Exception
+    {
+        String content = "testStoreRestoresDeleted " + System.nanoTime();
+        int first = store(content);
+        File file = file(first);
+        File aside = new File(file.getPath() + ".deleted");
+        assertTrue("testStoreRestoresDeleted 0", file.renameTo(aside));
+        age(aside);
+
+        int second = store(content);
+        assertThat("testStoreRestoresDeleted 1", row(second).getStringColumn("internal_id"),
+                equalTo(row(first).getStringColumn("internal_id")));
+        assertTrue("testStoreRestoresDeleted 2", file.exists());
+        assertFalse("testStoreRestoresDeleted 3", aside.exists());
+        // Made recent, so that cleanup leaves it alone until committed
+        assertTrue("testStoreRestoresDeleted 4",
+                System.currentTimeMillis() - file.lastModified() < OLD / 2);
+        assertThat("testStoreRestoresDeleted 5", file.getParentFile().list().length, equalTo(1));
+    }
+}
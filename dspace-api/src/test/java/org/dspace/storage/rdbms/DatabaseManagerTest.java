@@ -7,6 +7,18 @@
  */
 package org.dspace.storage.rdbms;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import org.apache.commons.dbcp.ConnectionFactory;
+import org.apache.commons.dbcp.PoolableConnectionFactory;
+import org.apache.commons.dbcp.PoolingDataSource;
+import org.apache.commons.pool.impl.GenericObjectPool;
 import org.dspace.AbstractUnitTest;
 import org.dspace.core.ConfigurationManager;
 import org.junit.After;
@@ -690,4 +702,79 @@ public class DatabaseManagerTest
         fail("The test case is a prototype.");
     }
 */
+
+    /**
+     * A connection which, like PostgreSQL's, refuses to change its read-only
+     * property in the middle of a transaction
+     */
+    private static class StrictConnectionFactory implements ConnectionFactory
+    {
+        @Override
+        public Connection createConnection() throws SQLException
+        {
+            final Connection connection = DriverManager.getConnection(
+                    ConfigurationManager.getProperty("db.url"),
+                    ConfigurationManager.getProperty("db.username"),
+                    ConfigurationManager.getProperty("db.password"));
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class[] { Connection.class }, new InvocationHandler()
+            {
+                private boolean inTransaction = false;
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+                {
+                    String name = method.getName();
+                    if ("setReadOnly".equals(name) && inTransaction)
+                    {
+                        throw new SQLException("Cannot change transaction read-only property in the middle of a transaction.");
+                    }
+                    if (name.startsWith("create") || name.startsWith("prepare"))
+                    {
+                        inTransaction = !connection.getAutoCommit();
+                    }
+                    else if ("commit".equals(name) || "rollback".equals(name) || "setAutoCommit".equals(name))
+                    {
+                        inTransaction = false;
+                    }
+                    try
+                    {
+                        return method.invoke(connection, args);
+                    }
+                    catch (InvocationTargetException e)
+                    {
+                        throw e.getCause();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Test of getReadOnlyConnection method, of class DatabaseManager, with a
+     * pool which validates the connections it hands out.
+     */
+    @Test
+    public void testGetReadOnlyConnection() throws Exception
+    {
+        GenericObjectPool pool = new GenericObjectPool();
+        pool.setTestOnBorrow(true);
+        new PoolableConnectionFactory(new StrictConnectionFactory(), pool, null,
+                "SELECT 1", false, false);
+        PoolingDataSource dataSource = new PoolingDataSource(pool);
+        try
+        {
+            Connection connection = DatabaseManager.getReadOnlyConnection(dataSource);
+            assertTrue("testGetReadOnlyConnection read-only", connection.isReadOnly());
+            connection.close();
+
+            connection = dataSource.getConnection();
+            assertFalse("testGetReadOnlyConnection reset by the pool", connection.isReadOnly());
+            connection.close();
+        }
+        finally
+        {
+            pool.close();
+        }
+    }
 }
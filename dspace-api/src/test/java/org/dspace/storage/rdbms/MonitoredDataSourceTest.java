@@ -0,0 +1,68 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+import java.sql.Connection;
+
+import org.dspace.AbstractUnitTest;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit Tests for class MonitoredDataSource, around the data source of the
+ * test database
+ */
+public class MonitoredDataSourceTest extends AbstractUnitTest
+{
+    /**
+     * Test that connections are counted while they are held.
+     */
+    @Test
+    public void testActiveConnections() throws Exception
+    {
+        MonitoredDataSource dataSource = DatabaseManager.getDataSource().unwrap(MonitoredDataSource.class);
+        assertNotNull("testActiveConnections monitored", dataSource);
+
+        int active = dataSource.getActiveConnections();
+        long acquired = dataSource.getAcquireCount();
+        Connection connection = dataSource.getConnection();
+        assertEquals("testActiveConnections held", active + 1, dataSource.getActiveConnections());
+        assertEquals("testActiveConnections acquired", acquired + 1, dataSource.getAcquireCount());
+        assertTrue("testActiveConnections idle", dataSource.getIdleConnections() >= 0);
+        assertEquals("testActiveConnections not leaked", 0, dataSource.getLeakedConnections().length);
+
+        connection.close();
+        assertEquals("testActiveConnections closed", active, dataSource.getActiveConnections());
+        connection.close();
+        assertEquals("testActiveConnections closed twice", active, dataSource.getActiveConnections());
+    }
+
+    /**
+     * Test that the time taken to get connections is recorded.
+     */
+    @Test
+    public void testAcquireTime() throws Exception
+    {
+        MonitoredDataSource dataSource = DatabaseManager.getDataSource().unwrap(MonitoredDataSource.class);
+        dataSource.resetStatistics();
+        dataSource.getConnection().close();
+        dataSource.getConnection().close();
+
+        assertEquals("testAcquireTime count", 2, dataSource.getAcquireCount());
+        assertEquals("testAcquireTime failures", 0, dataSource.getAcquireFailures());
+        assertTrue("testAcquireTime max", dataSource.getMaxAcquireTime() >= dataSource.getMeanAcquireTime());
+
+        long total = 0;
+        for (String range : dataSource.getAcquireTimeHistogram().split(", "))
+        {
+            total += Long.parseLong(range.substring(range.indexOf(": ") + 2));
+        }
+        assertEquals("testAcquireTime histogram", 2, total);
+    }
+}
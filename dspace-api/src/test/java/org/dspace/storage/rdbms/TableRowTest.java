@@ -10,6 +10,7 @@ package org.dspace.storage.rdbms;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -226,6 +227,31 @@ public class TableRowTest
         assertEquals(expResult, result);
     }
 
+    /**
+     * Test that rows with the same columns in another order or case are equal.
+     */
+    @Test
+    public void testEqualsColumnOrder()
+    {
+        System.out.println("equals, column order");
+        TableRow instance = new TableRow("row", Arrays.asList("first", "second"));
+        TableRow other = new TableRow("row", Arrays.asList("SECOND", "First"));
+        instance.setColumn("first", 1);
+        instance.setColumn("Second", "two");
+        other.setColumn("FIRST", 1);
+        other.setColumn("second", "two");
+        assertTrue(instance.hasColumn("FIRST"));
+        assertFalse(instance.hasColumn("third"));
+        assertEquals(instance, other);
+        assertEquals(instance.hashCode(), other.hashCode());
+
+        other.resetChanged();
+        assertFalse(other.hasColumnChanged("second"));
+        other.setColumn("second", "2");
+        assertTrue(other.hasColumnChanged("SECOND"));
+        assertFalse(instance.equals(other));
+    }
+
     /**
      * Test of getDoubleColumn method, of class TableRow.
      */
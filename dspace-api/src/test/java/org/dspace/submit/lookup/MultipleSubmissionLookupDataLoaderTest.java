@@ -0,0 +1,141 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.submit.lookup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import gr.ekt.bte.core.DataLoader;
+import gr.ekt.bte.core.Record;
+import gr.ekt.bte.core.RecordSet;
+import gr.ekt.bte.core.StringValue;
+import gr.ekt.bte.record.MapRecord;
+import org.apache.http.HttpException;
+import org.dspace.core.Context;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit Tests for class MultipleSubmissionLookupDataLoader, with providers
+ * which answer after a given delay
+ */
+public class MultipleSubmissionLookupDataLoaderTest
+{
+    /**
+     * A provider which returns one record, named after it, after a delay
+     */
+    private static class DelayedDataLoader extends NetworkSubmissionLookupDataLoader
+    {
+        private final String name;
+        private final long delay;
+
+        DelayedDataLoader(String name, long delay)
+        {
+            this.name = name;
+            this.delay = delay;
+        }
+
+        @Override
+        public List<String> getSupportedIdentifiers()
+        {
+            return Arrays.asList(PUBMED);
+        }
+
+        @Override
+        public boolean isSearchProvider()
+        {
+            return false;
+        }
+
+        @Override
+        public List<Record> search(Context context, String title, String author, int year)
+        {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<Record> getByIdentifier(Context context, Map<String, Set<String>> keys)
+                throws HttpException, IOException
+        {
+            try
+            {
+                Thread.sleep(delay);
+            }
+            catch (InterruptedException e)
+            {
+                throw new IOException("Interrupted");
+            }
+            MapRecord record = new MapRecord();
+            record.addValue("title", new StringValue(name));
+            List<Record> records = new ArrayList<Record>();
+            records.add(record);
+            return records;
+        }
+    }
+
+    private MultipleSubmissionLookupDataLoader getLoader(long timeout)
+    {
+        Map<String, DataLoader> providers = new HashMap<String, DataLoader>();
+        providers.put("fast", new DelayedDataLoader("fast", 100));
+        providers.put("medium", new DelayedDataLoader("medium", 300));
+        providers.put("slow", new DelayedDataLoader("slow", 3000));
+
+        MultipleSubmissionLookupDataLoader loader = new MultipleSubmissionLookupDataLoader();
+        loader.setDataloadersMap(providers);
+        loader.setTimeout(timeout);
+        Map<String, Set<String>> identifiers = new HashMap<String, Set<String>>();
+        identifiers.put(SubmissionLookupDataLoader.PUBMED, Collections.singleton("12345"));
+        loader.setIdentifiers(identifiers);
+        return loader;
+    }
+
+    private List<String> getProviders(RecordSet records)
+    {
+        List<String> providers = new ArrayList<String>();
+        for (Record record : records.getRecords())
+        {
+            providers.add(SubmissionLookupUtils.getFirstValue(record,
+                    SubmissionLookupService.PROVIDER_NAME_FIELD));
+        }
+        Collections.sort(providers);
+        return providers;
+    }
+
+    /**
+     * Test that the providers are queried at the same time, and that those
+     * which do not answer in time are left out.
+     */
+    @Test
+    public void testGetRecordsTimeout() throws Exception
+    {
+        long start = System.currentTimeMillis();
+        RecordSet records = getLoader(1000).getRecords();
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals("testGetRecordsTimeout providers", Arrays.asList("fast", "medium"), getProviders(records));
+        assertTrue("testGetRecordsTimeout waited for the deadline only", elapsed < 2500);
+    }
+
+    /**
+     * Test that without a timeout all providers are waited for.
+     */
+    @Test
+    public void testGetRecordsNoTimeout() throws Exception
+    {
+        RecordSet records = getLoader(0).getRecords();
+        assertEquals("testGetRecordsNoTimeout providers", Arrays.asList("fast", "medium", "slow"),
+                getProviders(records));
+    }
+}
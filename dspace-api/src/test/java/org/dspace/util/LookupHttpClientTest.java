@@ -0,0 +1,156 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.dspace.AbstractUnitTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit Tests for class LookupHttpClient, against a local HTTP server which
+ * counts the requests it gets
+ */
+public class LookupHttpClientTest extends AbstractUnitTest
+{
+    private HttpServer server;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private String base;
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        }
+        catch (IOException e)
+        {
+            fail("Unable to start HTTP server: " + e.getMessage());
+        }
+        server.createContext("/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                requests.incrementAndGet();
+                try
+                {
+                    // Long enough for concurrent requests to overlap
+                    Thread.sleep(200);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                String path = exchange.getRequestURI().getPath();
+                byte[] body = ("response " + requests.get()).getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(path.startsWith("/missing") ? 404 : 200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        base = "http://localhost:" + server.getAddress().getPort();
+        LookupHttpClient.clearCache();
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        server.stop(0);
+        LookupHttpClient.shutdown();
+        super.destroy();
+    }
+
+    /**
+     * Test that a repeated request is answered from the cache, whatever the
+     * order of its parameters.
+     */
+    @Test
+    public void testCache() throws IOException
+    {
+        LookupHttpClient.Response first = LookupHttpClient.get(URI.create(base + "/query?a=1&b=2"), 1000);
+        assertEquals("testCache status", 200, first.getStatusCode());
+        assertEquals("testCache body", "response 1", IOUtils.toString(first.getContent(), "UTF-8"));
+
+        LookupHttpClient.Response second = LookupHttpClient.get(URI.create(base + "/query?b=2&a=1"), 1000);
+        assertEquals("testCache cached body", "response 1", IOUtils.toString(second.getContent(), "UTF-8"));
+        assertEquals("testCache one request", 1, requests.get());
+
+        LookupHttpClient.get(URI.create(base + "/query?a=1&b=3"), 1000);
+        assertEquals("testCache other query", 2, requests.get());
+    }
+
+    /**
+     * Test that unsuccessful responses are not cached.
+     */
+    @Test
+    public void testNotFoundNotCached() throws IOException
+    {
+        assertEquals("testNotFoundNotCached status", 404,
+                LookupHttpClient.get(URI.create(base + "/missing"), 1000).getStatusCode());
+        LookupHttpClient.get(URI.create(base + "/missing"), 1000);
+        assertEquals("testNotFoundNotCached two requests", 2, requests.get());
+    }
+
+    /**
+     * Test that identical requests made at the same time are sent once.
+     */
+    @Test
+    public void testCoalescing() throws Exception
+    {
+        final URI uri = URI.create(base + "/concurrent?q=x");
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        List<Future<String>> results = new ArrayList<Future<String>>();
+        for (int i = 0; i < 4; i++)
+        {
+            results.add(threads.submit(new Callable<String>()
+            {
+                @Override
+                public String call() throws IOException
+                {
+                    return IOUtils.toString(LookupHttpClient.get(uri, 1000).getContent(), "UTF-8");
+                }
+            }));
+        }
+        for (Future<String> result : results)
+        {
+            assertEquals("testCoalescing body", "response 1", result.get());
+        }
+        threads.shutdown();
+        assertEquals("testCoalescing one request", 1, requests.get());
+        assertNotNull("testCoalescing pool stats", LookupHttpClient.getPoolStats());
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.util;
+
+import org.apache.solr.client.solrj.impl.HttpSolrServer;
+import org.dspace.AbstractUnitTest;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit Tests for class SolrClientRegistry
+ */
+public class SolrClientRegistryTest extends AbstractUnitTest
+{
+    @After
+    @Override
+    public void destroy()
+    {
+        SolrClientRegistry.shutdown();
+        super.destroy();
+    }
+
+    /**
+     * Test that each core URL gets one client, sharing one connection pool.
+     */
+    @Test
+    public void testGetServer()
+    {
+        HttpSolrServer search = SolrClientRegistry.getServer("http://localhost:8080/solr/search");
+        HttpSolrServer statistics = SolrClientRegistry.getServer("http://localhost:8080/solr/statistics");
+
+        assertSame("testGetServer same url", search,
+                SolrClientRegistry.getServer("http://localhost:8080/solr/search"));
+        assertSame("testGetServer trailing slash", search,
+                SolrClientRegistry.getServer("http://localhost:8080/solr/search/"));
+        assertNotSame("testGetServer other core", search, statistics);
+        assertEquals("testGetServer base url", "http://localhost:8080/solr/search", search.getBaseURL());
+        assertSame("testGetServer shared client", search.getHttpClient(), statistics.getHttpClient());
+        assertTrue("testGetServer multipart post", search.isUseMultiPartPost());
+
+        assertNotNull("testGetServer pool stats", SolrClientRegistry.getPoolStats());
+        assertEquals("testGetServer nothing leased", 0, SolrClientRegistry.getPoolStats().getLeased());
+    }
+
+    /**
+     * Test that the pool is closed and recreated after a shutdown.
+     */
+    @Test
+    public void testShutdown()
+    {
+        HttpSolrServer search = SolrClientRegistry.getServer("http://localhost:8080/solr/search");
+        SolrClientRegistry.getUpdateServer("http://localhost:8080/solr/search");
+        SolrClientRegistry.shutdown();
+
+        assertNull("testShutdown pool stats", SolrClientRegistry.getPoolStats());
+        assertNotSame("testShutdown new client", search,
+                SolrClientRegistry.getServer("http://localhost:8080/solr/search"));
+    }
+}
@@ -152,6 +152,7 @@ public class UIUtil extends Util
                 }
 	        }
             c.setExtraLogInfo("session_id=" + request.getSession().getId() + ":ip_addr=" + ip);
+            c.setInteractive(true);
 
             // Store the context in the request
             request.setAttribute("dspace.context", c);
@@ -25,7 +25,9 @@ public class DSpaceContextService implements ContextService {
         Object value = request.getAttribute(OAI_CONTEXT);
         if (value == null || !(value instanceof Context)) {
             try {
-                request.setAttribute(OAI_CONTEXT, new Context());
+                // OAI-PMH only reads, and can do with slightly stale data, so use
+                // the read-only replica if there is one
+                request.setAttribute(OAI_CONTEXT, new Context(Context.READ_REPLICA));
             } catch (SQLException e) {
                 throw new ContextServiceException(e);
             }
@@ -11,7 +11,7 @@ import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.SolrServerException;
-import org.apache.solr.client.solrj.impl.HttpSolrServer;
+import org.dspace.util.SolrClientRegistry;
 import org.dspace.xoai.services.api.config.ConfigurationService;
 import org.dspace.xoai.services.api.solr.SolrServerResolver;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -30,7 +30,7 @@ public class DSpaceSolrServerResolver implements SolrServerResolver {
         {
             try
             {
-                server = new HttpSolrServer(configurationService.getProperty("oai", "solr.url"));
+                server = SolrClientRegistry.getServer(configurationService.getProperty("oai", "solr.url"));
                 log.debug("Solr Server Initialized");
             }
             catch (Exception e)
@@ -12,8 +12,8 @@ import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.SolrServerException;
-import org.apache.solr.client.solrj.impl.HttpSolrServer;
 import org.dspace.core.ConfigurationManager;
+import org.dspace.util.SolrClientRegistry;
 
 /**
  * 
@@ -31,7 +31,7 @@ public class DSpaceSolrServer
         {
             try
             {
-                _server = new HttpSolrServer(
+                _server = SolrClientRegistry.getServer(
                         ConfigurationManager.getProperty("oai", "solr.url"));
                 log.debug("Solr Server Initialized");
             }            
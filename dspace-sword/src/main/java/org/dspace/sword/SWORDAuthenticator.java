@@ -68,6 +68,7 @@ public class SWORDAuthenticator
             Context context = new Context();
             // Set the session ID and IP address
             context.setExtraLogInfo("session_id=0:ip_addr=" + ip);
+            context.setInteractive(true);
 
             return context;
         }
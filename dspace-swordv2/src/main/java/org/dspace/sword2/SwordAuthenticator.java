@@ -71,6 +71,7 @@ public class SwordAuthenticator
             Context context = new Context();
             // Set the session ID and IP address
             context.setExtraLogInfo("session_id=0");
+            context.setInteractive(true);
 
             return context;
         }
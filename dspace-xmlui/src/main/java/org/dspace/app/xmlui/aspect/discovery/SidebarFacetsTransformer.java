@@ -151,6 +151,12 @@ public class SidebarFacetsTransformer extends AbstractDSpaceTransformer implemen
 
 
     public void performSearch() throws SearchServiceException, UIException, SQLException {
+        //Already done for this request, e.g. while computing the validity
+        if (queryResults != null)
+        {
+            return;
+        }
+
         DSpaceObject dso = getScope();
         Request request = ObjectModelHelper.getRequest(objectModel);
         queryArgs = getQueryArgs(context, dso, DiscoveryUIUtils.getFilterQueries(request, context));
@@ -367,12 +367,21 @@ public class Submissions extends AbstractDSpaceTransformer
             header.addCellContent(T_p_column3);
 
 
+            // Fetch the tasks of all the items at once rather than item by item
+            java.util.List<Integer> workflowItemIDs = new java.util.ArrayList<Integer>();
+            for (XmlWorkflowItem workflowItem : inprogressItems)
+            {
+                workflowItemIDs.add(workflowItem.getID());
+            }
+            java.util.Map<Integer, java.util.List<PoolTask>> allPooltasks = PoolTask.findByWorkflowItems(context, workflowItemIDs);
+            java.util.Map<Integer, java.util.List<ClaimedTask>> allClaimedtasks = ClaimedTask.findByWorkflowItems(context, workflowItemIDs);
+
             for (XmlWorkflowItem workflowItem : inprogressItems)
             {
                 Metadatum[] titles = workflowItem.getItem().getDC("title", null, Item.ANY);
                 String collectionName = workflowItem.getCollection().getMetadata("name");
-                java.util.List<PoolTask> pooltasks = PoolTask.find(context,workflowItem);
-                java.util.List<ClaimedTask> claimedtasks = ClaimedTask.find(context, workflowItem);
+                java.util.List<PoolTask> pooltasks = allPooltasks.get(workflowItem.getID());
+                java.util.List<ClaimedTask> claimedtasks = allClaimedtasks.get(workflowItem.getID());
 
                 Message state = message("xmlui.XMLWorkflow.step.unknown");
                 for(PoolTask task: pooltasks){
@@ -87,6 +87,7 @@ public class ContextUtil
         {
             // No context for this request yet
             context = new Context();
+            context.setInteractive(true);
 
             // Set the session ID
             context.setExtraLogInfo("session_id="